@@ -0,0 +1,235 @@
+package uk.ac.manchester.cs.owl.experimentbench;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares JMH results (written with -rf csv) with a baseline.  A benchmark has regressed if its score is worse than
+ * the baseline score by more than the threshold, and by more than the error of the two scores, so that noise is not
+ * reported as a regression.  The exit code is 1 if any benchmark has regressed.
+ */
+public class BenchmarkComparison {
+
+    public static final double DEFAULT_THRESHOLD = 0.1;
+
+    private static final String THROUGHPUT_MODE = "thrpt";
+
+    private BenchmarkComparison() {
+    }
+
+    /**
+     * Reads JMH results in CSV format.
+     * @param file The file.
+     * @return The results, keyed by benchmark name and parameter values.
+     * @throws IOException If the file could not be read or is not in the expected format.
+     */
+    public static Map<String, Result> readResults(File file) throws IOException {
+        Map<String, Result> results = new LinkedHashMap<String, Result>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+        try {
+            String headerLine = reader.readLine();
+            if (headerLine == null) {
+                return results;
+            }
+            List<String> header = parseLine(headerLine);
+            int benchmarkColumn = getColumn(header, "Benchmark", file);
+            int modeColumn = getColumn(header, "Mode", file);
+            int scoreColumn = getColumn(header, "Score", file);
+            int errorColumn = getColumn(header, "Score Error (99.9%)", file);
+            int unitColumn = getColumn(header, "Unit", file);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                List<String> values = parseLine(line);
+                if (values.size() != header.size()) {
+                    throw new IOException("Malformed line in " + file + ": " + line);
+                }
+                StringBuilder key = new StringBuilder(values.get(benchmarkColumn));
+                for (int i = 0; i < header.size(); i++) {
+                    if (header.get(i).startsWith("Param: ") && !values.get(i).isEmpty()) {
+                        key.append(" ");
+                        key.append(header.get(i).substring("Param: ".length()));
+                        key.append("=");
+                        key.append(values.get(i));
+                    }
+                }
+                results.put(key.toString(), new Result(values.get(modeColumn),
+                        parseScore(values.get(scoreColumn)),
+                        parseScore(values.get(errorColumn)),
+                        values.get(unitColumn)));
+            }
+        }
+        finally {
+            reader.close();
+        }
+        return results;
+    }
+
+    private static int getColumn(List<String> header, String name, File file) throws IOException {
+        int column = header.indexOf(name);
+        if (column == -1) {
+            throw new IOException("Column " + name + " not found in " + file);
+        }
+        return column;
+    }
+
+    private static double parseScore(String value) {
+        try {
+            return Double.parseDouble(value);
+        }
+        catch (NumberFormatException e) {
+            // JMH writes NaN errors for single samples
+            return 0;
+        }
+    }
+
+    private static List<String> parseLine(String line) {
+        List<String> values = new ArrayList<String>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        value.append('"');
+                        i++;
+                    }
+                    else {
+                        quoted = false;
+                    }
+                }
+                else {
+                    value.append(c);
+                }
+            }
+            else if (c == '"') {
+                quoted = true;
+            }
+            else if (c == ',') {
+                values.add(value.toString());
+                value.setLength(0);
+            }
+            else {
+                value.append(c);
+            }
+        }
+        values.add(value.toString());
+        return values;
+    }
+
+    /**
+     * Compares results with a baseline and prints a line for each benchmark.
+     * @param baseline The baseline results.
+     * @param current The current results.
+     * @param threshold The fraction by which a score must be worse than the baseline for it to be a regression.
+     * @param out The stream that the comparison is printed to.
+     * @return The number of benchmarks that have regressed.
+     */
+    public static int compare(Map<String, Result> baseline, Map<String, Result> current, double threshold, PrintStream out) {
+        int regressions = 0;
+        for (String key : current.keySet()) {
+            Result currentResult = current.get(key);
+            Result baselineResult = baseline.get(key);
+            if (baselineResult == null) {
+                out.println("NEW        " + key + "  " + currentResult);
+                continue;
+            }
+            if (!baselineResult.unit.equals(currentResult.unit) || !baselineResult.mode.equals(currentResult.mode)) {
+                out.println("CHANGED    " + key + "  " + baselineResult + " -> " + currentResult);
+                continue;
+            }
+            // For throughput higher is better, for all of the other modes lower is better
+            double worseBy = baselineResult.isThroughput() ? baselineResult.score - currentResult.score : currentResult.score - baselineResult.score;
+            double change = baselineResult.score == 0 ? 0 : worseBy / baselineResult.score;
+            boolean significant = Math.abs(worseBy) > baselineResult.error + currentResult.error;
+            String status;
+            if (significant && change > threshold) {
+                status = "REGRESSED  ";
+                regressions++;
+            }
+            else if (significant && change < -threshold) {
+                status = "IMPROVED   ";
+            }
+            else {
+                status = "OK         ";
+            }
+            out.println(status + key + "  " + baselineResult + " -> " + currentResult + String.format("  (%+.1f%%)", change * 100));
+        }
+        for (String key : baseline.keySet()) {
+            if (!current.containsKey(key)) {
+                out.println("MISSING    " + key);
+            }
+        }
+        return regressions;
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 2 || args.length > 3) {
+            System.out.println("Compares JMH results with a baseline");
+            System.out.println("Arguments: <baseline csv> <results csv> [threshold (default " + DEFAULT_THRESHOLD + ")]");
+            System.exit(1);
+        }
+        try {
+            double threshold = args.length == 3 ? Double.parseDouble(args[2]) : DEFAULT_THRESHOLD;
+            Map<String, Result> baseline = readResults(new File(args[0]));
+            Map<String, Result> current = readResults(new File(args[1]));
+            int regressions = compare(baseline, current, threshold, System.out);
+            System.out.println();
+            System.out.println("Regressions: " + regressions);
+            System.exit(regressions == 0 ? 0 : 1);
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    public static class Result {
+
+        private String mode;
+
+        private double score;
+
+        private double error;
+
+        private String unit;
+
+        public Result(String mode, double score, double error, String unit) {
+            this.mode = mode;
+            this.score = score;
+            this.error = error;
+            this.unit = unit;
+        }
+
+        public String getMode() {
+            return mode;
+        }
+
+        public double getScore() {
+            return score;
+        }
+
+        public double getError() {
+            return error;
+        }
+
+        public String getUnit() {
+            return unit;
+        }
+
+        public boolean isThroughput() {
+            return mode.equals(THROUGHPUT_MODE);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%.3f +/- %.3f %s", score, error, unit);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package uk.ac.manchester.cs.owl.experimentbench;
+
+import org.openjdk.jmh.annotations.*;
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyManager;
+
+import java.io.File;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of creating an experiment object and invoking an experiment method reflectively, in the
+ * same way as {@link OntologyDocumentExperimentRunner} does, for an experiment method that does no work.  The
+ * experiment is given an ontology of each size so that any dependence of this cost on the ontology shows up.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExperimentInvocationBenchmark {
+
+    @Param({SyntheticOntology.SMALL, SyntheticOntology.MEDIUM, SyntheticOntology.LARGE})
+    public String size;
+
+    private ExperimentProperties properties;
+
+    private File ontologyDocument;
+
+    private OWLOntology ontology;
+
+    private File outputDirectory;
+
+    private Method experimentMethod;
+
+    private Object experiment;
+
+    @Setup
+    public void setUp() throws Exception {
+        properties = new ExperimentProperties();
+        ontologyDocument = SyntheticOntology.getOntologyDocument(size);
+        OWLOntologyManager manager = OWLManager.createOWLOntologyManager();
+        ontology = new OntologyDocumentLoader(properties).load(manager, ontologyDocument);
+        outputDirectory = new File(System.getProperty("java.io.tmpdir"));
+        experimentMethod = NoOpExperiment.class.getMethod("run");
+        experiment = createExperiment();
+    }
+
+    private Object createExperiment() throws Exception {
+        Constructor constructor = NoOpExperiment.class.getConstructor(ExperimentProperties.class, File.class, OWLOntology.class, File.class);
+        return constructor.newInstance(properties, ontologyDocument, ontology, outputDirectory);
+    }
+
+    @Benchmark
+    public Object invokeExperimentMethod() throws Exception {
+        return experimentMethod.invoke(experiment);
+    }
+
+    @Benchmark
+    public Object createExperimentAndInvokeExperimentMethod() throws Exception {
+        return experimentMethod.invoke(createExperiment());
+    }
+
+    @OntologyDocumentExperiment
+    public static class NoOpExperiment extends AbstractOntologyDocumentExperiment {
+
+        public NoOpExperiment(ExperimentProperties experimentProperties, File ontologyDocument, OWLOntology ontology, File outputDirectory) {
+            super(experimentProperties, ontologyDocument, ontology, outputDirectory);
+        }
+
+        @Experiment
+        public void run() {
+        }
+    }
+}
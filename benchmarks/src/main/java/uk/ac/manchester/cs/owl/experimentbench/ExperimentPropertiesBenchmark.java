@@ -0,0 +1,59 @@
+package uk.ac.manchester.cs.owl.experimentbench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of looking up experiment properties, both properties that are set (and so have to be parsed)
+ * and properties that fall back to their defaults.  Experiments often look properties up inside their loops.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExperimentPropertiesBenchmark {
+
+    private static final String LAYER_NAME = "benchmark";
+
+    private ExperimentProperties properties;
+
+    @Setup
+    public void setUp() {
+        properties = new ExperimentProperties.Builder()
+                .setProperty(LAYER_NAME, ExperimentProperties.REASONER_ENTAILMENT_CHECK_TIMEOUT_IN_MS_PROPERTY, "60000")
+                .setProperty(LAYER_NAME, ExperimentProperties.EXPERIMENT_TIME_OUT_IN_MS_PROPERTY_NAME, "3600000")
+                .setProperty(LAYER_NAME, ExperimentProperties.TOTAL_MEMORY_IN_MB_PROPERTY_NAME, "8000")
+                .setProperty(LAYER_NAME, ExperimentProperties.LOAD_ONTOLOGY_ONCE_PROPERTY_NAME, "true")
+                .setProperty(LAYER_NAME, ExperimentProperties.JOB_MEMORY_SAFETY_FACTOR_PROPERTY_NAME, "2.0")
+                .setProperty(LAYER_NAME, ExperimentProperties.EXECUTION_MODE_PROPERTY_NAME, ExperimentProperties.IN_PROCESS_EXECUTION_MODE)
+                .build();
+    }
+
+    @Benchmark
+    public long getLongProperty() {
+        return properties.getReasonerEntailmentCheckTimeOutInMilliSeconds();
+    }
+
+    @Benchmark
+    public int getDefaultIntProperty() {
+        return properties.getWorkers();
+    }
+
+    @Benchmark
+    public boolean getBooleanProperty() {
+        return properties.getBooleanProperty(ExperimentProperties.LOAD_ONTOLOGY_ONCE_PROPERTY_NAME, false);
+    }
+
+    @Benchmark
+    public double getDoubleProperty() {
+        return properties.getJobMemorySafetyFactor();
+    }
+
+    @Benchmark
+    public String getStringProperty() {
+        return properties.getProperty(ExperimentProperties.EXECUTION_MODE_PROPERTY_NAME, ExperimentProperties.FORKED_EXECUTION_MODE);
+    }
+}
@@ -0,0 +1,45 @@
+package uk.ac.manchester.cs.owl.experimentbench;
+
+import org.openjdk.jmh.annotations.*;
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.model.OWLOntology;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time taken to load an ontology document through {@link OntologyDocumentLoader}, with and without
+ * memory mapped loading.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+public class OntologyLoadBenchmark {
+
+    @Param({SyntheticOntology.SMALL, SyntheticOntology.MEDIUM, SyntheticOntology.LARGE})
+    public String size;
+
+    @Param({"false", "true"})
+    public boolean memoryMapped;
+
+    private ExperimentProperties properties;
+
+    private File ontologyDocument;
+
+    @Setup
+    public void setUp() throws Exception {
+        properties = new ExperimentProperties.Builder()
+                .setProperty("benchmark", ExperimentProperties.MEMORY_MAPPED_LOADING_PROPERTY_NAME, Boolean.toString(memoryMapped))
+                .build();
+        ontologyDocument = SyntheticOntology.getOntologyDocument(size);
+    }
+
+    @Benchmark
+    public OWLOntology load() throws Exception {
+        OntologyDocumentLoader loader = new OntologyDocumentLoader(properties);
+        return loader.load(OWLManager.createOWLOntologyManager(), ontologyDocument);
+    }
+}
@@ -0,0 +1,110 @@
+package uk.ac.manchester.cs.owl.experimentbench;
+
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.io.OWLXMLOntologyFormat;
+import org.semanticweb.owlapi.model.*;
+
+import java.io.*;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Generates the ontology documents that the benchmarks are run against.  The documents are OWL/XML documents
+ * containing a class hierarchy with existential restrictions, which is the shape of most of the ontologies that the
+ * bench is used with.  The documents are deterministic, so results from different machines and different runs
+ * are comparable, and they are generated once and then kept in the temporary directory.
+ */
+public class SyntheticOntology {
+
+    public static final String SMALL = "small";
+
+    public static final String MEDIUM = "medium";
+
+    public static final String LARGE = "large";
+
+    private static final String ONTOLOGY_IRI_PREFIX = "http://owlexperimentbench.sourceforge.net/benchmarks/";
+
+    private static final int PROPERTY_COUNT = 10;
+
+    private SyntheticOntology() {
+    }
+
+    /**
+     * Gets the number of classes in an ontology of the specified size.
+     * @param size One of {@link #SMALL}, {@link #MEDIUM} or {@link #LARGE}.
+     * @return The number of classes.  Each class has one declaration and two subclass axioms.
+     */
+    public static int getClassCount(String size) {
+        if (size.equals(SMALL)) {
+            return 1000;
+        }
+        else if (size.equals(MEDIUM)) {
+            return 10000;
+        }
+        else if (size.equals(LARGE)) {
+            return 50000;
+        }
+        else {
+            throw new IllegalArgumentException("Unknown ontology size: " + size);
+        }
+    }
+
+    /**
+     * Gets the document of an ontology of the specified size, generating it if it does not already exist.
+     * @param size One of {@link #SMALL}, {@link #MEDIUM} or {@link #LARGE}.
+     * @return The document, whose name ends with {@link OntologyDocumentLoader#ONTOLOGY_FILE_NAME_EXTENSION}.
+     * @throws IOException If the document could not be written.
+     */
+    public static synchronized File getOntologyDocument(String size) throws IOException {
+        int classCount = getClassCount(size);
+        File directory = new File(System.getProperty("java.io.tmpdir"), "owlexperimentbench-benchmarks");
+        File document = new File(directory, size + "-" + classCount + OntologyDocumentLoader.ONTOLOGY_FILE_NAME_EXTENSION);
+        if (document.exists()) {
+            return document;
+        }
+        directory.mkdirs();
+        File tempDocument = new File(directory, document.getName() + ".tmp");
+        try {
+            writeOntologyDocument(size, classCount, tempDocument);
+        }
+        catch (OWLException e) {
+            throw new IOException("Could not generate " + size + " ontology: " + e.getMessage());
+        }
+        if (!tempDocument.renameTo(document)) {
+            throw new IOException("Could not rename " + tempDocument + " to " + document);
+        }
+        return document;
+    }
+
+    private static void writeOntologyDocument(String size, int classCount, File document) throws OWLException, IOException {
+        OWLOntologyManager manager = OWLManager.createOWLOntologyManager();
+        OWLDataFactory dataFactory = manager.getOWLDataFactory();
+        String prefix = ONTOLOGY_IRI_PREFIX + size + "#";
+        OWLObjectProperty[] properties = new OWLObjectProperty[PROPERTY_COUNT];
+        for (int i = 0; i < PROPERTY_COUNT; i++) {
+            properties[i] = dataFactory.getOWLObjectProperty(IRI.create(prefix + "p" + i));
+        }
+        Set<OWLAxiom> axioms = new HashSet<OWLAxiom>();
+        for (int i = 0; i < classCount; i++) {
+            OWLClass cls = getClass(dataFactory, prefix, i);
+            axioms.add(dataFactory.getOWLDeclarationAxiom(cls));
+            if (i > 0) {
+                axioms.add(dataFactory.getOWLSubClassOfAxiom(cls, getClass(dataFactory, prefix, (i - 1) / 2)));
+            }
+            OWLClassExpression filler = getClass(dataFactory, prefix, (int) ((i * 7L + 3) % classCount));
+            axioms.add(dataFactory.getOWLSubClassOfAxiom(cls, dataFactory.getOWLObjectSomeValuesFrom(properties[i % PROPERTY_COUNT], filler)));
+        }
+        OWLOntology ontology = manager.createOntology(axioms, IRI.create(ONTOLOGY_IRI_PREFIX + size));
+        OutputStream os = new BufferedOutputStream(new FileOutputStream(document));
+        try {
+            manager.saveOntology(ontology, new OWLXMLOntologyFormat(), os);
+        }
+        finally {
+            os.close();
+        }
+    }
+
+    private static OWLClass getClass(OWLDataFactory dataFactory, String prefix, int index) {
+        return dataFactory.getOWLClass(IRI.create(prefix + "C" + index));
+    }
+}
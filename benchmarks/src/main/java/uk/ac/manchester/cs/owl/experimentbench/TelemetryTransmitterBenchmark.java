@@ -0,0 +1,100 @@
+package uk.ac.manchester.cs.owl.experimentbench;
+
+import org.openjdk.jmh.annotations.*;
+import org.semanticweb.owl.explanation.telemetry.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of beginning and ending a transmission and of recording measurements through the
+ * {@link TelemetryTransmitter}, with no receiver, with the XML receiver and with the binary receiver.  Output is
+ * discarded so that the disk does not dominate the measurements.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TelemetryTransmitterBenchmark {
+
+    @Param({"null", "xml", "binary"})
+    public String receiver;
+
+    private TelemetryTransmitter transmitter;
+
+    private TelemetryInfo rootInfo = new DefaultTelemetryInfo("benchmark");
+
+    private TelemetryInfo info = new DefaultTelemetryInfo("transmission");
+
+    private File binaryTelemetryFile;
+
+    private long value = 0;
+
+    @Setup
+    public void setUp() throws IOException {
+        transmitter = TelemetryTransmitter.getTransmitter();
+        if (receiver.equals("xml")) {
+            transmitter.setTelemetryReceiver(new XMLTelemetryReceiver(new NullWriter()));
+        }
+        else if (receiver.equals("binary")) {
+            File nullDevice = new File("/dev/null");
+            if (nullDevice.exists()) {
+                binaryTelemetryFile = nullDevice;
+            }
+            else {
+                binaryTelemetryFile = File.createTempFile("telemetry", ".bin");
+                binaryTelemetryFile.deleteOnExit();
+            }
+            transmitter.setTelemetryReceiver(new BinaryTelemetryReceiver(binaryTelemetryFile));
+        }
+        else {
+            transmitter.setTelemetryReceiver(new NullTelemetryReceiver());
+        }
+        // The receivers finish their output when the root transmission ends, so keep it open
+        transmitter.beginTransmission(rootInfo);
+    }
+
+    @TearDown
+    public void tearDown() {
+        transmitter.endTransmission(rootInfo);
+        transmitter.setTelemetryReceiver(new NullTelemetryReceiver());
+    }
+
+    @Benchmark
+    public void beginAndEndTransmission() {
+        transmitter.beginTransmission(info);
+        transmitter.endTransmission(info);
+    }
+
+    @Benchmark
+    public void recordMeasurements() {
+        transmitter.beginTransmission(info);
+        transmitter.recordMeasurement(info, "count", value++);
+        transmitter.recordMeasurement(info, "entailed", true);
+        transmitter.recordMeasurement(info, "result", "ok");
+        transmitter.endTransmission(info);
+    }
+
+    private static class NullWriter extends Writer {
+
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+        }
+
+        @Override
+        public void write(String str, int off, int len) {
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
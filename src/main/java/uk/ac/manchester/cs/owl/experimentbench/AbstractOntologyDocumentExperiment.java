@@ -1,6 +1,8 @@
 package uk.ac.manchester.cs.owl.experimentbench;
 
 import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.reasoner.OWLReasoner;
+import org.semanticweb.owlapi.reasoner.OWLReasonerConfiguration;
 
 import java.io.BufferedOutputStream;
 import java.io.File;
@@ -21,11 +23,14 @@ public class AbstractOntologyDocumentExperiment {
 
     private File outputDirectory;
 
+    private ExperimentContext experimentContext;
+
     public AbstractOntologyDocumentExperiment(ExperimentProperties experimentProperties, File ontologyDocument, OWLOntology ontology, File outputDirectory) {
         this.experimentProperties = experimentProperties;
         this.ontologyDocument = ontologyDocument;
         this.ontology = ontology;
         this.outputDirectory = outputDirectory;
+        this.experimentContext = ExperimentContext.current();
     }
 
     public ExperimentProperties getExperimentProperties() {
@@ -36,10 +41,44 @@ public class AbstractOntologyDocumentExperiment {
         return ontologyDocument;
     }
 
+    /**
+     * Gets the context of this run of the experiment, which holds its deadline.  This is the context that was current
+     * (see {@link ExperimentContext#current()}) when the experiment was constructed, so it can be used in the
+     * constructor of a subclass.
+     */
+    public ExperimentContext getExperimentContext() {
+        return experimentContext;
+    }
+
+    /**
+     * Gets a reasoner configuration whose time out is capped at the time that is left until the deadline of this
+     * experiment.
+     */
+    public OWLReasonerConfiguration getReasonerConfiguration() {
+        return experimentProperties.getReasonerConfiguration(experimentContext);
+    }
+
     public OWLOntology getOntology() {
         return ontology;
     }
 
+    /**
+     * Gets the reasoner that the runner shares between the experiment methods that run on this ontology with the same
+     * reasoner factory and matrix configuration.  The inferences named by the precomputedinferences property have
+     * already been computed, and the time that this took is recorded as the classificationtime of the job rather
+     * than as part of the experiment.  The reasoner belongs to the runner, so experiments must not dispose of it.
+     * @return The shared reasoner.
+     * @throws IllegalStateException if the experiment method is not annotated with
+     * &#64;Experiment(sharedReasoner = true).
+     */
+    public OWLReasoner getSharedReasoner() {
+        OWLReasoner reasoner = ReasonerPool.getActiveReasoner();
+        if (reasoner == null || reasoner.getRootOntology() != ontology) {
+            throw new IllegalStateException("There is no shared reasoner.  The experiment method must be annotated with @Experiment(sharedReasoner = true)");
+        }
+        return reasoner;
+    }
+
     public File getOutputDirectory() {
         return outputDirectory;
     }
@@ -0,0 +1,112 @@
+package uk.ac.manchester.cs.owl.experimentbench;
+
+import org.coode.xml.XMLWriterNamespaceManager;
+import org.semanticweb.owl.explanation.telemetry.TelemetryXMLWriter;
+
+import java.io.*;
+
+/**
+ * Converts telemetry that was written by a {@link BinaryTelemetryReceiver} into the XML that an
+ * {@link org.semanticweb.owl.explanation.telemetry.XMLTelemetryReceiver} would have written.  The XML is written
+ * with the same writer that the XML receiver uses.  If the binary file was cut short (e.g. because the runner was
+ * killed) then the records up to the last complete record are converted and any open elements are closed.
+ */
+public class BinaryTelemetryConverter implements TelemetryRecordHandler {
+
+    private static final String ROOT_ELEMENT_NAME = "experiments";
+
+    private TelemetryXMLWriter xmlWriter;
+
+    private int depth = 0;
+
+    private BinaryTelemetryConverter(TelemetryXMLWriter xmlWriter) {
+        this.xmlWriter = xmlWriter;
+    }
+
+    /**
+     * Converts a binary telemetry file to XML.
+     * @param binaryTelemetryFile The binary telemetry file.
+     * @param xmlTelemetryFile The file that the XML should be written to.
+     * @throws IOException If the binary file could not be read, or is not a binary telemetry file, or the XML file
+     * could not be written.
+     */
+    public static void convert(File binaryTelemetryFile, File xmlTelemetryFile) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(xmlTelemetryFile), "UTF-8"), 1024 * 1024);
+        try {
+            TelemetryXMLWriter xmlWriter = new TelemetryXMLWriter(writer, new XMLWriterNamespaceManager(""), "");
+            xmlWriter.startDocument(ROOT_ELEMENT_NAME);
+            BinaryTelemetryConverter converter = new BinaryTelemetryConverter(xmlWriter);
+            BinaryTelemetryReader.read(binaryTelemetryFile, converter);
+            while (converter.depth > 0) {
+                converter.endTransmission();
+            }
+            xmlWriter.endDocument();
+        }
+        finally {
+            writer.close();
+        }
+    }
+
+    public void beginTransmission(String name) throws IOException {
+        xmlWriter.writeStartElement(name);
+        depth++;
+    }
+
+    public void endTransmission() throws IOException {
+        if (depth > 0) {
+            xmlWriter.writeEndElement();
+            depth--;
+        }
+    }
+
+    public void measurement(String name, String value) throws IOException {
+        xmlWriter.writeStartElement("measurement");
+        xmlWriter.writeAttribute("name", name);
+        xmlWriter.writeAttribute("value", value);
+        xmlWriter.writeEndElement();
+    }
+
+    public void object(String name, byte kind, String content) throws IOException {
+        xmlWriter.writeStartElement("object");
+        xmlWriter.writeAttribute("name", name);
+        if (kind == BinaryTelemetryReceiver.CDATA_OBJECT) {
+            xmlWriter.writeCData(content);
+        }
+        else if (kind == BinaryTelemetryReceiver.XML_OBJECT) {
+            xmlWriter.writeXMLContent(content);
+        }
+        else {
+            xmlWriter.writeTextContent(content);
+        }
+        xmlWriter.writeEndElement();
+    }
+
+    public void exception(String className, String message, String stackTrace) throws IOException {
+        xmlWriter.writeStartElement("exception");
+        writeTextElement("class", className);
+        writeTextElement("message", message);
+        writeTextElement("stacktrace", stackTrace);
+        xmlWriter.writeEndElement();
+    }
+
+    private void writeTextElement(String name, String text) throws IOException {
+        xmlWriter.writeStartElement(name);
+        xmlWriter.writeTextContent(text);
+        xmlWriter.writeEndElement();
+    }
+
+    public static void main(String[] args) {
+        if (args.length != 2) {
+            System.out.println("Converts binary telemetry to XML telemetry");
+            System.out.println("Arguments: <binary telemetry file> <xml telemetry file>");
+            System.exit(1);
+        }
+        try {
+            convert(new File(args[0]), new File(args[1]));
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package uk.ac.manchester.cs.owl.experimentbench;
+
+import java.io.*;
+
+/**
+ * Reads telemetry that was written by a {@link BinaryTelemetryReceiver}.  If the file was cut short (e.g. because
+ * the runner was killed) then the records up to the last complete record are read.
+ */
+public class BinaryTelemetryReader {
+
+    private BinaryTelemetryReader() {
+    }
+
+    /**
+     * Reads a binary telemetry file.
+     * @param binaryTelemetryFile The file.
+     * @param handler The handler that the records of the file are passed to.
+     * @throws IOException If the file could not be read, or is not a binary telemetry file.
+     */
+    public static void read(File binaryTelemetryFile, TelemetryRecordHandler handler) throws IOException {
+        DataInputStream is = new DataInputStream(new BufferedInputStream(new FileInputStream(binaryTelemetryFile), 1024 * 1024));
+        try {
+            int magic = is.readInt();
+            int formatVersion = is.readInt();
+            if (magic != BinaryTelemetryReceiver.MAGIC || formatVersion != BinaryTelemetryReceiver.FORMAT_VERSION) {
+                throw new IOException(binaryTelemetryFile + " is not a binary telemetry file");
+            }
+            readRecords(is, handler);
+        }
+        catch (EOFException e) {
+            throw new IOException(binaryTelemetryFile + " is not a binary telemetry file");
+        }
+        finally {
+            is.close();
+        }
+    }
+
+    private static void readRecords(DataInputStream is, TelemetryRecordHandler handler) throws IOException {
+        while (true) {
+            byte[] record;
+            try {
+                int length = is.readInt();
+                record = new byte[length];
+                is.readFully(record);
+            }
+            catch (EOFException e) {
+                return;
+            }
+            DataInputStream recordStream = new DataInputStream(new ByteArrayInputStream(record));
+            byte type = recordStream.readByte();
+            switch (type) {
+                case BinaryTelemetryReceiver.BEGIN_TRANSMISSION_RECORD:
+                    handler.beginTransmission(readString(recordStream));
+                    break;
+                case BinaryTelemetryReceiver.END_TRANSMISSION_RECORD:
+                    handler.endTransmission();
+                    break;
+                case BinaryTelemetryReceiver.MEASUREMENT_RECORD:
+                    handler.measurement(readString(recordStream), readString(recordStream));
+                    break;
+                case BinaryTelemetryReceiver.OBJECT_RECORD:
+                    byte kind = recordStream.readByte();
+                    handler.object(readString(recordStream), kind, readString(recordStream));
+                    break;
+                case BinaryTelemetryReceiver.EXCEPTION_RECORD:
+                    handler.exception(readString(recordStream), readString(recordStream), readString(recordStream));
+                    break;
+                default:
+                    throw new IOException("Unknown telemetry record type: " + type);
+            }
+        }
+    }
+
+    private static String readString(DataInputStream is) throws IOException {
+        int length = is.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        is.readFully(bytes);
+        return new String(bytes, "UTF-8");
+    }
+}
@@ -0,0 +1,427 @@
+package uk.ac.manchester.cs.owl.experimentbench;
+
+import org.coode.owlapi.owlxml.renderer.OWLXMLObjectRenderer;
+import org.coode.owlapi.owlxml.renderer.OWLXMLWriter;
+import org.semanticweb.owl.explanation.telemetry.TelemetryInfo;
+import org.semanticweb.owl.explanation.telemetry.TelemetryObject;
+import org.semanticweb.owl.explanation.telemetry.TelemetryReceiver;
+import org.semanticweb.owl.explanation.telemetry.TelemetryTimer;
+import org.semanticweb.owlapi.model.OWLAxiom;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.*;
+
+/**
+ * A telemetry receiver that writes a compact binary stream instead of XML.  Records are appended to a
+ * preallocated direct buffer.  When the buffer is full it is handed to a background thread, which writes it to
+ * disk, and a second buffer takes its place.  The thread that records telemetry therefore only waits for I/O if
+ * the disk falls a whole buffer behind.
+ * <p>
+ *     The file starts with {@link #MAGIC} and {@link #FORMAT_VERSION}.  This is followed by records, each of which is
+ *     an int length (which does not include the length itself), a byte record type and the fields of the record.
+ *     Strings are written as an int byte count followed by UTF-8 bytes, or -1 for null.  Objects are rendered when
+ *     they are recorded in the same way as {@link org.semanticweb.owl.explanation.telemetry.XMLTelemetryReceiver}
+ *     renders them.  Use {@link BinaryTelemetryConverter} to convert a binary telemetry file to XML.
+ * </p>
+ */
+public class BinaryTelemetryReceiver implements TelemetryReceiver {
+
+    public static final int MAGIC = 0x4F54454C;
+
+    public static final int FORMAT_VERSION = 1;
+
+    public static final byte BEGIN_TRANSMISSION_RECORD = 1;
+
+    public static final byte END_TRANSMISSION_RECORD = 2;
+
+    public static final byte MEASUREMENT_RECORD = 3;
+
+    public static final byte OBJECT_RECORD = 4;
+
+    public static final byte EXCEPTION_RECORD = 5;
+
+    public static final byte TEXT_OBJECT = 0;
+
+    public static final byte XML_OBJECT = 1;
+
+    public static final byte CDATA_OBJECT = 2;
+
+    public static final int DEFAULT_BUFFER_SIZE = 4 * 1024 * 1024;
+
+    private static final int NULL_STRING_LENGTH = -1;
+
+    private FileOutputStream outputStream;
+
+    private FileChannel channel;
+
+    private ByteBuffer activeBuffer;
+
+    private ByteBuffer spareBuffer;
+
+    private ByteBuffer pendingBuffer;
+
+    private final Object bufferLock = new Object();
+
+    private boolean closing = false;
+
+    private IOException flushException;
+
+    private Thread flusherThread;
+
+    private Thread shutdownHook;
+
+    private Stack<TelemetryInfo> telemetryNodeStack = new Stack<TelemetryInfo>();
+
+    private Stack<Boolean> ignoreNodeStack = new Stack<Boolean>();
+
+    private Set<String> ignoredNodeNames = new HashSet<String>();
+
+    private Map<String, byte[]> encodedNames = new HashMap<String, byte[]>();
+
+    private boolean closed = false;
+
+    public BinaryTelemetryReceiver(File file) throws IOException {
+        this(file, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * @param file The file that telemetry should be written to.
+     * @param bufferSize The size, in bytes, of each of the two buffers.
+     * @throws IOException If the file could not be opened.
+     */
+    public BinaryTelemetryReceiver(File file, int bufferSize) throws IOException {
+        outputStream = new FileOutputStream(file);
+        channel = outputStream.getChannel();
+        activeBuffer = ByteBuffer.allocateDirect(bufferSize);
+        spareBuffer = ByteBuffer.allocateDirect(bufferSize);
+        activeBuffer.putInt(MAGIC);
+        activeBuffer.putInt(FORMAT_VERSION);
+        flusherThread = new Thread(new Runnable() {
+            public void run() {
+                runFlusher();
+            }
+        }, "Binary telemetry flusher");
+        flusherThread.setDaemon(true);
+        flusherThread.start();
+        shutdownHook = new Thread(new Runnable() {
+            public void run() {
+                close();
+            }
+        }, "Binary telemetry shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    public void addIgnoreName(String name) {
+        ignoredNodeNames.add(name);
+    }
+
+    public synchronized void closeOpenTransmissions() {
+        while (!telemetryNodeStack.isEmpty()) {
+            endTransmission(telemetryNodeStack.peek());
+        }
+    }
+
+    private boolean isIgnoredTransmission() {
+        return !ignoreNodeStack.isEmpty() && ignoreNodeStack.peek();
+    }
+
+    public synchronized void beginTransmission(TelemetryInfo info) {
+        telemetryNodeStack.push(info);
+        boolean ignored = isIgnoredTransmission() || ignoredNodeNames.contains(info.getName());
+        ignoreNodeStack.push(ignored);
+        if (!ignored) {
+            byte[] name = encodeName(info.getName());
+            writeRecord(BEGIN_TRANSMISSION_RECORD, 0, name);
+        }
+    }
+
+    public synchronized void recordMeasurement(TelemetryInfo info, String name, String value) {
+        if (isIgnoredTransmission()) {
+            return;
+        }
+        writeRecord(MEASUREMENT_RECORD, 0, encodeName(name), encode(value));
+    }
+
+    public synchronized void recordTiming(TelemetryInfo info, String name, TelemetryTimer telemetryTimer) {
+        recordMeasurement(info, name, Long.toString(telemetryTimer.getEllapsedTime()));
+    }
+
+    public synchronized void recordObject(TelemetryInfo info, String name, String objectName, Object object) {
+        if (isIgnoredTransmission()) {
+            return;
+        }
+        List<TelemetryTimer> pausedTimers = pauseRunningTimers();
+        try {
+            ByteArrayOutputStream content = new ByteArrayOutputStream();
+            byte kind;
+            if (object instanceof TelemetryObject) {
+                TelemetryObject telemetryObject = (TelemetryObject) object;
+                telemetryObject.serialise(content);
+                kind = telemetryObject.isSerialisedAsXML() ? XML_OBJECT : TEXT_OBJECT;
+            }
+            else if (object instanceof OWLAxiom) {
+                Writer writer = new OutputStreamWriter(content, "UTF-8");
+                OWLXMLWriter owlxmlWriter = new OWLXMLWriter(writer, null);
+                ((OWLAxiom) object).accept(new OWLXMLObjectRenderer(owlxmlWriter));
+                writer.flush();
+                kind = XML_OBJECT;
+            }
+            else {
+                Writer writer = new OutputStreamWriter(content, "UTF-8");
+                writer.write(String.valueOf(object));
+                writer.flush();
+                kind = CDATA_OBJECT;
+            }
+            writeRecord(OBJECT_RECORD, 1, new byte[]{kind}, encodeName(name), encode(content.toString("UTF-8")));
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+        }
+        finally {
+            unpauseTimers(pausedTimers);
+        }
+    }
+
+    public synchronized void recordException(TelemetryInfo info, Throwable exception) {
+        List<TelemetryTimer> pausedTimers = pauseRunningTimers();
+        try {
+            StringWriter stackTrace = new StringWriter();
+            PrintWriter pw = new PrintWriter(stackTrace);
+            exception.printStackTrace(pw);
+            pw.flush();
+            writeRecord(EXCEPTION_RECORD, 0, encode(exception.getClass().getName()), encode(exception.getMessage()), encode(stackTrace.toString()));
+        }
+        finally {
+            unpauseTimers(pausedTimers);
+        }
+    }
+
+    public synchronized void endTransmission(TelemetryInfo info) {
+        if (!isIgnoredTransmission()) {
+            writeRecord(END_TRANSMISSION_RECORD, 0);
+        }
+        if (!telemetryNodeStack.isEmpty()) {
+            telemetryNodeStack.pop();
+        }
+        if (!ignoreNodeStack.isEmpty()) {
+            ignoreNodeStack.pop();
+        }
+        if (telemetryNodeStack.isEmpty()) {
+            close();
+        }
+    }
+
+    private List<TelemetryTimer> pauseRunningTimers() {
+        List<TelemetryTimer> pausedTimers = new ArrayList<TelemetryTimer>();
+        for (TelemetryInfo info : telemetryNodeStack) {
+            for (TelemetryTimer timer : info.getTimers()) {
+                if (timer.isRunning()) {
+                    timer.stop();
+                    pausedTimers.add(timer);
+                }
+            }
+        }
+        return pausedTimers;
+    }
+
+    private static void unpauseTimers(List<TelemetryTimer> pausedTimers) {
+        for (TelemetryTimer timer : pausedTimers) {
+            timer.start();
+        }
+    }
+
+    /**
+     * Names (of transmissions and measurements) are repeated many times, so their encoded form is cached.
+     */
+    private byte[] encodeName(String name) {
+        byte[] encoded = encodedNames.get(name);
+        if (encoded == null) {
+            encoded = encode(name);
+            encodedNames.put(name, encoded);
+        }
+        return encoded;
+    }
+
+    private static byte[] encode(String s) {
+        if (s == null) {
+            return null;
+        }
+        try {
+            return s.getBytes("UTF-8");
+        }
+        catch (UnsupportedEncodingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Writes a record.
+     * @param type The type of the record.
+     * @param rawFieldCount The number of fields, at the start of the fields, that are written as raw bytes rather
+     * than as strings.
+     * @param fields The fields.
+     */
+    private void writeRecord(byte type, int rawFieldCount, byte[]... fields) {
+        if (closed) {
+            return;
+        }
+        int length = 1;
+        for (int i = 0; i < fields.length; i++) {
+            if (i < rawFieldCount) {
+                length += fields[i].length;
+            }
+            else {
+                length += 4 + (fields[i] != null ? fields[i].length : 0);
+            }
+        }
+        int recordSize = 4 + length;
+        try {
+            ByteBuffer buffer;
+            if (recordSize <= activeBuffer.remaining()) {
+                buffer = activeBuffer;
+            }
+            else {
+                handOff();
+                if (recordSize <= activeBuffer.remaining()) {
+                    buffer = activeBuffer;
+                }
+                else {
+                    // Too large for a buffer.  This is rare, so write it directly once the flusher has caught up.
+                    waitForFlusher();
+                    buffer = ByteBuffer.allocate(recordSize);
+                }
+            }
+            buffer.putInt(length);
+            buffer.put(type);
+            for (int i = 0; i < fields.length; i++) {
+                if (i < rawFieldCount) {
+                    buffer.put(fields[i]);
+                }
+                else if (fields[i] == null) {
+                    buffer.putInt(NULL_STRING_LENGTH);
+                }
+                else {
+                    buffer.putInt(fields[i].length);
+                    buffer.put(fields[i]);
+                }
+            }
+            if (buffer != activeBuffer) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Hands the active buffer to the flusher thread and makes the spare buffer active.  Blocks if the flusher has not
+     * finished writing the previous buffer.
+     */
+    private void handOff() throws InterruptedException, IOException {
+        synchronized (bufferLock) {
+            while (pendingBuffer != null) {
+                bufferLock.wait();
+            }
+            if (flushException != null) {
+                throw flushException;
+            }
+            activeBuffer.flip();
+            pendingBuffer = activeBuffer;
+            activeBuffer = spareBuffer;
+            spareBuffer = null;
+            bufferLock.notifyAll();
+        }
+    }
+
+    private void waitForFlusher() throws InterruptedException {
+        synchronized (bufferLock) {
+            while (pendingBuffer != null) {
+                bufferLock.wait();
+            }
+        }
+    }
+
+    private void runFlusher() {
+        while (true) {
+            ByteBuffer buffer;
+            synchronized (bufferLock) {
+                while (pendingBuffer == null && !closing) {
+                    try {
+                        bufferLock.wait();
+                    }
+                    catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (pendingBuffer == null) {
+                    return;
+                }
+                buffer = pendingBuffer;
+            }
+            try {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            catch (IOException e) {
+                synchronized (bufferLock) {
+                    flushException = e;
+                }
+            }
+            buffer.clear();
+            synchronized (bufferLock) {
+                spareBuffer = buffer;
+                pendingBuffer = null;
+                bufferLock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Writes any buffered records to disk and closes the file.  Any telemetry that is received afterwards is
+     * discarded.
+     */
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        try {
+            handOff();
+            synchronized (bufferLock) {
+                closing = true;
+                bufferLock.notifyAll();
+            }
+            flusherThread.join();
+            if (flushException != null) {
+                flushException.printStackTrace();
+            }
+            outputStream.close();
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        finally {
+            closed = true;
+            if (Thread.currentThread() != shutdownHook) {
+                try {
+                    Runtime.getRuntime().removeShutdownHook(shutdownHook);
+                }
+                catch (IllegalStateException e) {
+                    // Already shutting down
+                }
+            }
+        }
+    }
+}
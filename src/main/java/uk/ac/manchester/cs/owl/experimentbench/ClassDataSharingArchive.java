@@ -0,0 +1,316 @@
+package uk.ac.manchester.cs.owl.experimentbench;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * An application class data sharing (AppCDS) archive of the classes that a runner loads, so that forked runner
+ * JVMs can map the OWL API and the experiment classes from the archive instead of loading and verifying them from
+ * the class path.  The archive is created from a representative job: the job is run once to record the list of
+ * classes that it loads, the archive is dumped from that list, and the job is then run several times without and
+ * with the archive to measure the start up time that the archive saves.  The median measurements, together with the
+ * java.home and class path that the archive was dumped with, are kept next to the archive in
+ * &lt;archive&gt;.properties.
+ * <p>
+ *     The archive is only valid for the JVM that dumped it and for the class path that it was dumped with, so it must
+ *     be created again when either changes.  An archive whose java.home or class path does not match the current ones
+ *     is not used (see {@link #isUsable()}).  JVMs that cannot use it anyway fall back to loading classes as usual,
+ *     and their class data sharing log messages are turned off, since they would otherwise be printed on standard
+ *     output.  Class
+ *     data sharing needs a JVM that supports -XX:DumpLoadedClassList and -XX:SharedArchiveFile (JDK 10 and later, or
+ *     Oracle JDK 8u40 and later with -XX:+UnlockCommercialFeatures -XX:+UseAppCDS in the jvmoptions property), and
+ *     only archives classes from jar files.
+ * </p>
+ */
+public class ClassDataSharingArchive {
+
+    public static final String CLASS_LIST_FILE_EXTENSION = ".classlist";
+
+    public static final String STATISTICS_FILE_EXTENSION = ".properties";
+
+    public static final String BASELINE_STARTUP_LATENCY = "baselinestartuplatency";
+
+    public static final String ARCHIVE_STARTUP_LATENCY = "archivestartuplatency";
+
+    public static final String JAVA_HOME = "java.home";
+
+    public static final String CLASS_PATH = "java.class.path";
+
+    /**
+     * The number of times that start up is measured without and with the archive.
+     */
+    private static final int STARTUP_LATENCY_SAMPLES = 5;
+
+    private File archiveFile;
+
+    private List<String> jvmOptions;
+
+    private String maxMemory;
+
+    /**
+     * @param archiveFile The archive file.
+     * @param jvmOptions The options, other than the class data sharing options, that runner JVMs are started with.
+     * @param maxMemory The max heap size of the runner JVMs, in a form suitable for -Xmx.
+     */
+    public ClassDataSharingArchive(File archiveFile, List<String> jvmOptions, String maxMemory) {
+        this.archiveFile = archiveFile.getAbsoluteFile();
+        this.jvmOptions = new ArrayList<String>(jvmOptions);
+        this.maxMemory = maxMemory;
+    }
+
+    public File getArchiveFile() {
+        return archiveFile;
+    }
+
+    public boolean exists() {
+        return archiveFile.isFile();
+    }
+
+    /**
+     * Determines whether runner JVMs should use this archive: it exists and was dumped by the JVM in the current
+     * java.home with the current class path.
+     */
+    public boolean isUsable() {
+        if (!exists()) {
+            return false;
+        }
+        Properties statistics = loadStatistics();
+        return statistics != null && System.getProperty(JAVA_HOME).equals(statistics.getProperty(JAVA_HOME)) && System.getProperty(CLASS_PATH).equals(statistics.getProperty(CLASS_PATH));
+    }
+
+    /**
+     * Gets the options that make a JVM use this archive.  Class data sharing is left in auto mode, so a JVM that
+     * cannot map the archive carries on without it, and on JVMs with unified logging its log messages, which go to
+     * standard output, are turned off.
+     */
+    public List<String> getJvmOptions() {
+        List<String> result = new ArrayList<String>();
+        result.add("-Xshare:auto");
+        result.add("-XX:SharedArchiveFile=" + archiveFile.getPath());
+        int javaVersion = getJavaVersion();
+        if (javaVersion >= 13) {
+            result.add("-Xlog:cds=off,cds+dynamic=off");
+        }
+        else if (javaVersion >= 9) {
+            result.add("-Xlog:cds=off");
+        }
+        return result;
+    }
+
+    /**
+     * Gets the major version of the running JVM, e.g. 8 for 1.8 and 11 for 11.
+     */
+    private static int getJavaVersion() {
+        String version = System.getProperty("java.specification.version");
+        if (version.startsWith("1.")) {
+            version = version.substring(2);
+        }
+        try {
+            return Integer.parseInt(version);
+        }
+        catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private File getClassListFile() {
+        return new File(archiveFile.getPath() + CLASS_LIST_FILE_EXTENSION);
+    }
+
+    private File getStatisticsFile() {
+        return new File(archiveFile.getPath() + STATISTICS_FILE_EXTENSION);
+    }
+
+    /**
+     * Gets the start up time that a runner JVM saves by using this archive, as measured when it was created: the
+     * difference between the median start up latencies without and with the archive.
+     * @return The time in milliseconds, or -1 if it was not measured.
+     */
+    public long getStartupSaving() {
+        long baselineLatency = getStatistic(BASELINE_STARTUP_LATENCY);
+        long archiveLatency = getStatistic(ARCHIVE_STARTUP_LATENCY);
+        if (baselineLatency == -1 || archiveLatency == -1) {
+            return -1;
+        }
+        return baselineLatency - archiveLatency;
+    }
+
+    private long getStatistic(String name) {
+        Properties statistics = loadStatistics();
+        if (statistics == null) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(statistics.getProperty(name, "-1"));
+        }
+        catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Loads &lt;archive&gt;.properties.
+     * @return The properties, or null if they could not be read.
+     */
+    private Properties loadStatistics() {
+        File statisticsFile = getStatisticsFile();
+        if (!statisticsFile.exists()) {
+            return null;
+        }
+        Properties statistics = new Properties();
+        try {
+            InputStream is = new BufferedInputStream(new FileInputStream(statisticsFile));
+            try {
+                statistics.load(is);
+            }
+            finally {
+                is.close();
+            }
+            return statistics;
+        }
+        catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Creates (or recreates) this archive from a representative job.
+     * @param job The job.  It should write its output to a scratch directory, because it is run many times.
+     * @param properties The experiment properties, which specify how the output of the job is logged.
+     * @return true if the archive was created, or false if the job failed or the JVM could not dump the archive.
+     */
+    public boolean create(OntologyDocumentExperimentJob job, ExperimentProperties properties) throws IOException, InterruptedException {
+        File classListFile = getClassListFile();
+        archiveFile.delete();
+        getStatisticsFile().delete();
+        System.out.println("Recording the classes that are loaded by " + job.getName());
+        long baselineLatency = runJob(job, properties, Collections.singletonList("-XX:DumpLoadedClassList=" + classListFile.getPath()));
+        if (baselineLatency == -1 || !classListFile.isFile()) {
+            System.out.println("Could not record the classes that are loaded by " + job.getName());
+            return false;
+        }
+        System.out.println("Dumping " + archiveFile);
+        List<String> command = new ArrayList<String>();
+        command.add(getJavaExecutable());
+        command.addAll(jvmOptions);
+        command.add("-Xshare:dump");
+        command.add("-XX:SharedClassListFile=" + classListFile.getPath());
+        command.add("-XX:SharedArchiveFile=" + archiveFile.getPath());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        Process process = new ProcessBuilder(command).start();
+        Thread errPump = startPump(process.getErrorStream());
+        Thread outPump = startPump(process.getInputStream());
+        int exitCode = process.waitFor();
+        errPump.join();
+        outPump.join();
+        if (exitCode != 0 || !exists()) {
+            System.out.println("Could not dump " + archiveFile + ".  Is class data sharing supported by " + getJavaExecutable() + "?");
+            archiveFile.delete();
+            return false;
+        }
+        List<Long> baselineLatencies = new ArrayList<Long>();
+        List<Long> archiveLatencies = new ArrayList<Long>();
+        for (int i = 0; i < STARTUP_LATENCY_SAMPLES; i++) {
+            // Alternate the runs so that a change in the load of the machine affects both the same
+            System.out.println("Measuring start up without the archive (" + (i + 1) + " of " + STARTUP_LATENCY_SAMPLES + ")");
+            addLatency(baselineLatencies, runJob(job, properties, Collections.<String>emptyList()));
+            System.out.println("Measuring start up with the archive (" + (i + 1) + " of " + STARTUP_LATENCY_SAMPLES + ")");
+            addLatency(archiveLatencies, runJob(job, properties, getJvmOptions()));
+        }
+        baselineLatency = getMedian(baselineLatencies);
+        long archiveLatency = getMedian(archiveLatencies);
+        Properties statistics = new Properties();
+        statistics.setProperty(BASELINE_STARTUP_LATENCY, Long.toString(baselineLatency));
+        statistics.setProperty(ARCHIVE_STARTUP_LATENCY, Long.toString(archiveLatency));
+        statistics.setProperty(JAVA_HOME, System.getProperty(JAVA_HOME));
+        statistics.setProperty(CLASS_PATH, System.getProperty(CLASS_PATH));
+        OutputStream os = new BufferedOutputStream(new FileOutputStream(getStatisticsFile()));
+        try {
+            statistics.store(os, "Median start up to first axiom (ms) over " + STARTUP_LATENCY_SAMPLES + " runs of " + job.getName());
+        }
+        finally {
+            os.close();
+        }
+        System.out.println("Created " + archiveFile + ".  Median start up to first axiom: " + baselineLatency + " ms without the archive, " + archiveLatency + " ms with the archive.");
+        return true;
+    }
+
+    private static void addLatency(List<Long> latencies, long latency) {
+        if (latency != -1) {
+            latencies.add(latency);
+        }
+    }
+
+    /**
+     * Gets the median of some latencies.
+     * @return The median, or -1 if there are none.
+     */
+    private static long getMedian(List<Long> latencies) {
+        if (latencies.isEmpty()) {
+            return -1;
+        }
+        List<Long> sorted = new ArrayList<Long>(latencies);
+        Collections.sort(sorted);
+        int middle = sorted.size() / 2;
+        if (sorted.size() % 2 == 1) {
+            return sorted.get(middle);
+        }
+        return (sorted.get(middle - 1) + sorted.get(middle)) / 2;
+    }
+
+    /**
+     * Runs a job in a cold forked runner.
+     * @return The start up latency that the runner recorded, or -1 if the job did not succeed.
+     */
+    private long runJob(OntologyDocumentExperimentJob job, ExperimentProperties properties, List<String> extraJvmOptions) {
+        List<String> runnerJvmOptions = new ArrayList<String>(jvmOptions);
+        runnerJvmOptions.addAll(extraJvmOptions);
+        for (File experimentOutputDirectory : job.getExperimentOutputDirectories()) {
+            new File(experimentOutputDirectory, JobStatistics.FILE_NAME).delete();
+        }
+        ForkedExperimentLauncher launcher = new ForkedExperimentLauncher(Long.MAX_VALUE, maxMemory, new JobProfiler(new ExperimentProperties()), new LogPipeline(properties), runnerJvmOptions, 0, null);
+        int returnCode;
+        try {
+            returnCode = launcher.launch(job);
+        }
+        finally {
+            launcher.dispose();
+        }
+        if (returnCode != 0) {
+            return -1;
+        }
+        JobStatistics statistics = JobStatistics.read(job.getExperimentOutputDirectories().get(0));
+        return statistics != null ? statistics.getValue(JobStatistics.STARTUP_LATENCY) : -1;
+    }
+
+    /**
+     * Starts a thread that copies the output of the JVM that dumps the archive to the console.
+     */
+    private static Thread startPump(InputStream is) {
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(is));
+        Thread thread = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        System.out.println("[CDS] " + line);
+                    }
+                }
+                catch (IOException e) {
+                    // Process has gone away
+                }
+            }
+        }, "CDS dump output pump");
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    private static String getJavaExecutable() {
+        return System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+    }
+}
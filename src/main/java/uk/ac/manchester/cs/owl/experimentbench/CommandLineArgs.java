@@ -53,6 +53,10 @@ public class CommandLineArgs {
             }
         }
 
+        public boolean isSwitchPresent(String sw) {
+            return argsMap.containsKey(sw);
+        }
+
         public String getFirstArgument(String sw, String defaultValue) {
             List<String> args = getArguments(sw);
             if (args.isEmpty()) {
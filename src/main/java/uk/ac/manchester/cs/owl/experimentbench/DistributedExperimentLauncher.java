@@ -0,0 +1,468 @@
+package uk.ac.manchester.cs.owl.experimentbench;
+
+import java.io.*;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.*;
+
+/**
+ * Runs jobs on {@link RemoteExperimentWorker}s, which may be on other hosts.  The launcher listens on a TCP port
+ * and each call to {@link #launch(OntologyDocumentExperimentJob)} queues its job and blocks until a worker has
+ * pulled the job, run it and shipped its output files back into the output directory of the job.  The journal,
+ * retries and run summary of the controller work as they do for local jobs.
+ * <p>
+ *     A job is handed to a worker under a lease.  The lease is renewed by the worker's heartbeats.  If a worker is not
+ *     heard from for the lease time out then it is presumed dead and the jobs that it holds are queued again (up to
+ *     {@link #MAX_LEASE_EXPIRIES} times, after which the job fails).  A result that arrives for an expired lease is
+ *     rejected.
+ * </p>
+ * <p>
+ *     Workers cache the ontologies that they are sent, so once a worker has run a job on an ontology, further jobs on
+ *     that ontology are queued for that worker.  A worker that has nothing queued takes a job from the shared queue
+ *     or, failing that, steals the most recently queued job of the worker with the longest queue.
+ * </p>
+ */
+public class DistributedExperimentLauncher implements ExperimentLauncher {
+
+    /**
+     * The number of times that the lease of a job may expire before the job is failed.  A job that keeps killing its
+     * workers should not be handed out for ever.
+     */
+    public static final int MAX_LEASE_EXPIRIES = 3;
+
+    /**
+     * The time for which the coordinator keeps telling workers to quit after the run has finished.
+     */
+    private static final long QUIT_LINGER_IN_MS = 5000;
+
+    private static final String STAGING_DIRECTORY_SUFFIX = ".upload-";
+
+    private ServerSocket serverSocket;
+
+    private long leaseTimeOut;
+
+    private Properties experimentProperties;
+
+    private LinkedList<DistributedJob> sharedQueue = new LinkedList<DistributedJob>();
+
+    private Map<String, LinkedList<DistributedJob>> workerQueues = new HashMap<String, LinkedList<DistributedJob>>();
+
+    private Map<String, Long> workerLastContactTimes = new HashMap<String, Long>();
+
+    /**
+     * The worker that ran the last job on each ontology document directory.
+     */
+    private Map<File, String> ontologyDocumentDirectoryWorkers = new HashMap<File, String>();
+
+    private Map<Long, DistributedJob> leasedJobs = new HashMap<Long, DistributedJob>();
+
+    private long nextLeaseId = 1;
+
+    private volatile boolean finished = false;
+
+    private Timer timer = new Timer("Lease time out timer", true);
+
+    /**
+     * @param port The port to listen on for workers.
+     * @param leaseTimeOut The time, in milliseconds, after which a worker that has not been heard from is presumed
+     * dead.
+     * @param properties The experiment properties, which are sent to the workers so that their runners see the same
+     * properties as local runners would.
+     * @throws IOException If the port could not be listened on.
+     */
+    public DistributedExperimentLauncher(int port, long leaseTimeOut, ExperimentProperties properties) throws IOException {
+        this.leaseTimeOut = leaseTimeOut;
+        this.experimentProperties = new Properties();
+        for (String propertyName : properties.getProperties()) {
+            String value = properties.getProperty(propertyName, null);
+            if (value != null) {
+                experimentProperties.setProperty(propertyName, value);
+            }
+        }
+        serverSocket = new ServerSocket(port);
+        Thread acceptThread = new Thread(new Runnable() {
+            public void run() {
+                acceptConnections();
+            }
+        }, "Coordinator");
+        acceptThread.setDaemon(true);
+        acceptThread.start();
+        long checkInterval = Math.max(1, leaseTimeOut / 4);
+        timer.schedule(new TimerTask() {
+            @Override
+            public void run() {
+                expireLeases();
+            }
+        }, checkInterval, checkInterval);
+        System.out.println("Coordinator listening for workers on port " + serverSocket.getLocalPort());
+    }
+
+    public boolean isJobMaxMemorySupported() {
+        return false;
+    }
+
+    public int launch(OntologyDocumentExperimentJob job) {
+        System.out.println("Queueing " + job.getName() + " for a remote worker");
+        for (File experimentOutputDirectory : job.getExperimentOutputDirectories()) {
+            experimentOutputDirectory.mkdirs();
+        }
+        DistributedJob distributedJob = new DistributedJob(job);
+        synchronized (this) {
+            queue(distributedJob);
+            while (!distributedJob.finished) {
+                try {
+                    wait();
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    dequeue(distributedJob);
+                    return -1;
+                }
+            }
+        }
+        System.out.println("Finished running " + job.getName() + " on " + distributedJob.workerId + " (" + distributedJob.returnCode + ")");
+        return distributedJob.returnCode;
+    }
+
+    private synchronized void queue(DistributedJob distributedJob) {
+        String workerId = ontologyDocumentDirectoryWorkers.get(distributedJob.job.getOntologyDocumentDirectory());
+        LinkedList<DistributedJob> workerQueue = workerId != null ? workerQueues.get(workerId) : null;
+        if (workerQueue != null) {
+            workerQueue.addLast(distributedJob);
+        }
+        else {
+            sharedQueue.addLast(distributedJob);
+        }
+    }
+
+    private synchronized void dequeue(DistributedJob distributedJob) {
+        sharedQueue.remove(distributedJob);
+        for (LinkedList<DistributedJob> workerQueue : workerQueues.values()) {
+            workerQueue.remove(distributedJob);
+        }
+        leasedJobs.remove(distributedJob.leaseId);
+    }
+
+    /**
+     * Hands a job to a worker.
+     * @param workerId The worker.
+     * @return The job, or null if there are no jobs waiting.
+     */
+    private synchronized DistributedJob leaseJob(String workerId) {
+        markContact(workerId);
+        DistributedJob distributedJob = workerQueues.get(workerId).pollFirst();
+        if (distributedJob == null) {
+            distributedJob = sharedQueue.pollFirst();
+        }
+        if (distributedJob == null) {
+            distributedJob = stealJob(workerId);
+        }
+        if (distributedJob == null) {
+            return null;
+        }
+        distributedJob.leaseId = nextLeaseId;
+        nextLeaseId++;
+        distributedJob.workerId = workerId;
+        leasedJobs.put(distributedJob.leaseId, distributedJob);
+        ontologyDocumentDirectoryWorkers.put(distributedJob.job.getOntologyDocumentDirectory(), workerId);
+        return distributedJob;
+    }
+
+    private DistributedJob stealJob(String workerId) {
+        LinkedList<DistributedJob> longestQueue = null;
+        String victimId = null;
+        for (Map.Entry<String, LinkedList<DistributedJob>> entry : workerQueues.entrySet()) {
+            if (!entry.getKey().equals(workerId) && !entry.getValue().isEmpty()) {
+                if (longestQueue == null || entry.getValue().size() > longestQueue.size()) {
+                    longestQueue = entry.getValue();
+                    victimId = entry.getKey();
+                }
+            }
+        }
+        if (longestQueue == null) {
+            return null;
+        }
+        DistributedJob distributedJob = longestQueue.pollLast();
+        System.out.println(workerId + " stole " + distributedJob.job.getName() + " from " + victimId);
+        return distributedJob;
+    }
+
+    private synchronized void markContact(String workerId) {
+        if (!workerQueues.containsKey(workerId)) {
+            System.out.println("Worker " + workerId + " connected");
+            workerQueues.put(workerId, new LinkedList<DistributedJob>());
+        }
+        workerLastContactTimes.put(workerId, System.currentTimeMillis());
+    }
+
+    /**
+     * Presumes that workers that have not been heard from for the lease time out are dead.  Their queued jobs go back
+     * on the shared queue, and the jobs that they were running are queued again, at the front, or are failed if their
+     * leases have expired too many times.
+     */
+    private synchronized void expireLeases() {
+        long now = System.currentTimeMillis();
+        for (Iterator<Map.Entry<String, Long>> it = workerLastContactTimes.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<String, Long> entry = it.next();
+            if (now - entry.getValue() <= leaseTimeOut) {
+                continue;
+            }
+            String workerId = entry.getKey();
+            it.remove();
+            System.out.println("Worker " + workerId + " has not been heard from for " + (now - entry.getValue()) + " ms.  Presuming it is dead.");
+            sharedQueue.addAll(0, workerQueues.remove(workerId));
+            ontologyDocumentDirectoryWorkers.values().removeAll(Collections.singleton(workerId));
+            for (Iterator<DistributedJob> jobIt = leasedJobs.values().iterator(); jobIt.hasNext(); ) {
+                DistributedJob distributedJob = jobIt.next();
+                if (!distributedJob.workerId.equals(workerId)) {
+                    continue;
+                }
+                jobIt.remove();
+                distributedJob.leaseExpiries++;
+                if (distributedJob.leaseExpiries > MAX_LEASE_EXPIRIES) {
+                    System.out.println("The lease of " + distributedJob.job.getName() + " has expired " + distributedJob.leaseExpiries + " times.  Failing it.");
+                    finish(distributedJob, -1);
+                }
+                else {
+                    System.out.println("Queueing " + distributedJob.job.getName() + " again");
+                    sharedQueue.addFirst(distributedJob);
+                }
+            }
+        }
+    }
+
+    private synchronized void finish(DistributedJob distributedJob, int returnCode) {
+        distributedJob.returnCode = returnCode;
+        distributedJob.finished = true;
+        notifyAll();
+    }
+
+    private void acceptConnections() {
+        while (true) {
+            final Socket socket;
+            try {
+                socket = serverSocket.accept();
+            }
+            catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    e.printStackTrace();
+                }
+                return;
+            }
+            Thread connectionThread = new Thread(new Runnable() {
+                public void run() {
+                    handleConnection(socket);
+                }
+            }, "Coordinator connection");
+            connectionThread.setDaemon(true);
+            connectionThread.start();
+        }
+    }
+
+    private void handleConnection(Socket socket) {
+        try {
+            try {
+                DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+                String command = in.readUTF();
+                if (command.equals(RemoteExperimentWorker.LEASE_COMMAND)) {
+                    handleLease(in, out);
+                }
+                else if (command.equals(RemoteExperimentWorker.FETCH_COMMAND)) {
+                    handleFetch(in, out);
+                }
+                else if (command.equals(RemoteExperimentWorker.HEARTBEAT_COMMAND)) {
+                    markContact(in.readUTF());
+                    out.writeUTF(RemoteExperimentWorker.OK_REPLY);
+                }
+                else if (command.equals(RemoteExperimentWorker.RESULT_COMMAND)) {
+                    handleResult(in, out);
+                }
+                else {
+                    out.writeUTF(RemoteExperimentWorker.ERROR_REPLY);
+                    out.writeUTF("Unknown command: " + command);
+                }
+                out.flush();
+            }
+            finally {
+                socket.close();
+            }
+        }
+        catch (SocketException e) {
+            System.err.println("Lost connection to worker: " + e.getMessage());
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void handleLease(DataInputStream in, DataOutputStream out) throws IOException {
+        String workerId = in.readUTF();
+        if (finished) {
+            out.writeUTF(RemoteExperimentWorker.QUIT_REPLY);
+            return;
+        }
+        DistributedJob distributedJob = leaseJob(workerId);
+        if (distributedJob == null) {
+            out.writeUTF(RemoteExperimentWorker.WAIT_REPLY);
+            return;
+        }
+        System.out.println("Leased " + distributedJob.job.getName() + " to " + workerId + " (lease " + distributedJob.leaseId + ")");
+        out.writeUTF(RemoteExperimentWorker.JOB_REPLY);
+        RemoteExperimentWorker.Lease.write(out, distributedJob.leaseId, distributedJob.job, experimentProperties);
+    }
+
+    private void handleFetch(DataInputStream in, DataOutputStream out) throws IOException {
+        long leaseId = in.readLong();
+        String fileName = in.readUTF();
+        DistributedJob distributedJob;
+        synchronized (this) {
+            distributedJob = leasedJobs.get(leaseId);
+        }
+        File file = null;
+        if (distributedJob != null) {
+            for (File ontologyDocumentFile : RemoteExperimentWorker.getOntologyDocumentFiles(distributedJob.job.getOntologyDocumentDirectory())) {
+                if (ontologyDocumentFile.getName().equals(fileName)) {
+                    file = ontologyDocumentFile;
+                }
+            }
+        }
+        if (file == null) {
+            out.writeUTF(RemoteExperimentWorker.ERROR_REPLY);
+            out.writeUTF(distributedJob == null ? "Unknown lease " + leaseId : "Unknown file " + fileName);
+            return;
+        }
+        out.writeUTF(RemoteExperimentWorker.FILE_REPLY);
+        out.writeLong(file.length());
+        RemoteExperimentWorker.writeFile(file, out);
+    }
+
+    private void handleResult(DataInputStream in, DataOutputStream out) throws IOException {
+        String workerId = in.readUTF();
+        long leaseId = in.readLong();
+        int returnCode = in.readInt();
+        int fileCount = in.readInt();
+        markContact(workerId);
+        DistributedJob distributedJob;
+        synchronized (this) {
+            distributedJob = leasedJobs.get(leaseId);
+        }
+        boolean accepted = distributedJob != null && distributedJob.workerId.equals(workerId);
+        File outputDirectory = accepted ? distributedJob.job.getOntologyDocumentOutputDirectory() : null;
+        // The upload is written to a staging directory next to the output directory, and only moved into place once
+        // the lease is known to still be held, so that a worker whose lease has expired cannot overwrite the results
+        // of the worker that the job was handed to next.
+        File stagingDirectory = accepted ? new File(outputDirectory.getParentFile(), "." + outputDirectory.getName() + STAGING_DIRECTORY_SUFFIX + leaseId) : null;
+        List<String> relativePaths = new ArrayList<String>();
+        try {
+            for (int i = 0; i < fileCount; i++) {
+                String relativePath = in.readUTF();
+                long length = in.readLong();
+                File file = null;
+                if (accepted) {
+                    if (!isSafeRelativePath(relativePath)) {
+                        throw new IOException("Refusing to write " + relativePath + " outside of " + outputDirectory);
+                    }
+                    file = new File(stagingDirectory, relativePath);
+                    relativePaths.add(relativePath);
+                }
+                RemoteExperimentWorker.readFile(in, length, file);
+            }
+            synchronized (this) {
+                accepted = accepted && leasedJobs.remove(leaseId) != null;
+            }
+            if (accepted) {
+                for (String relativePath : relativePaths) {
+                    moveFile(new File(stagingDirectory, relativePath), new File(outputDirectory, relativePath));
+                }
+                finish(distributedJob, returnCode);
+            }
+        }
+        finally {
+            if (stagingDirectory != null) {
+                deleteDirectory(stagingDirectory);
+            }
+        }
+        out.writeUTF(accepted ? RemoteExperimentWorker.ACCEPTED_REPLY : RemoteExperimentWorker.REJECTED_REPLY);
+    }
+
+    private static void moveFile(File file, File destination) throws IOException {
+        destination.getParentFile().mkdirs();
+        if (!file.renameTo(destination)) {
+            destination.delete();
+            if (!file.renameTo(destination)) {
+                throw new IOException("Could not move " + file + " to " + destination);
+            }
+        }
+    }
+
+    private static void deleteDirectory(File directory) {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (file.isDirectory()) {
+                    deleteDirectory(file);
+                }
+                else {
+                    file.delete();
+                }
+            }
+        }
+        directory.delete();
+    }
+
+    private static boolean isSafeRelativePath(String relativePath) {
+        if (relativePath.isEmpty() || relativePath.startsWith("/") || new File(relativePath).isAbsolute()) {
+            return false;
+        }
+        for (String element : relativePath.split("/")) {
+            if (element.equals("..")) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Tells workers that ask for jobs to quit, for a short while, and then stops listening.
+     */
+    public void dispose() {
+        finished = true;
+        try {
+            Thread.sleep(QUIT_LINGER_IN_MS);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        timer.cancel();
+        try {
+            serverSocket.close();
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * A job and the state of its lease.
+     */
+    private static class DistributedJob {
+
+        private OntologyDocumentExperimentJob job;
+
+        private long leaseId = 0;
+
+        private String workerId;
+
+        private int leaseExpiries = 0;
+
+        private boolean finished = false;
+
+        private int returnCode = -1;
+
+        private DistributedJob(OntologyDocumentExperimentJob job) {
+            this.job = job;
+        }
+    }
+}
@@ -19,8 +19,49 @@ public @interface Experiment {
     String name() default "";
 
     /**
-     * The time after which an experiment should be killed.
-     * @return The time in milliseconds
+     * The time after which an experiment should be stopped.  The experiment is interrupted when this time is
+     * reached, and its runner exits if it has not stopped after the cancellationgracems property.  Each warm-up and
+     * measured iteration of the experiment has the full time.
+     * @return The time in milliseconds.  The default, Long.MAX_VALUE, means that the experimenttimeoutms property is
+     * used.
      */
     long kill() default Long.MAX_VALUE;
+
+    /**
+     * Specifies whether the experiment should be run against its own copy of the ontology.  When the
+     * loadontologyonce property is set, an ontology is loaded once and shared by all of the experiment methods
+     * of an experiment class, apart from those that are isolated.  Isolated experiments are always run in a runner
+     * of their own.  Experiments that modify the ontology should be isolated.
+     * @return true if the experiment should be isolated, otherwise false.  The default is false.
+     */
+    boolean isolated() default false;
+
+    /**
+     * The number of times that the experiment is run, without recording telemetry, before it is measured.
+     * @return The number of warm-up iterations, or -1 to use the warmupiterations property (the default).
+     */
+    int warmups() default -1;
+
+    /**
+     * The number of times that the experiment is run and measured in each runner.
+     * @return The number of measured iterations, or -1 to use the measurediterations property (the default).
+     */
+    int iterations() default -1;
+
+    /**
+     * The number of runners that the experiment is run in.  In forked execution mode each runner is a fresh JVM, so
+     * that JIT compilation and class loading do not carry over from one fork to the next.
+     * @return The number of forks, or -1 to use the forks property (the default).
+     */
+    int forks() default -1;
+
+    /**
+     * Specifies whether the experiment uses the reasoner that its runner shares between experiment methods (see
+     * {@link AbstractOntologyDocumentExperiment#getSharedReasoner()}).  The shared reasoner is created, and its
+     * inferences precomputed, before the experiment is timed, and is reused by the following experiment methods that
+     * run on the same ontology with the same reasoner factory and matrix configuration.  Experiments that modify the
+     * ontology should not use a shared reasoner.
+     * @return true if the experiment uses the shared reasoner, otherwise false.  The default is false.
+     */
+    boolean sharedReasoner() default false;
 }
@@ -0,0 +1,93 @@
+package uk.ac.manchester.cs.owl.experimentbench;
+
+/**
+ * The state of one run of an experiment method, which the runner creates when it starts the method and throws away
+ * when the method finishes.  Unlike {@link ExperimentProperties}, which are shared between experiment methods,
+ * runners and matrix configurations, a context belongs to a single run.  It holds the deadline by which the
+ * experiment must have finished (see {@link ExperimentProperties#getReasonerConfiguration(ExperimentContext)}).
+ * <p>
+ *     The runner makes the context the current context of the experiment thread before it constructs the experiment,
+ *     so that the context is available to the constructor of the experiment (see {@link #current()}), and clears it
+ *     when the method finishes.
+ * </p>
+ */
+public class ExperimentContext {
+
+    /**
+     * The context of an experiment that has no time out.
+     */
+    public static final ExperimentContext NO_DEADLINE = new ExperimentContext(Long.MAX_VALUE);
+
+    private static final ThreadLocal<ExperimentContext> currentContext = new ThreadLocal<ExperimentContext>();
+
+    private final long deadline;
+
+    /**
+     * @param deadline The time by which the experiment must have finished, as a value of System.currentTimeMillis(),
+     * or Long.MAX_VALUE for no deadline.
+     */
+    public ExperimentContext(long deadline) {
+        this.deadline = deadline;
+    }
+
+    /**
+     * Creates the context of an experiment that starts now.
+     * @param timeOut The time out of the experiment in milliseconds, or Long.MAX_VALUE for no time out.
+     * @return The context.
+     */
+    public static ExperimentContext start(long timeOut) {
+        long now = System.currentTimeMillis();
+        if (timeOut == Long.MAX_VALUE || now + timeOut < 0) {
+            return NO_DEADLINE;
+        }
+        return new ExperimentContext(now + timeOut);
+    }
+
+    /**
+     * Gets the context of the experiment method that is running on this thread.  Threads that an experiment starts
+     * itself do not have a current context, so the experiment should pass its context to them.
+     * @return The context, or {@link #NO_DEADLINE} if no experiment method is running on this thread.
+     */
+    public static ExperimentContext current() {
+        ExperimentContext context = currentContext.get();
+        if (context == null) {
+            return NO_DEADLINE;
+        }
+        return context;
+    }
+
+    /**
+     * Sets the context of the experiment method that is about to run on this thread.
+     * @param context The context, or null to clear the current context when the method has finished.
+     */
+    static void setCurrent(ExperimentContext context) {
+        if (context == null) {
+            currentContext.remove();
+        }
+        else {
+            currentContext.set(context);
+        }
+    }
+
+    /**
+     * @return The deadline, as a value of System.currentTimeMillis(), or Long.MAX_VALUE for no deadline.
+     */
+    public long getDeadline() {
+        return deadline;
+    }
+
+    public boolean hasDeadline() {
+        return deadline != Long.MAX_VALUE;
+    }
+
+    /**
+     * Gets the time that is left until the deadline.
+     * @return The time in milliseconds, which is at least 1, or Long.MAX_VALUE if there is no deadline.
+     */
+    public long getTimeLeft() {
+        if (!hasDeadline()) {
+            return Long.MAX_VALUE;
+        }
+        return Math.max(1, deadline - System.currentTimeMillis());
+    }
+}
@@ -0,0 +1,203 @@
+package uk.ac.manchester.cs.owl.experimentbench;
+
+import java.io.*;
+import java.lang.reflect.Method;
+import java.security.MessageDigest;
+import java.util.*;
+
+/**
+ * Computes the fingerprints of experiments.  The fingerprint of an experiment is a hash of everything that its
+ * results depend on: the content of the files in its ontology document directory (the ontology documents,
+ * imports, signatures and so on), the properties that the runner merges from the experiment.properties files of
+ * the working directory, the ontologies directory and the ontology document directory (with the values of its
+ * matrix configuration), the experiment class and method, and the content of the jars and directories on the
+ * class path.  The fingerprints are recorded in the {@link RunJournal}, and an experiment whose fingerprint has
+ * changed since it last ran is run again.
+ * <p>
+ *     Properties that only affect how jobs are scheduled, logged, profiled and watched (for example workers,
+ *     statusport or profiler, see {@link ExperimentProperties#isSchedulingOnly(String)}) are left out of the
+ *     fingerprint, as are the matrix.&lt;property&gt; lists, since each experiment only sees the
+ *     values of its own matrix configuration.  Adding a value to an axis of the matrix therefore only runs the new
+ *     experiments.
+ * </p>
+ * <p>
+ *     Hashing a large corpus, or the class path, on every start would be slow, so the content hash of each file is
+ *     kept in a cache in the root output directory, and is only recomputed when the size or modification time of the
+ *     file changes.
+ * </p>
+ */
+public class ExperimentFingerprinter {
+
+    public static final String CONTENT_HASH_CACHE_FILE_NAME = "contenthashes.properties";
+
+    private static final String CACHE_FIELD_SEPARATOR = ",";
+
+    private File cacheFile;
+
+    private Properties contentHashCache = new Properties();
+
+    private boolean cacheChanged = false;
+
+    private String classPathHash;
+
+    private Map<File, String> directoryHashes = new HashMap<File, String>();
+
+    private Map<File, ExperimentProperties> directoryProperties = new HashMap<File, ExperimentProperties>();
+
+    /**
+     * @param rootOutputDirectory The directory that the content hash cache is kept in.
+     */
+    public ExperimentFingerprinter(File rootOutputDirectory) {
+        cacheFile = new File(rootOutputDirectory, CONTENT_HASH_CACHE_FILE_NAME);
+        if (cacheFile.exists()) {
+            try {
+                InputStream is = new BufferedInputStream(new FileInputStream(cacheFile));
+                try {
+                    contentHashCache.load(is);
+                }
+                finally {
+                    is.close();
+                }
+            }
+            catch (IOException e) {
+                System.err.println("Could not read the content hash cache: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Gets the fingerprint of an experiment.
+     * @param experimentClass The experiment class.
+     * @param experimentMethod The experiment method.
+     * @param configuration The matrix configuration of the experiment.
+     * @param ontologyDocumentDirectory The ontology document directory of the experiment.
+     * @return The fingerprint, as a hex string.
+     * @throws IOException If a file could not be hashed.
+     */
+    public String getFingerprint(Class<?> experimentClass, Method experimentMethod, MatrixConfiguration configuration, File ontologyDocumentDirectory) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        sb.append("class=").append(experimentClass.getName()).append("\n");
+        sb.append("method=").append(experimentMethod.getName()).append("\n");
+        sb.append("classpath=").append(getClassPathHash()).append("\n");
+        sb.append("ontologydocumentdirectory=").append(getDirectoryHash(ontologyDocumentDirectory)).append("\n");
+        ExperimentProperties properties = configuration.apply(getProperties(ontologyDocumentDirectory));
+        for (String propertyName : new TreeSet<String>(properties.getProperties())) {
+            if (ExperimentProperties.isSchedulingOnly(propertyName) || propertyName.startsWith(MatrixConfiguration.MATRIX_PROPERTY_PREFIX)) {
+                continue;
+            }
+            sb.append("property.").append(propertyName).append("=").append(properties.getProperty(propertyName, "")).append("\n");
+        }
+        return getHash(sb.toString());
+    }
+
+    private ExperimentProperties getProperties(File ontologyDocumentDirectory) {
+        ExperimentProperties properties = directoryProperties.get(ontologyDocumentDirectory);
+        if (properties == null) {
+            properties = OntologyDocumentExperimentRunner.loadProperties(ontologyDocumentDirectory);
+            directoryProperties.put(ontologyDocumentDirectory, properties);
+        }
+        return properties;
+    }
+
+    private String getClassPathHash() throws IOException {
+        if (classPathHash == null) {
+            StringBuilder sb = new StringBuilder();
+            for (String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+                File file = new File(entry);
+                if (file.isDirectory()) {
+                    sb.append(getDirectoryHash(file));
+                }
+                else if (file.isFile()) {
+                    sb.append(getFileHash(file));
+                }
+                sb.append("\n");
+            }
+            classPathHash = getHash(sb.toString());
+        }
+        return classPathHash;
+    }
+
+    /**
+     * Gets a hash of the names and contents of the files in a directory and its subdirectories.  Hidden files are
+     * ignored.
+     */
+    private String getDirectoryHash(File directory) throws IOException {
+        File canonicalDirectory = directory.getCanonicalFile();
+        String hash = directoryHashes.get(canonicalDirectory);
+        if (hash == null) {
+            StringBuilder sb = new StringBuilder();
+            appendFileHashes(canonicalDirectory, "", sb);
+            hash = getHash(sb.toString());
+            directoryHashes.put(canonicalDirectory, hash);
+        }
+        return hash;
+    }
+
+    private void appendFileHashes(File directory, String relativePath, StringBuilder sb) throws IOException {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files);
+        for (File file : files) {
+            if (file.isHidden()) {
+                continue;
+            }
+            if (file.isDirectory()) {
+                appendFileHashes(file, relativePath + file.getName() + "/", sb);
+            }
+            else {
+                sb.append(relativePath).append(file.getName()).append("=").append(getFileHash(file)).append("\n");
+            }
+        }
+    }
+
+    /**
+     * Gets the content hash of a file, from the cache if the file has not changed since it was cached.
+     */
+    private synchronized String getFileHash(File file) throws IOException {
+        String key = file.getCanonicalPath();
+        String stamp = file.length() + CACHE_FIELD_SEPARATOR + file.lastModified();
+        String cachedValue = contentHashCache.getProperty(key);
+        if (cachedValue != null && cachedValue.startsWith(stamp + CACHE_FIELD_SEPARATOR)) {
+            return cachedValue.substring(stamp.length() + CACHE_FIELD_SEPARATOR.length());
+        }
+        String hash = OntologyDocumentCache.getContentHash(file);
+        contentHashCache.setProperty(key, stamp + CACHE_FIELD_SEPARATOR + hash);
+        cacheChanged = true;
+        return hash;
+    }
+
+    private static String getHash(String s) {
+        MessageDigest digest = OntologyDocumentCache.createDigest();
+        try {
+            return OntologyDocumentCache.toHexString(digest.digest(s.getBytes("UTF-8")));
+        }
+        catch (UnsupportedEncodingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Writes the content hash cache, if any hashes were computed.
+     */
+    public synchronized void saveCache() {
+        if (!cacheChanged) {
+            return;
+        }
+        try {
+            cacheFile.getParentFile().mkdirs();
+            OutputStream os = new BufferedOutputStream(new FileOutputStream(cacheFile));
+            try {
+                contentHashCache.store(os, "Content hashes of ontology documents and class path entries: size,modification time,hash");
+            }
+            finally {
+                os.close();
+            }
+            cacheChanged = false;
+        }
+        catch (IOException e) {
+            System.err.println("Could not write the content hash cache: " + e.getMessage());
+        }
+    }
+}
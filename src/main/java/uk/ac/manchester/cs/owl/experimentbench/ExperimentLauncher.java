@@ -0,0 +1,31 @@
+package uk.ac.manchester.cs.owl.experimentbench;
+
+/**
+ * Runs an {@link OntologyDocumentExperimentJob} in some JVM.  Launchers are called concurrently from the
+ * controller's worker threads and must be thread safe.
+ */
+public interface ExperimentLauncher {
+
+    /**
+     * The return code of a job that was killed because it exceeded the experiment time out.
+     */
+    int TIMED_OUT_RETURN_CODE = -2;
+
+    /**
+     * Runs the specified job and blocks until it has finished.
+     * @param job The job to run.
+     * @return The return code of the job.  0 indicates that the job ran to completion.
+     */
+    int launch(OntologyDocumentExperimentJob job);
+
+    /**
+     * Determines whether this launcher honours {@link OntologyDocumentExperimentJob#getMaxMemoryInMegaBytes()}.
+     * @return true if each job can be given its own max heap size, false if jobs share JVMs with a fixed heap size.
+     */
+    boolean isJobMaxMemorySupported();
+
+    /**
+     * Releases any resources (e.g. JVMs) that are held by this launcher.
+     */
+    void dispose();
+}
@@ -1,20 +1,31 @@
 package uk.ac.manchester.cs.owl.experimentbench;
 
 import org.semanticweb.owlapi.reasoner.*;
+import uk.ac.manchester.cs.owlapi.modularity.ModuleType;
 
-import java.io.BufferedInputStream;
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.IOException;
-import java.util.LinkedHashSet;
-import java.util.Properties;
-import java.util.Set;
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Author: Matthew Horridge<br>
  * The University of Manchester<br>
  * Bio-Health Informatics Group<br>
  * Date: 06/02/2011
+ * <p>
+ *     An immutable snapshot of the experiment properties.  The properties are built from layers (see
+ *     {@link Builder}), for example the experiment.properties files of the working directory, the ontologies directory
+ *     and the ontology document directory, and the layer that each value came from is kept.  The values of the
+ *     standard properties are parsed and checked when the snapshot is built, so that a malformed value stops a run
+ *     before any experiment starts.  The standard properties are resolved, with their defaults, into fields at the
+ *     same time, so their getters are plain field reads.  The typed values of other properties and class instances
+ *     are cached, so reading them in a tight loop does not parse or instantiate anything.
+ * </p>
+ * <p>
+ *     State that belongs to one run of an experiment method, such as its deadline, is kept in an
+ *     {@link ExperimentContext} instead, because the same snapshot is shared between experiment methods and runners.
+ * </p>
  */
 public class ExperimentProperties {
 
@@ -24,41 +35,656 @@ public class ExperimentProperties {
 
     public static final String EXPERIMENT_TIME_OUT_IN_MS_PROPERTY_NAME = "experimenttimeoutms";
 
+    public static final String WORKERS_PROPERTY_NAME = "workers";
+
+    public static final String TOTAL_MEMORY_IN_MB_PROPERTY_NAME = "totalmemorymb";
+
+    public static final String EXECUTION_MODE_PROPERTY_NAME = "executionmode";
+
+    public static final String WORKER_JOBS_BEFORE_RECYCLE_PROPERTY_NAME = "workerjobsbeforerecycle";
+
+    public static final String WORKER_RECYCLE_HEAP_FRACTION_PROPERTY_NAME = "workerrecycleheapfraction";
+
+    public static final String LOAD_ONTOLOGY_ONCE_PROPERTY_NAME = "loadontologyonce";
+
+    public static final String ONTOLOGY_CACHE_DIRECTORY_PROPERTY_NAME = "ontologycachedirectory";
+
+    public static final String MEMORY_MAPPED_LOADING_PROPERTY_NAME = "memorymappedloading";
+
+    public static final String MIN_JOB_MEMORY_IN_MB_PROPERTY_NAME = "minjobmemorymb";
+
+    public static final String HEAP_BYTES_PER_DOCUMENT_BYTE_PROPERTY_NAME = "heapbytesperdocumentbyte";
+
+    public static final String JOB_MEMORY_SAFETY_FACTOR_PROPERTY_NAME = "jobmemorysafetyfactor";
+
+    public static final String OUT_OF_MEMORY_RETRIES_PROPERTY_NAME = "outofmemoryretries";
+
+    public static final String MAX_JOB_RETRIES_PROPERTY_NAME = "maxjobretries";
+
+    public static final String RETRY_TIMED_OUT_JOBS_PROPERTY_NAME = "retrytimedoutjobs";
+
+    public static final String TELEMETRY_FORMAT_PROPERTY_NAME = "telemetryformat";
+
+    public static final String WARMUP_ITERATIONS_PROPERTY_NAME = "warmupiterations";
+
+    public static final String MEASURED_ITERATIONS_PROPERTY_NAME = "measurediterations";
+
+    public static final String FORKS_PROPERTY_NAME = "forks";
+
+    public static final String HIGH_VARIANCE_THRESHOLD_PROPERTY_NAME = "highvariancethreshold";
+
+    public static final String CANCELLATION_GRACE_PERIOD_IN_MS_PROPERTY_NAME = "cancellationgracems";
+
+    public static final String RESOURCE_SAMPLING_INTERVAL_IN_MS_PROPERTY_NAME = "resourcesamplingintervalms";
+
+    public static final String PROFILER_PROPERTY_NAME = "profiler";
+
+    public static final String PROFILER_THRESHOLD_IN_MS_PROPERTY_NAME = "profilerthresholdms";
+
+    public static final String JFR_SETTINGS_PROPERTY_NAME = "jfrsettings";
+
+    public static final String JFR_MAX_AGE_PROPERTY_NAME = "jfrmaxage";
+
+    public static final String ASYNC_PROFILER_LIBRARY_PROPERTY_NAME = "asyncprofilerlibrary";
+
+    public static final String ASYNC_PROFILER_EVENT_PROPERTY_NAME = "asyncprofilerevent";
+
+    public static final String COORDINATOR_PORT_PROPERTY_NAME = "coordinatorport";
+
+    public static final String LEASE_TIME_OUT_IN_MS_PROPERTY_NAME = "leasetimeoutms";
+
+    public static final String JOB_ORDERING_PROPERTY_NAME = "jobordering";
+
+    public static final String STATUS_PORT_PROPERTY_NAME = "statusport";
+
+    public static final String STATUS_FILE_INTERVAL_IN_MS_PROPERTY_NAME = "statusfileintervalms";
+
+    public static final String WORKLOAD_PROPERTY_NAME = "workload";
+
+    public static final String WORKLOAD_DOCUMENT_PROPERTY_NAME = "workloaddocument";
+
+    public static final String WORKLOAD_SEED_PROPERTY_NAME = "workloadseed";
+
+    public static final String IMPORTS_DIRECTORY_PROPERTY_NAME = "importsdirectory";
+
+    public static final String MODULE_SIGNATURE_FILE_PROPERTY_NAME = "modulesignaturefile";
+
+    public static final String MODULE_SIGNATURE_SIZE_PROPERTY_NAME = "modulesignaturesize";
+
+    public static final String MODULE_TYPE_PROPERTY_NAME = "moduletype";
+
+    public static final String SYNTHETIC_CLASSES_PROPERTY_NAME = "syntheticclasses";
+
+    public static final String SYNTHETIC_BRANCHING_PROPERTY_NAME = "syntheticbranching";
+
+    public static final String SYNTHETIC_PROPERTIES_PROPERTY_NAME = "syntheticproperties";
+
+    public static final String SYNTHETIC_EXISTENTIALS_PROPERTY_NAME = "syntheticexistentials";
+
+    public static final String CONSOLE_LINES_PER_SECOND_PROPERTY_NAME = "consolelinespersecond";
+
+    public static final String LOG_BUFFER_SIZE_IN_KB_PROPERTY_NAME = "logbufferkb";
+
+    public static final String LOG_ROTATIONS_PROPERTY_NAME = "logrotations";
+
+    public static final String PREWARMED_FORKS_PROPERTY_NAME = "prewarmedforks";
+
+    public static final String JVM_OPTIONS_PROPERTY_NAME = "jvmoptions";
+
+    public static final String CDS_ARCHIVE_PROPERTY_NAME = "cdsarchive";
+
+    public static final String PRECOMPUTED_INFERENCES_PROPERTY_NAME = "precomputedinferences";
+
+    public static final String REASONER_POOL_SIZE_PROPERTY_NAME = "reasonerpoolsize";
+
+    public static final String REASONER_POOL_HEAP_FRACTION_PROPERTY_NAME = "reasonerpoolheapfraction";
+
+    public static final String CLASSIFICATION_TIME_OUT_IN_MS_PROPERTY_NAME = "classificationtimeoutms";
+
 
     public static final long DEFAULT_REASONER_ENTAILMENT_CHECK_TIMEOUT_IN_MS = Long.MAX_VALUE;
 
     public static final long DEFAULT_EXPERIMENT_TIME_OUT_MS = Long.MAX_VALUE;
 
-    private Properties properties = new Properties();
+    public static final int DEFAULT_WORKERS = 1;
+
+    public static final int DEFAULT_TOTAL_MEMORY_IN_MB = 4000;
+
+    public static final String FORKED_EXECUTION_MODE = "forked";
+
+    public static final String IN_PROCESS_EXECUTION_MODE = "inprocess";
+
+    public static final String DISTRIBUTED_EXECUTION_MODE = "distributed";
+
+    public static final int DEFAULT_WORKER_JOBS_BEFORE_RECYCLE = 100;
+
+    public static final double DEFAULT_WORKER_RECYCLE_HEAP_FRACTION = 0.75;
+
+    public static final int DEFAULT_MIN_JOB_MEMORY_IN_MB = 256;
+
+    public static final double DEFAULT_HEAP_BYTES_PER_DOCUMENT_BYTE = 20.0;
+
+    public static final double DEFAULT_JOB_MEMORY_SAFETY_FACTOR = 1.5;
+
+    public static final int DEFAULT_OUT_OF_MEMORY_RETRIES = 2;
+
+    public static final int DEFAULT_MAX_JOB_RETRIES = 1;
+
+    public static final String XML_TELEMETRY_FORMAT = "xml";
+
+    public static final String BINARY_TELEMETRY_FORMAT = "binary";
+
+    public static final String NO_PROFILER = "none";
+
+    public static final String JFR_PROFILER = "jfr";
+
+    public static final String ASYNC_PROFILER = "asyncprofiler";
+
+    public static final int DEFAULT_WARMUP_ITERATIONS = 0;
+
+    public static final int DEFAULT_MEASURED_ITERATIONS = 1;
+
+    public static final int DEFAULT_FORKS = 1;
+
+    public static final double DEFAULT_HIGH_VARIANCE_THRESHOLD = 0.1;
+
+    public static final long DEFAULT_CANCELLATION_GRACE_PERIOD_IN_MS = 10000;
+
+    public static final long DEFAULT_RESOURCE_SAMPLING_INTERVAL_IN_MS = 100;
+
+    public static final String DEFAULT_JFR_SETTINGS = "profile";
+
+    public static final String DEFAULT_JFR_MAX_AGE = "10m";
+
+    public static final String DEFAULT_ASYNC_PROFILER_EVENT = "cpu";
+
+    public static final int DEFAULT_COORDINATOR_PORT = 7654;
+
+    public static final long DEFAULT_LEASE_TIME_OUT_IN_MS = 60000;
+
+    public static final long DEFAULT_STATUS_FILE_INTERVAL_IN_MS = 10000;
+
+    public static final String DOCUMENT_WORKLOAD = "document";
+
+    public static final String IMPORTS_CLOSURE_WORKLOAD = "importsclosure";
+
+    public static final String MODULE_WORKLOAD = "module";
+
+    public static final String BATCH_WORKLOAD = "batch";
+
+    public static final String SYNTHETIC_WORKLOAD = "synthetic";
+
+    public static final String DEFAULT_MODULE_SIGNATURE_FILE = "signature.txt";
+
+    public static final int DEFAULT_MODULE_SIGNATURE_SIZE = 10;
+
+    public static final int DEFAULT_SYNTHETIC_CLASSES = 1000;
+
+    public static final int DEFAULT_SYNTHETIC_BRANCHING = 4;
+
+    public static final int DEFAULT_SYNTHETIC_PROPERTIES = 10;
+
+    public static final int DEFAULT_SYNTHETIC_EXISTENTIALS = 1000;
+
+    public static final int DEFAULT_CONSOLE_LINES_PER_SECOND = 100;
+
+    public static final int DEFAULT_LOG_BUFFER_SIZE_IN_KB = 256;
+
+    public static final int DEFAULT_LOG_ROTATIONS = 3;
+
+    public static final String DEFAULT_CDS_ARCHIVE = "runner.jsa";
+
+    public static final int DEFAULT_REASONER_POOL_SIZE = 2;
+
+    public static final double DEFAULT_REASONER_POOL_HEAP_FRACTION = 0.75;
+
+    /**
+     * The name of the layer of the values that a {@link MatrixConfiguration} overrides.
+     */
+    public static final String MATRIX_LAYER_NAME = "matrix";
+
+    /**
+     * The types of the standard properties, which are checked when the properties are built.
+     */
+    private static final Map<String, PropertyType> PROPERTY_TYPES = new HashMap<String, PropertyType>();
+
+    static {
+        PROPERTY_TYPES.put(REASONER_ENTAILMENT_CHECK_TIMEOUT_IN_MS_PROPERTY, PropertyType.LONG);
+        PROPERTY_TYPES.put(EXPERIMENT_TIME_OUT_IN_MS_PROPERTY_NAME, PropertyType.LONG);
+        PROPERTY_TYPES.put(WORKERS_PROPERTY_NAME, PropertyType.INT);
+        PROPERTY_TYPES.put(TOTAL_MEMORY_IN_MB_PROPERTY_NAME, PropertyType.INT);
+        PROPERTY_TYPES.put(WORKER_JOBS_BEFORE_RECYCLE_PROPERTY_NAME, PropertyType.INT);
+        PROPERTY_TYPES.put(WORKER_RECYCLE_HEAP_FRACTION_PROPERTY_NAME, PropertyType.DOUBLE);
+        PROPERTY_TYPES.put(LOAD_ONTOLOGY_ONCE_PROPERTY_NAME, PropertyType.BOOLEAN);
+        PROPERTY_TYPES.put(MEMORY_MAPPED_LOADING_PROPERTY_NAME, PropertyType.BOOLEAN);
+        PROPERTY_TYPES.put(MIN_JOB_MEMORY_IN_MB_PROPERTY_NAME, PropertyType.INT);
+        PROPERTY_TYPES.put(HEAP_BYTES_PER_DOCUMENT_BYTE_PROPERTY_NAME, PropertyType.DOUBLE);
+        PROPERTY_TYPES.put(JOB_MEMORY_SAFETY_FACTOR_PROPERTY_NAME, PropertyType.DOUBLE);
+        PROPERTY_TYPES.put(OUT_OF_MEMORY_RETRIES_PROPERTY_NAME, PropertyType.INT);
+        PROPERTY_TYPES.put(MAX_JOB_RETRIES_PROPERTY_NAME, PropertyType.INT);
+        PROPERTY_TYPES.put(RETRY_TIMED_OUT_JOBS_PROPERTY_NAME, PropertyType.BOOLEAN);
+        PROPERTY_TYPES.put(WARMUP_ITERATIONS_PROPERTY_NAME, PropertyType.INT);
+        PROPERTY_TYPES.put(MEASURED_ITERATIONS_PROPERTY_NAME, PropertyType.INT);
+        PROPERTY_TYPES.put(FORKS_PROPERTY_NAME, PropertyType.INT);
+        PROPERTY_TYPES.put(HIGH_VARIANCE_THRESHOLD_PROPERTY_NAME, PropertyType.DOUBLE);
+        PROPERTY_TYPES.put(CANCELLATION_GRACE_PERIOD_IN_MS_PROPERTY_NAME, PropertyType.LONG);
+        PROPERTY_TYPES.put(RESOURCE_SAMPLING_INTERVAL_IN_MS_PROPERTY_NAME, PropertyType.LONG);
+        PROPERTY_TYPES.put(PROFILER_THRESHOLD_IN_MS_PROPERTY_NAME, PropertyType.LONG);
+        PROPERTY_TYPES.put(COORDINATOR_PORT_PROPERTY_NAME, PropertyType.INT);
+        PROPERTY_TYPES.put(LEASE_TIME_OUT_IN_MS_PROPERTY_NAME, PropertyType.LONG);
+        PROPERTY_TYPES.put(STATUS_PORT_PROPERTY_NAME, PropertyType.INT);
+        PROPERTY_TYPES.put(STATUS_FILE_INTERVAL_IN_MS_PROPERTY_NAME, PropertyType.LONG);
+        PROPERTY_TYPES.put(WORKLOAD_SEED_PROPERTY_NAME, PropertyType.LONG);
+        PROPERTY_TYPES.put(MODULE_SIGNATURE_SIZE_PROPERTY_NAME, PropertyType.INT);
+        PROPERTY_TYPES.put(SYNTHETIC_CLASSES_PROPERTY_NAME, PropertyType.INT);
+        PROPERTY_TYPES.put(SYNTHETIC_BRANCHING_PROPERTY_NAME, PropertyType.INT);
+        PROPERTY_TYPES.put(SYNTHETIC_PROPERTIES_PROPERTY_NAME, PropertyType.INT);
+        PROPERTY_TYPES.put(SYNTHETIC_EXISTENTIALS_PROPERTY_NAME, PropertyType.INT);
+        PROPERTY_TYPES.put(CONSOLE_LINES_PER_SECOND_PROPERTY_NAME, PropertyType.INT);
+        PROPERTY_TYPES.put(LOG_BUFFER_SIZE_IN_KB_PROPERTY_NAME, PropertyType.INT);
+        PROPERTY_TYPES.put(LOG_ROTATIONS_PROPERTY_NAME, PropertyType.INT);
+        PROPERTY_TYPES.put(PREWARMED_FORKS_PROPERTY_NAME, PropertyType.INT);
+        PROPERTY_TYPES.put(REASONER_POOL_SIZE_PROPERTY_NAME, PropertyType.INT);
+        PROPERTY_TYPES.put(REASONER_POOL_HEAP_FRACTION_PROPERTY_NAME, PropertyType.DOUBLE);
+        PROPERTY_TYPES.put(CLASSIFICATION_TIME_OUT_IN_MS_PROPERTY_NAME, PropertyType.LONG);
+    }
+
+    /**
+     * The standard properties that only affect how jobs are scheduled, logged, profiled and watched, and not the
+     * results of experiments.  They are left out of the fingerprints of experiments (see
+     * {@link ExperimentFingerprinter}), so changing them does not cause experiments to be run again.  A new standard
+     * property should be added here unless its value can change what an experiment records.
+     */
+    private static final Set<String> SCHEDULING_ONLY_PROPERTY_NAMES = new HashSet<String>();
+
+    static {
+        SCHEDULING_ONLY_PROPERTY_NAMES.add(WORKERS_PROPERTY_NAME);
+        SCHEDULING_ONLY_PROPERTY_NAMES.add(TOTAL_MEMORY_IN_MB_PROPERTY_NAME);
+        SCHEDULING_ONLY_PROPERTY_NAMES.add(WORKER_JOBS_BEFORE_RECYCLE_PROPERTY_NAME);
+        SCHEDULING_ONLY_PROPERTY_NAMES.add(WORKER_RECYCLE_HEAP_FRACTION_PROPERTY_NAME);
+        SCHEDULING_ONLY_PROPERTY_NAMES.add(ONTOLOGY_CACHE_DIRECTORY_PROPERTY_NAME);
+        SCHEDULING_ONLY_PROPERTY_NAMES.add(MIN_JOB_MEMORY_IN_MB_PROPERTY_NAME);
+        SCHEDULING_ONLY_PROPERTY_NAMES.add(HEAP_BYTES_PER_DOCUMENT_BYTE_PROPERTY_NAME);
+        SCHEDULING_ONLY_PROPERTY_NAMES.add(JOB_MEMORY_SAFETY_FACTOR_PROPERTY_NAME);
+        SCHEDULING_ONLY_PROPERTY_NAMES.add(OUT_OF_MEMORY_RETRIES_PROPERTY_NAME);
+        SCHEDULING_ONLY_PROPERTY_NAMES.add(MAX_JOB_RETRIES_PROPERTY_NAME);
+        SCHEDULING_ONLY_PROPERTY_NAMES.add(RETRY_TIMED_OUT_JOBS_PROPERTY_NAME);
+        SCHEDULING_ONLY_PROPERTY_NAMES.add(HIGH_VARIANCE_THRESHOLD_PROPERTY_NAME);
+        SCHEDULING_ONLY_PROPERTY_NAMES.add(CANCELLATION_GRACE_PERIOD_IN_MS_PROPERTY_NAME);
+        SCHEDULING_ONLY_PROPERTY_NAMES.add(RESOURCE_SAMPLING_INTERVAL_IN_MS_PROPERTY_NAME);
+        SCHEDULING_ONLY_PROPERTY_NAMES.add(PROFILER_PROPERTY_NAME);
+        SCHEDULING_ONLY_PROPERTY_NAMES.add(PROFILER_THRESHOLD_IN_MS_PROPERTY_NAME);
+        SCHEDULING_ONLY_PROPERTY_NAMES.add(JFR_SETTINGS_PROPERTY_NAME);
+        SCHEDULING_ONLY_PROPERTY_NAMES.add(JFR_MAX_AGE_PROPERTY_NAME);
+        SCHEDULING_ONLY_PROPERTY_NAMES.add(ASYNC_PROFILER_LIBRARY_PROPERTY_NAME);
+        SCHEDULING_ONLY_PROPERTY_NAMES.add(ASYNC_PROFILER_EVENT_PROPERTY_NAME);
+        SCHEDULING_ONLY_PROPERTY_NAMES.add(COORDINATOR_PORT_PROPERTY_NAME);
+        SCHEDULING_ONLY_PROPERTY_NAMES.add(LEASE_TIME_OUT_IN_MS_PROPERTY_NAME);
+        SCHEDULING_ONLY_PROPERTY_NAMES.add(JOB_ORDERING_PROPERTY_NAME);
+        SCHEDULING_ONLY_PROPERTY_NAMES.add(STATUS_PORT_PROPERTY_NAME);
+        SCHEDULING_ONLY_PROPERTY_NAMES.add(STATUS_FILE_INTERVAL_IN_MS_PROPERTY_NAME);
+        SCHEDULING_ONLY_PROPERTY_NAMES.add(CONSOLE_LINES_PER_SECOND_PROPERTY_NAME);
+        SCHEDULING_ONLY_PROPERTY_NAMES.add(LOG_BUFFER_SIZE_IN_KB_PROPERTY_NAME);
+        SCHEDULING_ONLY_PROPERTY_NAMES.add(LOG_ROTATIONS_PROPERTY_NAME);
+        SCHEDULING_ONLY_PROPERTY_NAMES.add(PREWARMED_FORKS_PROPERTY_NAME);
+        SCHEDULING_ONLY_PROPERTY_NAMES.add(CDS_ARCHIVE_PROPERTY_NAME);
+        SCHEDULING_ONLY_PROPERTY_NAMES.add(REASONER_POOL_SIZE_PROPERTY_NAME);
+        SCHEDULING_ONLY_PROPERTY_NAMES.add(REASONER_POOL_HEAP_FRACTION_PROPERTY_NAME);
+    }
+
+    private final Map<String, String> values;
+
+    private final Map<String, String> sources;
+
+    private final ConcurrentMap<String, Long> longValues = new ConcurrentHashMap<String, Long>();
+
+    private final ConcurrentMap<String, Integer> intValues = new ConcurrentHashMap<String, Integer>();
+
+    private final ConcurrentMap<String, Double> doubleValues = new ConcurrentHashMap<String, Double>();
+
+    private final ConcurrentMap<String, Boolean> booleanValues = new ConcurrentHashMap<String, Boolean>();
+
+    private final ConcurrentMap<String, Object> objectValues = new ConcurrentHashMap<String, Object>();
+
+    private final Set<String> propertyNames;
+
+    // The values of the standard properties, which are resolved, with their defaults, when the properties are built.
+    private final long reasonerEntailmentCheckTimeOut;
+
+    private final long experimentTimeOut;
+
+    private final int workers;
+
+    private final int totalMemoryInMegaBytes;
+
+    private final String executionMode;
+
+    private final int workerJobsBeforeRecycle;
+
+    private final double workerRecycleHeapFraction;
+
+    private final boolean loadOntologyOnce;
+
+    private final boolean memoryMappedLoading;
+
+    private final int minJobMemoryInMegaBytes;
+
+    private final double heapBytesPerDocumentByte;
+
+    private final double jobMemorySafetyFactor;
+
+    private final int outOfMemoryRetries;
+
+    private final int maxJobRetries;
+
+    private final boolean retryTimedOutJobs;
+
+    private final boolean binaryTelemetryFormat;
+
+    private final int warmupIterations;
+
+    private final int measuredIterations;
+
+    private final int forks;
+
+    private final double highVarianceThreshold;
+
+    private final long cancellationGracePeriod;
+
+    private final long resourceSamplingInterval;
+
+    private final String profiler;
+
+    private final long profilerThreshold;
+
+    private final String jfrSettings;
+
+    private final String jfrMaxAge;
+
+    private final String asyncProfilerLibrary;
+
+    private final String asyncProfilerEvent;
+
+    private final int coordinatorPort;
+
+    private final long leaseTimeOut;
+
+    private final int statusPort;
+
+    private final long statusFileInterval;
+
+    private final long workloadSeed;
+
+    private final String moduleSignatureFile;
+
+    private final int moduleSignatureSize;
+
+    private final int syntheticClasses;
+
+    private final int syntheticBranching;
+
+    private final int syntheticProperties;
+
+    private final int syntheticExistentials;
+
+    private final int consoleLinesPerSecond;
+
+    private final int logBufferSizeInKiloBytes;
+
+    private final int logRotations;
+
+    private final int prewarmedForks;
+
+    private final int reasonerPoolSize;
+
+    private final double reasonerPoolHeapFraction;
+
+    private final long classificationTimeOut;
+
+    private final List<String> jvmOptions;
 
 
     public ExperimentProperties() {
+        this(new Builder());
     }
 
     public ExperimentProperties(File propertiesFile) {
-        addProperties(propertiesFile);
+        this(new Builder().addLayer(propertiesFile));
     }
 
-    public void setProperty(String property, String value) {
-        properties.setProperty(property, value);
+    /**
+     * Creates properties from the layers of a builder.  The values of the standard properties, and the values of the
+     * axes of a matrix, are parsed and checked straight away, and the standard properties are resolved with their
+     * defaults.
+     * @throws IllegalArgumentException if a value is malformed.
+     */
+    private ExperimentProperties(Builder builder) {
+        this.values = Collections.unmodifiableMap(new HashMap<String, String>(builder.values));
+        this.sources = Collections.unmodifiableMap(new HashMap<String, String>(builder.sources));
+        this.propertyNames = Collections.unmodifiableSet(new TreeSet<String>(builder.values.keySet()));
+        for (Map.Entry<String, PropertyType> entry : PROPERTY_TYPES.entrySet()) {
+            String value = values.get(entry.getKey());
+            if (value != null) {
+                cacheValue(entry.getKey(), value, entry.getValue());
+            }
+        }
+        for (String propertyName : values.keySet()) {
+            if (propertyName.startsWith(MatrixConfiguration.MATRIX_PROPERTY_PREFIX)) {
+                PropertyType type = PROPERTY_TYPES.get(propertyName.substring(MatrixConfiguration.MATRIX_PROPERTY_PREFIX.length()));
+                if (type != null) {
+                    for (String value : values.get(propertyName).split(MatrixConfiguration.VALUE_SEPARATOR)) {
+                        parse(propertyName, value, type);
+                    }
+                }
+            }
+        }
+        reasonerEntailmentCheckTimeOut = getLongProperty(REASONER_ENTAILMENT_CHECK_TIMEOUT_IN_MS_PROPERTY, DEFAULT_REASONER_ENTAILMENT_CHECK_TIMEOUT_IN_MS);
+        experimentTimeOut = getLongProperty(EXPERIMENT_TIME_OUT_IN_MS_PROPERTY_NAME, DEFAULT_EXPERIMENT_TIME_OUT_MS);
+        workers = Math.max(1, getIntProperty(WORKERS_PROPERTY_NAME, DEFAULT_WORKERS));
+        totalMemoryInMegaBytes = getIntProperty(TOTAL_MEMORY_IN_MB_PROPERTY_NAME, DEFAULT_TOTAL_MEMORY_IN_MB);
+        executionMode = getProperty(EXECUTION_MODE_PROPERTY_NAME, FORKED_EXECUTION_MODE).trim().toLowerCase();
+        workerJobsBeforeRecycle = getIntProperty(WORKER_JOBS_BEFORE_RECYCLE_PROPERTY_NAME, DEFAULT_WORKER_JOBS_BEFORE_RECYCLE);
+        workerRecycleHeapFraction = getDoubleProperty(WORKER_RECYCLE_HEAP_FRACTION_PROPERTY_NAME, DEFAULT_WORKER_RECYCLE_HEAP_FRACTION);
+        loadOntologyOnce = getBooleanProperty(LOAD_ONTOLOGY_ONCE_PROPERTY_NAME, false);
+        memoryMappedLoading = getBooleanProperty(MEMORY_MAPPED_LOADING_PROPERTY_NAME, false);
+        minJobMemoryInMegaBytes = getIntProperty(MIN_JOB_MEMORY_IN_MB_PROPERTY_NAME, DEFAULT_MIN_JOB_MEMORY_IN_MB);
+        heapBytesPerDocumentByte = getDoubleProperty(HEAP_BYTES_PER_DOCUMENT_BYTE_PROPERTY_NAME, DEFAULT_HEAP_BYTES_PER_DOCUMENT_BYTE);
+        jobMemorySafetyFactor = getDoubleProperty(JOB_MEMORY_SAFETY_FACTOR_PROPERTY_NAME, DEFAULT_JOB_MEMORY_SAFETY_FACTOR);
+        outOfMemoryRetries = Math.max(0, getIntProperty(OUT_OF_MEMORY_RETRIES_PROPERTY_NAME, DEFAULT_OUT_OF_MEMORY_RETRIES));
+        maxJobRetries = Math.max(0, getIntProperty(MAX_JOB_RETRIES_PROPERTY_NAME, DEFAULT_MAX_JOB_RETRIES));
+        retryTimedOutJobs = getBooleanProperty(RETRY_TIMED_OUT_JOBS_PROPERTY_NAME, false);
+        binaryTelemetryFormat = BINARY_TELEMETRY_FORMAT.equalsIgnoreCase(getProperty(TELEMETRY_FORMAT_PROPERTY_NAME, XML_TELEMETRY_FORMAT).trim());
+        warmupIterations = Math.max(0, getIntProperty(WARMUP_ITERATIONS_PROPERTY_NAME, DEFAULT_WARMUP_ITERATIONS));
+        measuredIterations = Math.max(1, getIntProperty(MEASURED_ITERATIONS_PROPERTY_NAME, DEFAULT_MEASURED_ITERATIONS));
+        forks = Math.max(1, getIntProperty(FORKS_PROPERTY_NAME, DEFAULT_FORKS));
+        highVarianceThreshold = getDoubleProperty(HIGH_VARIANCE_THRESHOLD_PROPERTY_NAME, DEFAULT_HIGH_VARIANCE_THRESHOLD);
+        cancellationGracePeriod = Math.max(0, getLongProperty(CANCELLATION_GRACE_PERIOD_IN_MS_PROPERTY_NAME, DEFAULT_CANCELLATION_GRACE_PERIOD_IN_MS));
+        resourceSamplingInterval = Math.max(0, getLongProperty(RESOURCE_SAMPLING_INTERVAL_IN_MS_PROPERTY_NAME, DEFAULT_RESOURCE_SAMPLING_INTERVAL_IN_MS));
+        profiler = getProperty(PROFILER_PROPERTY_NAME, NO_PROFILER).trim().toLowerCase();
+        profilerThreshold = Math.max(0, getLongProperty(PROFILER_THRESHOLD_IN_MS_PROPERTY_NAME, 0));
+        jfrSettings = getProperty(JFR_SETTINGS_PROPERTY_NAME, DEFAULT_JFR_SETTINGS).trim();
+        String maxAge = getProperty(JFR_MAX_AGE_PROPERTY_NAME, profilerThreshold > 0 ? DEFAULT_JFR_MAX_AGE : null);
+        jfrMaxAge = maxAge != null ? maxAge.trim() : null;
+        asyncProfilerLibrary = getProperty(ASYNC_PROFILER_LIBRARY_PROPERTY_NAME, null);
+        asyncProfilerEvent = getProperty(ASYNC_PROFILER_EVENT_PROPERTY_NAME, DEFAULT_ASYNC_PROFILER_EVENT).trim();
+        coordinatorPort = getIntProperty(COORDINATOR_PORT_PROPERTY_NAME, DEFAULT_COORDINATOR_PORT);
+        leaseTimeOut = Math.max(1, getLongProperty(LEASE_TIME_OUT_IN_MS_PROPERTY_NAME, DEFAULT_LEASE_TIME_OUT_IN_MS));
+        statusPort = getIntProperty(STATUS_PORT_PROPERTY_NAME, -1);
+        statusFileInterval = Math.max(0, getLongProperty(STATUS_FILE_INTERVAL_IN_MS_PROPERTY_NAME, DEFAULT_STATUS_FILE_INTERVAL_IN_MS));
+        workloadSeed = getLongProperty(WORKLOAD_SEED_PROPERTY_NAME, 0);
+        moduleSignatureFile = getProperty(MODULE_SIGNATURE_FILE_PROPERTY_NAME, DEFAULT_MODULE_SIGNATURE_FILE).trim();
+        moduleSignatureSize = Math.max(1, getIntProperty(MODULE_SIGNATURE_SIZE_PROPERTY_NAME, DEFAULT_MODULE_SIGNATURE_SIZE));
+        syntheticClasses = Math.max(1, getIntProperty(SYNTHETIC_CLASSES_PROPERTY_NAME, DEFAULT_SYNTHETIC_CLASSES));
+        syntheticBranching = Math.max(1, getIntProperty(SYNTHETIC_BRANCHING_PROPERTY_NAME, DEFAULT_SYNTHETIC_BRANCHING));
+        syntheticProperties = Math.max(1, getIntProperty(SYNTHETIC_PROPERTIES_PROPERTY_NAME, DEFAULT_SYNTHETIC_PROPERTIES));
+        syntheticExistentials = Math.max(0, getIntProperty(SYNTHETIC_EXISTENTIALS_PROPERTY_NAME, DEFAULT_SYNTHETIC_EXISTENTIALS));
+        consoleLinesPerSecond = Math.max(-1, getIntProperty(CONSOLE_LINES_PER_SECOND_PROPERTY_NAME, DEFAULT_CONSOLE_LINES_PER_SECOND));
+        logBufferSizeInKiloBytes = Math.max(1, getIntProperty(LOG_BUFFER_SIZE_IN_KB_PROPERTY_NAME, DEFAULT_LOG_BUFFER_SIZE_IN_KB));
+        logRotations = Math.max(0, getIntProperty(LOG_ROTATIONS_PROPERTY_NAME, DEFAULT_LOG_ROTATIONS));
+        prewarmedForks = Math.max(0, getIntProperty(PREWARMED_FORKS_PROPERTY_NAME, workers));
+        reasonerPoolSize = Math.max(1, getIntProperty(REASONER_POOL_SIZE_PROPERTY_NAME, DEFAULT_REASONER_POOL_SIZE));
+        reasonerPoolHeapFraction = getDoubleProperty(REASONER_POOL_HEAP_FRACTION_PROPERTY_NAME, DEFAULT_REASONER_POOL_HEAP_FRACTION);
+        classificationTimeOut = getLongProperty(CLASSIFICATION_TIME_OUT_IN_MS_PROPERTY_NAME, experimentTimeOut);
+        String jvmOptionsValue = getProperty(JVM_OPTIONS_PROPERTY_NAME, "").trim();
+        if (jvmOptionsValue.isEmpty()) {
+            jvmOptions = Collections.emptyList();
+        }
+        else {
+            jvmOptions = Collections.unmodifiableList(Arrays.asList(jvmOptionsValue.split("\\s+")));
+        }
     }
 
-    public void addProperties(File propertiesFile) {
-        if (propertiesFile.exists()) {
-            try {
-                properties.load(new BufferedInputStream(new FileInputStream(propertiesFile)));
+    /**
+     * Builds {@link ExperimentProperties} from layers of properties.  The values of later layers override the values
+     * of earlier layers.  The name of the layer that each value came from is kept.
+     */
+    public static class Builder {
+
+        private Map<String, String> values = new HashMap<String, String>();
+
+        private Map<String, String> sources = new HashMap<String, String>();
+
+        public Builder() {
+        }
+
+        /**
+         * Creates a builder whose first layers are the layers of some existing properties.
+         * @param experimentProperties The existing properties.
+         */
+        public Builder(ExperimentProperties experimentProperties) {
+            values.putAll(experimentProperties.values);
+            sources.putAll(experimentProperties.sources);
+        }
+
+        /**
+         * Adds a properties file as a layer.  The layer is named after the path of the file.  A file that does not
+         * exist is reported and skipped.
+         */
+        public Builder addLayer(File propertiesFile) {
+            if (propertiesFile.exists()) {
+                try {
+                    Properties properties = new Properties();
+                    InputStream is = new BufferedInputStream(new FileInputStream(propertiesFile));
+                    try {
+                        properties.load(is);
+                    }
+                    finally {
+                        is.close();
+                    }
+                    addLayer(propertiesFile.getCanonicalPath(), properties);
+                }
+                catch (IOException e) {
+                    System.err.println(e.getMessage());
+                }
             }
-            catch (IOException e) {
-                System.err.println(e.getMessage());
+            else {
+                System.err.println("Experiment properties file not found: " + propertiesFile);
             }
+            return this;
         }
-        else {
-            System.err.println("Experiment properties file not found: " + propertiesFile);
+
+        public Builder addLayer(String layerName, Properties properties) {
+            for (String propertyName : properties.stringPropertyNames()) {
+                setProperty(layerName, propertyName, properties.getProperty(propertyName));
+            }
+            return this;
+        }
+
+        public Builder setProperty(String layerName, String propertyName, String value) {
+            values.put(propertyName, value);
+            sources.put(propertyName, layerName);
+            return this;
+        }
+
+        /**
+         * @throws IllegalArgumentException if the value of a standard property is malformed.
+         */
+        public ExperimentProperties build() {
+            return new ExperimentProperties(this);
+        }
+    }
+
+    private enum PropertyType {
+
+        LONG("a long"),
+
+        INT("an int"),
+
+        DOUBLE("a double"),
+
+        BOOLEAN("true or false");
+
+        private String description;
+
+        private PropertyType(String description) {
+            this.description = description;
+        }
+    }
+
+    private Object parse(String propertyName, String value, PropertyType type) {
+        String trimmedValue = value.trim();
+        try {
+            switch (type) {
+                case LONG:
+                    return Long.parseLong(trimmedValue);
+                case INT:
+                    return Integer.parseInt(trimmedValue);
+                case DOUBLE:
+                    return Double.parseDouble(trimmedValue);
+                default:
+                    if (trimmedValue.equalsIgnoreCase("true")) {
+                        return Boolean.TRUE;
+                    }
+                    else if (trimmedValue.equalsIgnoreCase("false")) {
+                        return Boolean.FALSE;
+                    }
+                    throw new NumberFormatException();
+            }
+        }
+        catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Malformed value of " + propertyName + " in " + getSource(propertyName) + ": \"" + value + "\" is not " + type.description);
+        }
+    }
+
+    private void cacheValue(String propertyName, String value, PropertyType type) {
+        Object typedValue = parse(propertyName, value, type);
+        switch (type) {
+            case LONG:
+                longValues.put(propertyName, (Long) typedValue);
+                break;
+            case INT:
+                intValues.put(propertyName, (Integer) typedValue);
+                break;
+            case DOUBLE:
+                doubleValues.put(propertyName, (Double) typedValue);
+                break;
+            default:
+                booleanValues.put(propertyName, (Boolean) typedValue);
         }
     }
 
+    /**
+     * Determines whether a property only affects how jobs are scheduled, logged, profiled and watched, rather than the
+     * results of experiments.
+     * @param propertyName The property name.
+     * @return true if the property is a standard property that does not affect results, otherwise false.
+     */
+    public static boolean isSchedulingOnly(String propertyName) {
+        return SCHEDULING_ONLY_PROPERTY_NAMES.contains(propertyName);
+    }
+
+    /**
+     * Gets the layer that the value of a property came from.
+     * @param propertyName The property name.
+     * @return The layer name (the path of a properties file, or {@link #MATRIX_LAYER_NAME}), or null if the property
+     * is not set.
+     */
+    public String getSource(String propertyName) {
+        return sources.get(propertyName);
+    }
+
     public String getProperty(String propertyName, String defaultValue) {
-        String value = properties.getProperty(propertyName);
+        String value = values.get(propertyName);
         if (value == null) {
             return defaultValue;
         }
@@ -67,56 +693,73 @@ public class ExperimentProperties {
         }
     }
 
+    /**
+     * Gets the value of a property as a long.  The value is parsed once and then cached.
+     * @throws IllegalArgumentException if the value is malformed.
+     */
     public long getLongProperty(String propertyName, long defaultValue) {
-        String value = properties.getProperty(propertyName);
+        Long typedValue = longValues.get(propertyName);
+        if (typedValue != null) {
+            return typedValue;
+        }
+        String value = values.get(propertyName);
         if (value == null) {
             return defaultValue;
         }
-        else {
-            try {
-                return Long.parseLong(value);
-            }
-            catch (NumberFormatException e) {
-                System.err.println(e.getMessage());
-                return defaultValue;
-            }
-
-        }
+        cacheValue(propertyName, value, PropertyType.LONG);
+        return longValues.get(propertyName);
     }
 
+    /**
+     * Gets the value of a property as a boolean (true or false, ignoring case).  The value is parsed once and then
+     * cached.
+     * @throws IllegalArgumentException if the value is malformed.
+     */
     public boolean getBooleanProperty(String propertyName, boolean defaultValue) {
-        String value = properties.getProperty(propertyName);
-        if(value == null) {
-            return defaultValue;
+        Boolean typedValue = booleanValues.get(propertyName);
+        if (typedValue != null) {
+            return typedValue;
         }
-        else {
-            if(value.toLowerCase().equals("true")) {
-                return true;
-            }
-            else if(value.toLowerCase().equals("false")) {
-                return false;
-            }
-            else {
-                return defaultValue;
-            }
+        String value = values.get(propertyName);
+        if (value == null) {
+            return defaultValue;
         }
+        cacheValue(propertyName, value, PropertyType.BOOLEAN);
+        return booleanValues.get(propertyName);
     }
 
+    /**
+     * Gets the value of a property as an int.  The value is parsed once and then cached.
+     * @throws IllegalArgumentException if the value is malformed.
+     */
     public int getIntProperty(String propertyName, int defaultValue) {
-        String value = properties.getProperty(propertyName);
+        Integer typedValue = intValues.get(propertyName);
+        if (typedValue != null) {
+            return typedValue;
+        }
+        String value = values.get(propertyName);
         if (value == null) {
             return defaultValue;
         }
-        else {
-            try {
-                return Integer.parseInt(value);
-            }
-            catch (NumberFormatException e) {
-                System.err.println(e.getMessage());
-                return defaultValue;
-            }
+        cacheValue(propertyName, value, PropertyType.INT);
+        return intValues.get(propertyName);
+    }
 
+    /**
+     * Gets the value of a property as a double.  The value is parsed once and then cached.
+     * @throws IllegalArgumentException if the value is malformed.
+     */
+    public double getDoubleProperty(String propertyName, double defaultValue) {
+        Double typedValue = doubleValues.get(propertyName);
+        if (typedValue != null) {
+            return typedValue;
+        }
+        String value = values.get(propertyName);
+        if (value == null) {
+            return defaultValue;
         }
+        cacheValue(propertyName, value, PropertyType.DOUBLE);
+        return doubleValues.get(propertyName);
     }
 
     public OWLReasonerFactory getReasonerFactory(OWLReasonerFactory defaultReasonerFactory) {
@@ -124,57 +767,616 @@ public class ExperimentProperties {
     }
 
 
+    /**
+     * Gets a reasoner configuration whose time out is the entailment check time out, or the time that is left until
+     * the deadline of the experiment method that is running on this thread (see {@link ExperimentContext#current()})
+     * if that is sooner.
+     */
     public OWLReasonerConfiguration getReasonerConfiguration() {
-        return getReasonerConfiguration(new NullReasonerProgressMonitor());
+        return getReasonerConfiguration(ExperimentContext.current());
     }
 
     public OWLReasonerConfiguration getReasonerConfiguration(ReasonerProgressMonitor progressMonitor) {
+        return getReasonerConfiguration(ExperimentContext.current(), progressMonitor);
+    }
+
+    public OWLReasonerConfiguration getReasonerConfiguration(ExperimentContext context) {
+        return getReasonerConfiguration(context, new NullReasonerProgressMonitor());
+    }
+
+    /**
+     * Gets a reasoner configuration whose time out is the entailment check time out, or the time that is left until
+     * the deadline of the experiment if that is sooner.
+     * @param context The context of the running experiment, which holds its deadline.
+     * @param progressMonitor The progress monitor of the configuration.
+     */
+    public OWLReasonerConfiguration getReasonerConfiguration(ExperimentContext context, ReasonerProgressMonitor progressMonitor) {
         long timeout = getReasonerEntailmentCheckTimeOutInMilliSeconds();
+        if (context.hasDeadline()) {
+            timeout = Math.min(timeout, context.getTimeLeft());
+        }
         return new SimpleConfiguration(progressMonitor, timeout);
     }
 
-
+    /**
+     * Gets an instance of the class that is named by a property.  The instance is created the first time that it is
+     * asked for and is then shared by all callers of these properties.
+     * @param classNameProperty The name of the property whose value is a class name.
+     * @param defaultInstance The instance to return if the property is not set.
+     * @return The instance.
+     * @throws IllegalArgumentException if the class cannot be instantiated.
+     */
+    @SuppressWarnings("unchecked")
     public <T> T getObjectFromClass(String classNameProperty, T defaultInstance) {
-        String className = properties.getProperty(classNameProperty);
-        if (className != null) {
-            try {
-                Class<?> cls = Class.forName(className);
-                return (T) cls.newInstance();
-            }
-            catch (InstantiationException e) {
-                e.printStackTrace();
-            }
-            catch (IllegalAccessException e) {
-                e.printStackTrace();
-            }
-            catch (ClassNotFoundException e) {
-                e.printStackTrace();
-            }
-
+        Object instance = objectValues.get(classNameProperty);
+        if (instance != null) {
+            return (T) instance;
+        }
+        String className = values.get(classNameProperty);
+        if (className == null) {
+            return defaultInstance;
+        }
+        try {
+            Class<?> cls = Class.forName(className.trim());
+            objectValues.putIfAbsent(classNameProperty, cls.newInstance());
+            return (T) objectValues.get(classNameProperty);
+        }
+        catch (InstantiationException e) {
+            throw new IllegalArgumentException("Could not instantiate " + className + " (" + classNameProperty + " in " + getSource(classNameProperty) + ")", e);
+        }
+        catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("Could not instantiate " + className + " (" + classNameProperty + " in " + getSource(classNameProperty) + ")", e);
+        }
+        catch (ClassNotFoundException e) {
+            throw new IllegalArgumentException("Class not found: " + className + " (" + classNameProperty + " in " + getSource(classNameProperty) + ")", e);
         }
-        // Fall back to default
-        return defaultInstance;
     }
 
     @Override
     public String toString() {
-        return properties.toString();
+        return new TreeMap<String, String>(values).toString();
     }
 
+    /**
+     * Gets the names of the properties that are set.
+     * @return The names, in alphabetical order.
+     */
     public Set<String> getProperties() {
-        Set<String> result = new LinkedHashSet<String>();
-        for (Object key : properties.keySet()) {
-            result.add(key.toString());
-        }
-        return result;
+        return propertyNames;
     }
 
     public long getReasonerEntailmentCheckTimeOutInMilliSeconds() {
-        return getLongProperty(REASONER_ENTAILMENT_CHECK_TIMEOUT_IN_MS_PROPERTY, DEFAULT_REASONER_ENTAILMENT_CHECK_TIMEOUT_IN_MS);
+        return reasonerEntailmentCheckTimeOut;
     }
 
     public long getOntologyDocumentExperimentTimeOut() {
-        return getLongProperty(EXPERIMENT_TIME_OUT_IN_MS_PROPERTY_NAME, DEFAULT_EXPERIMENT_TIME_OUT_MS);
+        return experimentTimeOut;
+    }
+
+    /**
+     * Gets the number of experiment runners that the controller may run at the same time.
+     * @return The number of workers.  Always at least 1.
+     */
+    public int getWorkers() {
+        return workers;
+    }
+
+    /**
+     * Gets the total amount of heap, in megabytes, that may be shared out between the concurrently running
+     * experiment runners.
+     * @return The total memory in megabytes.
+     */
+    public int getTotalMemoryInMegaBytes() {
+        return totalMemoryInMegaBytes;
+    }
+
+    /**
+     * Determines whether jobs should be run in long lived worker JVMs that each run several jobs.
+     * @return true if the execution mode is {@link #IN_PROCESS_EXECUTION_MODE}, false if each job should be run in
+     * its own forked JVM (the default).
+     */
+    public boolean isInProcessExecutionMode() {
+        return IN_PROCESS_EXECUTION_MODE.equals(getExecutionMode());
+    }
+
+    /**
+     * Determines whether jobs should be handed out to {@link RemoteExperimentWorker}s, which may be on other hosts.
+     * @return true if the execution mode is {@link #DISTRIBUTED_EXECUTION_MODE}, otherwise false.
+     */
+    public boolean isDistributedExecutionMode() {
+        return DISTRIBUTED_EXECUTION_MODE.equals(getExecutionMode());
     }
-}
 
+    /**
+     * Gets the execution mode.
+     * @return One of {@link #FORKED_EXECUTION_MODE} (the default), {@link #IN_PROCESS_EXECUTION_MODE} or
+     * {@link #DISTRIBUTED_EXECUTION_MODE}.
+     */
+    public String getExecutionMode() {
+        return executionMode;
+    }
+
+    /**
+     * Gets the number of jobs that a worker JVM runs before it is replaced with a fresh one.
+     * @return The number of jobs.
+     */
+    public int getWorkerJobsBeforeRecycle() {
+        return workerJobsBeforeRecycle;
+    }
+
+    /**
+     * Gets the fraction of the max heap that, if still in use after a job has finished, causes a worker JVM to be
+     * replaced with a fresh one.
+     * @return The fraction, between 0 and 1.
+     */
+    public double getWorkerRecycleHeapFraction() {
+        return workerRecycleHeapFraction;
+    }
+
+    /**
+     * Determines whether the ontology in an ontology document directory should be loaded once and shared between
+     * all of the experiment methods that are not marked as {@link Experiment#isolated()}.
+     * @return true if the ontology should be loaded once, otherwise false (the default).
+     */
+    public boolean isLoadOntologyOnce() {
+        return loadOntologyOnce;
+    }
+
+    /**
+     * Gets the directory where parsed ontologies are cached between runs.
+     * @return The directory, or null if ontologies should not be cached (the default).
+     */
+    public File getOntologyCacheDirectory() {
+        String cacheDirectoryName = getProperty(ONTOLOGY_CACHE_DIRECTORY_PROPERTY_NAME, null);
+        if (cacheDirectoryName == null || cacheDirectoryName.trim().isEmpty()) {
+            return null;
+        }
+        return new File(cacheDirectoryName.trim());
+    }
+
+    /**
+     * Determines whether uncompressed ontology documents should be parsed through a memory mapped stream.
+     * Compressed documents are always parsed this way.
+     * @return true if memory mapped loading should be used, otherwise false (the default).
+     */
+    public boolean isMemoryMappedLoading() {
+        return memoryMappedLoading;
+    }
+
+    /**
+     * Gets the smallest max heap size that a forked runner is given.
+     * @return The size in MB.
+     */
+    public int getMinJobMemoryInMegaBytes() {
+        return minJobMemoryInMegaBytes;
+    }
+
+    /**
+     * Gets the number of bytes of heap that are assumed to be needed per byte of (uncompressed) ontology document
+     * when a job has no recorded heap usage from an earlier run.
+     * @return The ratio.
+     */
+    public double getHeapBytesPerDocumentByte() {
+        return heapBytesPerDocumentByte;
+    }
+
+    /**
+     * Gets the factor that estimated heap sizes are multiplied by.
+     * @return The factor.
+     */
+    public double getJobMemorySafetyFactor() {
+        return jobMemorySafetyFactor;
+    }
+
+    /**
+     * Gets the number of times that a job that ran out of memory is retried with a larger heap.
+     * @return The number of retries.
+     */
+    public int getOutOfMemoryRetries() {
+        return outOfMemoryRetries;
+    }
+
+    /**
+     * Gets the number of times that an experiment that failed is rerun, either straight away or when the run is
+     * restarted.
+     * @return The number of retries.
+     */
+    public int getMaxJobRetries() {
+        return maxJobRetries;
+    }
+
+    /**
+     * Determines whether experiments that timed out are retried in the same way as experiments that failed.
+     * @return true if timed out experiments should be retried, otherwise false (the default).
+     */
+    public boolean isRetryTimedOutJobs() {
+        return retryTimedOutJobs;
+    }
+
+    /**
+     * Determines whether telemetry should be written in the binary format of {@link BinaryTelemetryReceiver} rather
+     * than as XML.
+     * @return true if the telemetryformat property is binary, otherwise false (the default is xml).
+     */
+    public boolean isBinaryTelemetryFormat() {
+        return binaryTelemetryFormat;
+    }
+
+    /**
+     * Gets the number of times that an experiment method is run, without recording telemetry, before the runs that
+     * are measured.  This is used for experiment methods that do not specify {@link Experiment#warmups()}.
+     * @return The number of warm-up iterations.  The default is 0.
+     */
+    public int getWarmupIterations() {
+        return warmupIterations;
+    }
+
+    /**
+     * Gets the number of times that an experiment method is run and measured in each runner.  This is used for
+     * experiment methods that do not specify {@link Experiment#iterations()}.
+     * @return The number of measured iterations.  Always at least 1.  The default is 1.
+     */
+    public int getMeasuredIterations() {
+        return measuredIterations;
+    }
+
+    /**
+     * Gets the number of runners (and, in forked execution mode, JVMs) that each experiment is run in.  This is used
+     * for experiment methods that do not specify {@link Experiment#forks()}.
+     * @return The number of forks.  Always at least 1.  The default is 1.
+     */
+    public int getForks() {
+        return forks;
+    }
+
+    /**
+     * Gets the coefficient of variation (standard deviation / mean) of the measured iteration times above which the
+     * iterations are flagged as having high variance.
+     * @return The threshold.  The default is 0.1.
+     */
+    public double getHighVarianceThreshold() {
+        return highVarianceThreshold;
+    }
+
+    /**
+     * Gets the time that an experiment is given to stop after it has been interrupted because it reached its time
+     * out.  If it is still running after this time then its runner exits.
+     * @return The grace period in milliseconds.  The default is 10000.
+     */
+    public long getCancellationGracePeriod() {
+        return cancellationGracePeriod;
+    }
+
+    /**
+     * Gets the interval at which the heap usage and the state of the experiment thread are sampled while an ontology
+     * is loaded and while an experiment runs.
+     * @return The interval in milliseconds.  Zero for no sampling.  The default is 100.
+     */
+    public long getResourceSamplingInterval() {
+        return resourceSamplingInterval;
+    }
+
+    /**
+     * Gets the profiler that forked runners are started with.
+     * @return One of {@link #NO_PROFILER}, {@link #JFR_PROFILER} or {@link #ASYNC_PROFILER}.  The default is
+     * {@link #NO_PROFILER}.
+     */
+    public String getProfiler() {
+        return profiler;
+    }
+
+    public boolean isProfilingEnabled() {
+        return !NO_PROFILER.equals(getProfiler());
+    }
+
+    /**
+     * Gets the run time of a job below which its profiler recording is discarded.
+     * @return The threshold in milliseconds.  The default is 0, which means that every recording is kept.
+     */
+    public long getProfilerThreshold() {
+        return profilerThreshold;
+    }
+
+    /**
+     * Gets the name, or path, of the Java Flight Recorder settings that are used for recordings.
+     * @return The settings.  The default is "profile".
+     */
+    public String getJfrSettings() {
+        return jfrSettings;
+    }
+
+    /**
+     * Gets the maximum age of the data that is kept in a Java Flight Recorder recording, in the syntax of the
+     * maxage option of -XX:StartFlightRecording (e.g. 10m).
+     * @return The max age, or null if all data should be kept.  The default is null when every recording is kept,
+     * and 10m when recordings are only kept for jobs that exceed the profiler threshold.
+     */
+    public String getJfrMaxAge() {
+        return jfrMaxAge;
+    }
+
+    /**
+     * Gets the path of the async-profiler agent library (libasyncProfiler.so).
+     * @return The path, or null if it has not been set.
+     */
+    public String getAsyncProfilerLibrary() {
+        return asyncProfilerLibrary;
+    }
+
+    /**
+     * Gets the event that async-profiler samples on (e.g. cpu, alloc, lock, wall).
+     * @return The event.  The default is cpu.
+     */
+    public String getAsyncProfilerEvent() {
+        return asyncProfilerEvent;
+    }
+
+    /**
+     * Gets the port that the coordinator listens on for remote workers in distributed execution mode.
+     * @return The port.  The default is 7654.
+     */
+    public int getCoordinatorPort() {
+        return coordinatorPort;
+    }
+
+    /**
+     * Gets the time after which a remote worker that has not been heard from is presumed dead, and the jobs that it
+     * holds are handed out again.
+     * @return The time out in milliseconds.  The default is 60000.
+     */
+    public long getLeaseTimeOut() {
+        return leaseTimeOut;
+    }
+
+    /**
+     * Gets the order in which the controller starts jobs.
+     * @return The ordering.  The default is {@link JobOrdering#DIRECTORY}.
+     */
+    public JobOrdering getJobOrdering() {
+        return JobOrdering.getJobOrdering(getProperty(JOB_ORDERING_PROPERTY_NAME, JobOrdering.DIRECTORY.getName()));
+    }
+
+    /**
+     * Gets the port of the HTTP server that serves the status of a run on the loopback interface.
+     * @return The port, 0 for any free port, or -1 for no server (the default).
+     */
+    public int getStatusPort() {
+        return statusPort;
+    }
+
+    /**
+     * Gets the interval at which the status file of a run is rewritten.
+     * @return The interval in milliseconds.  Zero for no status file.  The default is 10000.
+     */
+    public long getStatusFileInterval() {
+        return statusFileInterval;
+    }
+
+    /**
+     * Gets the workload, which determines how the inputs of the experiments are found in an ontology document
+     * directory and loaded.  The workload is one of document, importsclosure, module, batch or synthetic, or the name
+     * of a class that implements {@link Workload}.  It is usually set in the experiment.properties file of the
+     * ontology document directory.
+     * @return The workload.  The default is {@link OntologyDocumentWorkload}.
+     * @throws IllegalArgumentException if the workload class cannot be instantiated.
+     */
+    public Workload getWorkload() {
+        String workloadName = getProperty(WORKLOAD_PROPERTY_NAME, DOCUMENT_WORKLOAD).trim();
+        if (workloadName.equalsIgnoreCase(DOCUMENT_WORKLOAD)) {
+            return new OntologyDocumentWorkload();
+        }
+        else if (workloadName.equalsIgnoreCase(IMPORTS_CLOSURE_WORKLOAD)) {
+            return new ImportsClosureWorkload();
+        }
+        else if (workloadName.equalsIgnoreCase(MODULE_WORKLOAD)) {
+            return new ModuleExtractionWorkload();
+        }
+        else if (workloadName.equalsIgnoreCase(BATCH_WORKLOAD)) {
+            return new OntologyBatchWorkload();
+        }
+        else if (workloadName.equalsIgnoreCase(SYNTHETIC_WORKLOAD)) {
+            return new SyntheticOntologyWorkload();
+        }
+        return getObjectFromClass(WORKLOAD_PROPERTY_NAME, null);
+    }
+
+    /**
+     * Gets the name of the ontology document that single document workloads load, when the ontology document
+     * directory contains more than one document.
+     * @return The file name, or null for the first document in name order (the default).
+     */
+    public String getWorkloadDocument() {
+        String documentName = getProperty(WORKLOAD_DOCUMENT_PROPERTY_NAME, null);
+        if (documentName == null || documentName.trim().isEmpty()) {
+            return null;
+        }
+        return documentName.trim();
+    }
+
+    /**
+     * Gets the seed of the random choices that workloads make, so that the same workload is generated every time.
+     * @return The seed.  The default is 0.
+     */
+    public long getWorkloadSeed() {
+        return workloadSeed;
+    }
+
+    /**
+     * Gets a directory, besides the ontology document directory, that the imports closure workload resolves imports
+     * from.
+     * @return The directory, or null if imports are only resolved from the ontology document directory (the default).
+     */
+    public File getImportsDirectory() {
+        String importsDirectoryName = getProperty(IMPORTS_DIRECTORY_PROPERTY_NAME, null);
+        if (importsDirectoryName == null || importsDirectoryName.trim().isEmpty()) {
+            return null;
+        }
+        return new File(importsDirectoryName.trim());
+    }
+
+    /**
+     * Gets the name of the file, in the ontology document directory, that lists the IRIs of the seed signature of the
+     * module extraction workload, one per line.
+     * @return The file name.  The default is signature.txt.
+     */
+    public String getModuleSignatureFile() {
+        return moduleSignatureFile;
+    }
+
+    /**
+     * Gets the number of classes that are picked at random for the seed signature of the module extraction workload
+     * when there is no signature file.
+     * @return The number of classes.  The default is 10.
+     */
+    public int getModuleSignatureSize() {
+        return moduleSignatureSize;
+    }
+
+    /**
+     * Gets the type of locality module that the module extraction workload extracts.
+     * @return The module type.  The default is STAR.
+     * @throws IllegalArgumentException if the module type is not one of TOP, BOT or STAR.
+     */
+    public ModuleType getModuleType() {
+        String moduleTypeName = getProperty(MODULE_TYPE_PROPERTY_NAME, ModuleType.STAR.name()).trim();
+        try {
+            return ModuleType.valueOf(moduleTypeName.toUpperCase());
+        }
+        catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Malformed value of " + MODULE_TYPE_PROPERTY_NAME + " in " + getSource(MODULE_TYPE_PROPERTY_NAME) + ": \"" + moduleTypeName + "\" is not TOP, BOT or STAR");
+        }
+    }
+
+    /**
+     * Gets the number of classes in a synthetic ontology.
+     * @return The number of classes.  The default is 1000.
+     */
+    public int getSyntheticClasses() {
+        return syntheticClasses;
+    }
+
+    /**
+     * Gets the number of subclasses of each class in the class hierarchy of a synthetic ontology.
+     * @return The branching factor.  The default is 4.
+     */
+    public int getSyntheticBranching() {
+        return syntheticBranching;
+    }
+
+    /**
+     * Gets the number of object properties in a synthetic ontology.
+     * @return The number of object properties.  The default is 10.
+     */
+    public int getSyntheticProperties() {
+        return syntheticProperties;
+    }
+
+    /**
+     * Gets the number of existential restrictions that relate random classes in a synthetic ontology.
+     * @return The number of existential restrictions.  The default is 1000.
+     */
+    public int getSyntheticExistentials() {
+        return syntheticExistentials;
+    }
+
+    /**
+     * Gets the number of lines of job output per second that are echoed to the console, over all of the jobs.
+     * @return The number of lines, or -1 for no limit.  Zero for no echo.  The default is 100.
+     */
+    public int getConsoleLinesPerSecond() {
+        return consoleLinesPerSecond;
+    }
+
+    /**
+     * Gets the size of the buffer of each job log.
+     * @return The size in KB.  The default is 256.
+     */
+    public int getLogBufferSizeInKiloBytes() {
+        return logBufferSizeInKiloBytes;
+    }
+
+    /**
+     * Gets the number of compressed logs of earlier attempts at a job that are kept.
+     * @return The number of logs.  Zero to delete the logs of earlier attempts.  The default is 3.
+     */
+    public int getLogRotations() {
+        return logRotations;
+    }
+
+    /**
+     * Gets the number of idle, prewarmed, runner JVMs that the forked launcher keeps ready for the next jobs.
+     * @return The number of JVMs.  Zero to start each runner JVM when its job is launched.  The default is the number
+     * of workers.
+     */
+    public int getPrewarmedForks() {
+        return prewarmedForks;
+    }
+
+    /**
+     * Gets the extra options that forked runner and worker JVMs are started with, for example options that use a
+     * class data sharing archive.
+     * @return The options, which are separated by white space in the property value.  Empty by default.
+     */
+    public List<String> getJvmOptions() {
+        return jvmOptions;
+    }
+
+    /**
+     * Gets the class data sharing archive that forked runner and worker JVMs are started with, if it exists.  The
+     * archive is created with the -createcdsarchive switch of the controller.
+     * @return The archive file.  The default is runner.jsa in the working directory.
+     */
+    public File getClassDataSharingArchiveFile() {
+        return new File(getProperty(CDS_ARCHIVE_PROPERTY_NAME, DEFAULT_CDS_ARCHIVE).trim());
+    }
+
+    /**
+     * Gets the inferences that the reasoner pool precomputes for a shared reasoner before handing it to an experiment.
+     * @return The inference types, which are given as a comma separated list of InferenceType names.  The default is
+     * CLASS_HIERARCHY.
+     * @throws IllegalArgumentException if a name is not the name of an InferenceType.
+     */
+    public InferenceType[] getPrecomputedInferences() {
+        String inferenceTypeNames = getProperty(PRECOMPUTED_INFERENCES_PROPERTY_NAME, InferenceType.CLASS_HIERARCHY.name());
+        List<InferenceType> result = new ArrayList<InferenceType>();
+        for (String inferenceTypeName : inferenceTypeNames.split(",")) {
+            if (inferenceTypeName.trim().isEmpty()) {
+                continue;
+            }
+            try {
+                result.add(InferenceType.valueOf(inferenceTypeName.trim().toUpperCase()));
+            }
+            catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Malformed value of " + PRECOMPUTED_INFERENCES_PROPERTY_NAME + " in " + getSource(PRECOMPUTED_INFERENCES_PROPERTY_NAME) + ": \"" + inferenceTypeName.trim() + "\" is not one of " + Arrays.toString(InferenceType.values()));
+            }
+        }
+        return result.toArray(new InferenceType[result.size()]);
+    }
+
+    /**
+     * Gets the number of shared reasoners that the reasoner pool of a runner keeps.  When the pool is full the least
+     * recently used reasoner is disposed of.
+     * @return The number of reasoners.  The default is 2.
+     */
+    public int getReasonerPoolSize() {
+        return reasonerPoolSize;
+    }
+
+    /**
+     * Gets the fraction of the max heap that, if it is in use after a shared reasoner has been created, causes the
+     * reasoner pool to dispose of its other reasoners.
+     * @return The fraction.  The default is 0.75.
+     */
+    public double getReasonerPoolHeapFraction() {
+        return reasonerPoolHeapFraction;
+    }
+
+    /**
+     * Gets the time that the reasoner pool is given to create a shared reasoner and precompute its inferences.  This is
+     * separate from, and in addition to, the time out of the experiment method that the reasoner is created for.
+     * @return The time out in milliseconds, or Long.MAX_VALUE for no time out.  The default is the experiment time out.
+     */
+    public long getClassificationTimeOut() {
+        return classificationTimeOut;
+    }
+}
@@ -0,0 +1,110 @@
+package uk.ac.manchester.cs.owl.experimentbench;
+
+import java.util.Timer;
+import java.util.TimerTask;
+
+/**
+ * Enforces the time out of an experiment method from inside the runner.  When the time out is reached the thread
+ * that runs the experiment is interrupted, so that an experiment that checks for interrupts (or that uses a
+ * reasoner whose time out is capped by {@link AbstractOntologyDocumentExperiment#getReasonerConfiguration()}) can stop of its
+ * own accord and its telemetry can be written as normal.  If the experiment is still running after a grace period
+ * then the hard time out action is run.  This is expected to exit the JVM.
+ */
+public class ExperimentWatchdog {
+
+    private static final Timer timer = new Timer("Experiment watchdog", true);
+
+    private Thread experimentThread;
+
+    private long timeOut;
+
+    private long gracePeriod;
+
+    private Runnable hardTimeOutAction;
+
+    private boolean timedOut = false;
+
+    private boolean cancelled = false;
+
+    private TimerTask interruptTask;
+
+    private TimerTask hardTimeOutTask;
+
+    /**
+     * @param experimentThread The thread that runs the experiment.
+     * @param timeOut The time out, in milliseconds.  Long.MAX_VALUE for no time out.
+     * @param gracePeriod The time, in milliseconds, that the experiment is given to stop after it has been
+     * interrupted.
+     * @param hardTimeOutAction The action that is run if the experiment does not stop within the grace period.
+     */
+    public ExperimentWatchdog(Thread experimentThread, long timeOut, long gracePeriod, Runnable hardTimeOutAction) {
+        this.experimentThread = experimentThread;
+        this.timeOut = timeOut;
+        this.gracePeriod = gracePeriod;
+        this.hardTimeOutAction = hardTimeOutAction;
+    }
+
+    public synchronized void start() {
+        if (timeOut == Long.MAX_VALUE) {
+            return;
+        }
+        interruptTask = new TimerTask() {
+            @Override
+            public void run() {
+                handleTimeOut();
+            }
+        };
+        timer.schedule(interruptTask, Math.max(0, timeOut));
+    }
+
+    private synchronized void handleTimeOut() {
+        if (cancelled) {
+            return;
+        }
+        timedOut = true;
+        System.err.println("Experiment timed out after " + timeOut + " ms.  Interrupting it.");
+        experimentThread.interrupt();
+        hardTimeOutTask = new TimerTask() {
+            @Override
+            public void run() {
+                handleHardTimeOut();
+            }
+        };
+        timer.schedule(hardTimeOutTask, Math.max(0, gracePeriod));
+    }
+
+    private void handleHardTimeOut() {
+        synchronized (this) {
+            if (cancelled) {
+                return;
+            }
+        }
+        System.err.println("Experiment did not stop within " + gracePeriod + " ms of being interrupted.");
+        hardTimeOutAction.run();
+    }
+
+    /**
+     * Determines whether the experiment reached its time out.
+     * @return true if the experiment was interrupted, otherwise false.
+     */
+    public synchronized boolean isTimedOut() {
+        return timedOut;
+    }
+
+    /**
+     * Stops this watchdog and clears the interrupted status of the calling thread, which should be the experiment
+     * thread, so that an interrupt does not leak into whatever the thread does next.
+     */
+    public void cancel() {
+        synchronized (this) {
+            cancelled = true;
+            if (interruptTask != null) {
+                interruptTask.cancel();
+            }
+            if (hardTimeOutTask != null) {
+                hardTimeOutTask.cancel();
+            }
+        }
+        Thread.interrupted();
+    }
+}
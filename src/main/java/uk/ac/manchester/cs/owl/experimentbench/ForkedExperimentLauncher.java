@@ -0,0 +1,448 @@
+package uk.ac.manchester.cs.owl.experimentbench;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Runs each job in a freshly forked JVM.  This gives complete isolation between jobs at the cost of JVM start up
+ * for each job.  The output of the forked JVMs is written to the job logs, and echoed to the console, by a
+ * {@link LogPipeline}.
+ * <p>
+ *     To hide the cost of start up, a pool of idle {@link PrewarmedRunner} JVMs, which have already loaded the OWL API,
+ *     is kept ready.  A prewarmed JVM can only take a job that needs the same JVM options (in particular the same max
+ *     heap size), so the controller rounds the heap of each job up to one of a few heap classes (see
+ *     {@link JobMemoryEstimator}).  After each launch the pool for the options of the job is topped up to
+ *     prewarmedforks JVMs, evicting an idle JVM with other options if the whole pool is full.  The heap of each
+ *     starting or idle JVM is reserved in the {@link MemoryBudget}, but only if it fits without holding up a job, and
+ *     idle JVMs are shut down when a job is waiting for their memory.  Profiled jobs are always started
+ *     cold, because their profiler options are particular to the job.  The time from launch to the first ontology
+ *     being ready is recorded by each runner and reported for cold and prewarmed JVMs when the launcher is disposed
+ *     of.
+ * </p>
+ */
+public class ForkedExperimentLauncher implements ExperimentLauncher {
+
+    private long experimentTimeOut;
+
+    private String maxMemory;
+
+    private JobProfiler profiler;
+
+    private LogPipeline logPipeline;
+
+    private List<String> jvmOptions;
+
+    private int prewarmedForks;
+
+    private MemoryBudget memoryBudget;
+
+    /**
+     * Idle prewarmed JVMs by their JVM options.  The options are kept in the order in which they were first pooled, and
+     * the JVMs for each set of options in the order in which they became idle.
+     */
+    private Map<List<String>, LinkedList<ForkedRunnerProcess>> idleForks = new LinkedHashMap<List<String>, LinkedList<ForkedRunnerProcess>>();
+
+    /**
+     * The number of prewarmed JVMs that are starting, by their JVM options.
+     */
+    private Map<List<String>, Integer> startingForks = new HashMap<List<String>, Integer>();
+
+    /**
+     * The heap, in megabytes, that is reserved in the memory budget for each idle prewarmed JVM.
+     */
+    private Map<ForkedRunnerProcess, Integer> idleForkReservations = new HashMap<ForkedRunnerProcess, Integer>();
+
+    private int idleForkCount = 0;
+
+    private int startingForkCount = 0;
+
+    private boolean disposed = false;
+
+    private ExecutorService prewarmer;
+
+    private Timer timer = new Timer("Fork time out timer", true);
+
+    private StartupLatencies coldLatencies = new StartupLatencies();
+
+    private StartupLatencies prewarmedLatencies = new StartupLatencies();
+
+    /**
+     * @param experimentTimeOut The time out, in milliseconds, after which a forked JVM is killed.  Long.MAX_VALUE
+     * for no time out.
+     * @param maxMemory The max heap size of each forked JVM, in a form suitable for -Xmx.  This is used for jobs that
+     * do not specify their own max heap size.
+     * @param profiler The profiler that each forked JVM is started with.
+     * @param logPipeline The pipeline that writes the output of the forked JVMs to the job logs.  It is disposed of
+     * with this launcher.
+     * @param jvmOptions Extra options that each forked JVM is started with.
+     * @param prewarmedForks The number of idle prewarmed JVMs to keep for each set of JVM options.  Zero for none.
+     * @param memoryBudget The budget that the heaps of the jobs are reserved from, in which the heaps of the
+     * prewarmed JVMs are reserved as well.  null if the heaps of prewarmed JVMs are not reserved.
+     */
+    public ForkedExperimentLauncher(long experimentTimeOut, String maxMemory, JobProfiler profiler, LogPipeline logPipeline, List<String> jvmOptions, int prewarmedForks, MemoryBudget memoryBudget) {
+        this.experimentTimeOut = experimentTimeOut;
+        this.maxMemory = maxMemory;
+        this.profiler = profiler;
+        this.logPipeline = logPipeline;
+        this.jvmOptions = new ArrayList<String>(jvmOptions);
+        this.prewarmedForks = prewarmedForks;
+        this.memoryBudget = memoryBudget;
+        if (memoryBudget != null && prewarmedForks > 0) {
+            memoryBudget.setReclaimer(new MemoryBudget.Reclaimer() {
+                public int reclaim(int megaBytes) {
+                    return evictIdleForks(megaBytes);
+                }
+            });
+        }
+        this.prewarmer = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "Fork prewarmer");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    public boolean isJobMaxMemorySupported() {
+        return true;
+    }
+
+    public int launch(OntologyDocumentExperimentJob job) {
+        long launchTime = System.currentTimeMillis();
+        Class<?> experimentClass = job.getExperimentClass();
+        File ontologyDocumentDirectory = job.getOntologyDocumentDirectory();
+        File logDirectory = job.getLogDirectory();
+        logDirectory.mkdirs();
+        for (File experimentOutputDirectory : job.getExperimentOutputDirectories()) {
+            experimentOutputDirectory.mkdirs();
+        }
+        LogPipeline.JobLog log = logPipeline.open(logDirectory, experimentClass.getSimpleName() + " - " + ontologyDocumentDirectory.getName());
+        log.message("Running " + experimentClass.getSimpleName() + " on " + ontologyDocumentDirectory);
+        List<String> forkJvmOptions = getJvmOptions(job);
+        boolean poolable = prewarmedForks > 0 && !profiler.isEnabled();
+        int returnCode = -1;
+        ForkedRunnerProcess fork = null;
+        TimerTask killTask = null;
+        try {
+            fork = poolable ? takeIdleFork(forkJvmOptions) : null;
+            if (poolable) {
+                prewarm(forkJvmOptions, job.getMaxMemoryInMegaBytes());
+            }
+            if (fork != null) {
+                fork.run(log, launchTime, job.getRunnerArguments());
+            }
+            else {
+                List<String> command = new ArrayList<String>(forkJvmOptions);
+                command.add(0, getJavaExecutable());
+                command.add("-D" + OntologyDocumentExperimentRunner.LAUNCH_TIME_PROPERTY_NAME + "=" + launchTime);
+                command.add("-cp");
+                command.add(System.getProperty("java.class.path"));
+                command.add(OntologyDocumentExperimentRunner.class.getName());
+                command.addAll(job.getRunnerArguments());
+                fork = new ForkedRunnerProcess(command, forkJvmOptions, false, log);
+            }
+            final ForkedRunnerProcess runningFork = fork;
+            long timeOut = job.getTimeOut() > 0 ? job.getTimeOut() : experimentTimeOut;
+            if (timeOut != Long.MAX_VALUE) {
+                killTask = new TimerTask() {
+                    @Override
+                    public void run() {
+                        runningFork.kill();
+                    }
+                };
+                timer.schedule(killTask, timeOut);
+            }
+            returnCode = fork.waitFor();
+            long runTime = System.currentTimeMillis() - launchTime;
+            profiler.jobFinished(job, runTime);
+            if (fork.isKilled()) {
+                log.err("Timeout: killed " + job.getName() + " after " + timeOut + " ms");
+                returnCode = TIMED_OUT_RETURN_CODE;
+            }
+        }
+        catch (IOException e) {
+            log.message("Could not run " + job.getName() + ": " + e.getMessage());
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (fork != null) {
+                fork.destroy();
+            }
+        }
+        finally {
+            if (killTask != null) {
+                killTask.cancel();
+            }
+        }
+        long startupLatency = fork != null ? getStartupLatency(job) : -1;
+        if (startupLatency != -1) {
+            (fork.isPrewarmed() ? prewarmedLatencies : coldLatencies).add(startupLatency);
+            log.message("Startup to first axiom: " + startupLatency + " ms" + (fork.isPrewarmed() ? " (prewarmed)" : " (cold)"));
+        }
+        log.message("Finished running experiment");
+        log.close();
+        return returnCode;
+    }
+
+    private static String getJavaExecutable() {
+        return System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+    }
+
+    /**
+     * Gets the options that the JVM of a job is started with.
+     */
+    private List<String> getJvmOptions(OntologyDocumentExperimentJob job) {
+        List<String> result = new ArrayList<String>();
+        result.add("-Xmx" + (job.getMaxMemoryInMegaBytes() > 0 ? job.getMaxMemoryInMegaBytes() + "M" : maxMemory));
+        result.add("-Djava.library.path=" + System.getProperty("java.library.path"));
+        result.addAll(jvmOptions);
+        result.addAll(profiler.getJvmArguments(job));
+        return result;
+    }
+
+    /**
+     * Gets the startup latency that the runner of a job recorded in the statistics of its first experiment.
+     * @return The latency in milliseconds, or -1 if it was not recorded.
+     */
+    private static long getStartupLatency(OntologyDocumentExperimentJob job) {
+        JobStatistics statistics = JobStatistics.read(job.getExperimentOutputDirectories().get(0));
+        return statistics != null ? statistics.getValue(JobStatistics.STARTUP_LATENCY) : -1;
+    }
+
+    /**
+     * Takes an idle JVM with the specified options from the pool.  Its reservation in the memory budget is released,
+     * since the job that it is taken for has its own.
+     * @return The JVM, or null if there is no live idle JVM with the options.
+     */
+    private ForkedRunnerProcess takeIdleFork(List<String> forkJvmOptions) {
+        ForkedRunnerProcess result = null;
+        int releasedMegaBytes = 0;
+        synchronized (this) {
+            LinkedList<ForkedRunnerProcess> forks = idleForks.get(forkJvmOptions);
+            while (result == null && forks != null && !forks.isEmpty()) {
+                ForkedRunnerProcess fork = forks.removeFirst();
+                idleForkCount--;
+                releasedMegaBytes += removeReservation(fork);
+                if (fork.isAlive()) {
+                    result = fork;
+                }
+            }
+        }
+        releaseReservation(releasedMegaBytes);
+        return result;
+    }
+
+    /**
+     * Starts a prewarmed JVM with the specified options in the background, if the pool for the options holds fewer
+     * than prewarmedforks JVMs.  If the whole pool is full then an idle JVM with other options is shut down to make
+     * room (see {@link #evictIdleFork(List)}).  No JVM is started if its heap cannot be reserved in the memory budget straight away.
+     * @param forkJvmOptions The options.
+     * @param heapMegaBytes The max heap, in megabytes, that the options specify, or 0 if it is not known.
+     */
+    private void prewarm(final List<String> forkJvmOptions, long heapMegaBytes) {
+        int evictedMegaBytes = 0;
+        synchronized (this) {
+            if (disposed || getPoolSize(forkJvmOptions) >= prewarmedForks) {
+                return;
+            }
+            if (idleForkCount + startingForkCount >= prewarmedForks) {
+                ForkedRunnerProcess evicted = evictIdleFork(forkJvmOptions);
+                if (evicted == null) {
+                    return;
+                }
+                evictedMegaBytes = removeReservation(evicted);
+            }
+            startingForkCount++;
+            startingForks.put(forkJvmOptions, getStartingForkCount(forkJvmOptions) + 1);
+        }
+        releaseReservation(evictedMegaBytes);
+        final int reservedMegaBytes = memoryBudget != null ? (int) Math.max(0, heapMegaBytes) : 0;
+        if (reservedMegaBytes > 0 && !memoryBudget.tryAcquire(reservedMegaBytes)) {
+            synchronized (this) {
+                removeStartingFork(forkJvmOptions);
+            }
+            return;
+        }
+        prewarmer.submit(new Runnable() {
+            public void run() {
+                ForkedRunnerProcess fork = null;
+                try {
+                    List<String> command = new ArrayList<String>(forkJvmOptions);
+                    command.add(0, getJavaExecutable());
+                    command.add("-cp");
+                    command.add(System.getProperty("java.class.path"));
+                    command.add(PrewarmedRunner.class.getName());
+                    fork = new ForkedRunnerProcess(command, forkJvmOptions, true, null);
+                }
+                catch (IOException e) {
+                    System.err.println("Could not start a prewarmed runner: " + e.getMessage());
+                }
+                addIdleFork(forkJvmOptions, fork, reservedMegaBytes);
+            }
+        });
+    }
+
+    /**
+     * Adds a prewarmed JVM that has started to the pool.
+     * @param forkJvmOptions The options of the JVM.
+     * @param fork The JVM, or null if it could not be started.
+     * @param reservedMegaBytes The heap that is reserved for the JVM in the memory budget.
+     */
+    private void addIdleFork(List<String> forkJvmOptions, ForkedRunnerProcess fork, int reservedMegaBytes) {
+        boolean added = false;
+        synchronized (this) {
+            removeStartingFork(forkJvmOptions);
+            if (fork != null && !disposed) {
+                LinkedList<ForkedRunnerProcess> forks = idleForks.get(forkJvmOptions);
+                if (forks == null) {
+                    forks = new LinkedList<ForkedRunnerProcess>();
+                    idleForks.put(forkJvmOptions, forks);
+                }
+                forks.add(fork);
+                idleForkCount++;
+                idleForkReservations.put(fork, reservedMegaBytes);
+                added = true;
+            }
+        }
+        if (!added) {
+            if (fork != null) {
+                fork.destroy();
+            }
+            releaseReservation(reservedMegaBytes);
+        }
+        else if (reservedMegaBytes > 0) {
+            memoryBudget.signalReclaimable();
+        }
+    }
+
+    /**
+     * Gets the number of idle and starting prewarmed JVMs with the specified options.
+     */
+    private int getPoolSize(List<String> forkJvmOptions) {
+        LinkedList<ForkedRunnerProcess> forks = idleForks.get(forkJvmOptions);
+        return (forks != null ? forks.size() : 0) + getStartingForkCount(forkJvmOptions);
+    }
+
+    private int getStartingForkCount(List<String> forkJvmOptions) {
+        Integer count = startingForks.get(forkJvmOptions);
+        return count != null ? count : 0;
+    }
+
+    private void removeStartingFork(List<String> forkJvmOptions) {
+        startingForkCount--;
+        int count = getStartingForkCount(forkJvmOptions) - 1;
+        if (count > 0) {
+            startingForks.put(forkJvmOptions, count);
+        }
+        else {
+            startingForks.remove(forkJvmOptions);
+        }
+    }
+
+    /**
+     * Shuts down an idle JVM whose options differ from the specified options.  The sets of options are tried in the
+     * order in which they were first pooled, which is not necessarily the order in which their JVMs became idle, and
+     * the JVM that has been idle longest for the first set of options that has one is shut down.
+     * @return The JVM that was shut down, or null if there was none.
+     */
+    private ForkedRunnerProcess evictIdleFork(List<String> forkJvmOptions) {
+        for (Map.Entry<List<String>, LinkedList<ForkedRunnerProcess>> entry : idleForks.entrySet()) {
+            if (!entry.getKey().equals(forkJvmOptions) && !entry.getValue().isEmpty()) {
+                ForkedRunnerProcess fork = entry.getValue().removeFirst();
+                fork.destroy();
+                idleForkCount--;
+                return fork;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Shuts down idle JVMs until the specified amount of their reserved heap has been given back.  This is called by
+     * the memory budget, with the budget locked, when a job is waiting for memory.
+     * @return The heap, in megabytes, that was reserved for the JVMs that were shut down.
+     */
+    private synchronized int evictIdleForks(int megaBytes) {
+        int result = 0;
+        for (LinkedList<ForkedRunnerProcess> forks : idleForks.values()) {
+            while (result < megaBytes && !forks.isEmpty()) {
+                ForkedRunnerProcess fork = forks.removeFirst();
+                fork.destroy();
+                idleForkCount--;
+                result += removeReservation(fork);
+            }
+        }
+        return result;
+    }
+
+    private int removeReservation(ForkedRunnerProcess fork) {
+        Integer reservedMegaBytes = idleForkReservations.remove(fork);
+        return reservedMegaBytes != null ? reservedMegaBytes : 0;
+    }
+
+    /**
+     * Releases memory that was reserved for prewarmed JVMs.  This must not be called while this launcher is locked,
+     * since the memory budget calls back into it with the budget locked.
+     */
+    private void releaseReservation(int megaBytes) {
+        if (megaBytes > 0) {
+            memoryBudget.release(megaBytes);
+        }
+    }
+
+    public void dispose() {
+        int releasedMegaBytes = 0;
+        synchronized (this) {
+            disposed = true;
+            for (LinkedList<ForkedRunnerProcess> forks : idleForks.values()) {
+                for (ForkedRunnerProcess fork : forks) {
+                    fork.destroy();
+                    releasedMegaBytes += removeReservation(fork);
+                }
+            }
+            idleForks.clear();
+            idleForkCount = 0;
+        }
+        releaseReservation(releasedMegaBytes);
+        prewarmer.shutdownNow();
+        timer.cancel();
+        logPipeline.dispose();
+        if (coldLatencies.getCount() > 0 || prewarmedLatencies.getCount() > 0) {
+            System.out.println("Startup to first axiom: " + coldLatencies + " (cold), " + prewarmedLatencies + " (prewarmed)");
+        }
+    }
+
+    /**
+     * The startup latencies of a kind of JVM.
+     */
+    private static class StartupLatencies {
+
+        private int count = 0;
+
+        private long total = 0;
+
+        private long max = 0;
+
+        private synchronized void add(long latency) {
+            count++;
+            total += latency;
+            max = Math.max(max, latency);
+        }
+
+        private synchronized int getCount() {
+            return count;
+        }
+
+        @Override
+        public synchronized String toString() {
+            if (count == 0) {
+                return "no jobs";
+            }
+            return "mean " + (total / count) + " ms, max " + max + " ms over " + count + " jobs";
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package uk.ac.manchester.cs.owl.experimentbench;
+
+import java.io.*;
+import java.util.List;
+
+/**
+ * The controller side of a forked runner JVM that runs one job.  The standard output and standard error of the
+ * JVM are read by two threads and passed to the {@link LogPipeline.JobLog} of the job.  A prewarmed runner (see
+ * {@link PrewarmedRunner}) is started before its job is known, and is given the job when it is taken from the
+ * pool.  Until then anything it prints goes to the console.
+ */
+public class ForkedRunnerProcess {
+
+    private List<String> jvmOptions;
+
+    private Process process;
+
+    private boolean prewarmed;
+
+    private volatile LogPipeline.JobLog log;
+
+    private Thread outPump;
+
+    private Thread errPump;
+
+    private volatile boolean killed = false;
+
+    /**
+     * Starts a runner JVM.
+     * @param command The command that starts the JVM.
+     * @param jvmOptions The JVM options in the command, which identify the jobs that a prewarmed runner can take.
+     * @param prewarmed true if the JVM runs a {@link PrewarmedRunner}, in which case this blocks until it reports
+     * that it is ready.
+     * @param log The logs of the job, or null for a prewarmed runner.
+     * @throws IOException If the JVM could not be started or, if it is prewarmed, did not report that it was ready.
+     */
+    public ForkedRunnerProcess(List<String> command, List<String> jvmOptions, boolean prewarmed, LogPipeline.JobLog log) throws IOException {
+        this.jvmOptions = jvmOptions;
+        this.prewarmed = prewarmed;
+        this.log = log;
+        process = new ProcessBuilder(command).start();
+        BufferedReader outReader = new BufferedReader(new InputStreamReader(process.getInputStream()));
+        BufferedReader errReader = new BufferedReader(new InputStreamReader(process.getErrorStream()));
+        errPump = startPump(errReader, true);
+        if (prewarmed) {
+            // The JVM may print warnings on standard output before the runner reports that it is ready
+            String line;
+            while ((line = outReader.readLine()) != null && !PrewarmedRunner.READY_REPLY.equals(line)) {
+                System.err.println("[Prewarmed runner] " + line);
+            }
+            if (line == null) {
+                destroy();
+                throw new IOException("Prewarmed runner did not start.  It exited before reporting " + PrewarmedRunner.READY_REPLY);
+            }
+        }
+        outPump = startPump(outReader, false);
+    }
+
+    private Thread startPump(final BufferedReader reader, final boolean error) {
+        Thread thread = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        LogPipeline.JobLog jobLog = log;
+                        if (jobLog == null) {
+                            System.err.println("[Prewarmed runner] " + line);
+                        }
+                        else if (error) {
+                            jobLog.err(line);
+                        }
+                        else {
+                            jobLog.out(line);
+                        }
+                    }
+                }
+                catch (IOException e) {
+                    // Process has gone away
+                }
+            }
+        }, error ? "Fork error pump" : "Fork output pump");
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    public List<String> getJvmOptions() {
+        return jvmOptions;
+    }
+
+    public boolean isPrewarmed() {
+        return prewarmed;
+    }
+
+    /**
+     * Gives a job to this prewarmed runner.
+     * @param log The logs of the job.
+     * @param launchTime The time at which the job was launched, from which the runner measures its start up latency.
+     * @param runnerArguments The runner arguments of the job.
+     * @throws IOException If the job could not be sent to the runner.
+     */
+    public void run(LogPipeline.JobLog log, long launchTime, List<String> runnerArguments) throws IOException {
+        this.log = log;
+        StringBuilder sb = new StringBuilder(Long.toString(launchTime));
+        for (String argument : runnerArguments) {
+            sb.append(PrewarmedRunner.FIELD_SEPARATOR);
+            sb.append(argument);
+        }
+        Writer writer = new OutputStreamWriter(process.getOutputStream(), "UTF-8");
+        writer.write(sb.toString());
+        writer.write('\n');
+        writer.close();
+    }
+
+    /**
+     * Determines whether the JVM is still running.
+     */
+    public boolean isAlive() {
+        try {
+            process.exitValue();
+            return false;
+        }
+        catch (IllegalThreadStateException e) {
+            return true;
+        }
+    }
+
+    /**
+     * Waits for the JVM to exit and for all of its output to be logged.
+     * @return The exit code of the JVM.
+     */
+    public int waitFor() throws InterruptedException {
+        int exitCode = process.waitFor();
+        outPump.join();
+        errPump.join();
+        return exitCode;
+    }
+
+    /**
+     * Kills the JVM because its job timed out.
+     */
+    public void kill() {
+        killed = true;
+        destroy();
+    }
+
+    public boolean isKilled() {
+        return killed;
+    }
+
+    public void destroy() {
+        process.destroy();
+    }
+}
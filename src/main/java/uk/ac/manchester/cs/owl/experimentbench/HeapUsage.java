@@ -0,0 +1,132 @@
+package uk.ac.manchester.cs.owl.experimentbench;
+
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import java.lang.management.*;
+
+/**
+ * Helpers for tracking the peak heap usage and the live heap of the current JVM.
+ */
+public class HeapUsage {
+
+    private static boolean trackingMaxLiveHeapUsage = false;
+
+    private static long maxLiveHeapUsage = 0;
+
+    private HeapUsage() {
+    }
+
+    /**
+     * Resets the peak usage of each of the heap memory pools.
+     */
+    public static void resetPeakHeapUsage() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.isValid()) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    /**
+     * Gets the peak heap usage since the last reset.  This is the sum of the peaks of the individual heap pools,
+     * which is an upper bound on the peak of the heap as a whole.
+     * @return The peak usage in bytes.
+     */
+    public static long getPeakHeapUsage() {
+        long result = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.isValid()) {
+                result += pool.getPeakUsage().getUsed();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets the heap that is occupied by reachable objects.  A garbage collection is requested first, and the result
+     * is the sum of the usage of each heap pool after its most recent collection.  Unlike the peak usage, this does
+     * not include garbage that has not been collected yet, so it does not grow with the max heap size of the JVM.
+     * @return The live heap in bytes.  If no collection has happened (for example because explicit collections are
+     * disabled) then this is the used heap.
+     */
+    public static long getLiveHeapUsage() {
+        System.gc();
+        long result = getCollectionHeapUsage();
+        if (result == 0) {
+            return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        }
+        return result;
+    }
+
+    /**
+     * Starts tracking the highest heap usage that is seen after a garbage collection (see
+     * {@link #getMaxLiveHeapUsage()}).  Each heap pool that supports it is given a collection usage threshold of one
+     * byte, so that the memory MXBean sends a notification after every collection that leaves anything in the pool,
+     * and the heap that is left after the collection is recorded when the notification arrives.  Calling this more
+     * than once has no further effect.
+     */
+    public static synchronized void startTrackingMaxLiveHeapUsage() {
+        if (trackingMaxLiveHeapUsage) {
+            return;
+        }
+        trackingMaxLiveHeapUsage = true;
+        MemoryMXBean memoryMXBean = ManagementFactory.getMemoryMXBean();
+        if (memoryMXBean instanceof NotificationEmitter) {
+            ((NotificationEmitter) memoryMXBean).addNotificationListener(new NotificationListener() {
+                public void handleNotification(Notification notification, Object handback) {
+                    if (MemoryNotificationInfo.MEMORY_COLLECTION_THRESHOLD_EXCEEDED.equals(notification.getType())) {
+                        updateMaxLiveHeapUsage();
+                    }
+                }
+            }, null, null);
+        }
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.isValid() && pool.isCollectionUsageThresholdSupported()) {
+                pool.setCollectionUsageThreshold(1);
+            }
+        }
+    }
+
+    /**
+     * Resets the highest heap usage that has been seen after a garbage collection to the heap that was left after the
+     * most recent collection.
+     */
+    public static synchronized void resetMaxLiveHeapUsage() {
+        maxLiveHeapUsage = getCollectionHeapUsage();
+    }
+
+    /**
+     * Gets the highest heap usage that has been seen after a garbage collection since the last reset.  Unlike
+     * {@link #getLiveHeapUsage()}, which only looks at the heap at one point in time, this includes the transient
+     * working set of whatever ran in between, as long as it survived a collection.  Tracking must have been started
+     * with {@link #startTrackingMaxLiveHeapUsage()}, otherwise only the heap left by the most recent collection is
+     * seen.
+     * @return The usage in bytes, or 0 if there has been no collection.
+     */
+    public static synchronized long getMaxLiveHeapUsage() {
+        // The notification of the most recent collection may not have been delivered yet
+        updateMaxLiveHeapUsage();
+        return maxLiveHeapUsage;
+    }
+
+    private static synchronized void updateMaxLiveHeapUsage() {
+        maxLiveHeapUsage = Math.max(maxLiveHeapUsage, getCollectionHeapUsage());
+    }
+
+    /**
+     * Gets the sum of the usage of each heap pool after its most recent collection.
+     */
+    private static long getCollectionHeapUsage() {
+        long result = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.isValid()) {
+                MemoryUsage collectionUsage = pool.getCollectionUsage();
+                if (collectionUsage != null) {
+                    result += collectionUsage.getUsed();
+                }
+            }
+        }
+        return result;
+    }
+}
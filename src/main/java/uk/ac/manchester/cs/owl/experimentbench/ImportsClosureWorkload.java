@@ -0,0 +1,47 @@
+package uk.ac.manchester.cs.owl.experimentbench;
+
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyCreationException;
+import org.semanticweb.owlapi.model.OWLOntologyManager;
+import org.semanticweb.owlapi.util.AutoIRIMapper;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An ontology together with its imports closure.  The ontology document directory holds the root document and
+ * the documents that it imports, directly or indirectly.  Imports are resolved from the documents in the
+ * directory (and in the directory named by the importsdirectory property, if it is set) rather than from the web,
+ * and a missing import fails the load.  The experiments are given the root ontology.  Imports closures are not
+ * cached, because the cache only holds single ontologies.
+ */
+public class ImportsClosureWorkload extends OntologyDocumentWorkload {
+
+    @Override
+    public List<WorkloadInput> getInputs(File ontologyDocumentDirectory, ExperimentProperties properties) throws IOException {
+        File rootDocument = findOntologyDocument(ontologyDocumentDirectory, properties);
+        long size = 0;
+        for (File document : OntologyDocumentLoader.getOntologyDocuments(ontologyDocumentDirectory)) {
+            size += document.length();
+        }
+        return Collections.singletonList(new WorkloadInput(null, rootDocument, size));
+    }
+
+    @Override
+    public OWLOntology load(WorkloadInput input, OWLOntologyManager manager, OntologyDocumentLoader loader, ExperimentProperties properties) throws OWLOntologyCreationException, IOException {
+        manager.addIRIMapper(new AutoIRIMapper(input.getDocument().getParentFile(), false));
+        File importsDirectory = properties.getImportsDirectory();
+        if (importsDirectory != null) {
+            if (!importsDirectory.isDirectory()) {
+                throw new FileNotFoundException("Imports directory not found: " + importsDirectory);
+            }
+            manager.addIRIMapper(new AutoIRIMapper(importsDirectory, true));
+        }
+        OWLOntology ontology = loader.load(manager, input.getDocument(), false);
+        System.out.println("Loaded " + ontology.getImportsClosure().size() + " ontologies in the imports closure of " + input.getDocument().getName());
+        return ontology;
+    }
+}
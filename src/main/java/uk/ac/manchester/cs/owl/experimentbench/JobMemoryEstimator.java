@@ -0,0 +1,195 @@
+package uk.ac.manchester.cs.owl.experimentbench;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Estimates the heap that a job needs.  If a previous run of the job recorded its live heap in
+ * {@link JobStatistics} then the estimate is based on that.  Otherwise it is based on the size of the largest
+ * input that the workload of the ontology document directory loads at once (see {@link Workload}), so that a batch
+ * of documents, which are loaded one at a time, is sized for its largest document rather than for all of them.
+ * Estimates are scaled by a safety factor and clamped to the range [minimum, maximum].  If heap classes are used
+ * then each estimate is also rounded up to the minimum doubled as many times as is needed (or the maximum), so that
+ * jobs share a few max heap sizes and can be given prewarmed JVMs (see {@link ForkedExperimentLauncher}).
+ * <p>
+ *     The peak heap usage is not used because it includes garbage that had not been collected, which grows with the
+ *     max heap that the job was given.  Estimating from it would give each rerun of a job a larger heap than the
+ *     last, until the maximum was reached.  The live heap, which is the highest heap usage seen after a garbage
+ *     collection during the run, does not depend on the max heap, so estimates from it are stable, and it still covers
+ *     the transient working set of the experiment.
+ * </p>
+ */
+public class JobMemoryEstimator {
+
+    private static final int BYTES_PER_MEGA_BYTE = 1024 * 1024;
+
+    /**
+     * Compressed documents are typically an order of magnitude smaller than the document they contain
+     */
+    private static final int COMPRESSION_RATIO = 10;
+
+    private int minimumMegaBytes;
+
+    private int maximumMegaBytes;
+
+    private double heapBytesPerDocumentByte;
+
+    private double safetyFactor;
+
+    private boolean heapClasses;
+
+    private ConcurrentMap<File, Long> largestInputSizes = new ConcurrentHashMap<File, Long>();
+
+    public JobMemoryEstimator(int minimumMegaBytes, int maximumMegaBytes, double heapBytesPerDocumentByte, double safetyFactor) {
+        this(minimumMegaBytes, maximumMegaBytes, heapBytesPerDocumentByte, safetyFactor, false);
+    }
+
+    /**
+     * @param minimumMegaBytes The smallest heap that is estimated.
+     * @param maximumMegaBytes The largest heap that is estimated.
+     * @param heapBytesPerDocumentByte The heap needed for each byte of an ontology document, for jobs that have not run
+     * before.
+     * @param safetyFactor The factor that estimates are multiplied by.
+     * @param heapClasses true if estimates are rounded up to heap classes.
+     */
+    public JobMemoryEstimator(int minimumMegaBytes, int maximumMegaBytes, double heapBytesPerDocumentByte, double safetyFactor, boolean heapClasses) {
+        this.heapClasses = heapClasses;
+        this.minimumMegaBytes = Math.min(minimumMegaBytes, maximumMegaBytes);
+        this.maximumMegaBytes = maximumMegaBytes;
+        this.heapBytesPerDocumentByte = heapBytesPerDocumentByte;
+        this.safetyFactor = safetyFactor;
+    }
+
+    public int getMaximumMegaBytes() {
+        return maximumMegaBytes;
+    }
+
+    /**
+     * Estimates the heap, in megabytes, that a job needs.
+     * @param job The job.
+     * @return The estimate.
+     */
+    public int estimate(OntologyDocumentExperimentJob job) {
+        long liveHeapUsed = -1;
+        for (File experimentOutputDirectory : job.getExperimentOutputDirectories()) {
+            JobStatistics statistics = JobStatistics.read(experimentOutputDirectory);
+            if (statistics != null) {
+                liveHeapUsed = Math.max(liveHeapUsed, statistics.getValue(JobStatistics.LIVE_HEAP_USED));
+            }
+        }
+        double estimatedBytes;
+        if (liveHeapUsed > 0) {
+            estimatedBytes = liveHeapUsed;
+        }
+        else {
+            estimatedBytes = getLargestInputSize(job.getOntologyDocumentDirectory()) * heapBytesPerDocumentByte;
+        }
+        long estimatedMegaBytes = (long) Math.ceil(estimatedBytes * safetyFactor / BYTES_PER_MEGA_BYTE);
+        int result = (int) Math.max(minimumMegaBytes, Math.min(maximumMegaBytes, estimatedMegaBytes));
+        return heapClasses ? getHeapClass(result) : result;
+    }
+
+    /**
+     * Gets the heap class of a heap size: the minimum doubled until it is at least the size, or the maximum if that is
+     * smaller.  Retries (see {@link #getRetryMegaBytes(int)}) double the heap, so they stay within the heap classes.
+     * @param megaBytes The heap size.
+     * @return The heap class.
+     */
+    public int getHeapClass(int megaBytes) {
+        long result = Math.max(1, minimumMegaBytes);
+        while (result < megaBytes) {
+            result *= 2;
+        }
+        return (int) Math.min(maximumMegaBytes, result);
+    }
+
+    /**
+     * Gets the heap size that a job which ran out of memory should be retried with.
+     * @param megaBytes The heap size that the job ran out of memory with.
+     * @return The heap size to retry with, or -1 if the job was already run with the maximum heap size.
+     */
+    public int getRetryMegaBytes(int megaBytes) {
+        if (megaBytes >= maximumMegaBytes) {
+            return -1;
+        }
+        return Math.min(maximumMegaBytes, megaBytes * 2);
+    }
+
+    /**
+     * Gets the size of the largest input that the workload of an ontology document directory loads at once.  The size
+     * of compressed documents is estimated from the compression ratio.  If the workload cannot list its inputs then
+     * the size of the largest ontology document in the directory is used.
+     * @param ontologyDocumentDirectory The directory.
+     * @return The (uncompressed) size in bytes.
+     */
+    private long getLargestInputSize(File ontologyDocumentDirectory) {
+        Long size = largestInputSizes.get(ontologyDocumentDirectory);
+        if (size == null) {
+            size = computeLargestInputSize(ontologyDocumentDirectory);
+            largestInputSizes.put(ontologyDocumentDirectory, size);
+        }
+        return size;
+    }
+
+    private static long computeLargestInputSize(File ontologyDocumentDirectory) {
+        try {
+            ExperimentProperties properties = OntologyDocumentExperimentRunner.loadProperties(ontologyDocumentDirectory);
+            Workload workload = properties.getWorkload();
+            if (workload != null) {
+                long result = 0;
+                for (WorkloadInput input : workload.getInputs(ontologyDocumentDirectory, properties)) {
+                    long inputSize = input.getSize();
+                    if (input.getDocument().isFile() && MappedFileDocumentSource.isCompressed(input.getDocument())) {
+                        inputSize *= COMPRESSION_RATIO;
+                    }
+                    result = Math.max(result, inputSize);
+                }
+                return result;
+            }
+        }
+        catch (IOException e) {
+            // Fall back to the largest document
+        }
+        catch (IllegalArgumentException e) {
+            // Fall back to the largest document
+        }
+        long result = 0;
+        File[] files = ontologyDocumentDirectory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (OntologyDocumentLoader.isOntologyDocument(file)) {
+                    result = Math.max(result, getUncompressedSize(file));
+                }
+            }
+        }
+        return result;
+    }
+
+    private static long getUncompressedSize(File ontologyDocument) {
+        if (MappedFileDocumentSource.isCompressed(ontologyDocument)) {
+            return ontologyDocument.length() * COMPRESSION_RATIO;
+        }
+        return ontologyDocument.length();
+    }
+
+    /**
+     * Gets the total size of the ontology documents in an ontology document directory.  The size of compressed documents
+     * is estimated from the compression ratio.
+     * @param ontologyDocumentDirectory The directory.
+     * @return The (uncompressed) size in bytes.
+     */
+    public static long getOntologyDocumentSize(File ontologyDocumentDirectory) {
+        long size = 0;
+        File[] files = ontologyDocumentDirectory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (OntologyDocumentLoader.isOntologyDocument(file)) {
+                    size += getUncompressedSize(file);
+                }
+            }
+        }
+        return size;
+    }
+}
@@ -0,0 +1,100 @@
+package uk.ac.manchester.cs.owl.experimentbench;
+
+import java.util.*;
+
+/**
+ * The order in which the controller starts jobs.  When jobs run in parallel, starting the biggest jobs first
+ * stops a few giant ontologies that happen to come last from running on their own at the end of the run, which
+ * shortens the run as a whole.  Starting the smallest jobs first gives the most results soonest.
+ */
+public enum JobOrdering {
+
+    /**
+     * The order in which the ontology document directories are listed (the default).
+     */
+    DIRECTORY("directory"),
+
+    /**
+     * Largest ontology document first.
+     */
+    LARGEST_FIRST("largestfirst"),
+
+    /**
+     * Most axioms first.  The axiom counts are recorded by earlier runs, or extrapolated from the document sizes.
+     */
+    MOST_AXIOMS_FIRST("mostaxiomsfirst"),
+
+    /**
+     * Longest estimated run time first.  The run times are recorded by earlier runs, or extrapolated from the
+     * document sizes.
+     */
+    LONGEST_FIRST("longestfirst"),
+
+    /**
+     * Shortest estimated run time first.
+     */
+    SHORTEST_FIRST("shortestfirst");
+
+    private String name;
+
+    private JobOrdering(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the ordering with the specified name.
+     * @param name The name.
+     * @return The ordering, or {@link #DIRECTORY} if there is no ordering with the name.
+     */
+    public static JobOrdering getJobOrdering(String name) {
+        for (JobOrdering ordering : values()) {
+            if (ordering.name.equalsIgnoreCase(name.trim())) {
+                return ordering;
+            }
+        }
+        System.out.println("WARNING: Unknown job ordering: " + name + ".  Using " + DIRECTORY.name + ".");
+        return DIRECTORY;
+    }
+
+    /**
+     * Sorts jobs into this order.  The sort is stable, so jobs with the same key stay in directory order.
+     * @param jobs The jobs.
+     * @param estimator The estimator that supplies the sizes and run times of the jobs.
+     */
+    public void sort(List<OntologyDocumentExperimentJob> jobs, JobRuntimeEstimator estimator) {
+        if (this == DIRECTORY) {
+            return;
+        }
+        final Map<OntologyDocumentExperimentJob, Long> keys = new HashMap<OntologyDocumentExperimentJob, Long>();
+        for (OntologyDocumentExperimentJob job : jobs) {
+            keys.put(job, getKey(job, estimator));
+        }
+        final boolean descending = this != SHORTEST_FIRST;
+        Collections.sort(jobs, new Comparator<OntologyDocumentExperimentJob>() {
+            public int compare(OntologyDocumentExperimentJob job1, OntologyDocumentExperimentJob job2) {
+                int diff = keys.get(job1).compareTo(keys.get(job2));
+                return descending ? -diff : diff;
+            }
+        });
+    }
+
+    private long getKey(OntologyDocumentExperimentJob job, JobRuntimeEstimator estimator) {
+        switch (this) {
+            case LARGEST_FIRST:
+                return estimator.getDocumentSize(job);
+            case MOST_AXIOMS_FIRST:
+                return estimator.getAxiomCount(job);
+            default:
+                return estimator.estimate(job);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
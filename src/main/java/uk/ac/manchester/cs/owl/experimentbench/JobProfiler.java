@@ -0,0 +1,142 @@
+package uk.ac.manchester.cs.owl.experimentbench;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Works out the JVM arguments that start a profiler in the forked runner of a job, so that the whole of the job
+ * is profiled and the recording is written to the job's log directory (for a job with one experiment method, this
+ * is the experiment output directory, next to the telemetry).  A Java Flight Recording is started, unless
+ * async-profiler was asked for and its agent library can be found, in which case a flame graph is written instead.
+ * <p>
+ *     If a profiler threshold is set then the recording of a job that finishes within the threshold is deleted, so
+ *     that only the slow jobs keep their recordings.  In this case the flight recording is kept in a rolling buffer
+ *     (see {@link ExperimentProperties#getJfrMaxAge()}) so that long jobs do not fill the disk.
+ * </p>
+ */
+public class JobProfiler {
+
+    public static final String JFR_RECORDING_FILE_NAME = "recording.jfr";
+
+    public static final String ASYNC_PROFILER_FILE_NAME = "profile.html";
+
+    public static final String ASYNC_PROFILER_HOME_ENVIRONMENT_VARIABLE = "ASYNC_PROFILER_HOME";
+
+    private static final String[] ASYNC_PROFILER_LIBRARY_PATHS = {"lib/libasyncProfiler.so", "build/libasyncProfiler.so", "lib/libasyncProfiler.dylib"};
+
+    private ExperimentProperties properties;
+
+    private File asyncProfilerLibrary;
+
+    private boolean enabled;
+
+    public JobProfiler(ExperimentProperties properties) {
+        this.properties = properties;
+        String profiler = properties.getProfiler();
+        if (ExperimentProperties.NO_PROFILER.equals(profiler)) {
+            enabled = false;
+        }
+        else if (ExperimentProperties.JFR_PROFILER.equals(profiler)) {
+            enabled = true;
+        }
+        else if (ExperimentProperties.ASYNC_PROFILER.equals(profiler)) {
+            enabled = true;
+            asyncProfilerLibrary = findAsyncProfilerLibrary();
+            if (asyncProfilerLibrary == null) {
+                System.out.println("WARNING: async-profiler was not found (set " + ExperimentProperties.ASYNC_PROFILER_LIBRARY_PROPERTY_NAME + " or " + ASYNC_PROFILER_HOME_ENVIRONMENT_VARIABLE + ").  Using Java Flight Recorder instead.");
+            }
+        }
+        else {
+            System.out.println("WARNING: Unknown profiler: " + profiler + ".  Jobs will not be profiled.");
+            enabled = false;
+        }
+    }
+
+    private File findAsyncProfilerLibrary() {
+        String libraryPath = properties.getAsyncProfilerLibrary();
+        if (libraryPath != null) {
+            File library = new File(libraryPath.trim());
+            return library.isFile() ? library : null;
+        }
+        String home = System.getenv(ASYNC_PROFILER_HOME_ENVIRONMENT_VARIABLE);
+        if (home == null) {
+            return null;
+        }
+        for (String path : ASYNC_PROFILER_LIBRARY_PATHS) {
+            File library = new File(home, path);
+            if (library.isFile()) {
+                return library;
+            }
+        }
+        return null;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Gets the file that the recording of a job is written to.
+     * @param job The job.
+     * @return The file, or null if profiling is not enabled.
+     */
+    public File getRecordingFile(OntologyDocumentExperimentJob job) {
+        if (!enabled) {
+            return null;
+        }
+        String fileName = asyncProfilerLibrary != null ? ASYNC_PROFILER_FILE_NAME : JFR_RECORDING_FILE_NAME;
+        return new File(job.getLogDirectory(), fileName).getAbsoluteFile();
+    }
+
+    /**
+     * Gets the JVM arguments that start the profiler in the runner of a job.
+     * @param job The job.
+     * @return The arguments.  Empty if profiling is not enabled.
+     */
+    public List<String> getJvmArguments(OntologyDocumentExperimentJob job) {
+        if (!enabled) {
+            return Collections.emptyList();
+        }
+        File recordingFile = getRecordingFile(job);
+        List<String> arguments = new ArrayList<String>();
+        if (asyncProfilerLibrary != null) {
+            // The agent dumps the profile when the JVM exits
+            arguments.add("-agentpath:" + asyncProfilerLibrary.getAbsolutePath() + "=start,event=" + properties.getAsyncProfilerEvent() + ",file=" + recordingFile.getPath());
+        }
+        else {
+            StringBuilder recording = new StringBuilder("-XX:StartFlightRecording=name=owlexperimentbench");
+            recording.append(",settings=").append(properties.getJfrSettings());
+            String maxAge = properties.getJfrMaxAge();
+            if (maxAge != null) {
+                recording.append(",maxage=").append(maxAge);
+            }
+            recording.append(",dumponexit=true,filename=").append(recordingFile.getPath());
+            arguments.add(recording.toString());
+        }
+        return arguments;
+    }
+
+    /**
+     * Called when the runner of a job has exited.  Deletes the recording if the job finished within the profiler
+     * threshold.
+     * @param job The job.
+     * @param runTime The time that the runner took, in milliseconds.
+     */
+    public void jobFinished(OntologyDocumentExperimentJob job, long runTime) {
+        if (!enabled) {
+            return;
+        }
+        File recordingFile = getRecordingFile(job);
+        long threshold = properties.getProfilerThreshold();
+        if (runTime < threshold) {
+            if (recordingFile.exists() && !recordingFile.delete()) {
+                System.err.println("Could not delete " + recordingFile);
+            }
+        }
+        else if (recordingFile.exists()) {
+            System.out.println("Profile of " + job.getName() + " (" + runTime + " ms) written to " + recordingFile);
+        }
+    }
+}
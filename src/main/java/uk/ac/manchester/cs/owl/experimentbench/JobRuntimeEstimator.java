@@ -0,0 +1,138 @@
+package uk.ac.manchester.cs.owl.experimentbench;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Estimates the size and run time of jobs from the {@link JobStatistics} that earlier runs left in the output
+ * directory.  The run time of a job whose experiments have all been run before is the sum of their run times,
+ * plus the time it took to load the ontology.  For other jobs it is extrapolated from the size of the ontology
+ * document, at the average time per document byte of the jobs that have statistics.  If there are no statistics
+ * at all then the estimate is the (uncompressed) document size, which orders jobs correctly but is not in
+ * milliseconds (see {@link #isCalibrated()}).
+ */
+public class JobRuntimeEstimator {
+
+    /**
+     * The depth, below the root output directory, to which statistics are looked for: ontology / experiment /
+     * matrix configuration (one level per axis) / fork.
+     */
+    private static final int MAX_STATISTICS_DEPTH = 8;
+
+    private double runTimePerDocumentByte = 1;
+
+    private double axiomsPerDocumentByte = -1;
+
+    private boolean calibrated = false;
+
+    private Map<String, Long> axiomCounts = new HashMap<String, Long>();
+
+    /**
+     * @param rootOutputDirectory The root output directory of the run.  The statistics of the experiments in it are
+     * used to calibrate the estimates.
+     */
+    public JobRuntimeEstimator(File rootOutputDirectory) {
+        long[] runTimeTotals = new long[2];
+        long[] axiomCountTotals = new long[2];
+        File[] ontologyDocumentOutputDirectories = rootOutputDirectory.listFiles();
+        if (ontologyDocumentOutputDirectories != null) {
+            for (File ontologyDocumentOutputDirectory : ontologyDocumentOutputDirectories) {
+                if (ontologyDocumentOutputDirectory.isDirectory()) {
+                    readStatistics(ontologyDocumentOutputDirectory.getName(), ontologyDocumentOutputDirectory, 1, runTimeTotals, axiomCountTotals);
+                }
+            }
+        }
+        if (runTimeTotals[1] > 0) {
+            runTimePerDocumentByte = ((double) runTimeTotals[0]) / runTimeTotals[1];
+            calibrated = true;
+        }
+        if (axiomCountTotals[1] > 0) {
+            axiomsPerDocumentByte = ((double) axiomCountTotals[0]) / axiomCountTotals[1];
+        }
+    }
+
+    private void readStatistics(String ontologyDocumentDirectoryName, File directory, int depth, long[] runTimeTotals, long[] axiomCountTotals) {
+        JobStatistics statistics = JobStatistics.read(directory);
+        if (statistics != null) {
+            long documentSize = statistics.getValue(JobStatistics.ONTOLOGY_DOCUMENT_SIZE);
+            long runTime = statistics.getValue(JobStatistics.RUN_TIME);
+            long axiomCount = statistics.getValue(JobStatistics.AXIOM_COUNT);
+            if (documentSize > 0 && runTime >= 0) {
+                runTimeTotals[0] += runTime;
+                runTimeTotals[1] += documentSize;
+            }
+            if (axiomCount >= 0) {
+                axiomCounts.put(ontologyDocumentDirectoryName, axiomCount);
+                if (documentSize > 0) {
+                    axiomCountTotals[0] += axiomCount;
+                    axiomCountTotals[1] += documentSize;
+                }
+            }
+        }
+        if (depth >= MAX_STATISTICS_DEPTH) {
+            return;
+        }
+        File[] subDirectories = directory.listFiles();
+        if (subDirectories != null) {
+            for (File subDirectory : subDirectories) {
+                if (subDirectory.isDirectory()) {
+                    readStatistics(ontologyDocumentDirectoryName, subDirectory, depth + 1, runTimeTotals, axiomCountTotals);
+                }
+            }
+        }
+    }
+
+    /**
+     * Determines whether the run time estimates are in milliseconds.
+     * @return true if there were statistics to calibrate the estimates with, otherwise false.
+     */
+    public boolean isCalibrated() {
+        return calibrated;
+    }
+
+    /**
+     * Gets the size of the ontology document of a job.  Compressed documents are assumed to be ten times their size.
+     * @param job The job.
+     * @return The size in bytes.
+     */
+    public long getDocumentSize(OntologyDocumentExperimentJob job) {
+        return JobMemoryEstimator.getOntologyDocumentSize(job.getOntologyDocumentDirectory());
+    }
+
+    /**
+     * Gets the number of axioms in the ontology of a job, as recorded by an earlier run, or as extrapolated from the
+     * size of the ontology document.
+     * @param job The job.
+     * @return The axiom count.  If nothing is known about axiom counts then this is the document size.
+     */
+    public long getAxiomCount(OntologyDocumentExperimentJob job) {
+        Long axiomCount = axiomCounts.get(job.getOntologyDocumentDirectory().getName());
+        if (axiomCount != null) {
+            return axiomCount;
+        }
+        if (axiomsPerDocumentByte > 0) {
+            return Math.round(getDocumentSize(job) * axiomsPerDocumentByte);
+        }
+        return getDocumentSize(job);
+    }
+
+    /**
+     * Estimates the run time of a job.
+     * @param job The job.
+     * @return The estimate, in milliseconds if this estimator is calibrated.
+     */
+    public long estimate(OntologyDocumentExperimentJob job) {
+        long runTime = 0;
+        long loadTime = 0;
+        for (File experimentOutputDirectory : job.getExperimentOutputDirectories()) {
+            JobStatistics statistics = JobStatistics.read(experimentOutputDirectory);
+            if (statistics == null || statistics.getValue(JobStatistics.RUN_TIME) < 0) {
+                return Math.round(getDocumentSize(job) * runTimePerDocumentByte * job.getExperimentMethods().size());
+            }
+            runTime += statistics.getValue(JobStatistics.RUN_TIME);
+            loadTime = Math.max(loadTime, statistics.getValue(JobStatistics.LOAD_TIME));
+        }
+        return runTime + loadTime;
+    }
+}
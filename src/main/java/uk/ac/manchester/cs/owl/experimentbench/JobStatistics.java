@@ -0,0 +1,110 @@
+package uk.ac.manchester.cs.owl.experimentbench;
+
+import java.io.*;
+import java.util.Properties;
+
+/**
+ * A small summary of an experiment run that the runner writes next to telemetry.xml.  It holds the numbers that
+ * the controller needs when planning later runs (e.g. the live heap) in a form that is much cheaper to read
+ * than the telemetry itself.
+ */
+public class JobStatistics {
+
+    public static final String FILE_NAME = "jobstats.properties";
+
+    public static final String PEAK_HEAP_USED = "peakheapused";
+
+    /**
+     * The highest heap usage after a garbage collection while the ontology was loaded and the experiment method ran,
+     * or at the end of the method if that is higher, in bytes.  See {@link HeapUsage#getMaxLiveHeapUsage()}.
+     */
+    public static final String LIVE_HEAP_USED = "liveheapused";
+
+    public static final String ONTOLOGY_DOCUMENT_SIZE = "ontologydocumentsize";
+
+    public static final String AXIOM_COUNT = "axiomcount";
+
+    public static final String LOAD_TIME = "loadtime";
+
+    public static final String RUN_TIME = "runtime";
+
+    /**
+     * The mean time, in nanoseconds, of the measured iterations of the experiment method.
+     */
+    public static final String TRIAL_MEAN_TIME = "trialmeantime";
+
+    /**
+     * The time from the launch of the runner's JVM to its first ontology being ready, in milliseconds.
+     */
+    public static final String STARTUP_LATENCY = "startuplatency";
+
+    /**
+     * The time spent creating shared reasoners and precomputing their inferences for an experiment method, in
+     * milliseconds.  This time is not part of the times of the experiment's iterations.  See {@link ReasonerPool}.
+     */
+    public static final String CLASSIFICATION_TIME = "classificationtime";
+
+    private Properties properties = new Properties();
+
+    public JobStatistics() {
+    }
+
+    /**
+     * Reads the statistics from an experiment output directory.
+     * @param experimentOutputDirectory The directory.
+     * @return The statistics, or null if the directory does not contain any statistics.
+     */
+    public static JobStatistics read(File experimentOutputDirectory) {
+        File file = new File(experimentOutputDirectory, FILE_NAME);
+        if (!file.exists()) {
+            return null;
+        }
+        JobStatistics statistics = new JobStatistics();
+        try {
+            InputStream is = new BufferedInputStream(new FileInputStream(file));
+            try {
+                statistics.properties.load(is);
+            }
+            finally {
+                is.close();
+            }
+            return statistics;
+        }
+        catch (IOException e) {
+            System.err.println("Could not read job statistics: " + e.getMessage());
+            return null;
+        }
+    }
+
+    public void write(File experimentOutputDirectory) throws IOException {
+        OutputStream os = new BufferedOutputStream(new FileOutputStream(new File(experimentOutputDirectory, FILE_NAME)));
+        try {
+            properties.store(os, null);
+        }
+        finally {
+            os.close();
+        }
+    }
+
+    public void setValue(String name, long value) {
+        properties.setProperty(name, Long.toString(value));
+    }
+
+    /**
+     * Gets a value.
+     * @param name The name of the value.
+     * @return The value, or -1 if there is no value, or the value is malformed.
+     */
+    public long getValue(String name) {
+        String value = properties.getProperty(name);
+        if (value == null) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(value);
+        }
+        catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package uk.ac.manchester.cs.owl.experimentbench;
+
+/**
+ * The states that an experiment goes through, as recorded in the {@link RunJournal}.
+ */
+public enum JobStatus {
+
+    QUEUED,
+
+    RUNNING,
+
+    SUCCEEDED,
+
+    FAILED,
+
+    TIMED_OUT;
+
+    /**
+     * Determines whether this status marks the end of an attempt at running an experiment.
+     * @return true for {@link #SUCCEEDED}, {@link #FAILED} and {@link #TIMED_OUT}
+     */
+    public boolean isFinished() {
+        return this == SUCCEEDED || this == FAILED || this == TIMED_OUT;
+    }
+}
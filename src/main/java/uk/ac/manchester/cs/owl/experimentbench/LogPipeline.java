@@ -0,0 +1,409 @@
+package uk.ac.manchester.cs.owl.experimentbench;
+
+import java.io.*;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes the output of forked jobs to their logs (out.txt and err.txt in the log directory of each job) on a
+ * single background thread.  The threads that read the output of the forked JVMs only put lines on a queue, so a
+ * job that prints a lot is never held up by the disk or by the console.  If the writer falls so far behind that
+ * the queue is full then further lines are dropped rather than waited for, since a pumping thread that waits stops
+ * draining the forked JVM's output, which would then block the job.  The number of lines that were dropped is
+ * written to the job's logs in their place.  The logs are written through large buffers, which are flushed
+ * whenever the queue runs dry.
+ * <p>
+ *     Job output is echoed to the console at no more than consolelinespersecond lines per second over all of the
+ *     jobs; the lines that are not echoed are counted and reported, and are still in the logs.  The logs of an earlier
+ *     attempt at a job are rotated and compressed (out.txt.1.gz, out.txt.2.gz, ...; see {@link #rotate}) by the
+ *     controller before the job is launched, so the writer thread never waits for files to be renamed or compressed.
+ * </p>
+ */
+public class LogPipeline {
+
+    public static final String OUT_FILE_NAME = "out.txt";
+
+    public static final String ERR_FILE_NAME = "err.txt";
+
+    public static final String COMPRESSED_FILE_NAME_EXTENSION = ".gz";
+
+    /**
+     * The number of lines that can be waiting to be written.  Lines of job output that arrive when the queue is full
+     * are dropped.
+     */
+    private static final int QUEUE_CAPACITY = 100000;
+
+    private static final long IDLE_FLUSH_INTERVAL_MS = 500;
+
+    private static final int OUT = 0;
+
+    private static final int ERR = 1;
+
+    private static final int OPEN = 2;
+
+    private static final int CONSOLE = 3;
+
+    private static final int CLOSE = 4;
+
+    private static final int STOP = 5;
+
+    private final BlockingQueue<LogRecord> queue = new LinkedBlockingQueue<LogRecord>(QUEUE_CAPACITY);
+
+    private final int bufferSize;
+
+    private final int consoleLinesPerSecond;
+
+    private final Thread writerThread;
+
+    // The state below is only touched by the writer thread
+
+    private final Set<JobLog> openLogs = new HashSet<JobLog>();
+
+    private long consoleWindowStart;
+
+    private int consoleLinesInWindow;
+
+    private int suppressedLines;
+
+    /**
+     * @param properties The properties that give the buffer size (logbufferkb) and the console rate limit
+     * (consolelinespersecond).
+     */
+    public LogPipeline(ExperimentProperties properties) {
+        this.bufferSize = properties.getLogBufferSizeInKiloBytes() * 1024;
+        this.consoleLinesPerSecond = properties.getConsoleLinesPerSecond();
+        writerThread = new Thread(new Runnable() {
+            public void run() {
+                writeRecords();
+            }
+        }, "Log writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Opens the logs of a job.  The logs are created by the writer thread.  Any earlier logs are overwritten, so they
+     * should have been rotated first.
+     * @param logDirectory The directory that the logs are written to.
+     * @param name The name that prefixes the lines of the job that are echoed to the console.
+     * @return The logs.  They must be closed when the job has finished.
+     */
+    public JobLog open(File logDirectory, String name) {
+        JobLog log = new JobLog(logDirectory, name);
+        enqueue(new LogRecord(log, OPEN, null));
+        return log;
+    }
+
+    /**
+     * Writes out all of the lines that are waiting, closes the logs and stops the writer thread.
+     */
+    public void dispose() {
+        enqueue(new LogRecord(null, STOP, null));
+        try {
+            writerThread.join();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Queues a line of job output, unless the queue is full.
+     * @return true if the line was queued, or false if it was dropped.
+     */
+    private boolean offer(LogRecord record) {
+        return queue.offer(record);
+    }
+
+    private void enqueue(LogRecord record) {
+        try {
+            queue.put(record);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeRecords() {
+        try {
+            while (true) {
+                LogRecord record = queue.poll(IDLE_FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                if (record == null) {
+                    flushLogs();
+                    reportSuppressedLines();
+                    continue;
+                }
+                if (record.type == STOP) {
+                    break;
+                }
+                writeRecord(record);
+            }
+        }
+        catch (InterruptedException e) {
+            // Fall through and close the logs
+        }
+        for (JobLog log : openLogs) {
+            log.closeWriters();
+        }
+        openLogs.clear();
+        reportSuppressedLines();
+    }
+
+    private void writeRecord(LogRecord record) {
+        JobLog log = record.log;
+        switch (record.type) {
+            case OUT:
+                log.writeDroppedLines();
+                log.write(OUT, record.line);
+                echo(log.prefix(record.line), System.out);
+                break;
+            case ERR:
+                log.writeDroppedLines();
+                log.write(ERR, record.line);
+                echo(log.prefix(record.line), System.err);
+                break;
+            case OPEN:
+                log.openWriters();
+                openLogs.add(log);
+                break;
+            case CONSOLE:
+                System.out.println(record.line);
+                break;
+            case CLOSE:
+                log.writeDroppedLines();
+                log.closeWriters();
+                openLogs.remove(log);
+                break;
+        }
+    }
+
+    private void flushLogs() {
+        for (JobLog log : openLogs) {
+            log.flushWriters();
+        }
+    }
+
+    /**
+     * Echoes a line of job output, unless the console rate limit has been reached.
+     */
+    private void echo(String line, PrintStream console) {
+        if (consoleLinesPerSecond >= 0) {
+            long now = System.currentTimeMillis();
+            if (now - consoleWindowStart >= 1000) {
+                reportSuppressedLines();
+                consoleWindowStart = now;
+                consoleLinesInWindow = 0;
+            }
+            if (consoleLinesInWindow >= consoleLinesPerSecond) {
+                suppressedLines++;
+                return;
+            }
+            consoleLinesInWindow++;
+        }
+        console.println(line);
+    }
+
+    private void reportSuppressedLines() {
+        if (suppressedLines > 0) {
+            System.out.println("(" + suppressedLines + " lines of job output were not echoed.  See the job logs.)");
+            suppressedLines = 0;
+        }
+    }
+
+    /**
+     * Rotates a log: the log is compressed to &lt;name&gt;.1.gz, after the earlier rotations have been renamed to
+     * &lt;name&gt;.2.gz, &lt;name&gt;.3.gz and so on.  The oldest rotation is deleted.
+     * @param logFile The log.  Nothing is done if it does not exist.
+     * @param rotations The number of rotations to keep.  If this is zero the log is deleted.
+     */
+    public static void rotate(File logFile, int rotations) {
+        if (!logFile.exists()) {
+            return;
+        }
+        if (rotations > 0) {
+            File directory = logFile.getParentFile();
+            String name = logFile.getName();
+            new File(directory, name + "." + rotations + COMPRESSED_FILE_NAME_EXTENSION).delete();
+            for (int i = rotations - 1; i >= 1; i--) {
+                File rotatedFile = new File(directory, name + "." + i + COMPRESSED_FILE_NAME_EXTENSION);
+                if (rotatedFile.exists()) {
+                    rotatedFile.renameTo(new File(directory, name + "." + (i + 1) + COMPRESSED_FILE_NAME_EXTENSION));
+                }
+            }
+            try {
+                compress(logFile, new File(directory, name + ".1" + COMPRESSED_FILE_NAME_EXTENSION));
+            }
+            catch (IOException e) {
+                System.err.println("Could not compress " + logFile + ": " + e.getMessage());
+            }
+        }
+        logFile.delete();
+    }
+
+    private static void compress(File file, File compressedFile) throws IOException {
+        InputStream is = new BufferedInputStream(new FileInputStream(file));
+        try {
+            OutputStream os = new GZIPOutputStream(new BufferedOutputStream(new FileOutputStream(compressedFile)));
+            try {
+                byte[] buffer = new byte[64 * 1024];
+                int read;
+                while ((read = is.read(buffer)) != -1) {
+                    os.write(buffer, 0, read);
+                }
+            }
+            finally {
+                os.close();
+            }
+        }
+        finally {
+            is.close();
+        }
+    }
+
+    private static class LogRecord {
+
+        private JobLog log;
+
+        private int type;
+
+        private String line;
+
+        private LogRecord(JobLog log, int type, String line) {
+            this.log = log;
+            this.type = type;
+            this.line = line;
+        }
+    }
+
+    /**
+     * The logs of one job.  Lines can be logged from any thread.
+     */
+    public class JobLog {
+
+        private File logDirectory;
+
+        private String name;
+
+        private Writer[] writers = new Writer[2];
+
+        /**
+         * The number of lines that have been dropped since the last line that was written
+         */
+        private AtomicInteger droppedLines = new AtomicInteger();
+
+        private JobLog(File logDirectory, String name) {
+            this.logDirectory = logDirectory;
+            this.name = name;
+        }
+
+        /**
+         * Logs a line of the standard output of the job.
+         */
+        public void out(String line) {
+            if (!offer(new LogRecord(this, OUT, line))) {
+                droppedLines.incrementAndGet();
+            }
+        }
+
+        /**
+         * Logs a line of the standard error of the job.
+         */
+        public void err(String line) {
+            if (!offer(new LogRecord(this, ERR, line))) {
+                droppedLines.incrementAndGet();
+            }
+        }
+
+        /**
+         * Prints a message about the job on the console, in order with the output of the job, without rate limiting
+         * it or writing it to the logs.
+         */
+        public void message(String message) {
+            enqueue(new LogRecord(this, CONSOLE, message));
+        }
+
+        /**
+         * Closes the logs once all of the lines that have been logged so far have been written.
+         */
+        public void close() {
+            enqueue(new LogRecord(this, CLOSE, null));
+        }
+
+        private String prefix(String line) {
+            return "[" + name + "] " + line;
+        }
+
+        private void openWriters() {
+            try {
+                logDirectory.mkdirs();
+                for (int stream = OUT; stream <= ERR; stream++) {
+                    File logFile = new File(logDirectory, stream == OUT ? OUT_FILE_NAME : ERR_FILE_NAME);
+                    writers[stream] = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(logFile), "UTF-8"), bufferSize);
+                }
+            }
+            catch (IOException e) {
+                System.err.println("Could not open the logs in " + logDirectory + ": " + e.getMessage());
+                closeWriters();
+            }
+        }
+
+        /**
+         * Notes, in both logs and on the console, any lines that were dropped because the queue was full.
+         */
+        private void writeDroppedLines() {
+            int dropped = droppedLines.getAndSet(0);
+            if (dropped > 0) {
+                String message = "(" + dropped + " lines of job output were dropped because the log writer fell behind)";
+                write(OUT, message);
+                write(ERR, message);
+                echo(prefix(message), System.err);
+            }
+        }
+
+        private void write(int stream, String line) {
+            if (writers[stream] == null) {
+                return;
+            }
+            try {
+                writers[stream].write(line);
+                writers[stream].write('\n');
+            }
+            catch (IOException e) {
+                System.err.println("Could not write to the logs in " + logDirectory + ": " + e.getMessage());
+                closeWriters();
+            }
+        }
+
+        private void flushWriters() {
+            for (Writer writer : writers) {
+                if (writer != null) {
+                    try {
+                        writer.flush();
+                    }
+                    catch (IOException e) {
+                        System.err.println("Could not write to the logs in " + logDirectory + ": " + e.getMessage());
+                    }
+                }
+            }
+        }
+
+        private void closeWriters() {
+            for (int i = 0; i < writers.length; i++) {
+                if (writers[i] != null) {
+                    try {
+                        writers[i].close();
+                    }
+                    catch (IOException e) {
+                        System.err.println("Could not write to the logs in " + logDirectory + ": " + e.getMessage());
+                    }
+                    writers[i] = null;
+                }
+            }
+        }
+    }
+}
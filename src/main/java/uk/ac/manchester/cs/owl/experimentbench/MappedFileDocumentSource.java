@@ -0,0 +1,84 @@
+package uk.ac.manchester.cs.owl.experimentbench;
+
+import org.apache.tools.bzip2.CBZip2InputStream;
+import org.semanticweb.owlapi.io.OWLOntologyDocumentSource;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLRuntimeException;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * A document source that reads an ontology document through a {@link MappedFileInputStream}.  Documents whose
+ * names end with .gz or .bz2 are decompressed on the fly.  Unlike the OWL API's StreamDocumentSource, which copies
+ * the whole stream into a byte array, each call to {@link #getInputStream()} returns a fresh stream over the
+ * file, so the parser streams the document into the ontology and the document itself is never held on the heap.
+ */
+public class MappedFileDocumentSource implements OWLOntologyDocumentSource {
+
+    public static final String GZIP_FILE_NAME_EXTENSION = ".gz";
+
+    public static final String BZIP2_FILE_NAME_EXTENSION = ".bz2";
+
+    private static final int DECOMPRESSION_BUFFER_SIZE = 1024 * 1024;
+
+    private File file;
+
+    public MappedFileDocumentSource(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Determines whether a file is compressed.
+     * @param file The file.
+     * @return true if the name of the file ends with .gz or .bz2
+     */
+    public static boolean isCompressed(File file) {
+        String name = file.getName();
+        return name.endsWith(GZIP_FILE_NAME_EXTENSION) || name.endsWith(BZIP2_FILE_NAME_EXTENSION);
+    }
+
+    public boolean isReaderAvailable() {
+        return false;
+    }
+
+    public Reader getReader() {
+        throw new OWLRuntimeException("Reader not available.  Check with MappedFileDocumentSource.isReaderAvailable() first!");
+    }
+
+    public boolean isInputStreamAvailable() {
+        return true;
+    }
+
+    public InputStream getInputStream() {
+        try {
+            InputStream is = new MappedFileInputStream(file);
+            String name = file.getName();
+            if (name.endsWith(GZIP_FILE_NAME_EXTENSION)) {
+                return new GZIPInputStream(is, DECOMPRESSION_BUFFER_SIZE);
+            }
+            else if (name.endsWith(BZIP2_FILE_NAME_EXTENSION)) {
+                // CBZip2InputStream expects the "BZ" magic to have been consumed
+                if (is.read() != 'B' || is.read() != 'Z') {
+                    is.close();
+                    throw new IOException("Not a bzip2 file: " + file);
+                }
+                return new BufferedInputStream(new CBZip2InputStream(is), DECOMPRESSION_BUFFER_SIZE);
+            }
+            else {
+                return is;
+            }
+        }
+        catch (IOException e) {
+            throw new OWLRuntimeException(e);
+        }
+    }
+
+    public IRI getDocumentIRI() {
+        return IRI.create(file);
+    }
+}
@@ -0,0 +1,106 @@
+package uk.ac.manchester.cs.owl.experimentbench;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * An input stream that reads a file through a sliding memory mapped window.  Only one window is mapped at a time,
+ * so files that are larger than 2GB, or larger than the heap, can be read sequentially without copying them
+ * through an intermediate buffer.
+ */
+public class MappedFileInputStream extends InputStream {
+
+    public static final long DEFAULT_WINDOW_SIZE = 64 * 1024 * 1024;
+
+    private FileChannel channel;
+
+    private long fileSize;
+
+    private long windowSize;
+
+    private long windowStart = 0;
+
+    private MappedByteBuffer window;
+
+    public MappedFileInputStream(File file) throws IOException {
+        this(file, DEFAULT_WINDOW_SIZE);
+    }
+
+    public MappedFileInputStream(File file, long windowSize) throws IOException {
+        this.channel = new FileInputStream(file).getChannel();
+        this.fileSize = channel.size();
+        this.windowSize = windowSize;
+    }
+
+    /**
+     * Makes sure that there is a window with remaining bytes, mapping the next window if necessary.
+     * @return true if there are bytes to read, false if the end of the file has been reached.
+     */
+    private boolean ensureWindow() throws IOException {
+        if (channel == null) {
+            throw new IOException("Stream closed");
+        }
+        if (window != null && window.hasRemaining()) {
+            return true;
+        }
+        long nextWindowStart = window == null ? 0 : windowStart + window.capacity();
+        if (nextWindowStart >= fileSize) {
+            return false;
+        }
+        windowStart = nextWindowStart;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, Math.min(windowSize, fileSize - windowStart));
+        return true;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!ensureWindow()) {
+            return -1;
+        }
+        return window.get() & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!ensureWindow()) {
+            return -1;
+        }
+        int count = Math.min(len, window.remaining());
+        window.get(b, off, count);
+        return count;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        if (n <= 0 || !ensureWindow()) {
+            return 0;
+        }
+        int count = (int) Math.min(n, window.remaining());
+        window.position(window.position() + count);
+        return count;
+    }
+
+    @Override
+    public int available() throws IOException {
+        if (channel == null || window == null) {
+            return 0;
+        }
+        return window.remaining();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+            window = null;
+        }
+    }
+}
@@ -0,0 +1,326 @@
+package uk.ac.manchester.cs.owl.experimentbench;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.util.*;
+
+/**
+ * One point in the matrix of experiment parameters of a run.  The axes of the matrix are experiment properties
+ * that are given several values: either reasonerfactoryclass as a comma separated list of reasoner factory classes,
+ * or any property as matrix.&lt;property&gt;=value1,value2,...  The controller runs each experiment once per point
+ * in the matrix, with the values of the point overriding the experiment properties.
+ * <p>
+ *     Each point has its own output directory below the experiment output directory, with one directory level per
+ *     axis (the reasoner first), for example ReasonerFactory/reasonerentailmentchecktimeoutms-1000.  A run without a
+ *     matrix has a single, empty, configuration whose output directories are the experiment output directories
+ *     themselves.
+ * </p>
+ */
+public class MatrixConfiguration {
+
+    public static final String MATRIX_PROPERTY_PREFIX = "matrix.";
+
+    public static final String VALUE_SEPARATOR = ",";
+
+    /**
+     * The order of the axes: the reasoner first, then the other properties by name.
+     */
+    private static final Comparator<String> AXIS_ORDER = new Comparator<String>() {
+        public int compare(String propertyName1, String propertyName2) {
+            boolean reasoner1 = propertyName1.equals(ExperimentProperties.REASONER_FACTORY_CLASS_PROPERTY);
+            boolean reasoner2 = propertyName2.equals(ExperimentProperties.REASONER_FACTORY_CLASS_PROPERTY);
+            if (reasoner1 != reasoner2) {
+                return reasoner1 ? -1 : 1;
+            }
+            return propertyName1.compareTo(propertyName2);
+        }
+    };
+
+    public static final MatrixConfiguration EMPTY = new MatrixConfiguration(new TreeMap<String, String>(AXIS_ORDER), new TreeMap<String, String>(AXIS_ORDER));
+
+    private static final String ENCODED_VALUE_SEPARATOR = "&";
+
+    private static final String ENCODED_NAME_SEPARATOR = "=";
+
+    private static final String DIRECTORY_NAME_SEPARATOR = "-";
+
+    private static final int SHORT_HASH_LENGTH = 8;
+
+    private SortedMap<String, String> values;
+
+    private SortedMap<String, String> directoryNames;
+
+    private MatrixConfiguration(SortedMap<String, String> values, SortedMap<String, String> directoryNames) {
+        this.values = values;
+        this.directoryNames = directoryNames;
+    }
+
+    /**
+     * Gets the axes of the matrix that is specified by some experiment properties.
+     * @param properties The properties.
+     * @return A map from property name to the values that the property takes, sorted with the reasoner first.
+     * Properties with a single value are not axes.
+     */
+    public static SortedMap<String, List<String>> getAxes(ExperimentProperties properties) {
+        SortedMap<String, List<String>> result = new TreeMap<String, List<String>>(AXIS_ORDER);
+        String reasonerFactoryClassNames = properties.getProperty(ExperimentProperties.REASONER_FACTORY_CLASS_PROPERTY, null);
+        if (reasonerFactoryClassNames != null) {
+            addAxis(ExperimentProperties.REASONER_FACTORY_CLASS_PROPERTY, reasonerFactoryClassNames, result);
+        }
+        for (String propertyName : properties.getProperties()) {
+            if (propertyName.startsWith(MATRIX_PROPERTY_PREFIX) && propertyName.length() > MATRIX_PROPERTY_PREFIX.length()) {
+                addAxis(propertyName.substring(MATRIX_PROPERTY_PREFIX.length()), properties.getProperty(propertyName, ""), result);
+            }
+        }
+        return result;
+    }
+
+    private static void addAxis(String propertyName, String values, SortedMap<String, List<String>> axes) {
+        Set<String> axisValues = new LinkedHashSet<String>();
+        for (String value : values.split(VALUE_SEPARATOR)) {
+            if (!value.trim().isEmpty()) {
+                axisValues.add(value.trim());
+            }
+        }
+        if (axisValues.size() > 1) {
+            axes.put(propertyName, new ArrayList<String>(axisValues));
+        }
+    }
+
+    /**
+     * Expands the matrix that is specified by some experiment properties into its points.
+     * @param properties The properties.
+     * @return The configurations, one for each combination of the values of the axes, or a list containing just
+     * {@link #EMPTY} if the properties do not specify a matrix.
+     */
+    public static List<MatrixConfiguration> expand(ExperimentProperties properties) {
+        SortedMap<String, List<String>> axes = getAxes(properties);
+        // The directory names of the values of each axis
+        Map<String, Map<String, String>> axisDirectoryNames = new HashMap<String, Map<String, String>>();
+        for (Map.Entry<String, List<String>> axis : axes.entrySet()) {
+            axisDirectoryNames.put(axis.getKey(), getDirectoryNames(axis.getKey(), axis.getValue()));
+        }
+        List<MatrixConfiguration> result = new ArrayList<MatrixConfiguration>();
+        result.add(EMPTY);
+        for (Map.Entry<String, List<String>> axis : axes.entrySet()) {
+            List<MatrixConfiguration> expanded = new ArrayList<MatrixConfiguration>();
+            for (MatrixConfiguration configuration : result) {
+                for (String value : axis.getValue()) {
+                    SortedMap<String, String> values = new TreeMap<String, String>(AXIS_ORDER);
+                    values.putAll(configuration.values);
+                    values.put(axis.getKey(), value);
+                    SortedMap<String, String> directoryNames = new TreeMap<String, String>(AXIS_ORDER);
+                    directoryNames.putAll(configuration.directoryNames);
+                    directoryNames.put(axis.getKey(), axisDirectoryNames.get(axis.getKey()).get(value));
+                    expanded.add(new MatrixConfiguration(values, directoryNames));
+                }
+            }
+            result = expanded;
+        }
+        return result;
+    }
+
+    /**
+     * Gets the directory names of the values of an axis.  Reasoner factory classes are named after their simple class
+     * names, unless two of them have the same simple name.  Other values are prefixed with the property name.  Values
+     * whose names are still the same, ignoring case, once the characters that are not allowed in directory names have
+     * been replaced (for example "a b" and "a_b") have a short hash of the value appended to their names.
+     */
+    private static Map<String, String> getDirectoryNames(String propertyName, List<String> values) {
+        Map<String, String> result = new HashMap<String, String>();
+        boolean reasonerAxis = propertyName.equals(ExperimentProperties.REASONER_FACTORY_CLASS_PROPERTY);
+        for (String value : values) {
+            String name = reasonerAxis ? getSimpleClassName(value) : propertyName + DIRECTORY_NAME_SEPARATOR + value;
+            result.put(value, toDirectoryName(name));
+        }
+        if (!getCollidingDirectoryNames(result).isEmpty()) {
+            for (String value : values) {
+                result.put(value, toDirectoryName(reasonerAxis ? value : propertyName + DIRECTORY_NAME_SEPARATOR + value));
+            }
+        }
+        Set<String> collidingDirectoryNames = getCollidingDirectoryNames(result);
+        if (!collidingDirectoryNames.isEmpty()) {
+            // A hash of the value, rather than its index, so that the names do not change when the axis is edited
+            for (String value : values) {
+                String directoryName = result.get(value);
+                if (collidingDirectoryNames.contains(directoryName.toLowerCase(Locale.ENGLISH))) {
+                    result.put(value, directoryName + DIRECTORY_NAME_SEPARATOR + getShortHash(value));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets the directory names, in lower case, that are given to more than one value.  Names that only differ in case
+     * collide on case insensitive file systems.
+     */
+    private static Set<String> getCollidingDirectoryNames(Map<String, String> directoryNames) {
+        Set<String> names = new HashSet<String>();
+        Set<String> result = new HashSet<String>();
+        for (String directoryName : directoryNames.values()) {
+            String name = directoryName.toLowerCase(Locale.ENGLISH);
+            if (!names.add(name)) {
+                result.add(name);
+            }
+        }
+        return result;
+    }
+
+    private static String getShortHash(String value) {
+        try {
+            byte[] hash = OntologyDocumentCache.createDigest().digest(value.getBytes("UTF-8"));
+            return OntologyDocumentCache.toHexString(hash).substring(0, SHORT_HASH_LENGTH);
+        }
+        catch (UnsupportedEncodingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static String getSimpleClassName(String className) {
+        String simpleName = className.substring(className.lastIndexOf('.') + 1);
+        return simpleName.substring(simpleName.lastIndexOf('$') + 1);
+    }
+
+    private static String toDirectoryName(String name) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < name.length(); i++) {
+            char ch = name.charAt(i);
+            if (Character.isLetterOrDigit(ch) || ch == '.' || ch == '-' || ch == '_') {
+                sb.append(ch);
+            }
+            else {
+                sb.append('_');
+            }
+        }
+        return sb.toString();
+    }
+
+    public boolean isEmpty() {
+        return values.isEmpty();
+    }
+
+    /**
+     * Gets the property values of this configuration.
+     * @return A map from property name to value, sorted with the reasoner first.
+     */
+    public SortedMap<String, String> getValues() {
+        return Collections.unmodifiableSortedMap(values);
+    }
+
+    /**
+     * Applies this configuration to some experiment properties.
+     * @param properties The properties.
+     * @return A copy of the properties with the values of this configuration, or the properties themselves if this
+     * configuration is empty.
+     */
+    public ExperimentProperties apply(ExperimentProperties properties) {
+        if (values.isEmpty()) {
+            return properties;
+        }
+        ExperimentProperties.Builder builder = new ExperimentProperties.Builder(properties);
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            builder.setProperty(ExperimentProperties.MATRIX_LAYER_NAME, entry.getKey(), entry.getValue());
+        }
+        return builder.build();
+    }
+
+    /**
+     * Gets the path of the output directory of this configuration relative to an experiment output directory.
+     * @return The path, with one directory per axis separated by slashes, or the empty string if this configuration is
+     * empty.
+     */
+    public String getDirectoryPath() {
+        StringBuilder sb = new StringBuilder();
+        for (String directoryName : directoryNames.values()) {
+            if (sb.length() > 0) {
+                sb.append("/");
+            }
+            sb.append(directoryName);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Encodes this configuration so that it can be passed to a runner.  The encoding does not contain commas, tabs or
+     * path separators.
+     */
+    public String encode() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            if (sb.length() > 0) {
+                sb.append(ENCODED_VALUE_SEPARATOR);
+            }
+            sb.append(urlEncode(entry.getKey()));
+            sb.append(ENCODED_NAME_SEPARATOR);
+            sb.append(urlEncode(entry.getValue()));
+            sb.append(ENCODED_NAME_SEPARATOR);
+            sb.append(urlEncode(directoryNames.get(entry.getKey())));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Decodes a configuration that was encoded with {@link #encode()}.
+     */
+    public static MatrixConfiguration decode(String encoded) {
+        if (encoded.isEmpty()) {
+            return EMPTY;
+        }
+        SortedMap<String, String> values = new TreeMap<String, String>(AXIS_ORDER);
+        SortedMap<String, String> directoryNames = new TreeMap<String, String>(AXIS_ORDER);
+        for (String encodedValue : encoded.split(ENCODED_VALUE_SEPARATOR)) {
+            String[] fields = encodedValue.split(ENCODED_NAME_SEPARATOR);
+            if (fields.length != 3) {
+                throw new IllegalArgumentException("Malformed matrix configuration: " + encoded);
+            }
+            values.put(urlDecode(fields[0]), urlDecode(fields[1]));
+            directoryNames.put(urlDecode(fields[0]), urlDecode(fields[2]));
+        }
+        return new MatrixConfiguration(values, directoryNames);
+    }
+
+    private static String urlEncode(String s) {
+        try {
+            return URLEncoder.encode(s, "UTF-8");
+        }
+        catch (UnsupportedEncodingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static String urlDecode(String s) {
+        try {
+            return URLDecoder.decode(s, "UTF-8");
+        }
+        catch (UnsupportedEncodingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        }
+        if (!(obj instanceof MatrixConfiguration)) {
+            return false;
+        }
+        MatrixConfiguration other = (MatrixConfiguration) obj;
+        return values.equals(other.values) && directoryNames.equals(other.directoryNames);
+    }
+
+    @Override
+    public int hashCode() {
+        return values.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        if (values.isEmpty()) {
+            return "default";
+        }
+        return getDirectoryPath();
+    }
+}
@@ -0,0 +1,125 @@
+package uk.ac.manchester.cs.owl.experimentbench;
+
+import java.util.LinkedList;
+
+/**
+ * Admission control for jobs.  Before a job is launched, its heap reservation is acquired from the budget, and it
+ * is released when the job finishes.  Reservations are granted in the order that they are requested, so a large
+ * job cannot be starved by a stream of small jobs.  A single reservation that is larger than the whole budget is
+ * granted once nothing else is running.
+ * <p>
+ *     Memory can also be reserved speculatively, for example for the idle JVMs that a launcher keeps ready, with
+ *     {@link #tryAcquire(int)}.  Such a reservation is only granted if nothing is waiting, and a {@link Reclaimer} is
+ *     asked to give it back when a job would otherwise have to wait for it.
+ * </p>
+ */
+public class MemoryBudget {
+
+    private int totalMegaBytes;
+
+    private int reservedMegaBytes = 0;
+
+    private LinkedList<Object> waiting = new LinkedList<Object>();
+
+    private Reclaimer reclaimer;
+
+    public MemoryBudget(int totalMegaBytes) {
+        this.totalMegaBytes = totalMegaBytes;
+    }
+
+    public int getTotalMegaBytes() {
+        return totalMegaBytes;
+    }
+
+    public synchronized int getReservedMegaBytes() {
+        return reservedMegaBytes;
+    }
+
+    /**
+     * Sets the reclaimer that is asked to give back speculative reservations when a reservation does not fit.
+     * @param reclaimer The reclaimer, or null for none.
+     */
+    public synchronized void setReclaimer(Reclaimer reclaimer) {
+        this.reclaimer = reclaimer;
+    }
+
+    /**
+     * Blocks until the specified amount of memory can be reserved.
+     * @param megaBytes The amount of memory.
+     * @throws InterruptedException If the thread is interrupted while waiting.
+     */
+    public synchronized void acquire(int megaBytes) throws InterruptedException {
+        Object ticket = new Object();
+        waiting.addLast(ticket);
+        try {
+            while (waiting.getFirst() != ticket || !fits(megaBytes)) {
+                if (waiting.getFirst() != ticket || !reclaim(megaBytes)) {
+                    wait();
+                }
+            }
+            reservedMegaBytes += megaBytes;
+        }
+        finally {
+            waiting.remove(ticket);
+            notifyAll();
+        }
+    }
+
+    /**
+     * Reserves the specified amount of memory, if it fits within the budget and nothing is waiting for a reservation.
+     * @param megaBytes The amount of memory.
+     * @return true if the memory was reserved.
+     */
+    public synchronized boolean tryAcquire(int megaBytes) {
+        if (!waiting.isEmpty() || reservedMegaBytes + megaBytes > totalMegaBytes) {
+            return false;
+        }
+        reservedMegaBytes += megaBytes;
+        return true;
+    }
+
+    /**
+     * Asks the reclaimer to give back enough speculative reservations for the specified amount of memory to fit.
+     * @return true if anything was given back.
+     */
+    private boolean reclaim(int megaBytes) {
+        if (reclaimer == null) {
+            return false;
+        }
+        int reclaimedMegaBytes = reclaimer.reclaim(reservedMegaBytes + megaBytes - totalMegaBytes);
+        reservedMegaBytes -= reclaimedMegaBytes;
+        return reclaimedMegaBytes > 0;
+    }
+
+    private boolean fits(int megaBytes) {
+        return reservedMegaBytes == 0 || reservedMegaBytes + megaBytes <= totalMegaBytes;
+    }
+
+    public synchronized void release(int megaBytes) {
+        reservedMegaBytes -= megaBytes;
+        notifyAll();
+    }
+
+    /**
+     * Wakes the threads that are waiting for a reservation, so that they ask the reclaimer again.  This is called when
+     * a speculative reservation becomes one that the reclaimer can give back.
+     */
+    public synchronized void signalReclaimable() {
+        notifyAll();
+    }
+
+    /**
+     * Gives back speculative reservations.  It is called with the budget locked, so it must not itself wait on
+     * anything that holds the lock of the budget while waiting for it.
+     */
+    public interface Reclaimer {
+
+        /**
+         * Gives back speculative reservations until at least the specified amount of memory has been given back or
+         * there are none left that can be.
+         * @param megaBytes The amount of memory that is needed.
+         * @return The amount of memory that was given back, which the budget releases.
+         */
+        int reclaim(int megaBytes);
+    }
+}
@@ -0,0 +1,67 @@
+package uk.ac.manchester.cs.owl.experimentbench;
+
+import org.semanticweb.owlapi.model.*;
+import uk.ac.manchester.cs.owlapi.modularity.ModuleType;
+import uk.ac.manchester.cs.owlapi.modularity.SyntacticLocalityModuleExtractor;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * A syntactic locality based module of an ontology.  The ontology document is loaded as by the
+ * {@link OntologyDocumentWorkload}, the module for a seed signature is extracted from it, and the experiments are
+ * run against the module.  The full ontology is released before the experiments run.
+ * <p>
+ *     The seed signature is read from the file named by the modulesignaturefile property (signature.txt by default)
+ *     in the ontology document directory, which lists one entity IRI per line.  If there is no such file then
+ *     modulesignaturesize classes are picked at random, with workloadseed as the seed, so that the same module is
+ *     extracted every time.  The moduletype property chooses between STAR (the default), BOT and TOP modules.
+ * </p>
+ */
+public class ModuleExtractionWorkload extends OntologyDocumentWorkload {
+
+    @Override
+    public OWLOntology load(WorkloadInput input, OWLOntologyManager manager, OntologyDocumentLoader loader, ExperimentProperties properties) throws OWLOntologyCreationException, IOException {
+        OWLOntology ontology = loader.load(manager, input.getDocument());
+        ModuleType moduleType = properties.getModuleType();
+        Set<OWLEntity> signature = getSignature(ontology, input.getDocument().getParentFile(), properties);
+        SyntacticLocalityModuleExtractor extractor = new SyntacticLocalityModuleExtractor(manager, ontology, moduleType);
+        OWLOntology module = extractor.extractAsOntology(signature, IRI.create(input.getDocument().toURI() + "#" + moduleType.name().toLowerCase() + "module"));
+        System.out.println("Extracted a " + moduleType.name() + " module of " + module.getLogicalAxiomCount() + " logical axioms (of " + ontology.getLogicalAxiomCount() + ") for a signature of " + signature.size() + " entities");
+        manager.removeOntology(ontology);
+        return module;
+    }
+
+    private static Set<OWLEntity> getSignature(OWLOntology ontology, File ontologyDocumentDirectory, ExperimentProperties properties) throws IOException {
+        File signatureFile = new File(ontologyDocumentDirectory, properties.getModuleSignatureFile());
+        if (signatureFile.isFile()) {
+            return readSignature(ontology, signatureFile);
+        }
+        List<OWLClass> classes = new ArrayList<OWLClass>(new TreeSet<OWLClass>(ontology.getClassesInSignature()));
+        Collections.shuffle(classes, new Random(properties.getWorkloadSeed()));
+        return new HashSet<OWLEntity>(classes.subList(0, Math.min(properties.getModuleSignatureSize(), classes.size())));
+    }
+
+    private static Set<OWLEntity> readSignature(OWLOntology ontology, File signatureFile) throws IOException {
+        Set<OWLEntity> result = new HashSet<OWLEntity>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(signatureFile), "UTF-8"));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                Set<OWLEntity> entities = ontology.getEntitiesInSignature(IRI.create(line));
+                if (entities.isEmpty()) {
+                    System.out.println("WARNING: " + line + " (in " + signatureFile + ") is not in the signature of the ontology");
+                }
+                result.addAll(entities);
+            }
+        }
+        finally {
+            reader.close();
+        }
+        return result;
+    }
+}
@@ -0,0 +1,45 @@
+package uk.ac.manchester.cs.owl.experimentbench;
+
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyCreationException;
+import org.semanticweb.owlapi.model.OWLOntologyManager;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A batch of ontologies: the ontology document directory holds many (typically small) ontology documents, which
+ * are run one after the other by a single job, so that the cost of starting a runner is paid once per batch (and
+ * fork) rather than once per document.  Large ontologies should still have a directory, and so a job, of their
+ * own.  The results for each document go in a directory named after the document below the experiment output
+ * directory.
+ */
+public class OntologyBatchWorkload implements Workload {
+
+    public List<WorkloadInput> getInputs(File ontologyDocumentDirectory, ExperimentProperties properties) throws IOException {
+        List<WorkloadInput> result = new ArrayList<WorkloadInput>();
+        for (File document : OntologyDocumentLoader.getOntologyDocuments(ontologyDocumentDirectory)) {
+            result.add(new WorkloadInput(getInputName(document), document, document.length()));
+        }
+        if (result.isEmpty()) {
+            throw new FileNotFoundException("Ontology Document Not Found in " + ontologyDocumentDirectory);
+        }
+        return result;
+    }
+
+    public OWLOntology load(WorkloadInput input, OWLOntologyManager manager, OntologyDocumentLoader loader, ExperimentProperties properties) throws OWLOntologyCreationException, IOException {
+        return loader.load(manager, input.getDocument());
+    }
+
+    /**
+     * Gets the name of the input of a document: its file name without the ontology document extension.
+     */
+    private static String getInputName(File document) {
+        String name = document.getName();
+        int extensionIndex = name.lastIndexOf(OntologyDocumentLoader.ONTOLOGY_FILE_NAME_EXTENSION);
+        return extensionIndex > 0 ? name.substring(0, extensionIndex) : name;
+    }
+}
@@ -0,0 +1,188 @@
+package uk.ac.manchester.cs.owl.experimentbench;
+
+import org.semanticweb.owlapi.model.*;
+
+import java.io.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * An on disk cache of parsed ontology documents.  Each entry holds the axioms and the header of an ontology in
+ * Java's binary serialisation format, which is much quicker to read back than RDF/XML.  Entries are keyed by a
+ * hash of the path of the ontology document and a hash of its content, so an entry is never used once the
+ * content of the document changes.  Stale entries for a document are removed when a fresh entry is stored.
+ * <p>
+ *     Only ontologies without imports are cached, since the cache does not record the imports closure.
+ * </p>
+ */
+public class OntologyDocumentCache {
+
+    private static final int FORMAT_VERSION = 1;
+
+    private static final String CACHE_FILE_EXTENSION = ".owlbin";
+
+    private File cacheDirectory;
+
+    public OntologyDocumentCache(File cacheDirectory) {
+        this.cacheDirectory = cacheDirectory;
+    }
+
+    /**
+     * Loads an ontology from the cache.
+     * @param manager The manager that the ontology should be created in.
+     * @param ontologyDocument The ontology document.
+     * @param contentHash The hash of the content of the ontology document.  See {@link #getContentHash(java.io.File)}.
+     * @return The ontology, or null if there is no fresh cache entry for the document.
+     * @throws IOException If the cache entry could not be read.
+     */
+    public OWLOntology load(OWLOntologyManager manager, File ontologyDocument, String contentHash) throws IOException, OWLOntologyCreationException {
+        File cacheFile = getCacheFile(ontologyDocument, contentHash);
+        if (!cacheFile.exists()) {
+            return null;
+        }
+        ObjectInputStream is = new ObjectInputStream(new BufferedInputStream(new FileInputStream(cacheFile), 1024 * 1024));
+        try {
+            int formatVersion = is.readInt();
+            if (formatVersion != FORMAT_VERSION) {
+                return null;
+            }
+            String ontologyIRI = is.readUTF();
+            String versionIRI = is.readUTF();
+            OWLOntologyID ontologyID;
+            if (ontologyIRI.isEmpty()) {
+                ontologyID = new OWLOntologyID();
+            }
+            else if (versionIRI.isEmpty()) {
+                ontologyID = new OWLOntologyID(IRI.create(ontologyIRI));
+            }
+            else {
+                ontologyID = new OWLOntologyID(IRI.create(ontologyIRI), IRI.create(versionIRI));
+            }
+            OWLOntology ontology = manager.createOntology(ontologyID);
+            List<OWLOntologyChange> changes = new ArrayList<OWLOntologyChange>();
+            int annotationCount = is.readInt();
+            for (int i = 0; i < annotationCount; i++) {
+                changes.add(new AddOntologyAnnotation(ontology, (OWLAnnotation) is.readObject()));
+            }
+            int axiomCount = is.readInt();
+            for (int i = 0; i < axiomCount; i++) {
+                changes.add(new AddAxiom(ontology, (OWLAxiom) is.readObject()));
+            }
+            manager.applyChanges(changes);
+            return ontology;
+        }
+        catch (ClassNotFoundException e) {
+            throw new IOException("Corrupt cache entry " + cacheFile + ": " + e.getMessage());
+        }
+        finally {
+            is.close();
+        }
+    }
+
+    /**
+     * Stores an ontology in the cache.  Any stale entries for the document are removed.
+     * @param ontology The ontology that was loaded from the document.
+     * @param ontologyDocument The document.
+     * @param contentHash The hash of the content of the ontology document.  See {@link #getContentHash(java.io.File)}.
+     * @return true if the ontology was stored, or false if it cannot be cached because it has imports.
+     * @throws IOException If the cache entry could not be written.
+     */
+    public boolean store(OWLOntology ontology, File ontologyDocument, String contentHash) throws IOException {
+        if (!ontology.getImportsDeclarations().isEmpty()) {
+            return false;
+        }
+        cacheDirectory.mkdirs();
+        File cacheFile = getCacheFile(ontologyDocument, contentHash);
+        File tempFile = File.createTempFile(cacheFile.getName(), ".tmp", cacheDirectory);
+        ObjectOutputStream os = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile), 1024 * 1024));
+        try {
+            os.writeInt(FORMAT_VERSION);
+            OWLOntologyID ontologyID = ontology.getOntologyID();
+            os.writeUTF(ontologyID.getOntologyIRI() != null ? ontologyID.getOntologyIRI().toString() : "");
+            os.writeUTF(ontologyID.getVersionIRI() != null ? ontologyID.getVersionIRI().toString() : "");
+            Set<OWLAnnotation> annotations = ontology.getAnnotations();
+            os.writeInt(annotations.size());
+            for (OWLAnnotation annotation : annotations) {
+                os.writeObject(annotation);
+            }
+            Set<OWLAxiom> axioms = ontology.getAxioms();
+            os.writeInt(axioms.size());
+            for (OWLAxiom axiom : axioms) {
+                os.writeObject(axiom);
+            }
+        }
+        finally {
+            os.close();
+        }
+        removeStaleEntries(ontologyDocument);
+        if (!tempFile.renameTo(cacheFile)) {
+            tempFile.delete();
+            return false;
+        }
+        return true;
+    }
+
+    private void removeStaleEntries(File ontologyDocument) throws IOException {
+        String prefix = getPathHash(ontologyDocument) + "-";
+        File[] files = cacheDirectory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (file.getName().startsWith(prefix) && file.getName().endsWith(CACHE_FILE_EXTENSION)) {
+                    file.delete();
+                }
+            }
+        }
+    }
+
+    private File getCacheFile(File ontologyDocument, String contentHash) throws IOException {
+        return new File(cacheDirectory, getPathHash(ontologyDocument) + "-" + contentHash + CACHE_FILE_EXTENSION);
+    }
+
+    private static String getPathHash(File ontologyDocument) throws IOException {
+        MessageDigest digest = createDigest();
+        digest.update(ontologyDocument.getCanonicalPath().getBytes("UTF-8"));
+        return toHexString(digest.digest()).substring(0, 16);
+    }
+
+    /**
+     * Computes a hash of the content of a file.
+     * @param file The file.
+     * @return The SHA-1 hash of the content of the file as a hex string.
+     * @throws IOException If the file could not be read.
+     */
+    public static String getContentHash(File file) throws IOException {
+        MessageDigest digest = createDigest();
+        InputStream is = new FileInputStream(file);
+        try {
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = is.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        finally {
+            is.close();
+        }
+        return toHexString(digest.digest());
+    }
+
+    static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    static String toHexString(byte[] bytes) {
+        StringBuilder sb = new StringBuilder();
+        for (byte b : bytes) {
+            sb.append(String.format("%02x", b & 0xff));
+        }
+        return sb.toString();
+    }
+}
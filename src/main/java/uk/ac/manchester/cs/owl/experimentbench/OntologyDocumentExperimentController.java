@@ -1,15 +1,14 @@
 package uk.ac.manchester.cs.owl.experimentbench;
 
-import org.apache.tools.ant.DefaultLogger;
-import org.apache.tools.ant.Project;
-import org.apache.tools.ant.taskdefs.Java;
-import org.apache.tools.ant.types.Commandline;
-import org.apache.tools.ant.types.Environment;
-import org.apache.tools.ant.types.Path;
-
 import java.io.*;
 import java.lang.reflect.Method;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Author: Matthew Horridge<br>
@@ -27,6 +26,10 @@ public class OntologyDocumentExperimentController {
 
     private static final String EXPERIMENT_PROPERTIES_FILE_NAME_COMMAND_LINE_SWITCH = "properties";
 
+    private static final String WORKERS_COMMAND_LINE_SWITCH = "workers";
+
+    private static final String CREATE_CDS_ARCHIVE_COMMAND_LINE_SWITCH = "createcdsarchive";
+
 
     private static final String ONTOLOGIES_DIRECTORY_NAME = "ontologies";
 
@@ -36,18 +39,50 @@ public class OntologyDocumentExperimentController {
 
     private static final String EXPERIMENT_PROPERTIES_FILE_NAME = "experiment.properties";
 
+    /**
+     * The name of the file, in the output directory of an experiment that is run in several forks, that holds the
+     * statistics of the mean iteration times of the forks.
+     */
+    public static final String FORK_STATISTICS_FILE_NAME = "forkstats.properties";
+
+    /**
+     * The time, in milliseconds, that a runner is given on top of the time outs of its experiments (and their grace
+     * periods) for starting up and loading the ontology, before it is killed.
+     */
+    private static final long RUNNER_KILL_MARGIN_IN_MS = 60000;
+
     private Class experimentClass;
 
     private File ontologiesDirectory;
 
     private File rootOutputDirectory;
 
-    private static final String MAX_MEMORY = "4000M";
-
     private long experimentTimeOut;
 
+    private int workers;
+
+    private int totalMemoryInMegaBytes;
+
+    private ExperimentProperties properties;
+
+    private boolean loadOntologyOnce;
+
+    private RunJournal journal;
+
+    private ExperimentFingerprinter fingerprinter;
+
+    private RunSummary summary;
+
+    private RunProgress progress;
+
     private Set<String> stopList = new HashSet<String>();
 
+    private Map<File, Integer> forkedExperimentOutputDirectories = new TreeMap<File, Integer>();
+
+    private List<MatrixConfiguration> configurations;
+
+    private ClassDataSharingArchive classDataSharingArchive;
+
     public OntologyDocumentExperimentController(Class experimentClass) {
         this(experimentClass, new File(EXPERIMENT_PROPERTIES_FILE_NAME), new File(ONTOLOGIES_DIRECTORY_NAME), new File(OUTPUT_DIRECTORY_NAME));
     }
@@ -64,14 +99,47 @@ public class OntologyDocumentExperimentController {
         System.out.println("Ontologies directory: " + ontologiesDirectory);
         System.out.println("Output directory: " + rootOutputDirectory);
         loadStopList();
-        ExperimentProperties properties = new ExperimentProperties(experiementPropertiesFile);
+        try {
+            properties = new ExperimentProperties(experiementPropertiesFile);
+        }
+        catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            System.exit(1);
+        }
         experimentTimeOut = properties.getOntologyDocumentExperimentTimeOut();
+        workers = properties.getWorkers();
+        totalMemoryInMegaBytes = properties.getTotalMemoryInMegaBytes();
+        loadOntologyOnce = properties.isLoadOntologyOnce();
+        configurations = MatrixConfiguration.expand(properties);
+        classDataSharingArchive = new ClassDataSharingArchive(properties.getClassDataSharingArchiveFile(), properties.getJvmOptions(), getForkMaxMemory());
         System.out.println("Experiment time out (ms): " + experimentTimeOut);
+        System.out.println("Cancellation grace period (ms): " + properties.getCancellationGracePeriod());
         System.out.println("--------------------------------------------------------------");
         System.out.println("STANDARD PROPERTIES");
         System.out.println("--------------------------------------------------------------");
         System.out.println("Ontology Document Experiment Time Out (ms): " + experimentTimeOut);
         System.out.println("Reasoner Entailment Check Time Out (ms): " + properties.getReasonerEntailmentCheckTimeOutInMilliSeconds());
+        System.out.println("Workers: " + workers);
+        System.out.println("Total memory (MB): " + totalMemoryInMegaBytes);
+        System.out.println("Load ontology once: " + loadOntologyOnce);
+        System.out.println("Min job memory (MB): " + properties.getMinJobMemoryInMegaBytes());
+        System.out.println("Out of memory retries: " + properties.getOutOfMemoryRetries());
+        System.out.println("Max job retries: " + properties.getMaxJobRetries());
+        System.out.println("Retry timed out jobs: " + properties.isRetryTimedOutJobs());
+        System.out.println("Execution mode: " + properties.getExecutionMode());
+        System.out.println("Warm-up iterations: " + properties.getWarmupIterations());
+        System.out.println("Measured iterations: " + properties.getMeasuredIterations());
+        System.out.println("Forks: " + properties.getForks());
+        System.out.println("Job ordering: " + properties.getJobOrdering());
+        System.out.println("Matrix configurations: " + configurations.size());
+        System.out.println("Status port: " + (properties.getStatusPort() == -1 ? "none" : Integer.toString(properties.getStatusPort())));
+        System.out.println("Console lines per second: " + (properties.getConsoleLinesPerSecond() == -1 ? "unlimited" : Integer.toString(properties.getConsoleLinesPerSecond())));
+        System.out.println("Prewarmed forks: " + properties.getPrewarmedForks());
+        System.out.println("JVM options: " + properties.getJvmOptions());
+        System.out.println("CDS archive: " + classDataSharingArchive.getArchiveFile() + (classDataSharingArchive.isUsable() ? "" : classDataSharingArchive.exists() ? " (dumped by another JVM or with another class path, not used)" : " (does not exist)"));
+        for (Map.Entry<String, List<String>> axis : MatrixConfiguration.getAxes(properties).entrySet()) {
+            System.out.println("\t[Axis] " + axis.getKey() + ": " + axis.getValue());
+        }
         System.out.println("--------------------------------------------------------------");
         System.out.println();
         System.out.println();
@@ -81,7 +149,7 @@ public class OntologyDocumentExperimentController {
         for (String propertyName : properties.getProperties()) {
             String propertyValue = properties.getProperty(propertyName, null);
             if (propertyValue != null) {
-                System.out.println(propertyName + ": " + properties.getProperty(propertyName, ""));
+                System.out.println(propertyName + ": " + properties.getProperty(propertyName, "") + " (" + properties.getSource(propertyName) + ")");
             }
         }
         System.out.println("--------------------------------------------------------------");
@@ -110,20 +178,505 @@ public class OntologyDocumentExperimentController {
     }
 
 
+    /**
+     * Sets the number of experiment runners that may be run at the same time.  This overrides the value specified
+     * in the experiment properties.
+     * @param workers The number of workers.  Values less than 1 are treated as 1.
+     */
+    public void setWorkers(int workers) {
+        this.workers = Math.max(1, workers);
+    }
+
+    /**
+     * Gets the maximum heap size that each forked runner is given.  The total memory is shared equally between the
+     * workers.
+     * @return The max memory in a form suitable for -Xmx
+     */
+    private String getForkMaxMemory() {
+        return Math.max(1, totalMemoryInMegaBytes / workers) + "M";
+    }
+
+    /**
+     * Gets the options that forked runner and worker JVMs are started with: the jvmoptions property, plus the options
+     * that use the class data sharing archive if it is usable.
+     */
+    private List<String> getRunnerJvmOptions() {
+        List<String> result = new ArrayList<String>(properties.getJvmOptions());
+        if (classDataSharingArchive.isUsable()) {
+            result.addAll(classDataSharingArchive.getJvmOptions());
+        }
+        return result;
+    }
+
+    private JobMemoryEstimator createJobMemoryEstimator() {
+        return new JobMemoryEstimator(properties.getMinJobMemoryInMegaBytes(),
+                totalMemoryInMegaBytes,
+                properties.getHeapBytesPerDocumentByte(),
+                properties.getJobMemorySafetyFactor(),
+                isForkPoolEnabled());
+    }
+
+    /**
+     * Determines whether jobs are run by a {@link ForkedExperimentLauncher} that keeps prewarmed JVMs, in which case
+     * job heaps are rounded up to heap classes so that jobs can share them.
+     */
+    private boolean isForkPoolEnabled() {
+        return !properties.isDistributedExecutionMode() && !properties.isInProcessExecutionMode() && !properties.isProfilingEnabled() && properties.getPrewarmedForks() > 0;
+    }
+
+    private ExperimentLauncher createLauncher(MemoryBudget memoryBudget) {
+        if (properties.isDistributedExecutionMode()) {
+            try {
+                return new DistributedExperimentLauncher(properties.getCoordinatorPort(), properties.getLeaseTimeOut(), properties);
+            }
+            catch (IOException e) {
+                System.out.println("Could not listen for remote workers on port " + properties.getCoordinatorPort() + ": " + e.getMessage());
+                System.exit(1);
+            }
+        }
+        if (properties.isInProcessExecutionMode()) {
+            if (properties.isProfilingEnabled()) {
+                System.out.println("WARNING: Jobs are only profiled in forked execution mode.  The profiler setting will be ignored.");
+            }
+            return new WarmWorkerExperimentLauncher(experimentTimeOut, getForkMaxMemory(), properties.getWorkerJobsBeforeRecycle(), properties.getWorkerRecycleHeapFraction(), getRunnerJvmOptions(), new LogPipeline(properties));
+        }
+        else {
+            return new ForkedExperimentLauncher(experimentTimeOut, getForkMaxMemory(), new JobProfiler(properties), new LogPipeline(properties), getRunnerJvmOptions(), properties.getPrewarmedForks(), memoryBudget);
+        }
+    }
+
     public void runExperiments() {
         if (!ontologiesDirectory.exists()) {
             System.out.println("ontologies directory does not exists");
             System.exit(1);
         }
+        try {
+            journal = new RunJournal(rootOutputDirectory);
+        }
+        catch (IOException e) {
+            System.out.println("Could not open the run journal: " + e.getMessage());
+            System.exit(1);
+        }
+        summary = new RunSummary(workers);
+        fingerprinter = new ExperimentFingerprinter(rootOutputDirectory);
+        List<OntologyDocumentExperimentJob> jobs = new ArrayList<OntologyDocumentExperimentJob>();
         File[] experimentPackagesDirectories = ontologiesDirectory.listFiles();
         if (experimentPackagesDirectories != null) {
             List<File> fileList = Arrays.asList(experimentPackagesDirectories);
             for (File experimentPackageDirectory : fileList) {
                 if (!experimentPackageDirectory.isHidden() && !stopList.contains(experimentPackageDirectory.getName())) {
-                    processOntologyDocumentDirectory(experimentPackageDirectory);
+                    processOntologyDocumentDirectory(experimentPackageDirectory, jobs);
                 }
             }
         }
+        fingerprinter.saveCache();
+        JobRuntimeEstimator runtimeEstimator = new JobRuntimeEstimator(rootOutputDirectory);
+        properties.getJobOrdering().sort(jobs, runtimeEstimator);
+        progress = new RunProgress(jobs, runtimeEstimator, workers);
+        try {
+            journal.recordJobs(jobs, JobStatus.QUEUED);
+            runJobs(jobs);
+            summariseForks();
+        }
+        catch (IOException e) {
+            System.out.println("Could not write to the run journal: " + e.getMessage());
+        }
+        finally {
+            journal.close();
+        }
+    }
+
+    private void runJobs(List<OntologyDocumentExperimentJob> jobs) {
+        summary.markRunStarted();
+        final MemoryBudget memoryBudget = new MemoryBudget(totalMemoryInMegaBytes);
+        final ExperimentLauncher launcher = createLauncher(memoryBudget);
+        final JobMemoryEstimator memoryEstimator = createJobMemoryEstimator();
+        if (launcher.isJobMaxMemorySupported()) {
+            System.out.println("Running " + jobs.size() + " jobs with " + workers + " workers (memory budget: " + totalMemoryInMegaBytes + "M)");
+        }
+        else {
+            System.out.println("Running " + jobs.size() + " jobs with " + workers + " workers (max memory per worker: " + getForkMaxMemory() + ")");
+        }
+        System.out.println(progress.getProgressMessage());
+        final RunStatus status = new RunStatus(jobs.size(), progress, memoryBudget, workers);
+        RunStatusPublisher statusPublisher = startStatusPublisher(status);
+        ExecutorService executorService = Executors.newFixedThreadPool(workers, new ThreadFactory() {
+            private AtomicInteger workerCount = new AtomicInteger();
+
+            public Thread newThread(Runnable runnable) {
+                return new Thread(runnable, "Worker " + workerCount.incrementAndGet());
+            }
+        });
+        try {
+            List<Future<?>> futures = new ArrayList<Future<?>>();
+            for (final OntologyDocumentExperimentJob job : jobs) {
+                futures.add(executorService.submit(new Runnable() {
+                    public void run() {
+                        job.markStarted();
+                        status.jobStarted(job, Thread.currentThread().getName());
+                        int returnCode = runJob(job, launcher, memoryBudget, memoryEstimator);
+                        job.markFinished(returnCode);
+                        status.jobFinished(job);
+                        summary.addJob(job);
+                        progress.jobFinished(job);
+                        System.out.println(progress.getProgressMessage());
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                }
+                catch (ExecutionException e) {
+                    e.getCause().printStackTrace();
+                }
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        finally {
+            executorService.shutdownNow();
+            launcher.dispose();
+            statusPublisher.dispose();
+        }
+        summary.markRunFinished();
+        if (classDataSharingArchive.isUsable() && !properties.isDistributedExecutionMode()) {
+            summary.setClassDataSharingStartupSaving(classDataSharingArchive.getStartupSaving(), launcher.isJobMaxMemorySupported());
+        }
+        summary.dump(System.out);
+    }
+
+    /**
+     * Starts publishing the status of the run to the status file and, if a status port is set, over HTTP.
+     */
+    private RunStatusPublisher startStatusPublisher(RunStatus status) {
+        RunStatusPublisher statusPublisher = new RunStatusPublisher(status, rootOutputDirectory);
+        statusPublisher.startStatusFile(properties.getStatusFileInterval());
+        if (properties.getStatusPort() != -1) {
+            try {
+                statusPublisher.startServer(properties.getStatusPort());
+            }
+            catch (IOException e) {
+                System.out.println("Could not serve the run status on port " + properties.getStatusPort() + ": " + e.getMessage());
+            }
+        }
+        return statusPublisher;
+    }
+
+    /**
+     * Runs a job, recording its progress in the journal, and retrying it according to the retry policy.
+     * @return The return code of the last attempt at running the job.
+     */
+    private int runJob(OntologyDocumentExperimentJob job, ExperimentLauncher launcher, MemoryBudget memoryBudget, JobMemoryEstimator memoryEstimator) {
+        job.setTimeOut(getJobTimeOut(job));
+        while (true) {
+            discardJobOutput(job);
+            JobStatus status;
+            int returnCode;
+            try {
+                journal.record(job, JobStatus.RUNNING);
+                returnCode = launchWithinMemoryBudget(job, launcher, memoryBudget, memoryEstimator);
+                status = getJobStatus(returnCode);
+                journal.record(job, status);
+            }
+            catch (IOException e) {
+                System.out.println("Could not write to the run journal: " + e.getMessage());
+                return -1;
+            }
+            if (!isRetryAllowed(status, journal.getAttempts(job))) {
+                return returnCode;
+            }
+            System.out.println(job.getName() + " " + status + ".  Retrying.");
+        }
+    }
+
+    /**
+     * Writes the statistics of the mean iteration times of the forks of each forked experiment to the experiment's
+     * output directory, and warns about experiments whose forks vary a lot.  Variance between forks that is much
+     * larger than the variance between the iterations of a fork points at JIT, class loading or layout effects
+     * that differ from one JVM to the next.
+     */
+    private void summariseForks() {
+        for (Map.Entry<File, Integer> entry : forkedExperimentOutputDirectories.entrySet()) {
+            File experimentOutputDirectory = entry.getKey();
+            List<Long> forkMeanTimes = new ArrayList<Long>();
+            for (int fork = 1; fork <= entry.getValue(); fork++) {
+                JobStatistics statistics = JobStatistics.read(new File(experimentOutputDirectory, OntologyDocumentExperimentJob.getForkDirectoryName(fork)));
+                if (statistics != null && statistics.getValue(JobStatistics.TRIAL_MEAN_TIME) != -1) {
+                    forkMeanTimes.add(statistics.getValue(JobStatistics.TRIAL_MEAN_TIME));
+                }
+            }
+            if (forkMeanTimes.size() < 2) {
+                continue;
+            }
+            TrialStatistics statistics = new TrialStatistics(forkMeanTimes, properties.getHighVarianceThreshold());
+            try {
+                statistics.write(new File(experimentOutputDirectory, FORK_STATISTICS_FILE_NAME));
+            }
+            catch (IOException e) {
+                System.out.println("Could not write fork statistics: " + e.getMessage());
+            }
+            if (statistics.isHighVariance()) {
+                System.out.println("WARNING: The forks of " + experimentOutputDirectory + " vary by more than " + properties.getHighVarianceThreshold() + " of their mean: " + statistics);
+            }
+        }
+    }
+
+    /**
+     * Gets the time after which the runner of a job is killed.  Each experiment is interrupted by its runner when it
+     * reaches its own time out, so this is only a backstop for runners that do not respond.
+     * @return The sum of the time outs and grace periods of the experiments of the job (in their configurations), each
+     * multiplied by the number of warm-up and measured iterations of the experiment, since each has the full time out,
+     * plus the classification time out and grace period of each experiment that asks for a shared reasoner, plus a
+     * margin for loading the ontology, or Long.MAX_VALUE if any of these does not have a time out.
+     */
+    private long getJobTimeOut(OntologyDocumentExperimentJob job) {
+        long jobTimeOut = RUNNER_KILL_MARGIN_IN_MS;
+        for (int i = 0; i < job.getExperimentMethods().size(); i++) {
+            ExperimentProperties experimentProperties = job.getConfigurations().get(i).apply(properties);
+            long timeOut = OntologyDocumentExperimentJob.getExperimentTimeOut(job.getExperimentMethods().get(i), experimentProperties);
+            if (timeOut == Long.MAX_VALUE) {
+                return Long.MAX_VALUE;
+            }
+            Method experimentMethod = job.getExperimentMethods().get(i);
+            int invocations = OntologyDocumentExperimentJob.getWarmupIterations(experimentMethod, experimentProperties) + OntologyDocumentExperimentJob.getMeasuredIterations(experimentMethod, experimentProperties);
+            jobTimeOut += invocations * (timeOut + experimentProperties.getCancellationGracePeriod());
+            if (OntologyDocumentExperimentJob.isSharedReasonerRequested(experimentMethod)) {
+                long classificationTimeOut = experimentProperties.getClassificationTimeOut();
+                if (classificationTimeOut == Long.MAX_VALUE) {
+                    return Long.MAX_VALUE;
+                }
+                jobTimeOut += classificationTimeOut + experimentProperties.getCancellationGracePeriod();
+            }
+            if (jobTimeOut < 0) {
+                return Long.MAX_VALUE;
+            }
+        }
+        return jobTimeOut;
+    }
+
+    private static JobStatus getJobStatus(int returnCode) {
+        if (returnCode == 0) {
+            return JobStatus.SUCCEEDED;
+        }
+        else if (returnCode == ExperimentLauncher.TIMED_OUT_RETURN_CODE || returnCode == OntologyDocumentExperimentRunner.TIMED_OUT_EXIT_CODE) {
+            return JobStatus.TIMED_OUT;
+        }
+        else {
+            return JobStatus.FAILED;
+        }
+    }
+
+    /**
+     * Determines whether an experiment may be run again.
+     * @param status The last status of the experiment.
+     * @param attempts The number of times that the experiment has been started.
+     * @return true if the experiment may be run again, otherwise false.
+     */
+    private boolean isRetryAllowed(JobStatus status, int attempts) {
+        if (status == JobStatus.FAILED || (status == JobStatus.TIMED_OUT && properties.isRetryTimedOutJobs())) {
+            return attempts <= properties.getMaxJobRetries();
+        }
+        return false;
+    }
+
+    /**
+     * Gets the fingerprint of an experiment.
+     * @return The fingerprint, or null if it could not be computed.
+     */
+    private String getFingerprint(Method method, MatrixConfiguration configuration, File ontologyDocumentDirectory) {
+        try {
+            return fingerprinter.getFingerprint(experimentClass, method, configuration, ontologyDocumentDirectory);
+        }
+        catch (IOException e) {
+            System.out.println("Could not compute the fingerprint of " + ontologyDocumentDirectory + ": " + e.getMessage());
+            return null;
+        }
+        catch (IllegalArgumentException e) {
+            // Malformed properties, which the runner will report
+            return null;
+        }
+    }
+
+    /**
+     * Determines whether an experiment needs to be run, based on the journal.  Experiments that were queued, or that
+     * were running when an earlier run stopped, are always run.  Experiments that failed or timed out are run
+     * according to the retry policy.  Experiments whose fingerprint has changed since they were last recorded are
+     * run again, whatever their status.  Output directories from before there was a journal are adopted if they
+     * contain complete telemetry, as are experiments that were recorded before there were fingerprints.
+     * @param fingerprint The current fingerprint of the experiment, or null if it could not be computed.
+     */
+    private boolean isExperimentPending(String experimentId, File experimentOutputDirectory, String fingerprint) {
+        JobStatus status = journal.getStatus(experimentId);
+        String recordedFingerprint = journal.getFingerprint(experimentId);
+        if (fingerprint != null) {
+            journal.setCurrentFingerprint(experimentId, fingerprint);
+        }
+        if (status != null && fingerprint != null && recordedFingerprint != null && !recordedFingerprint.equals(fingerprint)) {
+            System.out.println("Rerunning " + experimentId + " (its ontology documents, properties, experiment or class path have changed)");
+            return true;
+        }
+        if (status == JobStatus.SUCCEEDED && fingerprint != null && recordedFingerprint == null) {
+            try {
+                journal.record(experimentId, JobStatus.SUCCEEDED);
+            }
+            catch (IOException e) {
+                System.out.println("Could not write to the run journal: " + e.getMessage());
+            }
+        }
+        if (status == null) {
+            if (isTelemetryComplete(new File(experimentOutputDirectory, OntologyDocumentExperimentRunner.TELEMETRY_FILE_NAME))) {
+                try {
+                    journal.record(experimentId, JobStatus.SUCCEEDED);
+                }
+                catch (IOException e) {
+                    System.out.println("Could not write to the run journal: " + e.getMessage());
+                }
+                status = JobStatus.SUCCEEDED;
+            }
+            else {
+                return true;
+            }
+        }
+        if (status == JobStatus.SUCCEEDED) {
+            summary.addCompletedExperiment();
+            return false;
+        }
+        if (!status.isFinished()) {
+            return true;
+        }
+        if (isRetryAllowed(status, journal.getAttempts(experimentId))) {
+            return true;
+        }
+        System.out.println("Not rerunning " + experimentId + " (" + status + " after " + journal.getAttempts(experimentId) + " attempts)");
+        return false;
+    }
+
+    private static boolean isTelemetryComplete(File telemetryFile) {
+        if (!telemetryFile.exists()) {
+            return false;
+        }
+        try {
+            RandomAccessFile raf = new RandomAccessFile(telemetryFile, "r");
+            try {
+                byte[] tail = new byte[(int) Math.min(64, raf.length())];
+                raf.seek(raf.length() - tail.length);
+                raf.readFully(tail);
+                return new String(tail, "UTF-8").trim().endsWith("</experiments>");
+            }
+            finally {
+                raf.close();
+            }
+        }
+        catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Launches a job once its heap can be reserved from the memory budget.  If the launcher can size the heap of each
+     * job then the heap is estimated from earlier runs or the size of the ontology document, and a job that runs out
+     * of memory is retried with a larger heap.
+     * @return The return code of the (last) launch of the job.
+     */
+    private int launchWithinMemoryBudget(OntologyDocumentExperimentJob job, ExperimentLauncher launcher, MemoryBudget memoryBudget, JobMemoryEstimator memoryEstimator) {
+        int maxMemory;
+        if (launcher.isJobMaxMemorySupported()) {
+            maxMemory = memoryEstimator.estimate(job);
+        }
+        else {
+            maxMemory = Math.max(1, totalMemoryInMegaBytes / workers);
+        }
+        int retries = 0;
+        while (true) {
+            job.setMaxMemoryInMegaBytes(maxMemory);
+            try {
+                memoryBudget.acquire(maxMemory);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return -1;
+            }
+            int returnCode;
+            try {
+                returnCode = launcher.launch(job);
+            }
+            finally {
+                memoryBudget.release(maxMemory);
+            }
+            if (returnCode != OntologyDocumentExperimentRunner.OUT_OF_MEMORY_EXIT_CODE || !launcher.isJobMaxMemorySupported()) {
+                return returnCode;
+            }
+            int retryMaxMemory = memoryEstimator.getRetryMegaBytes(maxMemory);
+            if (retries >= properties.getOutOfMemoryRetries() || retryMaxMemory == -1) {
+                System.out.println(job.getName() + " ran out of memory with a max heap of " + maxMemory + "M");
+                return returnCode;
+            }
+            System.out.println(job.getName() + " ran out of memory with a max heap of " + maxMemory + "M.  Retrying with " + retryMaxMemory + "M");
+            discardJobOutput(job);
+            maxMemory = retryMaxMemory;
+            retries++;
+        }
+    }
+
+    /**
+     * Deletes the telemetry, and rotates the logs, that an earlier, unsuccessful, attempt at running a job may have
+     * left behind.
+     */
+    private void discardJobOutput(OntologyDocumentExperimentJob job) {
+        for (File experimentOutputDirectory : job.getExperimentOutputDirectories()) {
+            new File(experimentOutputDirectory, OntologyDocumentExperimentRunner.TELEMETRY_FILE_NAME).delete();
+            new File(experimentOutputDirectory, OntologyDocumentExperimentRunner.BINARY_TELEMETRY_FILE_NAME).delete();
+        }
+        LogPipeline.rotate(new File(job.getLogDirectory(), LogPipeline.OUT_FILE_NAME), properties.getLogRotations());
+        LogPipeline.rotate(new File(job.getLogDirectory(), LogPipeline.ERR_FILE_NAME), properties.getLogRotations());
+    }
+
+    /**
+     * Creates the class data sharing archive that forked runners are started with.  The classes are recorded from a
+     * representative job, which runs all of the experiment methods on the first ontology document directory, and
+     * which writes its output to a scratch directory.
+     * @return true if the archive was created.
+     */
+    public boolean createClassDataSharingArchive() {
+        File[] ontologyDocumentDirectories = ontologiesDirectory.listFiles();
+        if (ontologyDocumentDirectories == null) {
+            System.out.println("ontologies directory does not exists");
+            return false;
+        }
+        Arrays.sort(ontologyDocumentDirectories);
+        File ontologyDocumentDirectory = null;
+        for (File directory : ontologyDocumentDirectories) {
+            if (directory.isDirectory() && !directory.isHidden() && !stopList.contains(directory.getName())) {
+                ontologyDocumentDirectory = directory;
+                break;
+            }
+        }
+        List<Method> methods = new ArrayList<Method>();
+        for (Method method : experimentClass.getMethods()) {
+            if (method.getAnnotation(Experiment.class) != null && method.getParameterTypes().length == 0) {
+                methods.add(method);
+            }
+        }
+        if (ontologyDocumentDirectory == null || methods.isEmpty()) {
+            System.out.println("There is no ontology document directory or experiment method to create the CDS archive from");
+            return false;
+        }
+        try {
+            File scratchDirectory = File.createTempFile("cds", "");
+            scratchDirectory.delete();
+            OntologyDocumentExperimentJob job = new OntologyDocumentExperimentJob(experimentClass, methods, Collections.nCopies(methods.size(), configurations.get(0)), ontologyDocumentDirectory, scratchDirectory, 0);
+            return classDataSharingArchive.create(job, properties);
+        }
+        catch (IOException e) {
+            System.out.println("Could not create the CDS archive: " + e.getMessage());
+            return false;
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
     }
 
     public static void main(String[] args) throws ClassNotFoundException {
@@ -149,144 +702,87 @@ public class OntologyDocumentExperimentController {
 
         String outputDirectoryName = commandLineArgs.getFirstArgument(OUTPUT_DIRECTORY_NAME_COMMAND_LINE_SWITCH, OUTPUT_DIRECTORY_NAME);
 
+        String workers = commandLineArgs.getFirstArgument(WORKERS_COMMAND_LINE_SWITCH, null);
+
 
         Class experimentClass = Class.forName(experimentClassName);
         OntologyDocumentExperimentController controller = new OntologyDocumentExperimentController(experimentClass, new File(propertiesFileName), new File(ontologiesDirectoryName), new File(outputDirectoryName));
+        if (workers != null) {
+            controller.setWorkers(Integer.parseInt(workers));
+        }
+        if (commandLineArgs.isSwitchPresent(CREATE_CDS_ARCHIVE_COMMAND_LINE_SWITCH)) {
+            System.exit(controller.createClassDataSharingArchive() ? 0 : 1);
+        }
         controller.runExperiments();
     }
 
     private static void printUsage() {
         System.out.println("\t-" + EXPERIMENT_CLASS_NAME_COMMAND_LINE_SWITCH + " (required) The name of the experiment class.");
-        System.out.println("\t-" + ONTOLOGIES_DIRECTORY_NAME_COMMAND_LINE_SWITCH + " (optional default=ontologies) A directory containing directories that contain ontologies. Each ontology directory must contain a single ontology file with an extension .owl.xml");
+        System.out.println("\t-" + ONTOLOGIES_DIRECTORY_NAME_COMMAND_LINE_SWITCH + " (optional default=ontologies) A directory containing directories that contain ontologies. Each ontology directory must contain a single ontology file with an extension .owl.xml, .owl.xml.gz or .owl.xml.bz2");
         System.out.println("\t-" + OUTPUT_DIRECTORY_NAME_COMMAND_LINE_SWITCH + " (optional default=" + OUTPUT_DIRECTORY_NAME + ") The directory where telemetry info will be output to.");
+        System.out.println("\t-" + WORKERS_COMMAND_LINE_SWITCH + " (optional default=" + ExperimentProperties.DEFAULT_WORKERS + ") The number of experiments to run at the same time. The " + ExperimentProperties.TOTAL_MEMORY_IN_MB_PROPERTY_NAME + " property is shared out between the workers.");
+        System.out.println("\t-" + CREATE_CDS_ARCHIVE_COMMAND_LINE_SWITCH + " (optional) Instead of running the experiments, create the class data sharing archive (the " + ExperimentProperties.CDS_ARCHIVE_PROPERTY_NAME + " property) that forked runners are started with.");
     }
 
-    private void processOntologyDocumentDirectory(File ontologyDocumentDirectory) {
+    /**
+     * Creates the jobs for the experiments on an ontology document that still need to be run.  The configurations of
+     * an experiment method (and fork) are run back to back by one job, so that the ontology is only loaded once for
+     * them.  If the ontology is loaded once per job then all of the experiment methods, in all of their
+     * configurations, share a job per fork, unless they are isolated.
+     */
+    private void processOntologyDocumentDirectory(File ontologyDocumentDirectory, List<OntologyDocumentExperimentJob> jobs) {
+        File ontologyDocumentOutputDirectory = new File(rootOutputDirectory, ontologyDocumentDirectory.getName());
+        // Methods and configurations that share an ontology, by fork (0 for methods that are not forked)
+        Map<Integer, List<Method>> sharedOntologyMethods = new TreeMap<Integer, List<Method>>();
+        Map<Integer, List<MatrixConfiguration>> sharedOntologyConfigurations = new TreeMap<Integer, List<MatrixConfiguration>>();
         for (Method method : experimentClass.getMethods()) {
-            if (method.getAnnotation(Experiment.class) != null) {
-                if (method.getParameterTypes().length == 0) {
-                    launch(ontologyDocumentDirectory, method);
+            Experiment experimentAnnotation = method.getAnnotation(Experiment.class);
+            if (experimentAnnotation != null && method.getParameterTypes().length == 0) {
+                int forks = experimentAnnotation.forks() >= 1 ? experimentAnnotation.forks() : properties.getForks();
+                if (forks > 1) {
+                    for (MatrixConfiguration configuration : configurations) {
+                        forkedExperimentOutputDirectories.put(OntologyDocumentExperimentJob.getExperimentOutputDirectory(ontologyDocumentOutputDirectory, method, configuration, 0), forks);
+                    }
+                }
+                int firstFork = forks > 1 ? 1 : 0;
+                int lastFork = forks > 1 ? forks : 0;
+                for (int fork = firstFork; fork <= lastFork; fork++) {
+                    List<MatrixConfiguration> pendingConfigurations = new ArrayList<MatrixConfiguration>();
+                    for (MatrixConfiguration configuration : configurations) {
+                        File experimentOutputDirectory = OntologyDocumentExperimentJob.getExperimentOutputDirectory(ontologyDocumentOutputDirectory, method, configuration, fork);
+                        String experimentId = OntologyDocumentExperimentJob.getExperimentId(ontologyDocumentDirectory, method, configuration, fork);
+                        if (isExperimentPending(experimentId, experimentOutputDirectory, getFingerprint(method, configuration, ontologyDocumentDirectory))) {
+                            pendingConfigurations.add(configuration);
+                        }
+                    }
+                    if (pendingConfigurations.isEmpty()) {
+                        continue;
+                    }
+                    if (experimentAnnotation.isolated()) {
+                        for (MatrixConfiguration configuration : pendingConfigurations) {
+                            jobs.add(new OntologyDocumentExperimentJob(experimentClass, Collections.singletonList(method), Collections.singletonList(configuration), ontologyDocumentDirectory, ontologyDocumentOutputDirectory, fork));
+                        }
+                    }
+                    else if (loadOntologyOnce) {
+                        List<Method> methods = sharedOntologyMethods.get(fork);
+                        if (methods == null) {
+                            methods = new ArrayList<Method>();
+                            sharedOntologyMethods.put(fork, methods);
+                            sharedOntologyConfigurations.put(fork, new ArrayList<MatrixConfiguration>());
+                        }
+                        methods.addAll(Collections.nCopies(pendingConfigurations.size(), method));
+                        sharedOntologyConfigurations.get(fork).addAll(pendingConfigurations);
+                    }
+                    else {
+                        jobs.add(new OntologyDocumentExperimentJob(experimentClass, Collections.nCopies(pendingConfigurations.size(), method), pendingConfigurations, ontologyDocumentDirectory, ontologyDocumentOutputDirectory, fork));
+                    }
                 }
             }
 
         }
-    }
-
-
-    private void launch(File ontologyDocumentDirectory, Method experimentMethod) {
-        Project project = new Project();
-        File workingDirectory = new File(System.getProperty("user.dir"));
-        project.setBaseDir(workingDirectory);
-        project.init();
-
-        DefaultLogger logger = new DefaultLogger();
-        project.addBuildListener(logger);
-        logger.setOutputPrintStream(System.out);
-        logger.setErrorPrintStream(System.err);
-        logger.setMessageOutputLevel(Project.MSG_INFO);
-
-
-
-
-        project.log("Running " + experimentClass.getSimpleName() + " on " + ontologyDocumentDirectory);
-        project.fireBuildStarted();
-
-        Throwable caught = null;
-        try {
-            Java javaTask = new Java();
-            javaTask.setTaskName(experimentClass.getSimpleName() + " - " + ontologyDocumentDirectory.getName());
-            javaTask.setProject(project);
-            javaTask.setFork(true);
-            javaTask.setFailonerror(true);
-            if (experimentTimeOut != Long.MAX_VALUE) {
-                javaTask.setTimeout(experimentTimeOut);
-            }
-            javaTask.setMaxmemory(MAX_MEMORY);
-            javaTask.setClassname(OntologyDocumentExperimentRunner.class.getName());
-
-            String classPath = System.getProperty("java.class.path");
-            Path path = new Path(project, classPath);
-            javaTask.setClasspath(path);
-
-
-            Environment.Variable var = new Environment.Variable();
-            var.setKey("java.library.path");
-            String libraryPath = System.getProperty("java.library.path");
-            var.setValue(libraryPath);
-
-            javaTask.addSysproperty(var);
-
-            // Arguments
-            // (1) Experiment class
-            // (2) Experiment method
-            // (3) Ontology document directory
-            // (4) Experiment output directory
-            Commandline.Argument experimentClassArgument = javaTask.createArg();
-            experimentClassArgument.setValue(experimentClass.getName());
-
-            Commandline.Argument experimentMethodArgument = javaTask.createArg();
-            experimentMethodArgument.setValue(experimentMethod.getName());
-
-            Commandline.Argument ontologyDocumentDirectoryArgument = javaTask.createArg();
-            ontologyDocumentDirectoryArgument.setFile(ontologyDocumentDirectory);
-
-
-            File ontologyDocumentOutputDirectory = new File(rootOutputDirectory, ontologyDocumentDirectory.getName());
-            String experimentDirectoryName = getExperimentDirectoryName(experimentMethod);
-            File experimentOutputDirectory = new File(ontologyDocumentOutputDirectory, experimentDirectoryName);
-            experimentOutputDirectory.mkdirs();
-
-            Commandline.Argument outputDirectoryArgument = javaTask.createArg();
-            outputDirectoryArgument.setFile(experimentOutputDirectory);
-
-
-            // Log
-            File outFile = new File(experimentOutputDirectory, "out.txt");
-            PrintStream outPrintStream = null;
-            PrintStream errorPrintStream = null;
-            if (!outFile.exists()) {
-                DefaultLogger persistentLogger = new DefaultLogger();
-                project.addBuildListener(persistentLogger);
-                outPrintStream = new PrintStream(outFile);
-                persistentLogger.setOutputPrintStream(outPrintStream);
-                File errFile = new File(experimentOutputDirectory, "err.txt");
-                errorPrintStream = new PrintStream(errFile);
-                persistentLogger.setErrorPrintStream(errorPrintStream);
-                persistentLogger.setMessageOutputLevel(Project.MSG_INFO);
-            }
-
-
-            javaTask.init();
-            int returnCode = javaTask.executeJava();
-
-            if (outPrintStream != null) {
-                outPrintStream.close();
-            }
-            if (errorPrintStream != null) {
-                errorPrintStream.close();
-            }
-
-
-        }
-        catch (Throwable t) {
-            caught = t;
-        }
-        project.log("Finished running experiment");
-        project.fireBuildFinished(caught);
-    }
-
-    private String getExperimentDirectoryName(Method experimentMethod) {
-        String experimentDirectoryName = null;
-        Experiment experimentAnnotation = experimentMethod.getAnnotation(Experiment.class);
-        if (experimentAnnotation != null) {
-            if (!experimentAnnotation.name().isEmpty()) {
-                experimentDirectoryName = experimentAnnotation.name();
-            }
-        }
-        if (experimentDirectoryName == null) {
-            experimentDirectoryName = experimentMethod.getName();
+        for (Map.Entry<Integer, List<Method>> entry : sharedOntologyMethods.entrySet()) {
+            jobs.add(new OntologyDocumentExperimentJob(experimentClass, entry.getValue(), sharedOntologyConfigurations.get(entry.getKey()), ontologyDocumentDirectory, ontologyDocumentOutputDirectory, entry.getKey()));
         }
-        return experimentDirectoryName;
     }
 
 }
@@ -0,0 +1,439 @@
+package uk.ac.manchester.cs.owl.experimentbench;
+
+import java.io.File;
+import java.lang.reflect.Method;
+import java.util.*;
+
+/**
+ * A unit of work for the controller.  A job is the application of one or more experiment methods to the ontology
+ * document in one ontology document directory.  The ontology is loaded once per job and shared between the
+ * experiment methods of the job.  Each experiment method writes its telemetry to its own output directory.
+ * <p>
+ *     If the run has a matrix of experiment parameters (see {@link MatrixConfiguration}) then a job may run the same
+ *     experiment method once for each of several configurations.  Each configuration of an experiment method has its
+ *     own output directory and id.
+ * </p>
+ */
+public class OntologyDocumentExperimentJob {
+
+    public static final String METHOD_NAME_SEPARATOR = ",";
+
+    public static final String FORK_DIRECTORY_NAME_PREFIX = "fork-";
+
+    private Class<?> experimentClass;
+
+    private List<Method> experimentMethods;
+
+    private List<MatrixConfiguration> configurations;
+
+    private File ontologyDocumentDirectory;
+
+    private File ontologyDocumentOutputDirectory;
+
+    private volatile long startTime;
+
+    private long endTime;
+
+    private int returnCode;
+
+    private long maxMemoryInMegaBytes = -1;
+
+    private int fork;
+
+    private long timeOut = -1;
+
+    public OntologyDocumentExperimentJob(Class<?> experimentClass, Method experimentMethod, File ontologyDocumentDirectory, File ontologyDocumentOutputDirectory) {
+        this(experimentClass, Collections.singletonList(experimentMethod), ontologyDocumentDirectory, ontologyDocumentOutputDirectory);
+    }
+
+    public OntologyDocumentExperimentJob(Class<?> experimentClass, List<Method> experimentMethods, File ontologyDocumentDirectory, File ontologyDocumentOutputDirectory) {
+        this(experimentClass, experimentMethods, ontologyDocumentDirectory, ontologyDocumentOutputDirectory, 0);
+    }
+
+    /**
+     * @param fork The fork of the experiment methods that this job runs, starting at 1, or 0 if the experiment
+     * methods are not forked.  Each fork of an experiment method has its own output directory and id.
+     */
+    public OntologyDocumentExperimentJob(Class<?> experimentClass, List<Method> experimentMethods, File ontologyDocumentDirectory, File ontologyDocumentOutputDirectory, int fork) {
+        this(experimentClass, experimentMethods, Collections.nCopies(experimentMethods.size(), MatrixConfiguration.EMPTY), ontologyDocumentDirectory, ontologyDocumentOutputDirectory, fork);
+    }
+
+    /**
+     * @param experimentMethods The experiment methods.  A method may appear more than once, with different
+     * configurations.
+     * @param configurations The configurations that the experiment methods are run with, in the same order as the
+     * experiment methods.
+     * @param fork The fork of the experiment methods that this job runs, starting at 1, or 0 if the experiment
+     * methods are not forked.
+     */
+    public OntologyDocumentExperimentJob(Class<?> experimentClass, List<Method> experimentMethods, List<MatrixConfiguration> configurations, File ontologyDocumentDirectory, File ontologyDocumentOutputDirectory, int fork) {
+        if (experimentMethods.isEmpty()) {
+            throw new IllegalArgumentException("A job must have at least one experiment method");
+        }
+        if (experimentMethods.size() != configurations.size()) {
+            throw new IllegalArgumentException("Expected one configuration per experiment method");
+        }
+        this.experimentClass = experimentClass;
+        this.experimentMethods = new ArrayList<Method>(experimentMethods);
+        this.configurations = new ArrayList<MatrixConfiguration>(configurations);
+        this.ontologyDocumentDirectory = ontologyDocumentDirectory;
+        this.ontologyDocumentOutputDirectory = ontologyDocumentOutputDirectory;
+        this.fork = fork;
+    }
+
+    public Class<?> getExperimentClass() {
+        return experimentClass;
+    }
+
+    public List<Method> getExperimentMethods() {
+        return Collections.unmodifiableList(experimentMethods);
+    }
+
+    /**
+     * Gets the configurations that the experiment methods of this job are run with.
+     * @return The configurations, in the same order as the experiment methods.
+     */
+    public List<MatrixConfiguration> getConfigurations() {
+        return Collections.unmodifiableList(configurations);
+    }
+
+    public File getOntologyDocumentDirectory() {
+        return ontologyDocumentDirectory;
+    }
+
+    public File getOntologyDocumentOutputDirectory() {
+        return ontologyDocumentOutputDirectory;
+    }
+
+    /**
+     * Gets the time after which the runner of this job is killed.
+     * @return The time out in milliseconds, or -1 if the launcher's default time out should be used.
+     */
+    public long getTimeOut() {
+        return timeOut;
+    }
+
+    public void setTimeOut(long timeOut) {
+        this.timeOut = timeOut;
+    }
+
+    /**
+     * Determines whether an experiment method asks for a shared reasoner (see {@link Experiment#sharedReasoner()}).
+     * @param experimentMethod The experiment method.
+     * @return true if the runner creates, or reuses, a shared reasoner before it runs the method.
+     */
+    public static boolean isSharedReasonerRequested(Method experimentMethod) {
+        Experiment experimentAnnotation = experimentMethod.getAnnotation(Experiment.class);
+        return experimentAnnotation != null && experimentAnnotation.sharedReasoner();
+    }
+
+    /**
+     * Gets the number of warm-up iterations of an experiment method.
+     * @param experimentMethod The experiment method.
+     * @param properties The experiment properties.
+     * @return The {@link Experiment#warmups()} of the method if it is set, otherwise the warmupiterations property.
+     */
+    public static int getWarmupIterations(Method experimentMethod, ExperimentProperties properties) {
+        Experiment experimentAnnotation = experimentMethod.getAnnotation(Experiment.class);
+        if (experimentAnnotation != null && experimentAnnotation.warmups() >= 0) {
+            return experimentAnnotation.warmups();
+        }
+        return properties.getWarmupIterations();
+    }
+
+    /**
+     * Gets the number of measured iterations of an experiment method.
+     * @param experimentMethod The experiment method.
+     * @param properties The experiment properties.
+     * @return The {@link Experiment#iterations()} of the method if it is set, otherwise the measurediterations
+     * property.
+     */
+    public static int getMeasuredIterations(Method experimentMethod, ExperimentProperties properties) {
+        Experiment experimentAnnotation = experimentMethod.getAnnotation(Experiment.class);
+        if (experimentAnnotation != null && experimentAnnotation.iterations() >= 1) {
+            return experimentAnnotation.iterations();
+        }
+        return properties.getMeasuredIterations();
+    }
+
+    /**
+     * Gets the time out of an experiment method.
+     * @param experimentMethod The experiment method.
+     * @param properties The experiment properties.
+     * @return The {@link Experiment#kill()} time of the method if it is set, otherwise the experimenttimeoutms
+     * property.  In milliseconds, Long.MAX_VALUE for no time out.
+     */
+    public static long getExperimentTimeOut(Method experimentMethod, ExperimentProperties properties) {
+        Experiment experimentAnnotation = experimentMethod.getAnnotation(Experiment.class);
+        if (experimentAnnotation != null && experimentAnnotation.kill() != Long.MAX_VALUE) {
+            return experimentAnnotation.kill();
+        }
+        return properties.getOntologyDocumentExperimentTimeOut();
+    }
+
+    /**
+     * Gets the fork of the experiment methods that this job runs.
+     * @return The fork, starting at 1, or 0 if the experiment methods are not forked.
+     */
+    public int getFork() {
+        return fork;
+    }
+
+    /**
+     * Gets the output directory for an experiment method of this job.
+     * @param index The index of the experiment method in the experiment methods of this job.
+     * @return The directory, which is a sub-directory of the ontology document output directory named after the
+     * experiment, followed by the directories of the configuration of the method, and, if this job runs a fork, a
+     * fork-n sub-directory.
+     */
+    public File getExperimentOutputDirectory(int index) {
+        return getExperimentOutputDirectory(ontologyDocumentOutputDirectory, experimentMethods.get(index), configurations.get(index), fork);
+    }
+
+    public static File getExperimentOutputDirectory(File ontologyDocumentOutputDirectory, Method experimentMethod, int fork) {
+        return getExperimentOutputDirectory(ontologyDocumentOutputDirectory, experimentMethod, MatrixConfiguration.EMPTY, fork);
+    }
+
+    public static File getExperimentOutputDirectory(File ontologyDocumentOutputDirectory, Method experimentMethod, MatrixConfiguration configuration, int fork) {
+        File experimentOutputDirectory = new File(ontologyDocumentOutputDirectory, getExperimentDirectoryName(experimentMethod));
+        if (!configuration.isEmpty()) {
+            experimentOutputDirectory = new File(experimentOutputDirectory, configuration.getDirectoryPath());
+        }
+        if (fork > 0) {
+            return new File(experimentOutputDirectory, getForkDirectoryName(fork));
+        }
+        return experimentOutputDirectory;
+    }
+
+    public static String getForkDirectoryName(int fork) {
+        return FORK_DIRECTORY_NAME_PREFIX + fork;
+    }
+
+    /**
+     * Gets an id for an experiment method of this job that is stable between runs.
+     * @param index The index of the experiment method in the experiment methods of this job.
+     * @return The id, which is the ontology document directory name and the experiment directory name separated by
+     * a slash, followed by the directory path of the configuration of the method, if it is not empty, and the fork
+     * directory name if this job runs a fork, each preceded by a slash.
+     */
+    public String getExperimentId(int index) {
+        return getExperimentId(ontologyDocumentDirectory, experimentMethods.get(index), configurations.get(index), fork);
+    }
+
+    /**
+     * Gets the ids of the experiment methods of this job.
+     * @return The ids, in the same order as the experiment methods.
+     */
+    public List<String> getExperimentIds() {
+        List<String> result = new ArrayList<String>();
+        for (int i = 0; i < experimentMethods.size(); i++) {
+            result.add(getExperimentId(i));
+        }
+        return result;
+    }
+
+    public static String getExperimentId(File ontologyDocumentDirectory, Method experimentMethod) {
+        return getExperimentId(ontologyDocumentDirectory, experimentMethod, 0);
+    }
+
+    public static String getExperimentId(File ontologyDocumentDirectory, Method experimentMethod, int fork) {
+        return getExperimentId(ontologyDocumentDirectory, experimentMethod, MatrixConfiguration.EMPTY, fork);
+    }
+
+    public static String getExperimentId(File ontologyDocumentDirectory, Method experimentMethod, MatrixConfiguration configuration, int fork) {
+        String experimentId = ontologyDocumentDirectory.getName() + "/" + getExperimentDirectoryName(experimentMethod);
+        if (!configuration.isEmpty()) {
+            experimentId += "/" + configuration.getDirectoryPath();
+        }
+        if (fork > 0) {
+            return experimentId + "/" + getForkDirectoryName(fork);
+        }
+        return experimentId;
+    }
+
+    public List<File> getExperimentOutputDirectories() {
+        List<File> result = new ArrayList<File>();
+        for (int i = 0; i < experimentMethods.size(); i++) {
+            result.add(getExperimentOutputDirectory(i));
+        }
+        return result;
+    }
+
+    /**
+     * Gets the directory where the standard output and standard error of this job are logged to.
+     * @return The experiment output directory if this job runs one experiment method, otherwise the output directory
+     * of the experiment without its configurations if this job runs one experiment method in several configurations,
+     * otherwise the ontology document output directory (in either case, a fork-n sub-directory of it if this job runs
+     * a fork).
+     */
+    public File getLogDirectory() {
+        if (experimentMethods.size() == 1) {
+            return getExperimentOutputDirectory(0);
+        }
+        else if (new HashSet<Method>(experimentMethods).size() == 1) {
+            return getExperimentOutputDirectory(ontologyDocumentOutputDirectory, experimentMethods.get(0), fork);
+        }
+        else if (fork > 0) {
+            return new File(ontologyDocumentOutputDirectory, getForkDirectoryName(fork));
+        }
+        else {
+            return ontologyDocumentOutputDirectory;
+        }
+    }
+
+    /**
+     * Gets a name for this job that is suitable for logging.
+     * @return The name, which is made up of the experiment class name, the ontology document directory name and the
+     * experiment method names, followed by the configuration if this job runs one non-empty configuration, or the number
+     * of configurations if it runs several.
+     */
+    public String getName() {
+        Set<Method> distinctExperimentMethods = new LinkedHashSet<Method>(experimentMethods);
+        String name = experimentClass.getSimpleName() + " - " + ontologyDocumentDirectory.getName() + " - " + getExperimentMethodNames(distinctExperimentMethods);
+        Set<MatrixConfiguration> distinctConfigurations = new HashSet<MatrixConfiguration>(configurations);
+        if (distinctConfigurations.size() > 1) {
+            name += " - " + distinctConfigurations.size() + " configurations";
+        }
+        else if (!configurations.get(0).isEmpty()) {
+            name += " - " + configurations.get(0);
+        }
+        if (fork > 0) {
+            return name + " - fork " + fork;
+        }
+        return name;
+    }
+
+    private static String getExperimentMethodNames(Collection<Method> experimentMethods) {
+        StringBuilder sb = new StringBuilder();
+        for (Method experimentMethod : experimentMethods) {
+            if (sb.length() > 0) {
+                sb.append(METHOD_NAME_SEPARATOR);
+            }
+            sb.append(experimentMethod.getName());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Determines whether any of the experiment methods of this job is run with a non-empty configuration.
+     */
+    public boolean isConfigured() {
+        for (MatrixConfiguration configuration : configurations) {
+            if (!configuration.isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gets the arguments that are passed to {@link OntologyDocumentExperimentRunner} in order to run this job.
+     * @return The arguments: (1) Experiment class, (2) Experiment method names separated by commas,
+     * (3) Ontology document directory, (4) Experiment output directories, in the same order as the methods,
+     * separated by the path separator, (5) If any of the configurations of the methods is not empty, the encoded
+     * configurations, in the same order as the methods, separated by the path separator.
+     */
+    public List<String> getRunnerArguments() {
+        StringBuilder outputDirectories = new StringBuilder();
+        for (File outputDirectory : getExperimentOutputDirectories()) {
+            if (outputDirectories.length() > 0) {
+                outputDirectories.append(File.pathSeparator);
+            }
+            outputDirectories.append(outputDirectory.getAbsolutePath());
+        }
+        List<String> result = new ArrayList<String>(Arrays.asList(experimentClass.getName(),
+                getExperimentMethodNames(experimentMethods),
+                ontologyDocumentDirectory.getAbsolutePath(),
+                outputDirectories.toString()));
+        if (isConfigured()) {
+            StringBuilder encodedConfigurations = new StringBuilder();
+            for (int i = 0; i < configurations.size(); i++) {
+                if (i > 0) {
+                    encodedConfigurations.append(File.pathSeparator);
+                }
+                encodedConfigurations.append(configurations.get(i).encode());
+            }
+            result.add(encodedConfigurations.toString());
+        }
+        return result;
+    }
+
+    /**
+     * Gets the max heap size of the JVM that runs this job.
+     * @return The size in MB, or -1 if the job should run with the default heap size of the launcher.
+     */
+    public long getMaxMemoryInMegaBytes() {
+        return maxMemoryInMegaBytes;
+    }
+
+    public void setMaxMemoryInMegaBytes(long maxMemoryInMegaBytes) {
+        this.maxMemoryInMegaBytes = maxMemoryInMegaBytes;
+    }
+
+    public boolean isOutOfMemory() {
+        return returnCode == OntologyDocumentExperimentRunner.OUT_OF_MEMORY_EXIT_CODE;
+    }
+
+    public void markStarted() {
+        startTime = System.currentTimeMillis();
+    }
+
+    public void markFinished(int returnCode) {
+        this.returnCode = returnCode;
+        endTime = System.currentTimeMillis();
+    }
+
+    /**
+     * Gets the time at which this job was started.
+     * @return The time, or 0 if the job has not been started.
+     */
+    public long getStartTime() {
+        return startTime;
+    }
+
+    public int getReturnCode() {
+        return returnCode;
+    }
+
+    public boolean isSucceeded() {
+        return returnCode == 0;
+    }
+
+    /**
+     * Determines whether this job was stopped because it reached its time out, either by its runner or by the
+     * launcher.
+     */
+    public boolean isTimedOut() {
+        return returnCode == ExperimentLauncher.TIMED_OUT_RETURN_CODE || returnCode == OntologyDocumentExperimentRunner.TIMED_OUT_EXIT_CODE;
+    }
+
+    /**
+     * Gets the wall clock time that this job took to run.
+     * @return The time in milliseconds.  If the job has not finished then the value will be 0.
+     */
+    public long getDuration() {
+        if (endTime == 0) {
+            return 0;
+        }
+        return endTime - startTime;
+    }
+
+    @Override
+    public String toString() {
+        return getName();
+    }
+
+    public static String getExperimentDirectoryName(Method experimentMethod) {
+        String experimentDirectoryName = null;
+        Experiment experimentAnnotation = experimentMethod.getAnnotation(Experiment.class);
+        if (experimentAnnotation != null) {
+            if (!experimentAnnotation.name().isEmpty()) {
+                experimentDirectoryName = experimentAnnotation.name();
+            }
+        }
+        if (experimentDirectoryName == null) {
+            experimentDirectoryName = experimentMethod.getName();
+        }
+        return experimentDirectoryName;
+    }
+}
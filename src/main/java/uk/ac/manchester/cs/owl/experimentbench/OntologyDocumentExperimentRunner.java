@@ -2,10 +2,11 @@ package uk.ac.manchester.cs.owl.experimentbench;
 
 
 import org.semanticweb.owl.explanation.telemetry.DefaultTelemetryInfo;
+import org.semanticweb.owl.explanation.telemetry.NullTelemetryReceiver;
+import org.semanticweb.owl.explanation.telemetry.TelemetryReceiver;
 import org.semanticweb.owl.explanation.telemetry.TelemetryTransmitter;
 import org.semanticweb.owl.explanation.telemetry.XMLTelemetryReceiver;
 import org.semanticweb.owlapi.apibinding.OWLManager;
-import org.semanticweb.owlapi.io.FileDocumentSource;
 import org.semanticweb.owlapi.model.*;
 
 import java.io.*;
@@ -13,9 +14,7 @@ import java.lang.annotation.Annotation;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
-import java.util.HashSet;
-import java.util.Properties;
-import java.util.Set;
+import java.util.*;
 
 /**
  * Author: Matthew Horridge<br>
@@ -27,47 +26,140 @@ public class OntologyDocumentExperimentRunner {
 
     public static final String PROPERTIES_FILE_NAME = "experiment.properties";
 
-    public static final String ONTOLOGY_FILE_NAME_EXTENSION = ".owl.xml";
+    public static final String ONTOLOGY_FILE_NAME_EXTENSION = OntologyDocumentLoader.ONTOLOGY_FILE_NAME_EXTENSION;
+
+    /**
+     * The exit code of a runner in which an experiment ran out of memory.
+     */
+    public static final int OUT_OF_MEMORY_EXIT_CODE = 3;
+
+    /**
+     * The exit code of a runner in which an experiment reached its time out.
+     */
+    public static final int TIMED_OUT_EXIT_CODE = 4;
+
+    public static final String TELEMETRY_FILE_NAME = "telemetry.xml";
+
+    public static final String BINARY_TELEMETRY_FILE_NAME = "telemetry.bin";
+
+    /**
+     * The system property that holds the time, in milliseconds since the epoch, at which the controller launched
+     * the JVM that runs this runner (or gave the job to a prewarmed JVM).
+     */
+    public static final String LAUNCH_TIME_PROPERTY_NAME = "experimentbench.launchtime";
 
     private Class experiementClass;
 
-    private Method experimentMethod;
+    private List<Method> experimentMethods;
+
+    private List<MatrixConfiguration> configurations;
 
     private File ontologyDirectory;
 
-    private File outputDirectory;
+    private List<File> outputDirectories;
+
+    private Workload workload;
+
+    private OWLOntologyManager manager;
+
+    private OntologyDocumentLoader ontologyDocumentLoader;
+
+    private boolean outOfMemory = false;
+
+    private TelemetryReceiver telemetryReceiver;
+
+    private boolean timedOut = false;
 
-    private File ontologyDocument;
+    /**
+     * Whether an invocation of the experiment method that is running reached its time out.
+     */
+    private boolean invocationTimedOut = false;
+
+    /**
+     * The receiver whose open transmissions are closed if the JVM is shut down (e.g. because the controller killed
+     * it) while an experiment is running.
+     */
+    private static volatile TelemetryReceiver activeTelemetryReceiver;
+
+    private static boolean shutdownHookInstalled = false;
+
+    private long trialMeanTime;
+
+    private long classificationTime;
+
+    private ReasonerPool reasonerPool;
+
+    private ResourceMonitor loadResourceMonitor;
+
+    private long startupLatency = -1;
 
 
     public OntologyDocumentExperimentRunner(Class<?> experiementClass, Method experimentMethod, File ontologyDirectory, File outputDirectory) {
+        this(experiementClass, Collections.singletonList(experimentMethod), ontologyDirectory, Collections.singletonList(outputDirectory));
+    }
+
+    /**
+     * Creates a runner that loads the ontology in the specified ontology directory once and then runs each of the
+     * specified experiment methods against it.
+     * @param experiementClass The experiment class.
+     * @param experimentMethods The experiment methods.
+     * @param ontologyDirectory The directory containing the ontology document.
+     * @param outputDirectories The output directories, one for each experiment method, in the same order as the
+     * experiment methods.
+     */
+    public OntologyDocumentExperimentRunner(Class<?> experiementClass, List<Method> experimentMethods, File ontologyDirectory, List<File> outputDirectories) {
+        this(experiementClass, experimentMethods, Collections.nCopies(experimentMethods.size(), MatrixConfiguration.EMPTY), ontologyDirectory, outputDirectories);
+    }
+
+    /**
+     * Creates a runner that loads the ontology in the specified ontology directory once and then runs each of the
+     * specified experiment methods against it, with the experiment properties overridden by the configuration of the
+     * method.  The ontology is shared between the methods, and so are the reasoners of the methods that are annotated
+     * with &#64;Experiment(sharedReasoner = true) (see {@link ReasonerPool}).  Other experiments create their reasoners
+     * from the properties that they are given.
+     * @param experiementClass The experiment class.
+     * @param experimentMethods The experiment methods.
+     * @param configurations The configurations, one for each experiment method, in the same order as the experiment
+     * methods.
+     * @param ontologyDirectory The directory containing the ontology document.
+     * @param outputDirectories The output directories, one for each experiment method, in the same order as the
+     * experiment methods.
+     */
+    public OntologyDocumentExperimentRunner(Class<?> experiementClass, List<Method> experimentMethods, List<MatrixConfiguration> configurations, File ontologyDirectory, List<File> outputDirectories) {
         Annotation annotation = experiementClass.getAnnotation(OntologyDocumentExperiment.class);
         if(annotation == null) {
             throw new RuntimeException("Experiment class is not annotated with OntologyDocumentExperiment annotation");
         }
+        if(experimentMethods.size() != outputDirectories.size()) {
+            throw new RuntimeException("Expected one output directory per experiment method");
+        }
+        if(experimentMethods.size() != configurations.size()) {
+            throw new RuntimeException("Expected one configuration per experiment method");
+        }
         this.experiementClass = experiementClass;
-        this.experimentMethod = experimentMethod;
+        this.experimentMethods = new ArrayList<Method>(experimentMethods);
+        this.configurations = new ArrayList<MatrixConfiguration>(configurations);
         this.ontologyDirectory = ontologyDirectory;
-        this.outputDirectory = outputDirectory;
-        findOntologyDocument();
+        this.outputDirectories = new ArrayList<File>(outputDirectories);
 //        setupTelemetry();
     }
 
-    private void findOntologyDocument() {
-        File[] files = ontologyDirectory.listFiles();
-        if (files != null) {
-            for (File file : files) {
-                if (file.getName().endsWith(ONTOLOGY_FILE_NAME_EXTENSION)) {
-                    ontologyDocument = file;
-                    return;
+    private void setupTelemetry(File outputDirectory, ExperimentProperties properties) {
+        if (properties.isBinaryTelemetryFormat()) {
+            try {
+                BinaryTelemetryReceiver telemetryReceiver = new BinaryTelemetryReceiver(new File(outputDirectory, BINARY_TELEMETRY_FILE_NAME));
+                for(String ignoreName : getIgnoreTelemetry()) {
+                    telemetryReceiver.addIgnoreName(ignoreName);
                 }
+                TelemetryTransmitter.getTransmitter().setTelemetryReceiver(telemetryReceiver);
+                setActiveTelemetryReceiver(telemetryReceiver);
+                return;
+            }
+            catch (IOException e) {
+                System.err.println("Could not create binary telemetry file.  Falling back to XML telemetry: " + e.getMessage());
             }
         }
-        throw new RuntimeException("Ontology Document Not Found in " + ontologyDirectory);
-    }
-
-    private void setupTelemetry() {
-        File telemetryFile = getTelemetryFile();
+        File telemetryFile = getTelemetryFile(outputDirectory);
 //        for(int i = 1; ; i++) {
 //            String candidateName = ontologyDirectory.getName() + "-" + experiementClass.getSimpleName().toLowerCase() + "-telemetry-" + i + ".xml";
 //            telemetryFile = new File(outputDirectory, candidateName);
@@ -81,25 +173,75 @@ public class OntologyDocumentExperimentRunner {
             telemetryReceiver.addIgnoreName(ignoreName);
         }
         TelemetryTransmitter.getTransmitter().setTelemetryReceiver(telemetryReceiver);
+        setActiveTelemetryReceiver(telemetryReceiver);
 //        recordSystemProperties();
                     
     }
 
-    private File getTelemetryFile() {
-        return new File(outputDirectory, "telemetry.xml");
+    private void setActiveTelemetryReceiver(TelemetryReceiver telemetryReceiver) {
+        this.telemetryReceiver = telemetryReceiver;
+        activeTelemetryReceiver = telemetryReceiver;
+        installShutdownHook();
+    }
+
+    private static synchronized void installShutdownHook() {
+        if (shutdownHookInstalled) {
+            return;
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+            public void run() {
+                TelemetryReceiver telemetryReceiver = activeTelemetryReceiver;
+                if (telemetryReceiver != null) {
+                    closeOpenTransmissions(telemetryReceiver);
+                }
+            }
+        }, "Telemetry shutdown"));
+        shutdownHookInstalled = true;
     }
 
+    /**
+     * Ends any transmissions that are still open so that the telemetry that has been received is written out as a
+     * complete document.
+     */
+    private static void closeOpenTransmissions(TelemetryReceiver telemetryReceiver) {
+        if (telemetryReceiver instanceof XMLTelemetryReceiver) {
+            ((XMLTelemetryReceiver) telemetryReceiver).closeOpenTransmissions();
+        }
+        else if (telemetryReceiver instanceof BinaryTelemetryReceiver) {
+            ((BinaryTelemetryReceiver) telemetryReceiver).closeOpenTransmissions();
+        }
+    }
+
+    private File getTelemetryFile(File outputDirectory) {
+        return new File(outputDirectory, TELEMETRY_FILE_NAME);
+    }
+
+    /**
+     * Builds the experiment properties from the experiment.properties files of the working directory, the parent of
+     * the ontology directory and the ontology directory, in that order.
+     * @throws IllegalArgumentException if a value is malformed.
+     */
     private ExperimentProperties loadProperties() {
-        ExperimentProperties experimentProperties = new ExperimentProperties();
+        return loadProperties(ontologyDirectory);
+    }
+
+    /**
+     * Loads the properties that a runner runs the experiments on an ontology document directory with: the
+     * experiment.properties files of the working directory, the parent of the ontology document directory and the
+     * ontology document directory itself, in that order.
+     * @param ontologyDirectory The ontology document directory.
+     */
+    public static ExperimentProperties loadProperties(File ontologyDirectory) {
+        ExperimentProperties.Builder builder = new ExperimentProperties.Builder();
         // Working directory
         File workingDirectory = new File(".");
-        addProperties(experimentProperties, workingDirectory);
+        addProperties(builder, workingDirectory);
         // Parent
         File ontologyDirectoryParentFile = ontologyDirectory.getParentFile();
-        addProperties(experimentProperties, ontologyDirectoryParentFile);
+        addProperties(builder, ontologyDirectoryParentFile);
         // Experiment
-        addProperties(experimentProperties, ontologyDirectory);
-        return experimentProperties;
+        addProperties(builder, ontologyDirectory);
+        return builder.build();
     }
 
     private void recordSystemProperties() {
@@ -131,6 +273,7 @@ public class OntologyDocumentExperimentRunner {
                     transmitter.recordMeasurement(info, propertyName, value);
                 }
             }
+            recordPropertySources(properties);
         }
         finally {
             transmitter.endTransmission(info);
@@ -138,42 +281,258 @@ public class OntologyDocumentExperimentRunner {
 
     }
 
-    private void addProperties(ExperimentProperties experimentProperties, File experimentDirectoryParent) {
+    /**
+     * Records the layer (properties file, or matrix) that the value of each property came from.
+     */
+    private void recordPropertySources(ExperimentProperties properties) {
+        TelemetryTransmitter transmitter = TelemetryTransmitter.getTransmitter();
+        DefaultTelemetryInfo info = new DefaultTelemetryInfo("sources");
+        try {
+            transmitter.beginTransmission(info);
+            for(String propertyName : properties.getProperties()) {
+                String source = properties.getSource(propertyName);
+                if(source != null) {
+                    transmitter.recordMeasurement(info, propertyName, source);
+                }
+            }
+        }
+        finally {
+            transmitter.endTransmission(info);
+        }
+    }
+
+    private static void addProperties(ExperimentProperties.Builder builder, File experimentDirectoryParent) {
         if (experimentDirectoryParent.exists()) {
             File propertiesFile = new File(experimentDirectoryParent, PROPERTIES_FILE_NAME);
             if (propertiesFile.exists()) {
-                experimentProperties.addProperties(propertiesFile);
+                builder.addLayer(propertiesFile);
             }
         }
     }
 
     public void run() {
-        File telemetryFile = getTelemetryFile();
-        if(telemetryFile.exists()) {
-            System.out.println("TELEMETRY ALREADY EXISTS.  NOT RUNNING EXPERIMENT. (" + telemetryFile.getAbsolutePath() + ")");
+        ExperimentProperties properties = loadProperties();
+        System.out.println("Running experiment with properties:");
+        for(String property : properties.getProperties()) {
+            System.out.print("\t[Property] ");
+            System.out.print(property);
+            System.out.print(": ");
+            System.out.println(properties.getProperty(property, ""));
+        }
+        reasonerPool = new ReasonerPool(properties.getReasonerPoolSize(), properties.getReasonerPoolHeapFraction());
+        HeapUsage.startTrackingMaxLiveHeapUsage();
+        List<WorkloadInput> inputs = null;
+        Throwable inputsException = null;
+        try {
+            workload = properties.getWorkload();
+            inputs = workload.getInputs(ontologyDirectory, properties);
+        }
+        catch (Throwable t) {
+            inputsException = t;
+        }
+        // The statistics of each experiment method, over all of the inputs
+        List<JobStatistics> statistics = new ArrayList<JobStatistics>();
+        for(int i = 0; i < experimentMethods.size(); i++) {
+            statistics.add(new JobStatistics());
+        }
+        if(inputsException != null) {
+            runInput(null, properties, inputsException, statistics);
+        }
+        else {
+            for(WorkloadInput input : inputs) {
+                runInput(input, properties, null, statistics);
+            }
+        }
+        for(int i = 0; i < experimentMethods.size(); i++) {
+            try {
+                statistics.get(i).write(outputDirectories.get(i));
+            }
+            catch (IOException e) {
+                System.err.println("Could not write job statistics: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Loads the ontology of an input and runs each of the experiment methods against it.
+     * @param input The input.  null if the inputs could not be found.
+     * @param properties The experiment properties.
+     * @param inputsException The exception that was thrown when the inputs were looked for, or null.
+     * @param statistics The statistics of the experiment methods, which the statistics of this input are added to.
+     */
+    private void runInput(WorkloadInput input, ExperimentProperties properties, Throwable inputsException, List<JobStatistics> statistics) {
+        OWLOntology ontology = null;
+        Throwable loadException = inputsException;
+        ontologyDocumentLoader = null;
+        loadResourceMonitor = null;
+        HeapUsage.resetMaxLiveHeapUsage();
+        if (input != null) {
+            loadResourceMonitor = new ResourceMonitor(Thread.currentThread(), properties.getResourceSamplingInterval());
+            loadResourceMonitor.start();
+            try {
+                ontology = loadOntology(input, properties);
+            }
+            catch (Throwable t) {
+                loadException = t;
+                if(t instanceof OutOfMemoryError) {
+                    outOfMemory = true;
+                }
+            }
+            finally {
+                loadResourceMonitor.stop();
+            }
+            if (ontology != null && startupLatency == -1) {
+                recordStartupLatency();
+            }
+        }
+        long loadPeakHeapUsed = ontologyDocumentLoader != null ? ontologyDocumentLoader.getPeakHeapUsed() : 0;
+        long loadMaxLiveHeapUsed = HeapUsage.getMaxLiveHeapUsage();
+        for(int i = 0; i < experimentMethods.size(); i++) {
+            HeapUsage.resetPeakHeapUsage();
+            HeapUsage.resetMaxLiveHeapUsage();
+            trialMeanTime = -1;
+            classificationTime = -1;
+            long t0 = System.currentTimeMillis();
+            ExperimentProperties experimentProperties = configurations.get(i).apply(properties);
+            File outputDirectory = outputDirectories.get(i);
+            if (input != null) {
+                outputDirectory = input.getOutputDirectory(outputDirectory);
+                outputDirectory.mkdirs();
+            }
+            File ontologyDocument = input != null ? input.getDocument() : ontologyDirectory;
+            runExperimentMethod(experimentMethods.get(i), configurations.get(i), outputDirectory, ontologyDocument, experimentProperties, ontology, loadException);
+            long runTime = System.currentTimeMillis() - t0 - Math.max(0, classificationTime);
+            JobStatistics methodStatistics = statistics.get(i);
+            if(ontology != null) {
+                long liveHeapUsed = Math.max(HeapUsage.getLiveHeapUsage(), Math.max(loadMaxLiveHeapUsed, HeapUsage.getMaxLiveHeapUsage()));
+                methodStatistics.setValue(JobStatistics.LIVE_HEAP_USED, Math.max(methodStatistics.getValue(JobStatistics.LIVE_HEAP_USED), liveHeapUsed));
+            }
+            methodStatistics.setValue(JobStatistics.PEAK_HEAP_USED, Math.max(methodStatistics.getValue(JobStatistics.PEAK_HEAP_USED), Math.max(loadPeakHeapUsed, HeapUsage.getPeakHeapUsage())));
+            addValue(methodStatistics, JobStatistics.ONTOLOGY_DOCUMENT_SIZE, input != null ? input.getSize() : 0);
+            addValue(methodStatistics, JobStatistics.RUN_TIME, runTime);
+            if(trialMeanTime != -1) {
+                addValue(methodStatistics, JobStatistics.TRIAL_MEAN_TIME, trialMeanTime);
+            }
+            if(classificationTime != -1) {
+                addValue(methodStatistics, JobStatistics.CLASSIFICATION_TIME, classificationTime);
+            }
+            if(startupLatency != -1) {
+                methodStatistics.setValue(JobStatistics.STARTUP_LATENCY, startupLatency);
+            }
+            if(ontology != null) {
+                addValue(methodStatistics, JobStatistics.AXIOM_COUNT, ontology.getAxiomCount());
+                addValue(methodStatistics, JobStatistics.LOAD_TIME, ontologyDocumentLoader.getLoadTime());
+            }
+        }
+        releaseOntologies();
+    }
+
+    /**
+     * Works out the time from the launch of this runner's JVM to the first ontology being ready, if the controller
+     * passed the launch time.
+     */
+    private void recordStartupLatency() {
+        String launchTime = System.getProperty(LAUNCH_TIME_PROPERTY_NAME);
+        if (launchTime == null) {
             return;
         }
-        setupTelemetry();
+        try {
+            startupLatency = Math.max(0, System.currentTimeMillis() - Long.parseLong(launchTime));
+            System.out.println("Startup to first axiom: " + startupLatency + " ms");
+        }
+        catch (NumberFormatException e) {
+            System.err.println("Malformed launch time: " + launchTime);
+        }
+    }
+
+    /**
+     * Adds a value to the sum of the values of the inputs that have been run so far.
+     */
+    private static void addValue(JobStatistics statistics, String name, long value) {
+        statistics.setValue(name, Math.max(0, statistics.getValue(name)) + value);
+    }
+
+    /**
+     * Determines whether an experiment, or the loading of the ontology, ran out of memory.
+     * @return true if an OutOfMemoryError was caught, otherwise false.
+     */
+    public boolean isOutOfMemory() {
+        return outOfMemory;
+    }
+
+    /**
+     * Determines whether an experiment reached its time out and was interrupted.
+     * @return true if an experiment was interrupted, otherwise false.
+     */
+    public boolean isTimedOut() {
+        return timedOut;
+    }
+
+    private OWLOntology loadOntology(WorkloadInput input, ExperimentProperties properties) throws OWLOntologyCreationException, IOException {
+        manager = OWLManager.createOWLOntologyManager();
+        ontologyDocumentLoader = new OntologyDocumentLoader(properties);
+        return workload.load(input, manager, ontologyDocumentLoader, properties);
+    }
+
+    private void runExperimentMethod(Method experimentMethod, MatrixConfiguration configuration, File outputDirectory, File ontologyDocument, ExperimentProperties properties, OWLOntology ontology, Throwable loadException) {
+        setupTelemetry(outputDirectory, properties);
         TelemetryTransmitter transmitter = TelemetryTransmitter.getTransmitter();
         DefaultTelemetryInfo rootInfo = new DefaultTelemetryInfo("ontologydocument");
+        long timeOut = OntologyDocumentExperimentJob.getExperimentTimeOut(experimentMethod, properties);
+        Runnable hardTimeOutAction = new Runnable() {
+            public void run() {
+                // The shutdown hook closes the open transmissions
+                System.exit(TIMED_OUT_EXIT_CODE);
+            }
+        };
+        invocationTimedOut = false;
+        ResourceMonitor experimentResourceMonitor = null;
         try {
             transmitter.beginTransmission(rootInfo);
-            ExperimentProperties properties = loadProperties();
-            System.out.println("Running experiment with properties:");
-            for(String property : properties.getProperties()) {
-                System.out.print("\t[Property] ");
-                System.out.print(property);
-                System.out.print(": ");
-                System.out.println(properties.getProperty(property, ""));
-            }
             recordProperties(properties);
-            OWLOntologyManager manager = OWLManager.createOWLOntologyManager();
-            OWLOntologyLoaderConfiguration config = new OWLOntologyLoaderConfiguration().setLoadAnnotationAxioms(false);
-            FileDocumentSource documentSource = new FileDocumentSource(ontologyDocument);
-            OWLOntology ontology = manager.loadOntologyFromOntologyDocument(documentSource, config);
+            if(loadException != null) {
+                transmitter.recordException(rootInfo, loadException);
+                return;
+            }
+            ontologyDocumentLoader.recordTelemetry();
+            if(startupLatency != -1) {
+                transmitter.recordMeasurement(rootInfo, "startuplatency", startupLatency);
+            }
             Constructor constructor = experiementClass.getConstructor(ExperimentProperties.class, File.class, OWLOntology.class, File.class);
-            Object object = constructor.newInstance(properties, ontologyDocument, ontology, outputDirectory);
-            invokeExperimentMethods(object);
+            // The shared reasoner is acquired before the experiment is timed or monitored, so that classification
+            // does not count towards the time out, the resource usage or the run time of the experiment.  It has a
+            // time out of its own.
+            if(OntologyDocumentExperimentJob.isSharedReasonerRequested(experimentMethod)) {
+                long classificationTimeOut = properties.getClassificationTimeOut();
+                ExperimentWatchdog classificationWatchdog = new ExperimentWatchdog(Thread.currentThread(), classificationTimeOut, properties.getCancellationGracePeriod(), hardTimeOutAction);
+                classificationWatchdog.start();
+                try {
+                    ReasonerPool.setActiveReasoner(reasonerPool.getReasoner(ontology, configuration, properties));
+                    classificationTime = reasonerPool.getLastClassificationTime();
+                }
+                finally {
+                    classificationWatchdog.cancel();
+                    if(classificationWatchdog.isTimedOut()) {
+                        timedOut = true;
+                        transmitter.recordMeasurement(rootInfo, "classificationtimedout", true);
+                        transmitter.recordMeasurement(rootInfo, "classificationtimeout", classificationTimeOut);
+                    }
+                }
+                if(classificationWatchdog.isTimedOut()) {
+                    return;
+                }
+            }
+            experimentResourceMonitor = new ResourceMonitor(Thread.currentThread(), properties.getResourceSamplingInterval());
+            experimentResourceMonitor.start();
+            Invocation invocation = new Invocation(constructor, experimentMethod, properties, ontologyDocument, ontology, outputDirectory, timeOut, hardTimeOutAction);
+            int warmups = OntologyDocumentExperimentJob.getWarmupIterations(experimentMethod, properties);
+            int iterations = OntologyDocumentExperimentJob.getMeasuredIterations(experimentMethod, properties);
+            if(warmups == 0 && iterations == 1) {
+                trialMeanTime = invocation.invoke();
+            }
+            else {
+                runTrials(invocation, experimentMethod, properties, warmups, iterations);
+            }
         }
         catch (InvocationTargetException e) {
             Throwable cause = e.getCause();
@@ -183,19 +542,193 @@ public class OntologyDocumentExperimentRunner {
             else {
                 transmitter.recordException(rootInfo, cause);
             }
+            if (cause instanceof OutOfMemoryError) {
+                outOfMemory = true;
+            }
         }
         catch (Throwable t) {
             transmitter.recordException(rootInfo, t);
+            if (t instanceof OutOfMemoryError) {
+                outOfMemory = true;
+            }
         }
         finally {
+            ReasonerPool.setActiveReasoner(null);
+            if(experimentResourceMonitor != null) {
+                experimentResourceMonitor.stop();
+            }
+            if(invocationTimedOut) {
+                timedOut = true;
+                transmitter.recordMeasurement(rootInfo, "timedout", true);
+                transmitter.recordMeasurement(rootInfo, "timeout", timeOut);
+            }
+            recordResourceUsage(experimentResourceMonitor);
             transmitter.endTransmission(rootInfo);
         }
     }
 
-    private void invokeExperimentMethods(Object object) throws IllegalAccessException, InvocationTargetException {
+    /**
+     * Records the resources used by loading the ontology and by running the experiment as a resources transmission,
+     * with a load child and an experiment child.
+     * @param experimentResourceMonitor The monitor for the experiment.  May be null if the experiment was not run.
+     */
+    private void recordResourceUsage(ResourceMonitor experimentResourceMonitor) {
+        TelemetryTransmitter transmitter = TelemetryTransmitter.getTransmitter();
+        DefaultTelemetryInfo info = new DefaultTelemetryInfo(ResourceMonitor.TRANSMISSION_NAME);
+        try {
+            transmitter.beginTransmission(info);
+            if(loadResourceMonitor != null) {
+                loadResourceMonitor.recordTelemetry("load");
+            }
+            if(experimentResourceMonitor != null) {
+                experimentResourceMonitor.recordTelemetry("experiment");
+            }
+        }
+        finally {
+            transmitter.endTransmission(info);
+        }
+    }
+
+    /**
+     * Releases the ontologies loaded by this runner and detaches the telemetry receiver, so that a JVM that hosts
+     * several runners one after the other does not carry state from one job to the next.
+     */
+    public void dispose() {
+        releaseOntologies();
+        activeTelemetryReceiver = null;
+        TelemetryTransmitter.getTransmitter().setTelemetryReceiver(new NullTelemetryReceiver());
+    }
+
+    private void releaseOntologies() {
+        if (reasonerPool != null) {
+            reasonerPool.dispose();
+        }
+        if (manager != null) {
+            for (OWLOntology ontology : new ArrayList<OWLOntology>(manager.getOntologies())) {
+                manager.removeOntology(ontology);
+            }
+            manager = null;
+        }
+    }
+
+    private static Object createExperiment(Constructor constructor, ExperimentProperties properties, File ontologyDocument, OWLOntology ontology, File outputDirectory) throws IllegalAccessException, InvocationTargetException, InstantiationException {
+        return constructor.newInstance(properties, ontologyDocument, ontology, outputDirectory);
+    }
+
+    private void invokeExperimentMethod(Object object, Method experimentMethod) throws IllegalAccessException, InvocationTargetException {
         experimentMethod.invoke(object);
     }
 
+    /**
+     * Runs an experiment method repeatedly.  The warm-up iterations are run with telemetry switched off.  Each
+     * measured iteration is run in an iteration transmission that records its time, and the statistics of the
+     * measured iterations are recorded afterwards.  Each iteration is run on a new instance of the experiment class.
+     */
+    /**
+     * Runs the warm-up iterations and then the measured iterations of an experiment method.  Each iteration has the
+     * full time out of the method.  If an iteration times out then the remaining iterations are not run.
+     */
+    private void runTrials(Invocation invocation, Method experimentMethod, ExperimentProperties properties, int warmups, int iterations) throws IllegalAccessException, InvocationTargetException, InstantiationException {
+        TelemetryTransmitter transmitter = TelemetryTransmitter.getTransmitter();
+        if(warmups > 0) {
+            transmitter.setTelemetryReceiver(new NullTelemetryReceiver());
+            try {
+                for(int i = 0; i < warmups; i++) {
+                    invocation.invoke();
+                    if(invocationTimedOut) {
+                        return;
+                    }
+                }
+            }
+            finally {
+                transmitter.setTelemetryReceiver(telemetryReceiver);
+            }
+        }
+        List<Long> times = new ArrayList<Long>();
+        for(int i = 0; i < iterations; i++) {
+            DefaultTelemetryInfo iterationInfo = new DefaultTelemetryInfo("iteration");
+            try {
+                transmitter.beginTransmission(iterationInfo);
+                transmitter.recordMeasurement(iterationInfo, "index", i);
+                long time = invocation.invoke();
+                transmitter.recordMeasurement(iterationInfo, "time", time);
+                times.add(time);
+            }
+            finally {
+                transmitter.endTransmission(iterationInfo);
+            }
+            if(invocationTimedOut) {
+                return;
+            }
+        }
+        TrialStatistics statistics = new TrialStatistics(times, properties.getHighVarianceThreshold());
+        statistics.recordTelemetry(warmups);
+        trialMeanTime = Math.round(statistics.getMean());
+        System.out.println(experimentMethod.getName() + ": " + iterations + " iterations after " + warmups + " warm-ups: " + statistics);
+        if(statistics.isHighVariance()) {
+            System.out.println("WARNING: The times of " + experimentMethod.getName() + " vary by more than " + properties.getHighVarianceThreshold() + " of their mean.  Consider more warm-up iterations.");
+        }
+    }
+
+    /**
+     * One run of an experiment method on a new instance of the experiment class: the only run, a warm-up or a measured
+     * iteration.  Each invocation has a deadline (an {@link ExperimentContext}) and a watchdog of its own, started
+     * before the experiment is constructed, so that every invocation is given the full time out of the method and
+     * reasoner time outs are the same for each of them.
+     */
+    private class Invocation {
+
+        private Constructor constructor;
+
+        private Method experimentMethod;
+
+        private ExperimentProperties properties;
+
+        private File ontologyDocument;
+
+        private OWLOntology ontology;
+
+        private File outputDirectory;
+
+        private long timeOut;
+
+        private Runnable hardTimeOutAction;
+
+        private Invocation(Constructor constructor, Method experimentMethod, ExperimentProperties properties, File ontologyDocument, OWLOntology ontology, File outputDirectory, long timeOut, Runnable hardTimeOutAction) {
+            this.constructor = constructor;
+            this.experimentMethod = experimentMethod;
+            this.properties = properties;
+            this.ontologyDocument = ontologyDocument;
+            this.ontology = ontology;
+            this.outputDirectory = outputDirectory;
+            this.timeOut = timeOut;
+            this.hardTimeOutAction = hardTimeOutAction;
+        }
+
+        /**
+         * Runs the experiment method.  If it reaches its time out then {@link #invocationTimedOut} is set.
+         * @return The time taken by the experiment method, in nanoseconds.
+         */
+        private long invoke() throws IllegalAccessException, InvocationTargetException, InstantiationException {
+            ExperimentContext.setCurrent(ExperimentContext.start(timeOut));
+            ExperimentWatchdog watchdog = new ExperimentWatchdog(Thread.currentThread(), timeOut, properties.getCancellationGracePeriod(), hardTimeOutAction);
+            watchdog.start();
+            try {
+                Object object = createExperiment(constructor, properties, ontologyDocument, ontology, outputDirectory);
+                long t0 = System.nanoTime();
+                invokeExperimentMethod(object, experimentMethod);
+                return System.nanoTime() - t0;
+            }
+            finally {
+                watchdog.cancel();
+                ExperimentContext.setCurrent(null);
+                if(watchdog.isTimedOut()) {
+                    invocationTimedOut = true;
+                }
+            }
+        }
+    }
+
     private Set<String> getIgnoreTelemetry() {
         try {
             Set<String> result = new HashSet<String>();
@@ -221,28 +754,61 @@ public class OntologyDocumentExperimentRunner {
 
     public static void main(String[] args) throws ClassNotFoundException, InvocationTargetException, InstantiationException, IllegalAccessException, IOException, NoSuchMethodException, OWLOntologyCreationException {
         try {
-            if (args.length != 4) {
-                throw new RuntimeException("Expected 4 arguments:  Argument 1 should be the experiment class name. Argument 3 should be the experiment method name.  Argument 2 should be a directory containing an experiment package.  Argument 3 should be the output directory for the package.");
+            OntologyDocumentExperimentRunner runner = createRunner(args);
+            runner.run();
+            if (runner.isOutOfMemory()) {
+                System.exit(OUT_OF_MEMORY_EXIT_CODE);
+            }
+            if (runner.isTimedOut()) {
+                System.exit(TIMED_OUT_EXIT_CODE);
             }
-            String className = args[0];
-            Class experimentClass = Class.forName(className);
+        }
+        catch (OutOfMemoryError e) {
+            System.exit(OUT_OF_MEMORY_EXIT_CODE);
+        }
+        catch (Throwable t) {
+            t.printStackTrace();
+            System.exit(-1);
+        }
+    }
 
-            String methodName = args[1];
-            Method method = experimentClass.getMethod(methodName);
+    /**
+     * Creates a runner from the arguments that are passed to the main method of this class.
+     * @param args The arguments.  See {@link OntologyDocumentExperimentJob#getRunnerArguments()}.
+     * @return The runner.
+     */
+    public static OntologyDocumentExperimentRunner createRunner(String[] args) throws ClassNotFoundException, NoSuchMethodException {
+        if (args.length != 4 && args.length != 5) {
+            throw new RuntimeException("Expected 4 or 5 arguments:  Argument 1 should be the experiment class name. Argument 2 should be the experiment method names, separated by commas.  Argument 3 should be a directory containing an experiment package.  Argument 4 should be the output directories for the experiment methods, separated by the path separator.  Argument 5 (optional) should be the encoded configurations of the experiment methods, separated by the path separator.");
+        }
+        String className = args[0];
+        Class experimentClass = Class.forName(className);
 
-            String ontologyDirectoryName = args[2];
-            File experimentDirectory = new File(ontologyDirectoryName);
-            if (!experimentDirectory.exists()) {
-                throw new RuntimeException("Experiment directory does not exist (" + ontologyDirectoryName + ")");
-            }
-            String outputDirectoryName = args[3];
+        List<Method> methods = new ArrayList<Method>();
+        for(String methodName : args[1].split(OntologyDocumentExperimentJob.METHOD_NAME_SEPARATOR)) {
+            methods.add(experimentClass.getMethod(methodName));
+        }
+
+        String ontologyDirectoryName = args[2];
+        File experimentDirectory = new File(ontologyDirectoryName);
+        if (!experimentDirectory.exists()) {
+            throw new RuntimeException("Experiment directory does not exist (" + ontologyDirectoryName + ")");
+        }
+        List<File> outputDirectories = new ArrayList<File>();
+        for(String outputDirectoryName : args[3].split(File.pathSeparator)) {
             File outputDirectory = new File(outputDirectoryName);
             outputDirectory.mkdirs();
-            OntologyDocumentExperimentRunner runner = new OntologyDocumentExperimentRunner(experimentClass, method, experimentDirectory, outputDirectory);
-            runner.run();
+            outputDirectories.add(outputDirectory);
         }
-        catch (Throwable t) {
-            System.exit(-1);
+        List<MatrixConfiguration> configurations = new ArrayList<MatrixConfiguration>();
+        if (args.length == 5) {
+            for(String encodedConfiguration : args[4].split(File.pathSeparator, -1)) {
+                configurations.add(MatrixConfiguration.decode(encodedConfiguration));
+            }
+        }
+        else {
+            configurations.addAll(Collections.nCopies(methods.size(), MatrixConfiguration.EMPTY));
         }
+        return new OntologyDocumentExperimentRunner(experimentClass, methods, configurations, experimentDirectory, outputDirectories);
     }
 }
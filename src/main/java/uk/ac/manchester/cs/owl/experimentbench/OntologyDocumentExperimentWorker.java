@@ -0,0 +1,160 @@
+package uk.ac.manchester.cs.owl.experimentbench;
+
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.net.InetAddress;
+import java.net.Socket;
+
+/**
+ * A long lived JVM that runs jobs one after the other in the same process, so that JVM start up, class loading
+ * and JIT warm up are paid once rather than once per job.  Jobs are received, one per line, over a loopback socket
+ * to the controller, whose port is given on the command line, and a reply is written, one per line, to the same
+ * socket.  Standard output and standard error are left alone: they are plain log streams, which the controller
+ * writes to out.txt and err.txt in the log directory of the job that is running.  Anything that the JVM or a library
+ * prints, at any time, therefore cannot upset the protocol.
+ * <p>
+ *     The protocol is:
+ *     <ul>
+ *         <li>The worker writes {@link #READY_REPLY} when it has started.</li>
+ *         <li>The controller writes {@link #RUN_COMMAND} followed by an end of output marker and the runner
+ *         arguments, separated by tabs.</li>
+ *         <li>When the job has finished the worker prints the end of output marker on its standard output and
+ *         standard error, so that the controller knows when it has all of the output of the job, and replies with
+ *         {@link #DONE_REPLY}, the return code of the job and whether or not the worker is about to exit so that it
+ *         can be recycled.</li>
+ *         <li>The controller writes {@link #QUIT_COMMAND} to shut the worker down.</li>
+ *     </ul>
+ * </p>
+ */
+public class OntologyDocumentExperimentWorker {
+
+    public static final String READY_REPLY = "READY";
+
+    public static final String RUN_COMMAND = "RUN";
+
+    public static final String DONE_REPLY = "DONE";
+
+    public static final String QUIT_COMMAND = "QUIT";
+
+    public static final String FIELD_SEPARATOR = "\t";
+
+    private int maxJobs;
+
+    private double recycleHeapFraction;
+
+    private BufferedReader protocolReader;
+
+    private PrintWriter protocolWriter;
+
+    private int jobsRun = 0;
+
+    /**
+     * @param maxJobs The number of jobs after which this worker should exit so that it can be replaced.
+     * @param recycleHeapFraction The fraction of the max heap that, if still used after a job has been run, causes
+     * this worker to exit so that it can be replaced.
+     * @param controllerSocket The socket to the controller that the protocol runs over.
+     * @throws IOException If the streams of the socket could not be opened.
+     */
+    public OntologyDocumentExperimentWorker(int maxJobs, double recycleHeapFraction, Socket controllerSocket) throws IOException {
+        this.maxJobs = maxJobs;
+        this.recycleHeapFraction = recycleHeapFraction;
+        this.protocolReader = new BufferedReader(new InputStreamReader(controllerSocket.getInputStream(), "UTF-8"));
+        this.protocolWriter = new PrintWriter(new OutputStreamWriter(controllerSocket.getOutputStream(), "UTF-8"));
+    }
+
+    public void run() throws IOException {
+        protocolWriter.println(READY_REPLY);
+        protocolWriter.flush();
+        String line;
+        while ((line = protocolReader.readLine()) != null) {
+            String[] fields = line.split(FIELD_SEPARATOR);
+            if (fields[0].equals(QUIT_COMMAND)) {
+                return;
+            }
+            if (!fields[0].equals(RUN_COMMAND)) {
+                System.err.println("Unknown worker command: " + line);
+                continue;
+            }
+            String endOfOutputMarker = fields[1];
+            String[] runnerArguments = new String[fields.length - 2];
+            System.arraycopy(fields, 2, runnerArguments, 0, runnerArguments.length);
+            int returnCode = runJob(runnerArguments);
+            jobsRun++;
+            boolean recycle = returnCode == OntologyDocumentExperimentRunner.OUT_OF_MEMORY_EXIT_CODE || isRecycleRequired();
+            System.out.println(endOfOutputMarker);
+            System.out.flush();
+            System.err.println(endOfOutputMarker);
+            System.err.flush();
+            protocolWriter.println(DONE_REPLY + FIELD_SEPARATOR + returnCode + FIELD_SEPARATOR + recycle);
+            protocolWriter.flush();
+            if (recycle) {
+                return;
+            }
+        }
+    }
+
+    private int runJob(String[] runnerArguments) {
+        OntologyDocumentExperimentRunner runner = null;
+        try {
+            runner = OntologyDocumentExperimentRunner.createRunner(runnerArguments);
+            runner.run();
+            if (runner.isOutOfMemory()) {
+                return OntologyDocumentExperimentRunner.OUT_OF_MEMORY_EXIT_CODE;
+            }
+            if (runner.isTimedOut()) {
+                return OntologyDocumentExperimentRunner.TIMED_OUT_EXIT_CODE;
+            }
+            return 0;
+        }
+        catch (OutOfMemoryError e) {
+            return OntologyDocumentExperimentRunner.OUT_OF_MEMORY_EXIT_CODE;
+        }
+        catch (Throwable t) {
+            t.printStackTrace();
+            return -1;
+        }
+        finally {
+            if (runner != null) {
+                runner.dispose();
+            }
+        }
+    }
+
+    private boolean isRecycleRequired() {
+        if (jobsRun >= maxJobs) {
+            return true;
+        }
+        System.gc();
+        MemoryUsage heapUsage = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        if (heapUsage.getMax() <= 0) {
+            return false;
+        }
+        double usedFraction = ((double) heapUsage.getUsed()) / heapUsage.getMax();
+        return usedFraction > recycleHeapFraction;
+    }
+
+    public static void main(String[] args) {
+        try {
+            if (args.length != 3) {
+                throw new RuntimeException("Expected 3 arguments: Argument 1 should be the number of jobs to run before exiting.  Argument 2 should be the heap fraction above which the worker exits after a job.  Argument 3 should be the loopback port that the controller listens on.");
+            }
+            int maxJobs = Integer.parseInt(args[0]);
+            double recycleHeapFraction = Double.parseDouble(args[1]);
+            int controllerPort = Integer.parseInt(args[2]);
+            Socket controllerSocket = new Socket(InetAddress.getByName(null), controllerPort);
+            try {
+                OntologyDocumentExperimentWorker worker = new OntologyDocumentExperimentWorker(maxJobs, recycleHeapFraction, controllerSocket);
+                worker.run();
+            }
+            finally {
+                controllerSocket.close();
+            }
+            System.exit(0);
+        }
+        catch (Throwable t) {
+            t.printStackTrace();
+            System.exit(-1);
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package uk.ac.manchester.cs.owl.experimentbench;
+
+import org.semanticweb.owl.explanation.telemetry.DefaultTelemetryInfo;
+import org.semanticweb.owl.explanation.telemetry.TelemetryTransmitter;
+import org.semanticweb.owlapi.io.FileDocumentSource;
+import org.semanticweb.owlapi.io.OWLOntologyDocumentSource;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyCreationException;
+import org.semanticweb.owlapi.model.OWLOntologyLoaderConfiguration;
+import org.semanticweb.owlapi.model.OWLOntologyManager;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Loads ontology documents for a runner, either from the {@link OntologyDocumentCache}, if one is configured, or
+ * by parsing the document.  The document is parsed through a {@link MappedFileDocumentSource} if it is compressed
+ * or if memory mapped loading is switched on, otherwise through a {@link FileDocumentSource}.  Statistics about
+ * the most recent load are kept so that they can be recorded in the telemetry of each experiment.
+ */
+public class OntologyDocumentLoader {
+
+    public static final String ONTOLOGY_FILE_NAME_EXTENSION = ".owl.xml";
+
+    private ExperimentProperties properties;
+
+    private long loadTime;
+
+    private boolean cacheEnabled;
+
+    private boolean cacheHit;
+
+    private boolean memoryMapped;
+
+    private long peakHeapUsed;
+
+    public OntologyDocumentLoader(ExperimentProperties properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * Determines whether a file is an ontology document that can be loaded by this loader.
+     * @param file The file.
+     * @return true if the file name ends with .owl.xml, .owl.xml.gz or .owl.xml.bz2
+     */
+    public static boolean isOntologyDocument(File file) {
+        String name = file.getName();
+        return name.endsWith(ONTOLOGY_FILE_NAME_EXTENSION)
+                || name.endsWith(ONTOLOGY_FILE_NAME_EXTENSION + MappedFileDocumentSource.GZIP_FILE_NAME_EXTENSION)
+                || name.endsWith(ONTOLOGY_FILE_NAME_EXTENSION + MappedFileDocumentSource.BZIP2_FILE_NAME_EXTENSION);
+    }
+
+    /**
+     * Gets the ontology documents in a directory.
+     * @param directory The directory.
+     * @return The documents, sorted by name.
+     */
+    public static List<File> getOntologyDocuments(File directory) {
+        List<File> result = new ArrayList<File>();
+        File[] files = directory.listFiles();
+        if (files != null) {
+            Arrays.sort(files);
+            for (File file : files) {
+                if (isOntologyDocument(file)) {
+                    result.add(file);
+                }
+            }
+        }
+        return result;
+    }
+
+    public OWLOntology load(OWLOntologyManager manager, File ontologyDocument) throws OWLOntologyCreationException, IOException {
+        return load(manager, ontologyDocument, true);
+    }
+
+    /**
+     * Loads an ontology document.
+     * @param manager The manager to load the document into.
+     * @param ontologyDocument The document.
+     * @param cacheable false if the ontology must not be read from, or written to, the ontology cache, e.g. because
+     * its imports are loaded with it.
+     * @return The ontology.
+     */
+    public OWLOntology load(OWLOntologyManager manager, File ontologyDocument, boolean cacheable) throws OWLOntologyCreationException, IOException {
+        HeapUsage.resetPeakHeapUsage();
+        long t0 = System.currentTimeMillis();
+        cacheHit = false;
+        memoryMapped = false;
+        File cacheDirectory = cacheable ? properties.getOntologyCacheDirectory() : null;
+        OntologyDocumentCache cache = null;
+        String contentHash = null;
+        cacheEnabled = cacheDirectory != null;
+        if (cacheEnabled) {
+            cache = new OntologyDocumentCache(cacheDirectory);
+            contentHash = OntologyDocumentCache.getContentHash(ontologyDocument);
+            try {
+                OWLOntology cachedOntology = cache.load(manager, ontologyDocument, contentHash);
+                if (cachedOntology != null) {
+                    cacheHit = true;
+                    loadTime = System.currentTimeMillis() - t0;
+                    peakHeapUsed = HeapUsage.getPeakHeapUsage();
+                    return cachedOntology;
+                }
+            }
+            catch (IOException e) {
+                System.err.println("Could not read ontology cache entry: " + e.getMessage());
+                for (OWLOntology ontology : manager.getOntologies()) {
+                    manager.removeOntology(ontology);
+                }
+            }
+        }
+        OWLOntologyLoaderConfiguration config = new OWLOntologyLoaderConfiguration().setLoadAnnotationAxioms(false);
+        OWLOntologyDocumentSource documentSource;
+        if (MappedFileDocumentSource.isCompressed(ontologyDocument) || properties.isMemoryMappedLoading()) {
+            documentSource = new MappedFileDocumentSource(ontologyDocument);
+            memoryMapped = true;
+        }
+        else {
+            documentSource = new FileDocumentSource(ontologyDocument);
+        }
+        OWLOntology ontology = manager.loadOntologyFromOntologyDocument(documentSource, config);
+        loadTime = System.currentTimeMillis() - t0;
+        peakHeapUsed = HeapUsage.getPeakHeapUsage();
+        if (cache != null) {
+            try {
+                cache.store(ontology, ontologyDocument, contentHash);
+            }
+            catch (IOException e) {
+                System.err.println("Could not write ontology cache entry: " + e.getMessage());
+            }
+        }
+        return ontology;
+    }
+
+    /**
+     * Sets the statistics of an ontology that was not loaded from a document, e.g. a generated ontology, so that they
+     * are recorded in the same way.
+     * @param loadTime The time taken to create the ontology, in milliseconds.
+     * @param peakHeapUsed The peak heap usage while the ontology was created.
+     */
+    public void setLoadStatistics(long loadTime, long peakHeapUsed) {
+        this.loadTime = loadTime;
+        this.peakHeapUsed = peakHeapUsed;
+        cacheEnabled = false;
+        cacheHit = false;
+        memoryMapped = false;
+    }
+
+    public long getLoadTime() {
+        return loadTime;
+    }
+
+    public long getPeakHeapUsed() {
+        return peakHeapUsed;
+    }
+
+    /**
+     * Records the statistics of the most recent load as an ontologyload transmission.
+     */
+    public void recordTelemetry() {
+        TelemetryTransmitter transmitter = TelemetryTransmitter.getTransmitter();
+        DefaultTelemetryInfo info = new DefaultTelemetryInfo("ontologyload");
+        try {
+            transmitter.beginTransmission(info);
+            transmitter.recordMeasurement(info, "loadtime", loadTime);
+            transmitter.recordMeasurement(info, "peakheapused", peakHeapUsed);
+            transmitter.recordMeasurement(info, "memorymapped", memoryMapped);
+            transmitter.recordMeasurement(info, "cacheenabled", cacheEnabled);
+            if (cacheEnabled) {
+                transmitter.recordMeasurement(info, "cachehit", cacheHit);
+            }
+        }
+        finally {
+            transmitter.endTransmission(info);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package uk.ac.manchester.cs.owl.experimentbench;
+
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyCreationException;
+import org.semanticweb.owlapi.model.OWLOntologyManager;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The default workload: the ontology document directory holds one ontology document, which is loaded on its own.
+ * If the directory holds several documents then the one named by the workloaddocument property is loaded, or
+ * else the first one in name order.
+ */
+public class OntologyDocumentWorkload implements Workload {
+
+    public List<WorkloadInput> getInputs(File ontologyDocumentDirectory, ExperimentProperties properties) throws IOException {
+        return Collections.singletonList(new WorkloadInput(findOntologyDocument(ontologyDocumentDirectory, properties)));
+    }
+
+    public OWLOntology load(WorkloadInput input, OWLOntologyManager manager, OntologyDocumentLoader loader, ExperimentProperties properties) throws OWLOntologyCreationException, IOException {
+        return loader.load(manager, input.getDocument());
+    }
+
+    /**
+     * Finds the ontology document in an ontology document directory.
+     * @param ontologyDocumentDirectory The directory.
+     * @param properties The experiment properties, which may name the document.
+     * @return The document.
+     * @throws IOException If the directory does not contain the document.
+     */
+    protected static File findOntologyDocument(File ontologyDocumentDirectory, ExperimentProperties properties) throws IOException {
+        String documentName = properties.getWorkloadDocument();
+        if (documentName != null) {
+            File document = new File(ontologyDocumentDirectory, documentName);
+            if (!document.isFile()) {
+                throw new FileNotFoundException("Ontology Document " + documentName + " Not Found in " + ontologyDocumentDirectory);
+            }
+            return document;
+        }
+        List<File> documents = OntologyDocumentLoader.getOntologyDocuments(ontologyDocumentDirectory);
+        if (documents.isEmpty()) {
+            throw new FileNotFoundException("Ontology Document Not Found in " + ontologyDocumentDirectory);
+        }
+        return documents.get(0);
+    }
+}
@@ -0,0 +1,70 @@
+package uk.ac.manchester.cs.owl.experimentbench;
+
+import org.semanticweb.owl.explanation.telemetry.TelemetryTransmitter;
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.io.StringDocumentSource;
+import org.semanticweb.owlapi.model.OWLOntologyManager;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+
+/**
+ * A runner JVM that is started before its job is known, so that JVM start up and the loading of the OWL API
+ * classes (and parsers) are out of the way when the job arrives.  When it has warmed up it writes
+ * {@link #READY_REPLY} to standard output and then reads one line from standard input: the launch time of the job
+ * followed by its runner arguments, separated by tabs.  It runs the job exactly as
+ * {@link OntologyDocumentExperimentRunner} would and then exits, so each job still gets a JVM of its own.
+ */
+public class PrewarmedRunner {
+
+    public static final String READY_REPLY = "READY";
+
+    public static final String FIELD_SEPARATOR = "\t";
+
+    private static final String WARM_UP_ONTOLOGY = "<?xml version=\"1.0\"?>\n" +
+            "<rdf:RDF xml:base=\"http://owl.cs.manchester.ac.uk/experimentbench/warmup\" xmlns:rdf=\"http://www.w3.org/1999/02/22-rdf-syntax-ns#\" xmlns:rdfs=\"http://www.w3.org/2000/01/rdf-schema#\" xmlns:owl=\"http://www.w3.org/2002/07/owl#\">\n" +
+            "<owl:Ontology rdf:about=\"http://owl.cs.manchester.ac.uk/experimentbench/warmup\"/>\n" +
+            "<owl:Class rdf:about=\"http://owl.cs.manchester.ac.uk/experimentbench/warmup#A\">\n" +
+            "<rdfs:subClassOf><owl:Restriction><owl:onProperty><owl:ObjectProperty rdf:about=\"http://owl.cs.manchester.ac.uk/experimentbench/warmup#p\"/></owl:onProperty>\n" +
+            "<owl:someValuesFrom rdf:resource=\"http://owl.cs.manchester.ac.uk/experimentbench/warmup#B\"/></owl:Restriction></rdfs:subClassOf>\n" +
+            "</owl:Class>\n" +
+            "</rdf:RDF>\n";
+
+    /**
+     * Loads the classes that every runner needs by parsing a small ontology.
+     */
+    private static void warmUp() throws Exception {
+        OWLOntologyManager manager = OWLManager.createOWLOntologyManager();
+        manager.loadOntologyFromOntologyDocument(new StringDocumentSource(WARM_UP_ONTOLOGY));
+        TelemetryTransmitter.getTransmitter();
+    }
+
+    public static void main(String[] args) {
+        try {
+            warmUp();
+        }
+        catch (Throwable t) {
+            // The job will load what it needs
+            System.err.println("Could not warm up: " + t);
+        }
+        System.out.println(READY_REPLY);
+        System.out.flush();
+        try {
+            String line = new BufferedReader(new InputStreamReader(System.in, "UTF-8")).readLine();
+            if (line == null) {
+                // The controller did not need this runner
+                System.exit(0);
+            }
+            String[] fields = line.split(FIELD_SEPARATOR, -1);
+            System.setProperty(OntologyDocumentExperimentRunner.LAUNCH_TIME_PROPERTY_NAME, fields[0]);
+            String[] runnerArguments = new String[fields.length - 1];
+            System.arraycopy(fields, 1, runnerArguments, 0, runnerArguments.length);
+            OntologyDocumentExperimentRunner.main(runnerArguments);
+            System.exit(0);
+        }
+        catch (Throwable t) {
+            t.printStackTrace();
+            System.exit(-1);
+        }
+    }
+}
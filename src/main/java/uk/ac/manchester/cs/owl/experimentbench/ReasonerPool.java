@@ -0,0 +1,216 @@
+package uk.ac.manchester.cs.owl.experimentbench;
+
+import org.semanticweb.owl.explanation.telemetry.DefaultTelemetryInfo;
+import org.semanticweb.owl.explanation.telemetry.TelemetryTransmitter;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.reasoner.*;
+import org.semanticweb.owlapi.reasoner.structural.StructuralReasonerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.util.*;
+
+/**
+ * The reasoners that a runner shares between the experiment methods that ask for one (see
+ * {@link Experiment#sharedReasoner()}).  There is one reasoner per (ontology, reasoner factory, matrix
+ * configuration), whose inferences (the precomputedinferences property) are computed once when it is created, so
+ * that methods after the first do not classify the ontology again.  The time taken to create a reasoner and
+ * precompute its inferences is recorded in a sharedreasoner transmission, and as the classificationtime job
+ * statistic, rather than as part of the experiment.
+ * <p>
+ *     The pool keeps at most reasonerpoolsize reasoners, and disposes of the least recently used ones first.  If more
+ *     than reasonerpoolheapfraction of the max heap is still in use after a reasoner has been created then the other
+ *     reasoners are disposed of as well.  All of the reasoners of an ontology are disposed of when the runner releases
+ *     the ontology.
+ * </p>
+ */
+public class ReasonerPool {
+
+    public static final String TRANSMISSION_NAME = "sharedreasoner";
+
+    /**
+     * The shared reasoner of the experiment method that is running.
+     */
+    private static volatile OWLReasoner activeReasoner;
+
+    private int maxReasoners;
+
+    private double heapFraction;
+
+    /**
+     * The reasoners, least recently used first.
+     */
+    private Map<PoolKey, OWLReasoner> reasoners = new LinkedHashMap<PoolKey, OWLReasoner>(16, 0.75f, true);
+
+    private long lastClassificationTime = -1;
+
+    /**
+     * @param maxReasoners The max number of reasoners that are kept.
+     * @param heapFraction The fraction of the max heap that, if it is in use after a reasoner has been created, causes
+     * the other reasoners to be disposed of.
+     */
+    public ReasonerPool(int maxReasoners, double heapFraction) {
+        this.maxReasoners = Math.max(1, maxReasoners);
+        this.heapFraction = heapFraction;
+    }
+
+    /**
+     * Gets the shared reasoner of the experiment method that is running.
+     * @return The reasoner, or null if the method did not ask for a shared reasoner.
+     */
+    public static OWLReasoner getActiveReasoner() {
+        return activeReasoner;
+    }
+
+    static void setActiveReasoner(OWLReasoner reasoner) {
+        activeReasoner = reasoner;
+    }
+
+    /**
+     * Gets the shared reasoner for an ontology, creating it, and precomputing its inferences, if the pool does not
+     * hold one.  A sharedreasoner transmission is recorded.
+     * @param ontology The ontology.
+     * @param configuration The matrix configuration of the experiment method.
+     * @param properties The experiment properties of the experiment method, which specify the reasoner factory (the
+     * structural reasoner by default), the entailment check time out, the classification time out and the inferences
+     * that are precomputed.  The time out of the reasoner is the smaller of the two time outs.
+     * @return The reasoner.
+     */
+    public OWLReasoner getReasoner(OWLOntology ontology, MatrixConfiguration configuration, ExperimentProperties properties) {
+        OWLReasonerFactory reasonerFactory = properties.getReasonerFactory(new StructuralReasonerFactory());
+        PoolKey key = new PoolKey(ontology, reasonerFactory.getClass().getName(), configuration);
+        OWLReasoner reasoner = reasoners.get(key);
+        boolean reused = reasoner != null;
+        lastClassificationTime = 0;
+        if (reasoner == null) {
+            long t0 = System.currentTimeMillis();
+            long timeOut = Math.min(properties.getReasonerEntailmentCheckTimeOutInMilliSeconds(), properties.getClassificationTimeOut());
+            OWLReasonerConfiguration reasonerConfiguration = new SimpleConfiguration(new NullReasonerProgressMonitor(), timeOut);
+            reasoner = reasonerFactory.createReasoner(ontology, reasonerConfiguration);
+            boolean precomputed = false;
+            try {
+                reasoner.precomputeInferences(properties.getPrecomputedInferences());
+                precomputed = true;
+            }
+            finally {
+                if (!precomputed) {
+                    reasoner.dispose();
+                }
+            }
+            lastClassificationTime = System.currentTimeMillis() - t0;
+            reasoners.put(key, reasoner);
+            enforceLimits(key);
+        }
+        TelemetryTransmitter transmitter = TelemetryTransmitter.getTransmitter();
+        DefaultTelemetryInfo info = new DefaultTelemetryInfo(TRANSMISSION_NAME);
+        try {
+            transmitter.beginTransmission(info);
+            transmitter.recordMeasurement(info, "reasonerfactory", reasonerFactory.getClass().getName());
+            transmitter.recordMeasurement(info, "reused", reused);
+            transmitter.recordMeasurement(info, "classificationtime", lastClassificationTime);
+            transmitter.recordMeasurement(info, "poolsize", reasoners.size());
+        }
+        finally {
+            transmitter.endTransmission(info);
+        }
+        return reasoner;
+    }
+
+    /**
+     * Gets the time that the last call of {@link #getReasoner} spent creating a reasoner and precomputing its
+     * inferences.
+     * @return The time in milliseconds, which is zero if the reasoner was reused, or -1 if no reasoner has been got.
+     */
+    public long getLastClassificationTime() {
+        return lastClassificationTime;
+    }
+
+    /**
+     * Disposes of least recently used reasoners until the pool is within its limits.
+     * @param keptKey The key of the reasoner that has just been created, which is not disposed of.
+     */
+    private void enforceLimits(PoolKey keptKey) {
+        while (reasoners.size() > maxReasoners) {
+            disposeLeastRecentlyUsed(keptKey);
+        }
+        if (reasoners.size() > 1 && isHeapLimitExceeded()) {
+            System.gc();
+            while (reasoners.size() > 1 && isHeapLimitExceeded()) {
+                disposeLeastRecentlyUsed(keptKey);
+                System.gc();
+            }
+        }
+    }
+
+    private boolean isHeapLimitExceeded() {
+        MemoryUsage heapUsage = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        if (heapUsage.getMax() <= 0) {
+            return false;
+        }
+        return ((double) heapUsage.getUsed()) / heapUsage.getMax() > heapFraction;
+    }
+
+    private void disposeLeastRecentlyUsed(PoolKey keptKey) {
+        for (Iterator<Map.Entry<PoolKey, OWLReasoner>> it = reasoners.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<PoolKey, OWLReasoner> entry = it.next();
+            if (!entry.getKey().equals(keptKey)) {
+                System.out.println("Disposing of the shared " + entry.getKey() + " reasoner");
+                entry.getValue().dispose();
+                it.remove();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Disposes of all of the reasoners.
+     */
+    public void dispose() {
+        for (OWLReasoner reasoner : reasoners.values()) {
+            reasoner.dispose();
+        }
+        reasoners.clear();
+        activeReasoner = null;
+    }
+
+    /**
+     * The key of a reasoner in the pool.  Ontologies are compared by identity, since the same ontology may be loaded
+     * more than once by a runner.
+     */
+    private static class PoolKey {
+
+        private OWLOntology ontology;
+
+        private String reasonerFactoryClassName;
+
+        private MatrixConfiguration configuration;
+
+        private PoolKey(OWLOntology ontology, String reasonerFactoryClassName, MatrixConfiguration configuration) {
+            this.ontology = ontology;
+            this.reasonerFactoryClassName = reasonerFactoryClassName;
+            this.configuration = configuration;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == this) {
+                return true;
+            }
+            if (!(obj instanceof PoolKey)) {
+                return false;
+            }
+            PoolKey other = (PoolKey) obj;
+            return ontology == other.ontology && reasonerFactoryClassName.equals(other.reasonerFactoryClassName) && configuration.equals(other.configuration);
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(ontology) * 31 * 31 + reasonerFactoryClassName.hashCode() * 31 + configuration.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return reasonerFactoryClassName.substring(reasonerFactoryClassName.lastIndexOf('.') + 1) + " (" + configuration + ")";
+        }
+    }
+}
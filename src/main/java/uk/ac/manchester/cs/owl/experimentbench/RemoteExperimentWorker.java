@@ -0,0 +1,584 @@
+package uk.ac.manchester.cs.owl.experimentbench;
+
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.*;
+
+/**
+ * A worker, usually on another host, that pulls jobs from a {@link DistributedExperimentLauncher} over TCP, runs
+ * each of them in a forked runner with {@link ForkedExperimentLauncher} and ships the telemetry and logs back.
+ * The worker needs the experiment classes on its class path, but not the ontologies: the files of the ontology
+ * document directory of each job are fetched from the coordinator, and cached in the worker's directory, along
+ * with the coordinator's experiment properties.
+ * <p>
+ *     Each request is made on a new connection, using {@link DataOutputStream#writeUTF(String)} for strings.  The
+ *     requests are:
+ *     <ul>
+ *         <li>{@link #LEASE_COMMAND} and the worker id.  The coordinator replies with {@link #JOB_REPLY} and the
+ *         job, {@link #WAIT_REPLY} if there is no job at the moment, or {@link #QUIT_REPLY} if the run has finished.</li>
+ *         <li>{@link #FETCH_COMMAND}, the lease id and the name of a file in the ontology document directory of the
+ *         leased job.  The coordinator replies with {@link #FILE_REPLY} and the contents of the file, or
+ *         {@link #ERROR_REPLY} and a message.</li>
+ *         <li>{@link #HEARTBEAT_COMMAND} and the worker id, which renews all of the leases that the worker holds.
+ *         The coordinator replies with {@link #OK_REPLY}.</li>
+ *         <li>{@link #RESULT_COMMAND}, the worker id, the lease id, the return code of the job and the output files.
+ *         The coordinator replies with {@link #ACCEPTED_REPLY}, or {@link #REJECTED_REPLY} if the lease had expired
+ *         and the job has been handed to another worker.</li>
+ *     </ul>
+ * </p>
+ */
+public class RemoteExperimentWorker {
+
+    public static final String LEASE_COMMAND = "LEASE";
+
+    public static final String FETCH_COMMAND = "FETCH";
+
+    public static final String HEARTBEAT_COMMAND = "HEARTBEAT";
+
+    public static final String RESULT_COMMAND = "RESULT";
+
+    public static final String JOB_REPLY = "JOB";
+
+    public static final String WAIT_REPLY = "WAIT";
+
+    public static final String QUIT_REPLY = "QUIT";
+
+    public static final String FILE_REPLY = "FILE";
+
+    public static final String ERROR_REPLY = "ERROR";
+
+    public static final String OK_REPLY = "OK";
+
+    public static final String ACCEPTED_REPLY = "ACCEPTED";
+
+    public static final String REJECTED_REPLY = "REJECTED";
+
+    private static final String COORDINATOR_COMMAND_LINE_SWITCH = "coordinator";
+
+    private static final String SLOTS_COMMAND_LINE_SWITCH = "slots";
+
+    private static final String DIRECTORY_COMMAND_LINE_SWITCH = "dir";
+
+    private static final String MEMORY_COMMAND_LINE_SWITCH = "memory";
+
+    private static final String HEARTBEAT_COMMAND_LINE_SWITCH = "heartbeat";
+
+    private static final String DEFAULT_DIRECTORY_NAME = "remote-worker";
+
+    private static final String DEFAULT_MAX_MEMORY = "1000M";
+
+    private static final long DEFAULT_HEARTBEAT_INTERVAL_IN_MS = 10000;
+
+    private static final String ONTOLOGIES_DIRECTORY_NAME = "ontologies";
+
+    private static final String OUTPUT_DIRECTORY_NAME = "telemetry-out";
+
+    private static final String EXPERIMENT_PROPERTIES_FILE_NAME = "experiment.properties";
+
+    /**
+     * The time that a worker waits before asking again for a job, after the coordinator has said that there is none.
+     */
+    private static final long POLL_INTERVAL_IN_MS = 1000;
+
+    /**
+     * The time for which a worker keeps trying to reach a coordinator that it cannot connect to.
+     */
+    private static final long CONNECTION_RETRY_PERIOD_IN_MS = 60000;
+
+    private static final int CONNECT_TIME_OUT_IN_MS = 10000;
+
+    private String host;
+
+    private int port;
+
+    private int slots;
+
+    private File ontologiesDirectory;
+
+    private File outputDirectory;
+
+    private long heartbeatInterval;
+
+    private String workerId;
+
+    private ForkedExperimentLauncher launcher;
+
+    private volatile boolean quit = false;
+
+    /**
+     * @param host The host of the coordinator.
+     * @param port The port of the coordinator.
+     * @param slots The number of jobs that this worker runs at the same time.
+     * @param directory The directory where ontologies are cached and jobs are run.
+     * @param maxMemory The max heap size of the runner of each job, in a form suitable for -Xmx.
+     * @param heartbeatInterval The interval, in milliseconds, at which this worker renews its leases.  This should be
+     * well under the lease time out of the coordinator.
+     */
+    public RemoteExperimentWorker(String host, int port, int slots, File directory, String maxMemory, long heartbeatInterval) {
+        this.host = host;
+        this.port = port;
+        this.slots = Math.max(1, slots);
+        this.ontologiesDirectory = new File(directory, ONTOLOGIES_DIRECTORY_NAME).getAbsoluteFile();
+        this.outputDirectory = new File(directory, OUTPUT_DIRECTORY_NAME).getAbsoluteFile();
+        this.heartbeatInterval = heartbeatInterval;
+        this.workerId = ManagementFactory.getRuntimeMXBean().getName() + "/" + Long.toHexString(System.nanoTime());
+        // The coordinator gives each job its own time out.  The worker has no properties of its own, so it uses the
+        // defaults for profiling and logging.
+        ExperimentProperties defaultProperties = new ExperimentProperties();
+        this.launcher = new ForkedExperimentLauncher(Long.MAX_VALUE, maxMemory, new JobProfiler(defaultProperties), new LogPipeline(defaultProperties), Collections.<String>emptyList(), defaultProperties.getPrewarmedForks(), null);
+    }
+
+    public String getWorkerId() {
+        return workerId;
+    }
+
+    /**
+     * Runs jobs until the coordinator says that the run has finished, or until the coordinator cannot be reached.
+     */
+    public void run() throws InterruptedException {
+        ontologiesDirectory.mkdirs();
+        outputDirectory.mkdirs();
+        System.out.println("Worker " + workerId + " taking jobs from " + host + ":" + port + " with " + slots + " slots");
+        Timer heartbeatTimer = new Timer("Heartbeat", true);
+        heartbeatTimer.schedule(new TimerTask() {
+            @Override
+            public void run() {
+                sendHeartbeat();
+            }
+        }, heartbeatInterval, heartbeatInterval);
+        List<Thread> slotThreads = new ArrayList<Thread>();
+        for (int i = 0; i < slots; i++) {
+            Thread slotThread = new Thread(new Runnable() {
+                public void run() {
+                    runSlot();
+                }
+            }, "Worker slot " + (i + 1));
+            slotThread.start();
+            slotThreads.add(slotThread);
+        }
+        for (Thread slotThread : slotThreads) {
+            slotThread.join();
+        }
+        heartbeatTimer.cancel();
+        launcher.dispose();
+        System.out.println("Worker " + workerId + " finished");
+    }
+
+    private void runSlot() {
+        long lastContact = System.currentTimeMillis();
+        while (!quit) {
+            Lease lease;
+            try {
+                lease = requestLease();
+                lastContact = System.currentTimeMillis();
+            }
+            catch (IOException e) {
+                if (System.currentTimeMillis() - lastContact > CONNECTION_RETRY_PERIOD_IN_MS) {
+                    System.out.println("Could not reach the coordinator: " + e.getMessage() + ".  Giving up.");
+                    quit = true;
+                    return;
+                }
+                sleep(POLL_INTERVAL_IN_MS);
+                continue;
+            }
+            if (lease == null) {
+                sleep(POLL_INTERVAL_IN_MS);
+            }
+            else {
+                runLease(lease);
+            }
+        }
+    }
+
+    private static void sleep(long time) {
+        try {
+            Thread.sleep(time);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Socket connect() throws IOException {
+        Socket socket = new Socket();
+        socket.connect(new InetSocketAddress(host, port), CONNECT_TIME_OUT_IN_MS);
+        return socket;
+    }
+
+    private void sendHeartbeat() {
+        try {
+            Socket socket = connect();
+            try {
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+                out.writeUTF(HEARTBEAT_COMMAND);
+                out.writeUTF(workerId);
+                out.flush();
+                new DataInputStream(socket.getInputStream()).readUTF();
+            }
+            finally {
+                socket.close();
+            }
+        }
+        catch (IOException e) {
+            System.err.println("Could not send heartbeat: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Asks the coordinator for a job.
+     * @return The lease of the job, or null if there is no job at the moment.  If the coordinator says that the run
+     * has finished then the quit flag is set.
+     */
+    private Lease requestLease() throws IOException {
+        Socket socket = connect();
+        try {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            out.writeUTF(LEASE_COMMAND);
+            out.writeUTF(workerId);
+            out.flush();
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            String reply = in.readUTF();
+            if (reply.equals(QUIT_REPLY)) {
+                quit = true;
+                return null;
+            }
+            if (!reply.equals(JOB_REPLY)) {
+                return null;
+            }
+            return Lease.read(in);
+        }
+        finally {
+            socket.close();
+        }
+    }
+
+    private void runLease(Lease lease) {
+        System.out.println("Running lease " + lease.leaseId + ": " + lease.experimentClassName + " " + lease.experimentMethodNames + " on " + lease.ontologyDocumentDirectoryName);
+        int returnCode;
+        OntologyDocumentExperimentJob job = null;
+        try {
+            File ontologyDocumentDirectory = fetchOntologyDocumentDirectory(lease);
+            Class<?> experimentClass = Class.forName(lease.experimentClassName);
+            List<Method> experimentMethods = new ArrayList<Method>();
+            for (String methodName : lease.experimentMethodNames.split(OntologyDocumentExperimentJob.METHOD_NAME_SEPARATOR)) {
+                experimentMethods.add(experimentClass.getMethod(methodName));
+            }
+            job = new OntologyDocumentExperimentJob(experimentClass, experimentMethods, lease.configurations, ontologyDocumentDirectory, new File(outputDirectory, lease.ontologyDocumentDirectoryName), lease.fork);
+            job.setTimeOut(lease.timeOut);
+            for (File outputFile : getOutputFiles(job)) {
+                outputFile.delete();
+            }
+            returnCode = launcher.launch(job);
+        }
+        catch (Exception e) {
+            e.printStackTrace();
+            returnCode = -1;
+        }
+        long firstAttempt = System.currentTimeMillis();
+        while (true) {
+            try {
+                boolean accepted = sendResult(lease, returnCode, job);
+                if (!accepted) {
+                    System.out.println("The result of lease " + lease.leaseId + " was rejected (the lease had expired)");
+                }
+                return;
+            }
+            catch (IOException e) {
+                if (System.currentTimeMillis() - firstAttempt > CONNECTION_RETRY_PERIOD_IN_MS) {
+                    System.out.println("Could not send the result of lease " + lease.leaseId + ": " + e.getMessage());
+                    return;
+                }
+                sleep(POLL_INTERVAL_IN_MS);
+            }
+        }
+    }
+
+    /**
+     * Makes sure that the files of the ontology document directory of a job, and the experiment properties of the
+     * coordinator, are up to date in the ontologies directory of this worker.
+     * @return The local ontology document directory.
+     */
+    private synchronized File fetchOntologyDocumentDirectory(Lease lease) throws IOException {
+        writeExperimentProperties(lease.experimentProperties);
+        File ontologyDocumentDirectory = new File(ontologiesDirectory, lease.ontologyDocumentDirectoryName);
+        ontologyDocumentDirectory.mkdirs();
+        for (RemoteFile remoteFile : lease.ontologyDocumentFiles) {
+            File localFile = new File(ontologyDocumentDirectory, remoteFile.name);
+            if (localFile.length() == remoteFile.length && localFile.lastModified() == remoteFile.lastModified) {
+                continue;
+            }
+            fetchFile(lease, remoteFile.name, localFile);
+            localFile.setLastModified(remoteFile.lastModified);
+        }
+        return ontologyDocumentDirectory;
+    }
+
+    private void writeExperimentProperties(Properties experimentProperties) throws IOException {
+        // The runner reads the properties in the parent of the ontology document directory
+        OutputStream os = new BufferedOutputStream(new FileOutputStream(new File(ontologiesDirectory, EXPERIMENT_PROPERTIES_FILE_NAME)));
+        try {
+            experimentProperties.store(os, "Experiment properties of the coordinator");
+        }
+        finally {
+            os.close();
+        }
+    }
+
+    private void fetchFile(Lease lease, String name, File localFile) throws IOException {
+        Socket socket = connect();
+        try {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            out.writeUTF(FETCH_COMMAND);
+            out.writeLong(lease.leaseId);
+            out.writeUTF(name);
+            out.flush();
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            String reply = in.readUTF();
+            if (!reply.equals(FILE_REPLY)) {
+                throw new IOException("Could not fetch " + name + ": " + in.readUTF());
+            }
+            long length = in.readLong();
+            readFile(in, length, localFile);
+        }
+        finally {
+            socket.close();
+        }
+    }
+
+    /**
+     * Gets the files that a job writes: the files in its experiment output directories and its log files.
+     */
+    private static Set<File> getOutputFiles(OntologyDocumentExperimentJob job) {
+        Set<File> outputFiles = new LinkedHashSet<File>();
+        List<File> directories = new ArrayList<File>(job.getExperimentOutputDirectories());
+        directories.add(job.getLogDirectory());
+        for (File directory : directories) {
+            File[] files = directory.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    if (file.isFile()) {
+                        outputFiles.add(file);
+                    }
+                }
+            }
+        }
+        return outputFiles;
+    }
+
+    private boolean sendResult(Lease lease, int returnCode, OntologyDocumentExperimentJob job) throws IOException {
+        Set<File> outputFiles = job != null ? getOutputFiles(job) : Collections.<File>emptySet();
+        String basePath = new File(outputDirectory, lease.ontologyDocumentDirectoryName).getAbsolutePath() + File.separator;
+        Socket socket = connect();
+        try {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            out.writeUTF(RESULT_COMMAND);
+            out.writeUTF(workerId);
+            out.writeLong(lease.leaseId);
+            out.writeInt(returnCode);
+            out.writeInt(outputFiles.size());
+            for (File outputFile : outputFiles) {
+                String relativePath = outputFile.getAbsolutePath().substring(basePath.length()).replace(File.separatorChar, '/');
+                out.writeUTF(relativePath);
+                out.writeLong(outputFile.length());
+                writeFile(outputFile, out);
+            }
+            out.flush();
+            return new DataInputStream(socket.getInputStream()).readUTF().equals(ACCEPTED_REPLY);
+        }
+        finally {
+            socket.close();
+        }
+    }
+
+    /**
+     * Copies the contents of a file to a stream.
+     */
+    public static void writeFile(File file, DataOutputStream out) throws IOException {
+        InputStream is = new BufferedInputStream(new FileInputStream(file));
+        try {
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = is.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        }
+        finally {
+            is.close();
+        }
+    }
+
+    /**
+     * Reads a file from a stream.
+     * @param in The stream.
+     * @param length The number of bytes to read.
+     * @param file The file that the bytes are written to, or null if they should be discarded.
+     */
+    public static void readFile(DataInputStream in, long length, File file) throws IOException {
+        OutputStream os = null;
+        if (file != null) {
+            file.getParentFile().mkdirs();
+            os = new BufferedOutputStream(new FileOutputStream(file));
+        }
+        try {
+            byte[] buffer = new byte[64 * 1024];
+            long remaining = length;
+            while (remaining > 0) {
+                int read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                if (read == -1) {
+                    throw new EOFException("Expected " + remaining + " more bytes");
+                }
+                if (os != null) {
+                    os.write(buffer, 0, read);
+                }
+                remaining -= read;
+            }
+        }
+        finally {
+            if (os != null) {
+                os.close();
+            }
+        }
+    }
+
+    /**
+     * A job that has been leased from the coordinator.
+     */
+    public static class Lease {
+
+        private long leaseId;
+
+        private String experimentClassName;
+
+        private String experimentMethodNames;
+
+        private List<MatrixConfiguration> configurations = new ArrayList<MatrixConfiguration>();
+
+        private String ontologyDocumentDirectoryName;
+
+        private int fork;
+
+        private long timeOut;
+
+        private Properties experimentProperties = new Properties();
+
+        private List<RemoteFile> ontologyDocumentFiles = new ArrayList<RemoteFile>();
+
+        /**
+         * Writes the lease of a job, following the {@link #JOB_REPLY}.
+         */
+        public static void write(DataOutputStream out, long leaseId, OntologyDocumentExperimentJob job, Properties experimentProperties) throws IOException {
+            List<String> runnerArguments = job.getRunnerArguments();
+            out.writeLong(leaseId);
+            out.writeUTF(runnerArguments.get(0));
+            out.writeUTF(runnerArguments.get(1));
+            out.writeInt(job.getConfigurations().size());
+            for (MatrixConfiguration configuration : job.getConfigurations()) {
+                out.writeUTF(configuration.encode());
+            }
+            out.writeUTF(job.getOntologyDocumentDirectory().getName());
+            out.writeInt(job.getFork());
+            out.writeLong(job.getTimeOut());
+            out.writeInt(experimentProperties.size());
+            for (String propertyName : experimentProperties.stringPropertyNames()) {
+                out.writeUTF(propertyName);
+                out.writeUTF(experimentProperties.getProperty(propertyName));
+            }
+            List<File> files = getOntologyDocumentFiles(job.getOntologyDocumentDirectory());
+            out.writeInt(files.size());
+            for (File file : files) {
+                out.writeUTF(file.getName());
+                out.writeLong(file.length());
+                out.writeLong(file.lastModified());
+            }
+        }
+
+        private static Lease read(DataInputStream in) throws IOException {
+            Lease lease = new Lease();
+            lease.leaseId = in.readLong();
+            lease.experimentClassName = in.readUTF();
+            lease.experimentMethodNames = in.readUTF();
+            int configurationCount = in.readInt();
+            for (int i = 0; i < configurationCount; i++) {
+                lease.configurations.add(MatrixConfiguration.decode(in.readUTF()));
+            }
+            lease.ontologyDocumentDirectoryName = in.readUTF();
+            lease.fork = in.readInt();
+            lease.timeOut = in.readLong();
+            int propertyCount = in.readInt();
+            for (int i = 0; i < propertyCount; i++) {
+                String propertyName = in.readUTF();
+                lease.experimentProperties.setProperty(propertyName, in.readUTF());
+            }
+            int fileCount = in.readInt();
+            for (int i = 0; i < fileCount; i++) {
+                lease.ontologyDocumentFiles.add(new RemoteFile(in.readUTF(), in.readLong(), in.readLong()));
+            }
+            return lease;
+        }
+    }
+
+    /**
+     * Gets the files in an ontology document directory that are shipped to workers.
+     */
+    public static List<File> getOntologyDocumentFiles(File ontologyDocumentDirectory) {
+        List<File> result = new ArrayList<File>();
+        File[] files = ontologyDocumentDirectory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (file.isFile() && !file.isHidden()) {
+                    result.add(file);
+                }
+            }
+        }
+        return result;
+    }
+
+    private static class RemoteFile {
+
+        private String name;
+
+        private long length;
+
+        private long lastModified;
+
+        private RemoteFile(String name, long length, long lastModified) {
+            this.name = name;
+            this.length = length;
+            this.lastModified = lastModified;
+        }
+    }
+
+    public static void main(String[] args) {
+        CommandLineArgs commandLineArgs = new CommandLineArgs(args);
+        String coordinator = commandLineArgs.getFirstArgument(COORDINATOR_COMMAND_LINE_SWITCH, null);
+        if (coordinator == null || coordinator.lastIndexOf(':') == -1) {
+            System.out.println("Runs jobs for a controller in distributed execution mode");
+            System.out.println("Arguments:");
+            System.out.println("\t-" + COORDINATOR_COMMAND_LINE_SWITCH + " (required) The host and port of the controller, as host:port.");
+            System.out.println("\t-" + SLOTS_COMMAND_LINE_SWITCH + " (optional default=1) The number of jobs to run at the same time.");
+            System.out.println("\t-" + DIRECTORY_COMMAND_LINE_SWITCH + " (optional default=" + DEFAULT_DIRECTORY_NAME + ") The directory where ontologies are cached and jobs are run.");
+            System.out.println("\t-" + MEMORY_COMMAND_LINE_SWITCH + " (optional default=" + DEFAULT_MAX_MEMORY + ") The max heap size of the runner of each job.");
+            System.out.println("\t-" + HEARTBEAT_COMMAND_LINE_SWITCH + " (optional default=" + DEFAULT_HEARTBEAT_INTERVAL_IN_MS + ") The interval, in milliseconds, at which the worker tells the controller that it is alive.");
+            System.exit(1);
+        }
+        try {
+            int separatorIndex = coordinator.lastIndexOf(':');
+            String host = coordinator.substring(0, separatorIndex);
+            int port = Integer.parseInt(coordinator.substring(separatorIndex + 1));
+            int slots = Integer.parseInt(commandLineArgs.getFirstArgument(SLOTS_COMMAND_LINE_SWITCH, "1"));
+            File directory = new File(commandLineArgs.getFirstArgument(DIRECTORY_COMMAND_LINE_SWITCH, DEFAULT_DIRECTORY_NAME));
+            String maxMemory = commandLineArgs.getFirstArgument(MEMORY_COMMAND_LINE_SWITCH, DEFAULT_MAX_MEMORY);
+            long heartbeatInterval = Long.parseLong(commandLineArgs.getFirstArgument(HEARTBEAT_COMMAND_LINE_SWITCH, Long.toString(DEFAULT_HEARTBEAT_INTERVAL_IN_MS)));
+            RemoteExperimentWorker worker = new RemoteExperimentWorker(host, port, slots, directory, maxMemory, heartbeatInterval);
+            worker.run();
+            System.exit(0);
+        }
+        catch (Throwable t) {
+            t.printStackTrace();
+            System.exit(-1);
+        }
+    }
+}
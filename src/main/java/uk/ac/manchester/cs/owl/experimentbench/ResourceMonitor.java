@@ -0,0 +1,292 @@
+package uk.ac.manchester.cs.owl.experimentbench;
+
+import org.semanticweb.owl.explanation.telemetry.DefaultTelemetryInfo;
+import org.semanticweb.owl.explanation.telemetry.TelemetryTransmitter;
+
+import java.lang.management.*;
+import java.lang.reflect.Method;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+
+/**
+ * Measures the resources that a thread uses while it carries out some work (loading an ontology or running an
+ * experiment).  The CPU time, allocated bytes, garbage collections and lock contention are measured by taking a
+ * snapshot of the platform MXBeans when the work starts and when it stops, and the peak heap usage is taken from
+ * the peaks of the heap memory pools.  In addition, if the sampling interval is greater than zero, the heap
+ * usage and the state of the thread are sampled on a background thread while the work runs.
+ * <p>
+ *     The allocated bytes and process CPU time are only available on JVMs that implement the
+ *     com.sun.management extensions of the MXBeans.  Measurements that are not available are not recorded.
+ * </p>
+ */
+public class ResourceMonitor {
+
+    public static final String TRANSMISSION_NAME = "resources";
+
+    private static final Timer timer = new Timer("Resource sampler", true);
+
+    private static final Method GET_THREAD_ALLOCATED_BYTES = getExtensionMethod("com.sun.management.ThreadMXBean", "getThreadAllocatedBytes", long.class);
+
+    private static final Method GET_PROCESS_CPU_TIME = getExtensionMethod("com.sun.management.OperatingSystemMXBean", "getProcessCpuTime");
+
+    private Thread thread;
+
+    private long samplingInterval;
+
+    private Snapshot startSnapshot;
+
+    private Snapshot endSnapshot;
+
+    private long peakHeapUsed;
+
+    private Map<String, Long> peakPoolUsage = new LinkedHashMap<String, Long>();
+
+    private TimerTask samplingTask;
+
+    private int samples = 0;
+
+    private long sampledHeapUsedTotal = 0;
+
+    private long sampledPeakHeapUsed = 0;
+
+    private int runnableSamples = 0;
+
+    private int blockedSamples = 0;
+
+    private int waitingSamples = 0;
+
+    /**
+     * @param thread The thread that carries out the work.
+     * @param samplingInterval The interval, in milliseconds, at which the heap usage and the state of the thread are
+     * sampled.  Zero or less for no sampling.
+     */
+    public ResourceMonitor(Thread thread, long samplingInterval) {
+        this.thread = thread;
+        this.samplingInterval = samplingInterval;
+    }
+
+    private static Method getExtensionMethod(String interfaceName, String methodName, Class<?>... parameterTypes) {
+        try {
+            return Class.forName(interfaceName).getMethod(methodName, parameterTypes);
+        }
+        catch (ClassNotFoundException e) {
+            return null;
+        }
+        catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    private static long invokeExtensionMethod(Method method, Object bean, Object... args) {
+        if (method == null || !method.getDeclaringClass().isInstance(bean)) {
+            return -1;
+        }
+        try {
+            return ((Number) method.invoke(bean, args)).longValue();
+        }
+        catch (Exception e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Resets the peak usage of the heap memory pools, takes the starting snapshot and starts sampling.
+     */
+    public synchronized void start() {
+        HeapUsage.resetPeakHeapUsage();
+        startSnapshot = new Snapshot(thread);
+        if (samplingInterval > 0) {
+            samplingTask = new TimerTask() {
+                @Override
+                public void run() {
+                    sample();
+                }
+            };
+            timer.scheduleAtFixedRate(samplingTask, 0, samplingInterval);
+        }
+    }
+
+    /**
+     * Stops sampling and takes the finishing snapshot.
+     */
+    public synchronized void stop() {
+        if (samplingTask != null) {
+            samplingTask.cancel();
+            samplingTask = null;
+        }
+        endSnapshot = new Snapshot(thread);
+        peakHeapUsed = HeapUsage.getPeakHeapUsage();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.isValid()) {
+                peakPoolUsage.put(pool.getName(), pool.getPeakUsage().getUsed());
+            }
+        }
+    }
+
+    private synchronized void sample() {
+        if (samplingTask == null) {
+            return;
+        }
+        long heapUsed = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        samples++;
+        sampledHeapUsedTotal += heapUsed;
+        sampledPeakHeapUsed = Math.max(sampledPeakHeapUsed, heapUsed);
+        // Thread.getState() does not need a safepoint, unlike ThreadMXBean.getThreadInfo()
+        Thread.State state = thread.getState();
+        if (state == Thread.State.RUNNABLE) {
+            runnableSamples++;
+        }
+        else if (state == Thread.State.BLOCKED) {
+            blockedSamples++;
+        }
+        else if (state == Thread.State.WAITING || state == Thread.State.TIMED_WAITING) {
+            waitingSamples++;
+        }
+    }
+
+    /**
+     * Gets the peak heap usage between the start and stop of this monitor.
+     * @return The peak usage in bytes.
+     */
+    public synchronized long getPeakHeapUsed() {
+        return peakHeapUsed;
+    }
+
+    /**
+     * Gets the total time that the garbage collectors took between the start and stop of this monitor.
+     * @return The time in milliseconds.
+     */
+    public synchronized long getGarbageCollectionTime() {
+        return getDifference(startSnapshot.garbageCollectionTime, endSnapshot.garbageCollectionTime);
+    }
+
+    private static long getDifference(long start, long end) {
+        if (start == -1 || end == -1) {
+            return -1;
+        }
+        return end - start;
+    }
+
+    /**
+     * Records the resources that were used as a transmission with the specified name.  This monitor must have been
+     * stopped.
+     * @param transmissionName The name of the transmission.
+     */
+    public synchronized void recordTelemetry(String transmissionName) {
+        if (startSnapshot == null || endSnapshot == null) {
+            throw new IllegalStateException("The resource monitor has not been started and stopped");
+        }
+        TelemetryTransmitter transmitter = TelemetryTransmitter.getTransmitter();
+        DefaultTelemetryInfo info = new DefaultTelemetryInfo(transmissionName);
+        try {
+            transmitter.beginTransmission(info);
+            transmitter.recordMeasurement(info, "walltime", endSnapshot.wallTime - startSnapshot.wallTime);
+            recordDifference(info, "cputime", startSnapshot.threadCpuTime, endSnapshot.threadCpuTime);
+            recordDifference(info, "usertime", startSnapshot.threadUserTime, endSnapshot.threadUserTime);
+            recordDifference(info, "processcputime", startSnapshot.processCpuTime, endSnapshot.processCpuTime);
+            recordDifference(info, "allocatedbytes", startSnapshot.allocatedBytes, endSnapshot.allocatedBytes);
+            recordDifference(info, "gccount", startSnapshot.garbageCollectionCount, endSnapshot.garbageCollectionCount);
+            recordDifference(info, "gctime", startSnapshot.garbageCollectionTime, endSnapshot.garbageCollectionTime);
+            for (String collectorName : endSnapshot.collectorCounts.keySet()) {
+                Long startCount = startSnapshot.collectorCounts.get(collectorName);
+                Long startTime = startSnapshot.collectorTimes.get(collectorName);
+                if (startCount != null && startTime != null) {
+                    recordDifference(info, collectorName + " gccount", startCount, endSnapshot.collectorCounts.get(collectorName));
+                    recordDifference(info, collectorName + " gctime", startTime, endSnapshot.collectorTimes.get(collectorName));
+                }
+            }
+            recordDifference(info, "blockedcount", startSnapshot.blockedCount, endSnapshot.blockedCount);
+            recordDifference(info, "blockedtime", startSnapshot.blockedTime, endSnapshot.blockedTime);
+            recordDifference(info, "waitedcount", startSnapshot.waitedCount, endSnapshot.waitedCount);
+            recordDifference(info, "waitedtime", startSnapshot.waitedTime, endSnapshot.waitedTime);
+            transmitter.recordMeasurement(info, "peakheapused", peakHeapUsed);
+            for (String poolName : peakPoolUsage.keySet()) {
+                transmitter.recordMeasurement(info, poolName + " peak", peakPoolUsage.get(poolName));
+            }
+            if (samples > 0) {
+                transmitter.recordMeasurement(info, "samplinginterval", samplingInterval);
+                transmitter.recordMeasurement(info, "samples", samples);
+                transmitter.recordMeasurement(info, "sampledpeakheapused", sampledPeakHeapUsed);
+                transmitter.recordMeasurement(info, "sampledmeanheapused", sampledHeapUsedTotal / samples);
+                transmitter.recordMeasurement(info, "runnablesamples", runnableSamples);
+                transmitter.recordMeasurement(info, "blockedsamples", blockedSamples);
+                transmitter.recordMeasurement(info, "waitingsamples", waitingSamples);
+            }
+        }
+        finally {
+            transmitter.endTransmission(info);
+        }
+    }
+
+    private static void recordDifference(DefaultTelemetryInfo info, String name, long start, long end) {
+        long difference = getDifference(start, end);
+        if (difference != -1) {
+            TelemetryTransmitter.getTransmitter().recordMeasurement(info, name, difference);
+        }
+    }
+
+    /**
+     * The cumulative counters of the MXBeans at a point in time.  Counters that are not supported are -1.
+     */
+    private static class Snapshot {
+
+        private long wallTime;
+
+        private long threadCpuTime = -1;
+
+        private long threadUserTime = -1;
+
+        private long processCpuTime;
+
+        private long allocatedBytes;
+
+        private long garbageCollectionCount = 0;
+
+        private long garbageCollectionTime = 0;
+
+        private Map<String, Long> collectorCounts = new LinkedHashMap<String, Long>();
+
+        private Map<String, Long> collectorTimes = new LinkedHashMap<String, Long>();
+
+        private long blockedCount = -1;
+
+        private long blockedTime = -1;
+
+        private long waitedCount = -1;
+
+        private long waitedTime = -1;
+
+        private Snapshot(Thread thread) {
+            wallTime = System.nanoTime();
+            ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+            long threadId = thread.getId();
+            if (threadMXBean.isThreadCpuTimeSupported() && threadMXBean.isThreadCpuTimeEnabled()) {
+                threadCpuTime = threadMXBean.getThreadCpuTime(threadId);
+                threadUserTime = threadMXBean.getThreadUserTime(threadId);
+            }
+            allocatedBytes = invokeExtensionMethod(GET_THREAD_ALLOCATED_BYTES, threadMXBean, threadId);
+            processCpuTime = invokeExtensionMethod(GET_PROCESS_CPU_TIME, ManagementFactory.getOperatingSystemMXBean());
+            for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+                long count = collector.getCollectionCount();
+                long time = collector.getCollectionTime();
+                if (count == -1 || time == -1) {
+                    continue;
+                }
+                collectorCounts.put(collector.getName(), count);
+                collectorTimes.put(collector.getName(), time);
+                garbageCollectionCount += count;
+                garbageCollectionTime += time;
+            }
+            ThreadInfo threadInfo = threadMXBean.getThreadInfo(threadId);
+            if (threadInfo != null) {
+                blockedCount = threadInfo.getBlockedCount();
+                waitedCount = threadInfo.getWaitedCount();
+                // The times are -1 unless thread contention monitoring has been enabled
+                blockedTime = threadInfo.getBlockedTime();
+                waitedTime = threadInfo.getWaitedTime();
+            }
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package uk.ac.manchester.cs.owl.experimentbench;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * An append only record of the state of each experiment in a run.  The journal lives in the root output directory
+ * and is read when the controller starts, so that a run that is stopped (or that crashes) can be restarted
+ * without rerunning experiments that have already succeeded.  Each line of the journal holds a time stamp, a
+ * {@link JobStatus}, an experiment id and, optionally, the fingerprint of the experiment (see
+ * {@link ExperimentFingerprinter}), separated by tabs.  The journal is synced to disk after each batch of lines is
+ * written, so that it survives the machine going down.
+ * <p>
+ *     When an experiment is recorded with a fingerprint that differs from the one it was last recorded with, its
+ *     count of attempts starts again, since it is in effect a new experiment.
+ * </p>
+ * <p>
+ *     Experiments, rather than jobs, are recorded, because the way in which experiments are grouped into jobs may
+ *     change between runs (e.g. if the loadontologyonce property is changed).  See
+ *     {@link OntologyDocumentExperimentJob#getExperimentId(int)}.
+ * </p>
+ */
+public class RunJournal {
+
+    public static final String FILE_NAME = "journal.log";
+
+    private static final String FIELD_SEPARATOR = "\t";
+
+    private File file;
+
+    private FileOutputStream outputStream;
+
+    private Writer writer;
+
+    private Map<String, JobStatus> statuses = new HashMap<String, JobStatus>();
+
+    private Map<String, Integer> attempts = new HashMap<String, Integer>();
+
+    private Map<String, String> fingerprints = new HashMap<String, String>();
+
+    private Map<String, String> currentFingerprints = new HashMap<String, String>();
+
+    /**
+     * Opens the journal in the specified directory, reading any entries that were written by earlier runs.
+     * @param rootOutputDirectory The directory.
+     * @throws IOException If the journal could not be read or opened for writing.
+     */
+    public RunJournal(File rootOutputDirectory) throws IOException {
+        rootOutputDirectory.mkdirs();
+        file = new File(rootOutputDirectory, FILE_NAME);
+        if (file.exists()) {
+            truncateUnterminatedLine();
+            read();
+        }
+        outputStream = new FileOutputStream(file, true);
+        writer = new BufferedWriter(new OutputStreamWriter(outputStream, "UTF-8"));
+    }
+
+    /**
+     * Truncates the journal after its last line break.  A last line that is not terminated was only partly written
+     * when the controller stopped, so it is dropped rather than applied, even if what was written of it parses.
+     */
+    private void truncateUnterminatedLine() throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            long length = raf.length();
+            while (length > 0) {
+                raf.seek(length - 1);
+                if (raf.read() == '\n') {
+                    break;
+                }
+                length--;
+            }
+            if (length < raf.length()) {
+                raf.setLength(length);
+            }
+        }
+        finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * Reads the journal.  Lines that are malformed are ignored.
+     */
+    private void read() throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split(FIELD_SEPARATOR);
+                if (fields.length != 3 && fields.length != 4) {
+                    continue;
+                }
+                JobStatus status;
+                try {
+                    status = JobStatus.valueOf(fields[1]);
+                }
+                catch (IllegalArgumentException e) {
+                    continue;
+                }
+                apply(fields[2], status, fields.length == 4 ? fields[3] : null);
+            }
+        }
+        finally {
+            reader.close();
+        }
+    }
+
+    private void apply(String experimentId, JobStatus status, String fingerprint) {
+        if (fingerprint != null) {
+            String previousFingerprint = fingerprints.put(experimentId, fingerprint);
+            if (previousFingerprint != null && !previousFingerprint.equals(fingerprint)) {
+                attempts.remove(experimentId);
+            }
+        }
+        statuses.put(experimentId, status);
+        if (status == JobStatus.RUNNING) {
+            Integer count = attempts.get(experimentId);
+            attempts.put(experimentId, count == null ? 1 : count + 1);
+        }
+    }
+
+    /**
+     * Gets the last recorded status of an experiment.
+     * @param experimentId The id of the experiment.
+     * @return The status, or null if the experiment is not in the journal.
+     */
+    public synchronized JobStatus getStatus(String experimentId) {
+        return statuses.get(experimentId);
+    }
+
+    /**
+     * Gets the fingerprint that an experiment was last recorded with.
+     * @param experimentId The id of the experiment.
+     * @return The fingerprint, or null if the experiment has not been recorded with a fingerprint.
+     */
+    public synchronized String getFingerprint(String experimentId) {
+        return fingerprints.get(experimentId);
+    }
+
+    /**
+     * Sets the fingerprint that an experiment has in this run.  The experiment is recorded with this fingerprint from
+     * now on.
+     * @param experimentId The id of the experiment.
+     * @param fingerprint The fingerprint.
+     */
+    public synchronized void setCurrentFingerprint(String experimentId, String fingerprint) {
+        currentFingerprints.put(experimentId, fingerprint);
+    }
+
+    /**
+     * Gets the number of times that an experiment has been started, over all runs.
+     * @param experimentId The id of the experiment.
+     * @return The number of times.
+     */
+    public synchronized int getAttempts(String experimentId) {
+        Integer count = attempts.get(experimentId);
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * Gets the number of times that the experiments of a job have been started.
+     * @param job The job.
+     * @return The largest number of attempts over the experiments of the job.
+     */
+    public synchronized int getAttempts(OntologyDocumentExperimentJob job) {
+        int result = 0;
+        for (String experimentId : job.getExperimentIds()) {
+            result = Math.max(result, getAttempts(experimentId));
+        }
+        return result;
+    }
+
+    public void record(String experimentId, JobStatus status) throws IOException {
+        record(Collections.singleton(experimentId), status);
+    }
+
+    public void record(OntologyDocumentExperimentJob job, JobStatus status) throws IOException {
+        recordJobs(Collections.singleton(job), status);
+    }
+
+    /**
+     * Records the status of the experiments of some jobs, and syncs the journal to disk.
+     * @param jobs The jobs.
+     * @param status The status.
+     * @throws IOException If the journal could not be written.
+     */
+    public void recordJobs(Collection<OntologyDocumentExperimentJob> jobs, JobStatus status) throws IOException {
+        List<String> experimentIds = new ArrayList<String>();
+        for (OntologyDocumentExperimentJob job : jobs) {
+            experimentIds.addAll(job.getExperimentIds());
+        }
+        record(experimentIds, status);
+    }
+
+    private synchronized void record(Collection<String> experimentIds, JobStatus status) throws IOException {
+        long timestamp = System.currentTimeMillis();
+        for (String experimentId : experimentIds) {
+            String fingerprint = currentFingerprints.get(experimentId);
+            writer.write(timestamp + FIELD_SEPARATOR + status.name() + FIELD_SEPARATOR + experimentId + (fingerprint != null ? FIELD_SEPARATOR + fingerprint : "") + "\n");
+            apply(experimentId, status, fingerprint);
+        }
+        writer.flush();
+        outputStream.getFD().sync();
+    }
+
+    public synchronized void close() {
+        try {
+            writer.close();
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
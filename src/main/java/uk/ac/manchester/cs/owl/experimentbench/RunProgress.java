@@ -0,0 +1,113 @@
+package uk.ac.manchester.cs.owl.experimentbench;
+
+import java.text.SimpleDateFormat;
+import java.util.*;
+
+/**
+ * Predicts when a run will finish.  The prediction starts from the {@link JobRuntimeEstimator} estimates of the
+ * jobs, and is corrected as jobs finish by the ratio of the actual to the estimated times of the finished jobs.
+ * The remaining time is the remaining work shared between the workers, but never less than the remaining time of
+ * the longest remaining job.
+ */
+public class RunProgress {
+
+    private Map<OntologyDocumentExperimentJob, Long> estimates = new LinkedHashMap<OntologyDocumentExperimentJob, Long>();
+
+    private Set<OntologyDocumentExperimentJob> finishedJobs = new HashSet<OntologyDocumentExperimentJob>();
+
+    private int workers;
+
+    private boolean calibrated;
+
+    private long estimatedTimeOfFinishedJobs = 0;
+
+    private long actualTimeOfFinishedJobs = 0;
+
+    /**
+     * @param jobs The jobs of the run.
+     * @param estimator The estimator for the run times of the jobs.
+     * @param workers The number of jobs that run at the same time.
+     */
+    public RunProgress(List<OntologyDocumentExperimentJob> jobs, JobRuntimeEstimator estimator, int workers) {
+        for (OntologyDocumentExperimentJob job : jobs) {
+            estimates.put(job, estimator.estimate(job));
+        }
+        this.workers = Math.max(1, workers);
+        this.calibrated = estimator.isCalibrated();
+    }
+
+    public synchronized void jobFinished(OntologyDocumentExperimentJob job) {
+        if (!estimates.containsKey(job) || !finishedJobs.add(job)) {
+            return;
+        }
+        estimatedTimeOfFinishedJobs += estimates.get(job);
+        actualTimeOfFinishedJobs += job.getDuration();
+    }
+
+    /**
+     * Predicts the time that the jobs that have not finished will take.
+     * @return The time in milliseconds, or -1 if there is not enough information to make a prediction.
+     */
+    public synchronized long getPredictedRemainingTime() {
+        double correction;
+        if (estimatedTimeOfFinishedJobs > 0) {
+            correction = ((double) actualTimeOfFinishedJobs) / estimatedTimeOfFinishedJobs;
+        }
+        else if (calibrated) {
+            correction = 1;
+        }
+        else {
+            return -1;
+        }
+        long now = System.currentTimeMillis();
+        double remainingWork = 0;
+        double longestRemainingJob = 0;
+        for (Map.Entry<OntologyDocumentExperimentJob, Long> entry : estimates.entrySet()) {
+            OntologyDocumentExperimentJob job = entry.getKey();
+            if (finishedJobs.contains(job)) {
+                continue;
+            }
+            double remaining = entry.getValue() * correction;
+            if (job.getStartTime() > 0) {
+                remaining = Math.max(0, remaining - (now - job.getStartTime()));
+            }
+            remainingWork += remaining;
+            longestRemainingJob = Math.max(longestRemainingJob, remaining);
+        }
+        return Math.round(Math.max(remainingWork / workers, longestRemainingJob));
+    }
+
+    /**
+     * Gets a message that describes the progress of the run and its predicted completion time.
+     * @return The message.
+     */
+    public synchronized String getProgressMessage() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Finished ");
+        sb.append(finishedJobs.size());
+        sb.append(" of ");
+        sb.append(estimates.size());
+        sb.append(" jobs.");
+        long remainingTime = getPredictedRemainingTime();
+        if (remainingTime != -1) {
+            sb.append("  Predicted completion at ");
+            sb.append(new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date(System.currentTimeMillis() + remainingTime)));
+            sb.append(" (in ");
+            sb.append(formatDuration(remainingTime));
+            sb.append(")");
+        }
+        return sb.toString();
+    }
+
+    public static String formatDuration(long time) {
+        long seconds = time / 1000;
+        if (seconds < 60) {
+            return seconds + "s";
+        }
+        long minutes = seconds / 60;
+        if (minutes < 60) {
+            return String.format("%dm %02ds", minutes, seconds % 60);
+        }
+        return String.format("%dh %02dm", minutes / 60, minutes % 60);
+    }
+}
@@ -0,0 +1,240 @@
+package uk.ac.manchester.cs.owl.experimentbench;
+
+import java.text.SimpleDateFormat;
+import java.util.*;
+
+/**
+ * The live state of a run, as seen by the controller's scheduler: which jobs are queued, which are running (and on
+ * which worker, with how much heap), which have finished, the throughput so far and the predicted completion time.
+ * The state can be rendered as JSON or as plain text.  See {@link RunStatusPublisher}.
+ */
+public class RunStatus {
+
+    /**
+     * The number of failed jobs, and of slowest jobs, that are reported.
+     */
+    public static final int REPORTED_JOBS = 10;
+
+    private static final String DATE_FORMAT = "yyyy-MM-dd HH:mm:ss";
+
+    private RunProgress progress;
+
+    private MemoryBudget memoryBudget;
+
+    private int workers;
+
+    private long runStartTime;
+
+    private int totalJobs;
+
+    private Map<OntologyDocumentExperimentJob, String> runningJobs = new LinkedHashMap<OntologyDocumentExperimentJob, String>();
+
+    private List<OntologyDocumentExperimentJob> finishedJobs = new ArrayList<OntologyDocumentExperimentJob>();
+
+    private LinkedList<OntologyDocumentExperimentJob> recentFailures = new LinkedList<OntologyDocumentExperimentJob>();
+
+    private int succeededJobs;
+
+    private int failedJobs;
+
+    private int timedOutJobs;
+
+    /**
+     * @param totalJobs The number of jobs in the run.
+     * @param progress The progress of the run, which predicts its completion time.
+     * @param memoryBudget The memory budget that the jobs' heaps are reserved from.
+     * @param workers The number of jobs that run at the same time.
+     */
+    public RunStatus(int totalJobs, RunProgress progress, MemoryBudget memoryBudget, int workers) {
+        this.totalJobs = totalJobs;
+        this.progress = progress;
+        this.memoryBudget = memoryBudget;
+        this.workers = workers;
+        this.runStartTime = System.currentTimeMillis();
+    }
+
+    /**
+     * Records that a job has been taken by a worker.
+     * @param job The job.
+     * @param worker The name of the worker.
+     */
+    public synchronized void jobStarted(OntologyDocumentExperimentJob job, String worker) {
+        runningJobs.put(job, worker);
+    }
+
+    public synchronized void jobFinished(OntologyDocumentExperimentJob job) {
+        if (runningJobs.remove(job) == null) {
+            return;
+        }
+        finishedJobs.add(job);
+        if (job.isSucceeded()) {
+            succeededJobs++;
+            return;
+        }
+        if (job.isTimedOut()) {
+            timedOutJobs++;
+        }
+        else {
+            failedJobs++;
+        }
+        recentFailures.addFirst(job);
+        if (recentFailures.size() > REPORTED_JOBS) {
+            recentFailures.removeLast();
+        }
+    }
+
+    /**
+     * Gets the throughput of the run so far.
+     * @return The number of finished jobs per hour of wall clock time.
+     */
+    public synchronized double getJobsPerHour() {
+        long elapsedTime = System.currentTimeMillis() - runStartTime;
+        if (elapsedTime <= 0) {
+            return 0;
+        }
+        return finishedJobs.size() * 3600000.0 / elapsedTime;
+    }
+
+    private List<OntologyDocumentExperimentJob> getSlowestJobs() {
+        List<OntologyDocumentExperimentJob> result = new ArrayList<OntologyDocumentExperimentJob>(finishedJobs);
+        Collections.sort(result, new Comparator<OntologyDocumentExperimentJob>() {
+            public int compare(OntologyDocumentExperimentJob job1, OntologyDocumentExperimentJob job2) {
+                long diff = job2.getDuration() - job1.getDuration();
+                return diff < 0 ? -1 : (diff > 0 ? 1 : 0);
+            }
+        });
+        return result.subList(0, Math.min(REPORTED_JOBS, result.size()));
+    }
+
+    private static String getStatusName(OntologyDocumentExperimentJob job) {
+        if (job.isSucceeded()) {
+            return JobStatus.SUCCEEDED.name();
+        }
+        else if (job.isTimedOut()) {
+            return JobStatus.TIMED_OUT.name();
+        }
+        else {
+            return JobStatus.FAILED.name();
+        }
+    }
+
+    private static String formatTime(long time) {
+        return new SimpleDateFormat(DATE_FORMAT).format(new Date(time));
+    }
+
+    /**
+     * Renders the status as a JSON object.
+     */
+    public synchronized String toJson() {
+        long now = System.currentTimeMillis();
+        long remainingTime = progress.getPredictedRemainingTime();
+        Runtime runtime = Runtime.getRuntime();
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\n");
+        sb.append("  \"time\": ").append(quote(formatTime(now))).append(",\n");
+        sb.append("  \"started\": ").append(quote(formatTime(runStartTime))).append(",\n");
+        sb.append("  \"elapsedms\": ").append(now - runStartTime).append(",\n");
+        sb.append("  \"workers\": ").append(workers).append(",\n");
+        sb.append("  \"jobs\": {\"total\": ").append(totalJobs);
+        sb.append(", \"queued\": ").append(totalJobs - finishedJobs.size() - runningJobs.size());
+        sb.append(", \"running\": ").append(runningJobs.size());
+        sb.append(", \"finished\": ").append(finishedJobs.size());
+        sb.append(", \"succeeded\": ").append(succeededJobs);
+        sb.append(", \"failed\": ").append(failedJobs);
+        sb.append(", \"timedout\": ").append(timedOutJobs).append("},\n");
+        sb.append("  \"jobsperhour\": ").append(String.format(Locale.ENGLISH, "%.2f", getJobsPerHour())).append(",\n");
+        sb.append("  \"predictedremainingms\": ").append(remainingTime).append(",\n");
+        sb.append("  \"predictedcompletion\": ").append(remainingTime != -1 ? quote(formatTime(now + remainingTime)) : "null").append(",\n");
+        sb.append("  \"memory\": {\"budgetmb\": ").append(memoryBudget.getTotalMegaBytes());
+        sb.append(", \"reservedmb\": ").append(memoryBudget.getReservedMegaBytes());
+        sb.append(", \"controllerheapusedmb\": ").append((runtime.totalMemory() - runtime.freeMemory()) / (1024 * 1024)).append("},\n");
+        sb.append("  \"running\": [");
+        boolean first = true;
+        for (Map.Entry<OntologyDocumentExperimentJob, String> entry : runningJobs.entrySet()) {
+            OntologyDocumentExperimentJob job = entry.getKey();
+            sb.append(first ? "\n" : ",\n");
+            sb.append("    {\"worker\": ").append(quote(entry.getValue()));
+            sb.append(", \"job\": ").append(quote(job.getName()));
+            sb.append(", \"started\": ").append(quote(formatTime(job.getStartTime())));
+            sb.append(", \"elapsedms\": ").append(now - job.getStartTime());
+            sb.append(", \"maxheapmb\": ").append(job.getMaxMemoryInMegaBytes()).append("}");
+            first = false;
+        }
+        sb.append(first ? "],\n" : "\n  ],\n");
+        sb.append("  \"recentfailures\": [");
+        first = true;
+        for (OntologyDocumentExperimentJob job : recentFailures) {
+            sb.append(first ? "\n" : ",\n");
+            sb.append("    {\"job\": ").append(quote(job.getName()));
+            sb.append(", \"status\": ").append(quote(getStatusName(job)));
+            sb.append(", \"returncode\": ").append(job.getReturnCode());
+            sb.append(", \"finished\": ").append(quote(formatTime(job.getStartTime() + job.getDuration()))).append("}");
+            first = false;
+        }
+        sb.append(first ? "],\n" : "\n  ],\n");
+        sb.append("  \"slowest\": [");
+        first = true;
+        for (OntologyDocumentExperimentJob job : getSlowestJobs()) {
+            sb.append(first ? "\n" : ",\n");
+            sb.append("    {\"job\": ").append(quote(job.getName()));
+            sb.append(", \"durationms\": ").append(job.getDuration());
+            sb.append(", \"status\": ").append(quote(getStatusName(job))).append("}");
+            first = false;
+        }
+        sb.append(first ? "]\n" : "\n  ]\n");
+        sb.append("}\n");
+        return sb.toString();
+    }
+
+    /**
+     * Renders the status as plain text.
+     */
+    public synchronized String toText() {
+        long now = System.currentTimeMillis();
+        StringBuilder sb = new StringBuilder();
+        sb.append("Status at ").append(formatTime(now)).append(" (started ").append(formatTime(runStartTime)).append(")\n");
+        sb.append(progress.getProgressMessage()).append("\n");
+        sb.append("Jobs: ").append(totalJobs - finishedJobs.size() - runningJobs.size()).append(" queued, ");
+        sb.append(runningJobs.size()).append(" running, ");
+        sb.append(succeededJobs).append(" succeeded, ");
+        sb.append(failedJobs).append(" failed, ");
+        sb.append(timedOutJobs).append(" timed out\n");
+        sb.append(String.format("Throughput: %.2f jobs per hour\n", getJobsPerHour()));
+        sb.append("Memory budget: ").append(memoryBudget.getReservedMegaBytes()).append("M of ").append(memoryBudget.getTotalMegaBytes()).append("M reserved\n");
+        sb.append("\nRunning:\n");
+        for (Map.Entry<OntologyDocumentExperimentJob, String> entry : runningJobs.entrySet()) {
+            OntologyDocumentExperimentJob job = entry.getKey();
+            sb.append("  ").append(entry.getValue()).append(": ").append(job.getName());
+            sb.append(" (").append(RunProgress.formatDuration(now - job.getStartTime()));
+            sb.append(", max heap ").append(job.getMaxMemoryInMegaBytes()).append("M)\n");
+        }
+        sb.append("\nRecent failures:\n");
+        for (OntologyDocumentExperimentJob job : recentFailures) {
+            sb.append("  ").append(job.getName()).append(": ").append(getStatusName(job));
+            sb.append(" (return code ").append(job.getReturnCode()).append(")\n");
+        }
+        sb.append("\nSlowest jobs:\n");
+        for (OntologyDocumentExperimentJob job : getSlowestJobs()) {
+            sb.append("  ").append(job.getName()).append(": ").append(RunProgress.formatDuration(job.getDuration()));
+            sb.append(" ").append(getStatusName(job)).append("\n");
+        }
+        return sb.toString();
+    }
+
+    private static String quote(String s) {
+        StringBuilder sb = new StringBuilder("\"");
+        for (int i = 0; i < s.length(); i++) {
+            char ch = s.charAt(i);
+            if (ch == '"' || ch == '\\') {
+                sb.append('\\').append(ch);
+            }
+            else if (ch < 0x20) {
+                sb.append(String.format("\\u%04x", (int) ch));
+            }
+            else {
+                sb.append(ch);
+            }
+        }
+        return sb.append('"').toString();
+    }
+}
@@ -0,0 +1,129 @@
+package uk.ac.manchester.cs.owl.experimentbench;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Timer;
+import java.util.TimerTask;
+
+/**
+ * Publishes the {@link RunStatus} of a run while it is running: by periodically rewriting a status file in the
+ * output directory, and, optionally, through an HTTP server on the loopback interface that serves the status as
+ * plain text at / and as JSON at /status.json.
+ */
+public class RunStatusPublisher {
+
+    public static final String STATUS_FILE_NAME = "status.json";
+
+    private static final String JSON_PATH = "/status.json";
+
+    private RunStatus status;
+
+    private File statusFile;
+
+    private Timer timer;
+
+    private HttpServer server;
+
+    /**
+     * @param status The status to publish.
+     * @param outputDirectory The directory that the status file is written to.
+     */
+    public RunStatusPublisher(RunStatus status, File outputDirectory) {
+        this.status = status;
+        this.statusFile = new File(outputDirectory, STATUS_FILE_NAME);
+    }
+
+    /**
+     * Starts rewriting the status file.
+     * @param interval The interval between rewrites, in milliseconds.  Zero for no status file.
+     */
+    public void startStatusFile(long interval) {
+        if (interval <= 0) {
+            return;
+        }
+        timer = new Timer("Status file writer", true);
+        timer.schedule(new TimerTask() {
+            @Override
+            public void run() {
+                writeStatusFile();
+            }
+        }, 0, interval);
+    }
+
+    /**
+     * Starts serving the status over HTTP on the loopback interface.
+     * @param port The port.  Zero for any free port.
+     * @throws IOException If the server could not be started.
+     */
+    public void startServer(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getByName(null), port), 0);
+        server.createContext("/", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                if (exchange.getRequestURI().getPath().equals(JSON_PATH)) {
+                    send(exchange, "application/json", status.toJson());
+                }
+                else {
+                    send(exchange, "text/plain", status.toText());
+                }
+            }
+        });
+        server.start();
+        System.out.println("Run status: http://localhost:" + server.getAddress().getPort() + "/");
+    }
+
+    private static void send(HttpExchange exchange, String contentType, String body) throws IOException {
+        byte[] bytes = body.getBytes("UTF-8");
+        exchange.getResponseHeaders().set("Content-Type", contentType + "; charset=UTF-8");
+        exchange.sendResponseHeaders(200, bytes.length);
+        OutputStream os = exchange.getResponseBody();
+        try {
+            os.write(bytes);
+        }
+        finally {
+            os.close();
+        }
+    }
+
+    /**
+     * Writes the status file.  The status is written to a temporary file that is then renamed, so that readers never
+     * see a partly written file.
+     */
+    private synchronized void writeStatusFile() {
+        File temporaryFile = new File(statusFile.getParentFile(), STATUS_FILE_NAME + ".tmp");
+        try {
+            statusFile.getParentFile().mkdirs();
+            Writer writer = new OutputStreamWriter(new FileOutputStream(temporaryFile), "UTF-8");
+            try {
+                writer.write(status.toJson());
+            }
+            finally {
+                writer.close();
+            }
+            if (!temporaryFile.renameTo(statusFile)) {
+                statusFile.delete();
+                temporaryFile.renameTo(statusFile);
+            }
+        }
+        catch (IOException e) {
+            System.err.println("Could not write the run status: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Stops publishing, after writing the final status file.
+     */
+    public void dispose() {
+        if (timer != null) {
+            timer.cancel();
+            writeStatusFile();
+        }
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+}
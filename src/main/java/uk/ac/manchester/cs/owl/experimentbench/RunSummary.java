@@ -0,0 +1,107 @@
+package uk.ac.manchester.cs.owl.experimentbench;
+
+import java.io.PrintStream;
+
+/**
+ * Accumulates the results of the jobs run by a controller so that a summary can be printed at the end of a run.
+ * The speedup is the sum of the individual job times divided by the wall clock time of the whole run.
+ */
+public class RunSummary {
+
+    private int workers;
+
+    private long runStartTime;
+
+    private long runEndTime;
+
+    private int succeededJobs;
+
+    private int failedJobs;
+
+    private int timedOutJobs;
+
+    private long cumulativeJobTime;
+
+    private int completedExperiments;
+
+    private long startupSavingPerJvm = -1;
+
+    private boolean jvmPerJob;
+
+    public RunSummary(int workers) {
+        this.workers = workers;
+    }
+
+    public synchronized void markRunStarted() {
+        runStartTime = System.currentTimeMillis();
+    }
+
+    public synchronized void markRunFinished() {
+        runEndTime = System.currentTimeMillis();
+    }
+
+    public synchronized void addJob(OntologyDocumentExperimentJob job) {
+        if (job.isSucceeded()) {
+            succeededJobs++;
+        }
+        else if (job.isTimedOut()) {
+            timedOutJobs++;
+        }
+        else {
+            failedJobs++;
+        }
+        cumulativeJobTime += job.getDuration();
+    }
+
+    /**
+     * Records an experiment that was not run because the journal shows that it succeeded in an earlier run.
+     */
+    public synchronized void addCompletedExperiment() {
+        completedExperiments++;
+    }
+
+    /**
+     * Records the start up time that the class data sharing archive saves each runner JVM.
+     * @param startupSavingPerJvm The saving in milliseconds, or -1 if it is not known.
+     * @param jvmPerJob true if each job was run in a JVM of its own, so that the total saving can be estimated.
+     */
+    public synchronized void setClassDataSharingStartupSaving(long startupSavingPerJvm, boolean jvmPerJob) {
+        this.startupSavingPerJvm = startupSavingPerJvm;
+        this.jvmPerJob = jvmPerJob;
+    }
+
+    public synchronized long getWallClockTime() {
+        return runEndTime - runStartTime;
+    }
+
+    public synchronized long getCumulativeJobTime() {
+        return cumulativeJobTime;
+    }
+
+    public synchronized double getSpeedup() {
+        long wallClockTime = getWallClockTime();
+        if (wallClockTime <= 0) {
+            return 1.0;
+        }
+        return ((double) cumulativeJobTime) / wallClockTime;
+    }
+
+    public synchronized void dump(PrintStream ps) {
+        ps.println("--------------------------------------------------------------");
+        ps.println("RUN SUMMARY");
+        ps.println("--------------------------------------------------------------");
+        ps.println("Workers: " + workers);
+        ps.println("Jobs succeeded: " + succeededJobs);
+        ps.println("Jobs failed: " + failedJobs);
+        ps.println("Jobs timed out: " + timedOutJobs);
+        ps.println("Experiments completed in earlier runs: " + completedExperiments);
+        ps.println("Wall clock time (ms): " + getWallClockTime());
+        ps.println("Cumulative job time (ms): " + cumulativeJobTime);
+        ps.println(String.format("Speedup: %.2f", getSpeedup()));
+        if (startupSavingPerJvm != -1) {
+            int jobs = succeededJobs + failedJobs + timedOutJobs;
+            ps.println("Start up time saved by CDS archive (ms): " + startupSavingPerJvm + " per JVM" + (jvmPerJob ? ", about " + (startupSavingPerJvm * jobs) + " over " + jobs + " jobs" : ""));
+        }
+        ps.println("--------------------------------------------------------------");
+    }
+}
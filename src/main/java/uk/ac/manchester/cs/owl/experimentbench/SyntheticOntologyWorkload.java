@@ -0,0 +1,61 @@
+package uk.ac.manchester.cs.owl.experimentbench;
+
+import org.semanticweb.owlapi.model.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * A generated ontology, so that experiments can be run against ontologies of a controlled size and shape.  The
+ * ontology document directory does not need to hold a document: the shape of the ontology is given by the
+ * syntheticclasses, syntheticbranching, syntheticproperties and syntheticexistentials properties, usually in the
+ * experiment.properties file of the directory.  The classes form a tree with the given branching factor, and the
+ * existential restrictions relate random classes through random object properties.  The random choices are
+ * seeded with workloadseed, so the same properties always give the same ontology.  The experiments are passed
+ * the ontology document directory in place of a document.
+ */
+public class SyntheticOntologyWorkload implements Workload {
+
+    private static final String BASE_IRI = "http://owl.cs.manchester.ac.uk/experimentbench/synthetic/";
+
+    public List<WorkloadInput> getInputs(File ontologyDocumentDirectory, ExperimentProperties properties) throws IOException {
+        return Collections.singletonList(new WorkloadInput(null, ontologyDocumentDirectory, 0));
+    }
+
+    public OWLOntology load(WorkloadInput input, OWLOntologyManager manager, OntologyDocumentLoader loader, ExperimentProperties properties) throws OWLOntologyCreationException, IOException {
+        HeapUsage.resetPeakHeapUsage();
+        long t0 = System.currentTimeMillis();
+        String ontologyIRI = BASE_IRI + input.getDocument().getName();
+        OWLOntology ontology = manager.createOntology(IRI.create(ontologyIRI));
+        OWLDataFactory dataFactory = manager.getOWLDataFactory();
+        Random random = new Random(properties.getWorkloadSeed());
+        int branching = properties.getSyntheticBranching();
+        List<OWLClass> classes = new ArrayList<OWLClass>();
+        List<OWLObjectProperty> objectProperties = new ArrayList<OWLObjectProperty>();
+        Set<OWLAxiom> axioms = new HashSet<OWLAxiom>();
+        for (int i = 0; i < properties.getSyntheticClasses(); i++) {
+            OWLClass cls = dataFactory.getOWLClass(IRI.create(ontologyIRI + "#C" + i));
+            classes.add(cls);
+            axioms.add(dataFactory.getOWLDeclarationAxiom(cls));
+            if (i > 0) {
+                axioms.add(dataFactory.getOWLSubClassOfAxiom(cls, classes.get((i - 1) / branching)));
+            }
+        }
+        for (int i = 0; i < properties.getSyntheticProperties(); i++) {
+            OWLObjectProperty property = dataFactory.getOWLObjectProperty(IRI.create(ontologyIRI + "#p" + i));
+            objectProperties.add(property);
+            axioms.add(dataFactory.getOWLDeclarationAxiom(property));
+        }
+        for (int i = 0; i < properties.getSyntheticExistentials(); i++) {
+            OWLClass subClass = classes.get(random.nextInt(classes.size()));
+            OWLObjectProperty property = objectProperties.get(random.nextInt(objectProperties.size()));
+            OWLClass filler = classes.get(random.nextInt(classes.size()));
+            axioms.add(dataFactory.getOWLSubClassOfAxiom(subClass, dataFactory.getOWLObjectSomeValuesFrom(property, filler)));
+        }
+        manager.addAxioms(ontology, axioms);
+        loader.setLoadStatistics(System.currentTimeMillis() - t0, HeapUsage.getPeakHeapUsage());
+        System.out.println("Generated a synthetic ontology of " + ontology.getLogicalAxiomCount() + " logical axioms");
+        return ontology;
+    }
+}
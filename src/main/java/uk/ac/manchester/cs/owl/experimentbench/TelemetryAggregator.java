@@ -0,0 +1,311 @@
+package uk.ac.manchester.cs.owl.experimentbench;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Aggregates the telemetry of a whole run (telemetry-out/&lt;ontology&gt;/&lt;experiment&gt;/telemetry.xml or
+ * telemetry.bin) into a single CSV file with one row per ontology, experiment, transmission path and measurement
+ * name.  See {@link TelemetrySummary}.  Telemetry files are parsed in parallel, with a streaming parser.
+ * <p>
+ *     The summary of each experiment is kept in {@link #EXPERIMENT_SUMMARY_FILE_NAME} in the experiment's output
+ *     directory, and a manifest of the telemetry files that were summarised (their names, modification times and
+ *     lengths) is kept next to the aggregated summary.  When the aggregator is run again only the telemetry files that
+ *     have changed since the last aggregation are parsed again.
+ * </p>
+ */
+public class TelemetryAggregator {
+
+    public static final String SUMMARY_FILE_NAME = "summary.csv";
+
+    public static final String MANIFEST_FILE_NAME = "summary.manifest";
+
+    public static final String EXPERIMENT_SUMMARY_FILE_NAME = "telemetry-summary.csv";
+
+    private static final String OUTPUT_DIRECTORY_NAME_COMMAND_LINE_SWITCH = "out";
+
+    private static final String SUMMARY_FILE_NAME_COMMAND_LINE_SWITCH = "summary";
+
+    private static final String THREADS_COMMAND_LINE_SWITCH = "threads";
+
+    private static final String FULL_COMMAND_LINE_SWITCH = "full";
+
+    private static final String OUTPUT_DIRECTORY_NAME = "telemetry-out";
+
+    private File rootOutputDirectory;
+
+    private File summaryFile;
+
+    private int threads;
+
+    private boolean incremental = true;
+
+    public TelemetryAggregator(File rootOutputDirectory, File summaryFile, int threads) {
+        this.rootOutputDirectory = rootOutputDirectory;
+        this.summaryFile = summaryFile;
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Sets whether experiments whose telemetry has not changed since the last aggregation are reused.
+     * @param incremental false to parse every telemetry file.  The default is true.
+     */
+    public void setIncremental(boolean incremental) {
+        this.incremental = incremental;
+    }
+
+    private File getManifestFile() {
+        return new File(summaryFile.getAbsoluteFile().getParentFile(), MANIFEST_FILE_NAME);
+    }
+
+    /**
+     * Aggregates the telemetry of the run and writes the summary file.
+     * @throws IOException If the summary file could not be written.
+     */
+    public void aggregate() throws IOException {
+        long t0 = System.currentTimeMillis();
+        Properties manifest = incremental ? loadManifest() : new Properties();
+        final Map<String, File> experimentDirectories = findExperimentDirectories();
+        Properties updatedManifest = new Properties();
+        Map<String, Future<String>> parseResults = new LinkedHashMap<String, Future<String>>();
+        ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        try {
+            for (final Map.Entry<String, File> entry : experimentDirectories.entrySet()) {
+                final File telemetryFile = getTelemetryFile(entry.getValue());
+                if (telemetryFile == null) {
+                    continue;
+                }
+                String stamp = getStamp(telemetryFile);
+                if (stamp.equals(manifest.getProperty(entry.getKey())) && new File(entry.getValue(), EXPERIMENT_SUMMARY_FILE_NAME).exists()) {
+                    updatedManifest.setProperty(entry.getKey(), stamp);
+                }
+                else {
+                    parseResults.put(entry.getKey(), executorService.submit(new Callable<String>() {
+                        public String call() throws Exception {
+                            return summariseExperiment(entry.getKey(), entry.getValue(), telemetryFile);
+                        }
+                    }));
+                }
+            }
+            int failed = 0;
+            for (Map.Entry<String, Future<String>> entry : parseResults.entrySet()) {
+                try {
+                    updatedManifest.setProperty(entry.getKey(), entry.getValue().get());
+                }
+                catch (ExecutionException e) {
+                    failed++;
+                    System.err.println("Could not summarise " + entry.getKey() + ": " + e.getCause().getMessage());
+                    new File(experimentDirectories.get(entry.getKey()), EXPERIMENT_SUMMARY_FILE_NAME).delete();
+                }
+            }
+            writeSummary(experimentDirectories, updatedManifest);
+            storeManifest(updatedManifest);
+            System.out.println("Summarised " + updatedManifest.size() + " experiments (" + (parseResults.size() - failed) + " parsed, " + (updatedManifest.size() - parseResults.size() + failed) + " unchanged, " + failed + " failed) in " + (System.currentTimeMillis() - t0) + " ms");
+            System.out.println("Summary: " + summaryFile.getAbsolutePath());
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    /**
+     * Finds the experiment output directories of the run.
+     * @return A map from experiment id (ontology directory name/experiment directory name, followed by the directories
+     * of the matrix configuration and /fork-n for the forks of forked experiments) to directory, sorted by experiment
+     * id.
+     */
+    private Map<String, File> findExperimentDirectories() {
+        Map<String, File> result = new TreeMap<String, File>();
+        File[] ontologyOutputDirectories = rootOutputDirectory.listFiles();
+        if (ontologyOutputDirectories == null) {
+            return result;
+        }
+        for (File ontologyOutputDirectory : ontologyOutputDirectories) {
+            if (!ontologyOutputDirectory.isDirectory() || ontologyOutputDirectory.isHidden()) {
+                continue;
+            }
+            File[] experimentOutputDirectories = ontologyOutputDirectory.listFiles();
+            if (experimentOutputDirectories == null) {
+                continue;
+            }
+            for (File experimentOutputDirectory : experimentOutputDirectories) {
+                if (experimentOutputDirectory.isDirectory()) {
+                    addExperimentDirectories(ontologyOutputDirectory.getName() + "/" + experimentOutputDirectory.getName(), experimentOutputDirectory, result);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Adds an experiment output directory and, recursively, its sub-directories.  Experiments that are run in a
+     * matrix of configurations, or in several forks, have an output directory per configuration and fork.
+     * Directories without telemetry are skipped when the telemetry is parsed.
+     */
+    private static void addExperimentDirectories(String experimentId, File experimentOutputDirectory, Map<String, File> result) {
+        result.put(experimentId, experimentOutputDirectory);
+        File[] subDirectories = experimentOutputDirectory.listFiles();
+        if (subDirectories != null) {
+            for (File subDirectory : subDirectories) {
+                if (subDirectory.isDirectory() && !subDirectory.isHidden()) {
+                    addExperimentDirectories(experimentId + "/" + subDirectory.getName(), subDirectory, result);
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the telemetry file in an experiment output directory.  If there is both XML and binary telemetry then the
+     * most recent is used.
+     * @return The file, or null if the directory does not contain any telemetry.
+     */
+    private static File getTelemetryFile(File experimentOutputDirectory) {
+        File xmlTelemetryFile = new File(experimentOutputDirectory, OntologyDocumentExperimentRunner.TELEMETRY_FILE_NAME);
+        File binaryTelemetryFile = new File(experimentOutputDirectory, OntologyDocumentExperimentRunner.BINARY_TELEMETRY_FILE_NAME);
+        if (!binaryTelemetryFile.exists()) {
+            return xmlTelemetryFile.exists() ? xmlTelemetryFile : null;
+        }
+        if (!xmlTelemetryFile.exists() || binaryTelemetryFile.lastModified() > xmlTelemetryFile.lastModified()) {
+            return binaryTelemetryFile;
+        }
+        return xmlTelemetryFile;
+    }
+
+    private static String getStamp(File telemetryFile) {
+        return telemetryFile.getName() + ":" + telemetryFile.lastModified() + ":" + telemetryFile.length();
+    }
+
+    /**
+     * Parses a telemetry file and writes its summary to the experiment output directory.
+     * @return The stamp of the telemetry file that was summarised.
+     */
+    private static String summariseExperiment(String experimentId, File experimentOutputDirectory, File telemetryFile) throws IOException {
+        String stamp = getStamp(telemetryFile);
+        TelemetrySummary summary = new TelemetrySummary();
+        if (telemetryFile.getName().equals(OntologyDocumentExperimentRunner.BINARY_TELEMETRY_FILE_NAME)) {
+            BinaryTelemetryReader.read(telemetryFile, summary);
+        }
+        else {
+            TelemetryXMLReader.read(telemetryFile, summary);
+        }
+        int separatorIndex = experimentId.indexOf('/');
+        File summaryFile = new File(experimentOutputDirectory, EXPERIMENT_SUMMARY_FILE_NAME);
+        File tempFile = File.createTempFile(EXPERIMENT_SUMMARY_FILE_NAME, ".tmp", experimentOutputDirectory);
+        Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tempFile), "UTF-8"));
+        try {
+            summary.writeRows(writer, experimentId.substring(0, separatorIndex), experimentId.substring(separatorIndex + 1));
+        }
+        finally {
+            writer.close();
+        }
+        summaryFile.delete();
+        if (!tempFile.renameTo(summaryFile)) {
+            tempFile.delete();
+            throw new IOException("Could not write " + summaryFile);
+        }
+        return stamp;
+    }
+
+    private void writeSummary(Map<String, File> experimentDirectories, Properties manifest) throws IOException {
+        File tempFile = File.createTempFile(SUMMARY_FILE_NAME, ".tmp", summaryFile.getAbsoluteFile().getParentFile());
+        Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tempFile), "UTF-8"), 1024 * 1024);
+        try {
+            writer.write(TelemetrySummary.CSV_HEADER);
+            writer.write('\n');
+            char[] buffer = new char[64 * 1024];
+            for (Map.Entry<String, File> entry : experimentDirectories.entrySet()) {
+                if (!manifest.containsKey(entry.getKey())) {
+                    continue;
+                }
+                Reader reader = new InputStreamReader(new FileInputStream(new File(entry.getValue(), EXPERIMENT_SUMMARY_FILE_NAME)), "UTF-8");
+                try {
+                    int read;
+                    while ((read = reader.read(buffer)) != -1) {
+                        writer.write(buffer, 0, read);
+                    }
+                }
+                finally {
+                    reader.close();
+                }
+            }
+        }
+        finally {
+            writer.close();
+        }
+        summaryFile.delete();
+        if (!tempFile.renameTo(summaryFile)) {
+            tempFile.delete();
+            throw new IOException("Could not write " + summaryFile);
+        }
+    }
+
+    private Properties loadManifest() {
+        Properties manifest = new Properties();
+        File manifestFile = getManifestFile();
+        if (manifestFile.exists()) {
+            try {
+                InputStream is = new BufferedInputStream(new FileInputStream(manifestFile));
+                try {
+                    manifest.load(is);
+                }
+                finally {
+                    is.close();
+                }
+            }
+            catch (IOException e) {
+                System.err.println("Could not read the summary manifest.  Summarising all experiments: " + e.getMessage());
+                manifest.clear();
+            }
+        }
+        return manifest;
+    }
+
+    private void storeManifest(Properties manifest) throws IOException {
+        OutputStream os = new BufferedOutputStream(new FileOutputStream(getManifestFile()));
+        try {
+            manifest.store(os, null);
+        }
+        finally {
+            os.close();
+        }
+    }
+
+    public static void main(String[] args) {
+        CommandLineArgs commandLineArgs = new CommandLineArgs(args);
+        if (commandLineArgs.getFirstArgument("help", null) != null) {
+            System.out.println("Aggregates the telemetry of a run into a single CSV file");
+            System.out.println("Arguments:");
+            printUsage();
+            System.out.println();
+            System.exit(0);
+        }
+        File rootOutputDirectory = new File(commandLineArgs.getFirstArgument(OUTPUT_DIRECTORY_NAME_COMMAND_LINE_SWITCH, OUTPUT_DIRECTORY_NAME));
+        if (!rootOutputDirectory.isDirectory()) {
+            System.out.println("Output directory " + rootOutputDirectory + " does not exist");
+            printUsage();
+            System.exit(1);
+        }
+        File summaryFile = new File(commandLineArgs.getFirstArgument(SUMMARY_FILE_NAME_COMMAND_LINE_SWITCH, new File(rootOutputDirectory, SUMMARY_FILE_NAME).getPath()));
+        int threads = Integer.parseInt(commandLineArgs.getFirstArgument(THREADS_COMMAND_LINE_SWITCH, Integer.toString(Runtime.getRuntime().availableProcessors())));
+        TelemetryAggregator aggregator = new TelemetryAggregator(rootOutputDirectory, summaryFile, threads);
+        aggregator.setIncremental(!commandLineArgs.isSwitchPresent(FULL_COMMAND_LINE_SWITCH));
+        try {
+            aggregator.aggregate();
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    private static void printUsage() {
+        System.out.println("\t-" + OUTPUT_DIRECTORY_NAME_COMMAND_LINE_SWITCH + " (optional default=" + OUTPUT_DIRECTORY_NAME + ") The output directory of the run.");
+        System.out.println("\t-" + SUMMARY_FILE_NAME_COMMAND_LINE_SWITCH + " (optional default=<out>/" + SUMMARY_FILE_NAME + ") The CSV file that the summary is written to.");
+        System.out.println("\t-" + THREADS_COMMAND_LINE_SWITCH + " (optional default=number of processors) The number of telemetry files to parse at the same time.");
+        System.out.println("\t-" + FULL_COMMAND_LINE_SWITCH + " (optional) Parse every telemetry file, even if it has not changed since the last aggregation.");
+    }
+}
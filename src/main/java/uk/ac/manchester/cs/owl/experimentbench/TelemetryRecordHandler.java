@@ -0,0 +1,25 @@
+package uk.ac.manchester.cs.owl.experimentbench;
+
+import java.io.IOException;
+
+/**
+ * Receives the records of a telemetry file, in order, as it is read.  This allows XML telemetry, which is read by
+ * {@link TelemetryXMLReader}, and binary telemetry, which is read by {@link BinaryTelemetryReader}, to be
+ * processed in the same way without holding a whole file in memory.
+ */
+public interface TelemetryRecordHandler {
+
+    void beginTransmission(String name) throws IOException;
+
+    void endTransmission() throws IOException;
+
+    void measurement(String name, String value) throws IOException;
+
+    /**
+     * @param kind One of {@link BinaryTelemetryReceiver#TEXT_OBJECT}, {@link BinaryTelemetryReceiver#XML_OBJECT} or
+     * {@link BinaryTelemetryReceiver#CDATA_OBJECT}.
+     */
+    void object(String name, byte kind, String content) throws IOException;
+
+    void exception(String className, String message, String stackTrace) throws IOException;
+}
@@ -0,0 +1,174 @@
+package uk.ac.manchester.cs.owl.experimentbench;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A summary of the telemetry of one experiment.  Measurements are grouped by the path of transmissions that they
+ * were recorded in and by their name, so a measurement that is recorded once per entailment check becomes a single
+ * row with a count, sum, min, max and mean, rather than one row per check.  Exceptions are grouped by path and
+ * class.  Objects are not summarised.
+ */
+public class TelemetrySummary implements TelemetryRecordHandler {
+
+    public static final String CSV_HEADER = "ontology,experiment,path,name,count,sum,min,max,mean,value";
+
+    private static final String PATH_SEPARATOR = "/";
+
+    private static final String EXCEPTION_PATH_ELEMENT = "exception";
+
+    private List<String> path = new ArrayList<String>();
+
+    private String currentPath = "";
+
+    private Map<String, Row> rows = new LinkedHashMap<String, Row>();
+
+    public void beginTransmission(String name) {
+        path.add(name);
+        currentPath = join(path);
+    }
+
+    public void endTransmission() {
+        if (!path.isEmpty()) {
+            path.remove(path.size() - 1);
+            currentPath = join(path);
+        }
+    }
+
+    private static String join(List<String> path) {
+        StringBuilder sb = new StringBuilder();
+        for (String element : path) {
+            if (sb.length() > 0) {
+                sb.append(PATH_SEPARATOR);
+            }
+            sb.append(element);
+        }
+        return sb.toString();
+    }
+
+    public void measurement(String name, String value) {
+        getRow(currentPath, name).add(value);
+    }
+
+    public void object(String name, byte kind, String content) {
+    }
+
+    public void exception(String className, String message, String stackTrace) {
+        String exceptionPath = currentPath.isEmpty() ? EXCEPTION_PATH_ELEMENT : currentPath + PATH_SEPARATOR + EXCEPTION_PATH_ELEMENT;
+        getRow(exceptionPath, className).add(message);
+    }
+
+    private Row getRow(String rowPath, String name) {
+        String key = rowPath + "\t" + name;
+        Row row = rows.get(key);
+        if (row == null) {
+            row = new Row(rowPath, name);
+            rows.put(key, row);
+        }
+        return row;
+    }
+
+    /**
+     * Writes the rows of this summary as CSV, without a header.
+     * @param writer The writer.
+     * @param ontology The name of the ontology directory.
+     * @param experiment The name of the experiment.
+     * @throws IOException If the rows could not be written.
+     */
+    public void writeRows(Writer writer, String ontology, String experiment) throws IOException {
+        for (Row row : rows.values()) {
+            writer.write(escape(ontology));
+            writer.write(',');
+            writer.write(escape(experiment));
+            writer.write(',');
+            row.write(writer);
+            writer.write('\n');
+        }
+    }
+
+    private static String escape(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') == -1 && value.indexOf('"') == -1 && value.indexOf('\n') == -1 && value.indexOf('\r') == -1) {
+            return value;
+        }
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+
+    private static String format(double value) {
+        if (value == Math.rint(value) && !Double.isInfinite(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+
+    private static class Row {
+
+        private String path;
+
+        private String name;
+
+        private long count = 0;
+
+        private long numericCount = 0;
+
+        private double sum = 0;
+
+        private double min = Double.POSITIVE_INFINITY;
+
+        private double max = Double.NEGATIVE_INFINITY;
+
+        private String lastValue;
+
+        private Row(String path, String name) {
+            this.path = path;
+            this.name = name;
+        }
+
+        private void add(String value) {
+            count++;
+            lastValue = value;
+            if (value == null) {
+                return;
+            }
+            try {
+                double numericValue = Double.parseDouble(value);
+                numericCount++;
+                sum += numericValue;
+                min = Math.min(min, numericValue);
+                max = Math.max(max, numericValue);
+            }
+            catch (NumberFormatException e) {
+                // Not numeric
+            }
+        }
+
+        private void write(Writer writer) throws IOException {
+            writer.write(escape(path));
+            writer.write(',');
+            writer.write(escape(name));
+            writer.write(',');
+            writer.write(Long.toString(count));
+            writer.write(',');
+            if (numericCount > 0) {
+                writer.write(format(sum));
+                writer.write(',');
+                writer.write(format(min));
+                writer.write(',');
+                writer.write(format(max));
+                writer.write(',');
+                writer.write(format(sum / numericCount));
+            }
+            else {
+                writer.write(",,,");
+            }
+            writer.write(',');
+            writer.write(escape(lastValue));
+        }
+    }
+}
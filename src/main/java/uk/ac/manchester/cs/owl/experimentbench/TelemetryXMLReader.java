@@ -0,0 +1,141 @@
+package uk.ac.manchester.cs.owl.experimentbench;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.*;
+
+/**
+ * Reads XML telemetry with a streaming (StAX) parser, so that memory use does not depend on the size of the file.
+ * Objects that are serialised as XML are passed to the handler with null content, since their markup is not
+ * reconstructed.
+ */
+public class TelemetryXMLReader {
+
+    private static final String ROOT_ELEMENT_NAME = "experiments";
+
+    private static final XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+
+    private TelemetryXMLReader() {
+    }
+
+    /**
+     * Reads an XML telemetry file.
+     * @param xmlTelemetryFile The file.
+     * @param handler The handler that the records of the file are passed to.
+     * @throws IOException If the file could not be read or is not well formed (e.g. because it is incomplete).
+     */
+    public static void read(File xmlTelemetryFile, TelemetryRecordHandler handler) throws IOException {
+        InputStream is = new BufferedInputStream(new FileInputStream(xmlTelemetryFile), 1024 * 1024);
+        try {
+            XMLStreamReader reader;
+            synchronized (inputFactory) {
+                reader = inputFactory.createXMLStreamReader(is);
+            }
+            try {
+                readElements(reader, handler);
+            }
+            finally {
+                reader.close();
+            }
+        }
+        catch (XMLStreamException e) {
+            throw new IOException("Could not parse " + xmlTelemetryFile + ": " + e.getMessage());
+        }
+        finally {
+            is.close();
+        }
+    }
+
+    private static void readElements(XMLStreamReader reader, TelemetryRecordHandler handler) throws XMLStreamException, IOException {
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                String elementName = reader.getLocalName();
+                if (elementName.equals("measurement")) {
+                    handler.measurement(reader.getAttributeValue(null, "name"), reader.getAttributeValue(null, "value"));
+                    skipElement(reader);
+                }
+                else if (elementName.equals("object")) {
+                    readObject(reader, handler);
+                }
+                else if (elementName.equals("exception")) {
+                    readException(reader, handler);
+                }
+                else if (!elementName.equals(ROOT_ELEMENT_NAME)) {
+                    handler.beginTransmission(elementName);
+                }
+            }
+            else if (event == XMLStreamConstants.END_ELEMENT) {
+                if (!reader.getLocalName().equals(ROOT_ELEMENT_NAME)) {
+                    handler.endTransmission();
+                }
+            }
+        }
+    }
+
+    private static void readObject(XMLStreamReader reader, TelemetryRecordHandler handler) throws XMLStreamException, IOException {
+        String name = reader.getAttributeValue(null, "name");
+        StringBuilder content = new StringBuilder();
+        byte kind = BinaryTelemetryReceiver.TEXT_OBJECT;
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                kind = BinaryTelemetryReceiver.XML_OBJECT;
+                depth++;
+            }
+            else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+            else if (event == XMLStreamConstants.CDATA) {
+                kind = BinaryTelemetryReceiver.CDATA_OBJECT;
+                content.append(reader.getText());
+            }
+            else if (event == XMLStreamConstants.CHARACTERS && depth == 1) {
+                content.append(reader.getText());
+            }
+        }
+        handler.object(name, kind, kind == BinaryTelemetryReceiver.XML_OBJECT ? null : content.toString());
+    }
+
+    private static void readException(XMLStreamReader reader, TelemetryRecordHandler handler) throws XMLStreamException, IOException {
+        String className = null;
+        String message = null;
+        String stackTrace = null;
+        while (true) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                String elementName = reader.getLocalName();
+                String text = reader.getElementText();
+                if (elementName.equals("class")) {
+                    className = text;
+                }
+                else if (elementName.equals("message")) {
+                    message = text;
+                }
+                else if (elementName.equals("stacktrace")) {
+                    stackTrace = text;
+                }
+            }
+            else if (event == XMLStreamConstants.END_ELEMENT) {
+                break;
+            }
+        }
+        handler.exception(className, message, stackTrace);
+    }
+
+    private static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            }
+            else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+}
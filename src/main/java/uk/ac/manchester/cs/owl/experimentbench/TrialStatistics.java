@@ -0,0 +1,182 @@
+package uk.ac.manchester.cs.owl.experimentbench;
+
+import org.semanticweb.owl.explanation.telemetry.DefaultTelemetryInfo;
+import org.semanticweb.owl.explanation.telemetry.TelemetryTransmitter;
+
+import java.io.*;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Summary statistics of the times of repeated trials of an experiment (measured iterations within a runner, or
+ * forks of an experiment).  The confidence interval is the 95% interval of the mean, based on Student's t
+ * distribution.  The trials are flagged as having high variance if their coefficient of variation (standard
+ * deviation / mean) is above a threshold.
+ */
+public class TrialStatistics {
+
+    public static final String TRANSMISSION_NAME = "trialstatistics";
+
+    /**
+     * The 97.5th percentiles of Student's t distribution for 1 to 30 degrees of freedom.
+     */
+    private static final double[] T_975 = {
+            12.706, 4.303, 3.182, 2.776, 2.571, 2.447, 2.365, 2.306, 2.262, 2.228,
+            2.201, 2.179, 2.160, 2.145, 2.131, 2.120, 2.110, 2.101, 2.093, 2.086,
+            2.080, 2.074, 2.069, 2.064, 2.060, 2.056, 2.052, 2.048, 2.045, 2.042
+    };
+
+    private static final double Z_975 = 1.960;
+
+    private long[] sortedTimes;
+
+    private double mean;
+
+    private double standardDeviation;
+
+    private double highVarianceThreshold;
+
+    /**
+     * @param times The times of the trials, in nanoseconds.  There must be at least one.
+     * @param highVarianceThreshold The coefficient of variation above which the trials have high variance.
+     */
+    public TrialStatistics(List<Long> times, double highVarianceThreshold) {
+        if (times.isEmpty()) {
+            throw new IllegalArgumentException("At least one trial time is required");
+        }
+        this.highVarianceThreshold = highVarianceThreshold;
+        sortedTimes = new long[times.size()];
+        for (int i = 0; i < sortedTimes.length; i++) {
+            sortedTimes[i] = times.get(i);
+        }
+        Arrays.sort(sortedTimes);
+        double sum = 0;
+        for (long time : sortedTimes) {
+            sum += time;
+        }
+        mean = sum / sortedTimes.length;
+        if (sortedTimes.length > 1) {
+            double sumOfSquares = 0;
+            for (long time : sortedTimes) {
+                sumOfSquares += (time - mean) * (time - mean);
+            }
+            standardDeviation = Math.sqrt(sumOfSquares / (sortedTimes.length - 1));
+        }
+    }
+
+    public int getCount() {
+        return sortedTimes.length;
+    }
+
+    public double getMean() {
+        return mean;
+    }
+
+    public double getMedian() {
+        int middle = sortedTimes.length / 2;
+        if (sortedTimes.length % 2 == 1) {
+            return sortedTimes[middle];
+        }
+        else {
+            return (sortedTimes[middle - 1] + sortedTimes[middle]) / 2.0;
+        }
+    }
+
+    public long getMin() {
+        return sortedTimes[0];
+    }
+
+    public long getMax() {
+        return sortedTimes[sortedTimes.length - 1];
+    }
+
+    /**
+     * Gets the sample standard deviation.
+     * @return The standard deviation, or 0 if there is only one trial.
+     */
+    public double getStandardDeviation() {
+        return standardDeviation;
+    }
+
+    /**
+     * Gets half of the width of the 95% confidence interval of the mean.
+     * @return The half width, or 0 if there is only one trial.
+     */
+    public double getConfidenceIntervalHalfWidth() {
+        int degreesOfFreedom = sortedTimes.length - 1;
+        if (degreesOfFreedom == 0) {
+            return 0;
+        }
+        double t = degreesOfFreedom <= T_975.length ? T_975[degreesOfFreedom - 1] : Z_975;
+        return t * standardDeviation / Math.sqrt(sortedTimes.length);
+    }
+
+    public double getCoefficientOfVariation() {
+        return mean == 0 ? 0 : standardDeviation / mean;
+    }
+
+    public boolean isHighVariance() {
+        return getCoefficientOfVariation() > highVarianceThreshold;
+    }
+
+    /**
+     * Records these statistics as a trialstatistics transmission.
+     * @param warmups The number of warm-up iterations that preceded the trials.
+     */
+    public void recordTelemetry(int warmups) {
+        TelemetryTransmitter transmitter = TelemetryTransmitter.getTransmitter();
+        DefaultTelemetryInfo info = new DefaultTelemetryInfo(TRANSMISSION_NAME);
+        try {
+            transmitter.beginTransmission(info);
+            transmitter.recordMeasurement(info, "warmups", warmups);
+            transmitter.recordMeasurement(info, "iterations", getCount());
+            transmitter.recordMeasurement(info, "mean", Math.round(mean));
+            transmitter.recordMeasurement(info, "median", Math.round(getMedian()));
+            transmitter.recordMeasurement(info, "min", getMin());
+            transmitter.recordMeasurement(info, "max", getMax());
+            transmitter.recordMeasurement(info, "stddev", Math.round(standardDeviation));
+            transmitter.recordMeasurement(info, "ci95lower", Math.round(mean - getConfidenceIntervalHalfWidth()));
+            transmitter.recordMeasurement(info, "ci95upper", Math.round(mean + getConfidenceIntervalHalfWidth()));
+            transmitter.recordMeasurement(info, "cv", getCoefficientOfVariation());
+            transmitter.recordMeasurement(info, "highvariance", isHighVariance());
+        }
+        finally {
+            transmitter.endTransmission(info);
+        }
+    }
+
+    /**
+     * Writes these statistics to a properties file.
+     * @param file The file.
+     * @throws IOException If the file could not be written.
+     */
+    public void write(File file) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("count", Integer.toString(getCount()));
+        properties.setProperty("mean", Long.toString(Math.round(mean)));
+        properties.setProperty("median", Long.toString(Math.round(getMedian())));
+        properties.setProperty("min", Long.toString(getMin()));
+        properties.setProperty("max", Long.toString(getMax()));
+        properties.setProperty("stddev", Long.toString(Math.round(standardDeviation)));
+        properties.setProperty("ci95lower", Long.toString(Math.round(mean - getConfidenceIntervalHalfWidth())));
+        properties.setProperty("ci95upper", Long.toString(Math.round(mean + getConfidenceIntervalHalfWidth())));
+        properties.setProperty("cv", Double.toString(getCoefficientOfVariation()));
+        properties.setProperty("highvariance", Boolean.toString(isHighVariance()));
+        OutputStream os = new BufferedOutputStream(new FileOutputStream(file));
+        try {
+            properties.store(os, "Times in nanoseconds");
+        }
+        finally {
+            os.close();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("mean %.3f ms, median %.3f ms, stddev %.3f ms, 95%% CI [%.3f, %.3f] ms, cv %.3f%s",
+                mean / 1000000, getMedian() / 1000000, standardDeviation / 1000000,
+                (mean - getConfidenceIntervalHalfWidth()) / 1000000, (mean + getConfidenceIntervalHalfWidth()) / 1000000,
+                getCoefficientOfVariation(), isHighVariance() ? " (HIGH VARIANCE)" : "");
+    }
+}
@@ -0,0 +1,104 @@
+package uk.ac.manchester.cs.owl.experimentbench;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Timer;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Runs jobs in long lived {@link OntologyDocumentExperimentWorker} JVMs.  Idle workers are reused for subsequent
+ * jobs.  A worker is replaced when it has run a configurable number of jobs, when its heap is under pressure,
+ * or when it dies or is killed because a job timed out.  The output of the workers is written to the logs of the
+ * jobs that they run by a {@link LogPipeline}.
+ */
+public class WarmWorkerExperimentLauncher implements ExperimentLauncher {
+
+    private long experimentTimeOut;
+
+    private String maxMemory;
+
+    private int jobsBeforeRecycle;
+
+    private double recycleHeapFraction;
+
+    private List<String> jvmOptions;
+
+    private LogPipeline logPipeline;
+
+    private BlockingQueue<WorkerProcess> idleWorkers = new LinkedBlockingQueue<WorkerProcess>();
+
+    private Timer timer = new Timer("Worker time out timer", true);
+
+    public WarmWorkerExperimentLauncher(long experimentTimeOut, String maxMemory, int jobsBeforeRecycle, double recycleHeapFraction, List<String> jvmOptions, LogPipeline logPipeline) {
+        this.experimentTimeOut = experimentTimeOut;
+        this.maxMemory = maxMemory;
+        this.jobsBeforeRecycle = jobsBeforeRecycle;
+        this.recycleHeapFraction = recycleHeapFraction;
+        this.jvmOptions = new ArrayList<String>(jvmOptions);
+        this.logPipeline = logPipeline;
+    }
+
+    public boolean isJobMaxMemorySupported() {
+        return false;
+    }
+
+    public int launch(OntologyDocumentExperimentJob job) {
+        for (File experimentOutputDirectory : job.getExperimentOutputDirectories()) {
+            experimentOutputDirectory.mkdirs();
+        }
+        LogPipeline.JobLog log = logPipeline.open(job.getLogDirectory(), job.getExperimentClass().getSimpleName() + " - " + job.getOntologyDocumentDirectory().getName());
+        log.message("Running " + job.getName() + " in worker");
+        int returnCode = -1;
+        try {
+            WorkerProcess worker = idleWorkers.poll();
+            if (worker == null) {
+                try {
+                    worker = new WorkerProcess(getWorkerCommand());
+                }
+                catch (IOException e) {
+                    log.message("Could not start a worker: " + e.getMessage());
+                    return -1;
+                }
+            }
+            returnCode = worker.runJob(job, log, timer, job.getTimeOut() > 0 ? job.getTimeOut() : experimentTimeOut);
+            if (worker.isReusable()) {
+                idleWorkers.offer(worker);
+            }
+            else {
+                worker.quit();
+            }
+            return returnCode;
+        }
+        finally {
+            log.message("Finished running " + job.getName() + " (" + returnCode + ")");
+            log.close();
+        }
+    }
+
+    private List<String> getWorkerCommand() {
+        List<String> command = new ArrayList<String>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        command.add("-Xmx" + maxMemory);
+        command.add("-Djava.library.path=" + System.getProperty("java.library.path"));
+        command.addAll(jvmOptions);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(OntologyDocumentExperimentWorker.class.getName());
+        command.add(Integer.toString(jobsBeforeRecycle));
+        command.add(Double.toString(recycleHeapFraction));
+        return command;
+    }
+
+    public void dispose() {
+        List<WorkerProcess> workers = new ArrayList<WorkerProcess>();
+        idleWorkers.drainTo(workers);
+        for (WorkerProcess worker : workers) {
+            worker.quit();
+        }
+        timer.cancel();
+        logPipeline.dispose();
+    }
+}
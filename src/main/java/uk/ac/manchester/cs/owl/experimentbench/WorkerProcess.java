@@ -0,0 +1,256 @@
+package uk.ac.manchester.cs.owl.experimentbench;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The controller side of a {@link OntologyDocumentExperimentWorker} JVM.  The protocol runs over a loopback socket
+ * that the worker connects to when it starts.  The standard output and standard error of the worker are read by two
+ * threads and passed to the {@link LogPipeline.JobLog} of the job that is running, or to the console between jobs.
+ */
+public class WorkerProcess {
+
+    /**
+     * The time, in milliseconds, that a worker has to connect to the controller after it has been started.
+     */
+    private static final int START_TIME_OUT = 60000;
+
+    /**
+     * The time, in milliseconds, that the output of a job is waited for after the worker has said that it is done.
+     */
+    private static final long END_OF_OUTPUT_TIME_OUT = 10000;
+
+    private Process process;
+
+    private Socket socket;
+
+    private BufferedReader reader;
+
+    private PrintWriter writer;
+
+    private boolean alive = true;
+
+    private boolean recycling = false;
+
+    private volatile boolean timedOut = false;
+
+    private volatile LogPipeline.JobLog log;
+
+    private volatile String endOfOutputMarker;
+
+    private volatile CountDownLatch endOfOutput;
+
+    /**
+     * Starts a worker JVM and waits for it to report that it is ready.
+     * @param command The command used to start the worker JVM.  The port that the worker should connect to is added
+     * to it as the last argument.
+     * @throws IOException If the JVM could not be started or did not report that it was ready.
+     */
+    public WorkerProcess(List<String> command) throws IOException {
+        ServerSocket serverSocket = new ServerSocket(0, 1, InetAddress.getByName(null));
+        try {
+            List<String> workerCommand = new ArrayList<String>(command);
+            workerCommand.add(Integer.toString(serverSocket.getLocalPort()));
+            process = new ProcessBuilder(workerCommand).start();
+            startPump(process.getInputStream(), false);
+            startPump(process.getErrorStream(), true);
+            serverSocket.setSoTimeout(START_TIME_OUT);
+            socket = serverSocket.accept();
+        }
+        catch (IOException e) {
+            if (process != null) {
+                destroy();
+            }
+            throw e;
+        }
+        finally {
+            serverSocket.close();
+        }
+        reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), "UTF-8"));
+        writer = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), "UTF-8"));
+        String line = reader.readLine();
+        if (!OntologyDocumentExperimentWorker.READY_REPLY.equals(line)) {
+            destroy();
+            throw new IOException("Worker did not start.  Expected " + OntologyDocumentExperimentWorker.READY_REPLY + " but got " + line);
+        }
+    }
+
+    private void startPump(final InputStream stream, final boolean error) {
+        Thread thread = new Thread(new Runnable() {
+            public void run() {
+                CountDownLatch markedLatch = null;
+                try {
+                    BufferedReader streamReader = new BufferedReader(new InputStreamReader(stream));
+                    String line;
+                    while ((line = streamReader.readLine()) != null) {
+                        CountDownLatch latch = endOfOutput;
+                        if (latch != null && line.equals(endOfOutputMarker)) {
+                            markedLatch = latch;
+                            latch.countDown();
+                            continue;
+                        }
+                        LogPipeline.JobLog jobLog = log;
+                        if (jobLog == null) {
+                            System.err.println("[Worker] " + line);
+                        }
+                        else if (error) {
+                            jobLog.err(line);
+                        }
+                        else {
+                            jobLog.out(line);
+                        }
+                    }
+                }
+                catch (IOException e) {
+                    // Process has gone away
+                }
+                CountDownLatch latch = endOfOutput;
+                if (latch != null && latch != markedLatch) {
+                    latch.countDown();
+                }
+            }
+        }, error ? "Worker error pump" : "Worker output pump");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Runs a job in this worker and blocks until it has finished and its output has been passed to its logs.
+     * @param job The job.
+     * @param log The logs of the job.
+     * @param timer A timer that is used to kill the worker if the job runs for too long.
+     * @param timeOut The time out, in milliseconds.  Long.MAX_VALUE for no time out.
+     * @return The return code of the job.  If the worker died then the return code is -1, or if it was killed because
+     * the job timed out then the return code is {@link ExperimentLauncher#TIMED_OUT_RETURN_CODE}.  In either case
+     * this worker is no longer alive.
+     */
+    public synchronized int runJob(OntologyDocumentExperimentJob job, LogPipeline.JobLog log, Timer timer, long timeOut) {
+        String marker = "END OF JOB " + UUID.randomUUID();
+        StringBuilder sb = new StringBuilder(OntologyDocumentExperimentWorker.RUN_COMMAND);
+        sb.append(OntologyDocumentExperimentWorker.FIELD_SEPARATOR);
+        sb.append(marker);
+        for (String argument : job.getRunnerArguments()) {
+            sb.append(OntologyDocumentExperimentWorker.FIELD_SEPARATOR);
+            sb.append(argument);
+        }
+        TimerTask killTask = null;
+        if (timeOut != Long.MAX_VALUE) {
+            killTask = new TimerTask() {
+                @Override
+                public void run() {
+                    System.err.println("Timeout: killing worker");
+                    timedOut = true;
+                    process.destroy();
+                }
+            };
+            timer.schedule(killTask, timeOut);
+        }
+        endOfOutputMarker = marker;
+        endOfOutput = new CountDownLatch(2);
+        this.log = log;
+        try {
+            writer.println(sb);
+            writer.flush();
+            String line = reader.readLine();
+            if (line == null) {
+                destroy();
+                return timedOut || hasExitedWith(OntologyDocumentExperimentRunner.TIMED_OUT_EXIT_CODE) ? ExperimentLauncher.TIMED_OUT_RETURN_CODE : -1;
+            }
+            String[] fields = line.split(OntologyDocumentExperimentWorker.FIELD_SEPARATOR);
+            if (fields.length != 3 || !fields[0].equals(OntologyDocumentExperimentWorker.DONE_REPLY)) {
+                destroy();
+                return -1;
+            }
+            recycling = Boolean.parseBoolean(fields[2]);
+            return Integer.parseInt(fields[1]);
+        }
+        catch (IOException e) {
+            destroy();
+            return timedOut ? ExperimentLauncher.TIMED_OUT_RETURN_CODE : -1;
+        }
+        finally {
+            if (killTask != null) {
+                killTask.cancel();
+            }
+            awaitEndOfOutput();
+            this.log = null;
+            endOfOutput = null;
+            endOfOutputMarker = null;
+        }
+    }
+
+    /**
+     * Waits for the pumps to reach the end of the output of the job, or for the worker to go away.
+     */
+    private void awaitEndOfOutput() {
+        try {
+            if (!endOfOutput.await(END_OF_OUTPUT_TIME_OUT, TimeUnit.MILLISECONDS)) {
+                System.err.println("Timed out waiting for the output of a worker job");
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Determines whether this worker can take another job.
+     * @return true if the worker is alive and has not said that it is about to exit.
+     */
+    public synchronized boolean isReusable() {
+        return alive && !recycling;
+    }
+
+    /**
+     * Asks the worker to exit.
+     */
+    public synchronized void quit() {
+        if (alive) {
+            writer.println(OntologyDocumentExperimentWorker.QUIT_COMMAND);
+            writer.flush();
+            closeSocket();
+            alive = false;
+        }
+    }
+
+    private void closeSocket() {
+        if (socket != null) {
+            try {
+                socket.close();
+            }
+            catch (IOException e) {
+                // The worker has gone away
+            }
+        }
+    }
+
+    /**
+     * Determines whether the worker exited with a particular exit code, e.g. because the runner exited when an
+     * experiment did not stop after it was interrupted.  This must only be called after the worker has been
+     * destroyed.
+     */
+    private boolean hasExitedWith(int exitCode) {
+        try {
+            return process.waitFor() == exitCode;
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    public synchronized void destroy() {
+        alive = false;
+        closeSocket();
+        process.destroy();
+    }
+}
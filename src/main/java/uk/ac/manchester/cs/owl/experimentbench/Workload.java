@@ -0,0 +1,39 @@
+package uk.ac.manchester.cs.owl.experimentbench;
+
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyCreationException;
+import org.semanticweb.owlapi.model.OWLOntologyManager;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Determines what the experiments of a job are run against: which inputs an ontology document directory holds and
+ * how the ontology of each input is created.  The runner loads the inputs one at a time, runs all of the experiment
+ * methods of the job against each of them, and releases the ontology before it loads the next input.  The
+ * workload is chosen with the workload property (see {@link ExperimentProperties#getWorkload()}), usually in the
+ * experiment.properties file of the ontology document directory.  Implementations must have a public no-argument
+ * constructor.
+ */
+public interface Workload {
+
+    /**
+     * Gets the inputs in an ontology document directory.
+     * @param ontologyDocumentDirectory The directory.
+     * @param properties The experiment properties.
+     * @return The inputs, in the order in which they should be run.  Not empty.
+     * @throws IOException If the directory cannot be read, or does not contain any inputs.
+     */
+    List<WorkloadInput> getInputs(File ontologyDocumentDirectory, ExperimentProperties properties) throws IOException;
+
+    /**
+     * Creates the ontology of an input.
+     * @param input The input.
+     * @param manager The manager to create the ontology in.  A new manager is used for each input.
+     * @param loader The loader to load ontology documents through, which records the load statistics.
+     * @param properties The experiment properties.
+     * @return The ontology that the experiments are run against.
+     */
+    OWLOntology load(WorkloadInput input, OWLOntologyManager manager, OntologyDocumentLoader loader, ExperimentProperties properties) throws OWLOntologyCreationException, IOException;
+}
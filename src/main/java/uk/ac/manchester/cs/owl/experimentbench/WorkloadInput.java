@@ -0,0 +1,67 @@
+package uk.ac.manchester.cs.owl.experimentbench;
+
+import java.io.File;
+
+/**
+ * One input of a {@link Workload}.  The results of the experiments on an input that has a name go in a directory
+ * with that name below the experiment output directory.  The results of an unnamed input, which is the only input
+ * of its ontology document directory, go in the experiment output directory itself.
+ */
+public class WorkloadInput {
+
+    private String name;
+
+    private File document;
+
+    private long size;
+
+    /**
+     * Creates an unnamed input.
+     * @param document The ontology document.
+     */
+    public WorkloadInput(File document) {
+        this(null, document, document.length());
+    }
+
+    /**
+     * @param name The name of the input, or null for an unnamed input.
+     * @param document The ontology document, which is passed to the experiments.  For inputs that are not read from a
+     * document this is the ontology document directory.
+     * @param size The size of the input in bytes, which is recorded in the job statistics.  Zero if the input is not
+     * read from a document.
+     */
+    public WorkloadInput(String name, File document, long size) {
+        this.name = name;
+        this.document = document;
+        this.size = size;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public File getDocument() {
+        return document;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Gets the directory that the results of the experiments on this input go in.
+     * @param experimentOutputDirectory The experiment output directory.
+     * @return The directory.
+     */
+    public File getOutputDirectory(File experimentOutputDirectory) {
+        if (name == null) {
+            return experimentOutputDirectory;
+        }
+        return new File(experimentOutputDirectory, name);
+    }
+
+    @Override
+    public String toString() {
+        return name != null ? name : document.getName();
+    }
+}
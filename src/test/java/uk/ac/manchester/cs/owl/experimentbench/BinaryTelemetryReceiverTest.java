@@ -0,0 +1,102 @@
+package uk.ac.manchester.cs.owl.experimentbench;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.semanticweb.owl.explanation.telemetry.DefaultTelemetryInfo;
+import org.semanticweb.owl.explanation.telemetry.TelemetryInfo;
+import org.semanticweb.owl.explanation.telemetry.TelemetryReceiver;
+import org.semanticweb.owl.explanation.telemetry.XMLTelemetryReceiver;
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLDataFactory;
+
+import java.io.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BinaryTelemetryReceiverTest {
+
+    private static final String NON_ASCII_TEXT = "caf\u00e9 \u2203r.C";
+
+    private static final Exception EXCEPTION = new IllegalStateException(NON_ASCII_TEXT);
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void convertedTelemetryMatchesXmlTelemetry() throws IOException {
+        File binaryFile = temporaryFolder.newFile("telemetry.bin");
+        record(new BinaryTelemetryReceiver(binaryFile), NON_ASCII_TEXT, "text");
+        assertEquals(recordXml(NON_ASCII_TEXT, "text"), convert(binaryFile));
+    }
+
+    @Test
+    public void objectsAreEncodedAsUtf8WhateverTheDefaultCharset() throws IOException {
+        File binaryFile = temporaryFolder.newFile("telemetry.bin");
+        record(new BinaryTelemetryReceiver(binaryFile), "text", NON_ASCII_TEXT);
+        assertTrue(convert(binaryFile).contains("<![CDATA[" + NON_ASCII_TEXT + "]]>"));
+    }
+
+    @Test
+    public void recordsLargerThanTheBufferAreWrittenInOrder() throws IOException {
+        StringBuilder largeText = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            largeText.append("line ").append(i).append("\n");
+        }
+        File binaryFile = temporaryFolder.newFile("telemetry.bin");
+        // Smaller than the large object record, but larger than the other records
+        record(new BinaryTelemetryReceiver(binaryFile, 256), NON_ASCII_TEXT, largeText.toString());
+        assertEquals(recordXml(NON_ASCII_TEXT, largeText.toString()), convert(binaryFile));
+    }
+
+    /**
+     * Records the same telemetry that a runner records: nested transmissions with measurements, a text object, an
+     * axiom and an exception.
+     */
+    private static void record(TelemetryReceiver receiver, String measurementText, String objectText) {
+        OWLDataFactory dataFactory = OWLManager.getOWLDataFactory();
+        TelemetryInfo experimentInfo = new DefaultTelemetryInfo("experiment");
+        receiver.beginTransmission(experimentInfo);
+        receiver.recordMeasurement(experimentInfo, "before", "1");
+        TelemetryInfo methodInfo = new DefaultTelemetryInfo("method");
+        receiver.beginTransmission(methodInfo);
+        receiver.recordMeasurement(methodInfo, "text", measurementText);
+        receiver.recordObject(methodInfo, "text", "text", objectText);
+        receiver.recordObject(methodInfo, "axiom", "axiom", dataFactory.getOWLSubClassOfAxiom(dataFactory.getOWLClass(IRI.create("http://example.org/A")), dataFactory.getOWLClass(IRI.create("http://example.org/B"))));
+        receiver.recordException(methodInfo, EXCEPTION);
+        receiver.endTransmission(methodInfo);
+        receiver.recordMeasurement(experimentInfo, "after", "2");
+        receiver.endTransmission(experimentInfo);
+    }
+
+    private static String recordXml(String measurementText, String objectText) {
+        StringWriter writer = new StringWriter();
+        record(new XMLTelemetryReceiver(writer), measurementText, objectText);
+        // The XML receiver only ends the document in its shutdown hook
+        return writer.toString() + "</experiments>\n";
+    }
+
+    private String convert(File binaryFile) throws IOException {
+        File xmlFile = temporaryFolder.newFile();
+        BinaryTelemetryConverter.convert(binaryFile, xmlFile);
+        return read(xmlFile);
+    }
+
+    private static String read(File file) throws IOException {
+        Reader reader = new InputStreamReader(new FileInputStream(file), "UTF-8");
+        try {
+            StringBuilder sb = new StringBuilder();
+            char[] buffer = new char[4096];
+            int read;
+            while ((read = reader.read(buffer)) != -1) {
+                sb.append(buffer, 0, read);
+            }
+            return sb.toString();
+        }
+        finally {
+            reader.close();
+        }
+    }
+}
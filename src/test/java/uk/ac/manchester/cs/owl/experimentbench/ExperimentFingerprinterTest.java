@@ -0,0 +1,111 @@
+package uk.ac.manchester.cs.owl.experimentbench;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.*;
+import java.lang.reflect.Method;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ExperimentFingerprinterTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File outputDirectory;
+
+    private File ontologiesDirectory;
+
+    private File firstDirectory;
+
+    private File secondDirectory;
+
+    @Before
+    public void createOntologies() throws IOException {
+        outputDirectory = temporaryFolder.newFolder("output");
+        ontologiesDirectory = temporaryFolder.newFolder("ontologies");
+        firstDirectory = new File(ontologiesDirectory, "o1");
+        secondDirectory = new File(ontologiesDirectory, "o2");
+        writeFile(new File(firstDirectory, "doc.owl"), "<rdf:RDF/>");
+        writeFile(new File(secondDirectory, "doc.owl"), "<rdf:RDF/>");
+        writeFile(new File(ontologiesDirectory, "experiment.properties"), "experimenttimeoutms=60000\n");
+    }
+
+    @Test
+    public void editingAnOntologyDocumentOnlyChangesItsFingerprint() throws Exception {
+        String[] before = getFingerprints();
+        // A different length, so that the cached content hash is not reused within the same modification second.
+        writeFile(new File(firstDirectory, "doc.owl"), "<rdf:RDF></rdf:RDF>");
+        String[] after = getFingerprints();
+        assertNotEquals(before[0], after[0]);
+        assertEquals(before[1], after[1]);
+    }
+
+    @Test
+    public void changingAResultsPropertyOnlyChangesTheAffectedFingerprints() throws Exception {
+        String[] before = getFingerprints();
+        writeFile(new File(firstDirectory, "experiment.properties"), "experimenttimeoutms=120000\n");
+        String[] afterExperimentChange = getFingerprints();
+        assertNotEquals(before[0], afterExperimentChange[0]);
+        assertEquals(before[1], afterExperimentChange[1]);
+
+        writeFile(new File(ontologiesDirectory, "experiment.properties"), "experimenttimeoutms=60000\nmeasurediterations=3\n");
+        String[] afterSharedChange = getFingerprints();
+        assertNotEquals(afterExperimentChange[0], afterSharedChange[0]);
+        assertNotEquals(afterExperimentChange[1], afterSharedChange[1]);
+    }
+
+    @Test
+    public void changingSchedulingOnlyPropertiesChangesNoFingerprints() throws Exception {
+        String[] before = getFingerprints();
+        writeFile(new File(ontologiesDirectory, "experiment.properties"),
+                "experimenttimeoutms=60000\n" +
+                "workers=3\n" +
+                "resourcesamplingintervalms=50\n" +
+                "profiler=jfr\n" +
+                "profilerthresholdms=10\n" +
+                "statusport=8123\n");
+        String[] after = getFingerprints();
+        assertEquals(before[0], after[0]);
+        assertEquals(before[1], after[1]);
+    }
+
+    @Test
+    public void profilerAndSamplingPropertiesAreSchedulingOnly() {
+        assertTrue(ExperimentProperties.isSchedulingOnly(ExperimentProperties.RESOURCE_SAMPLING_INTERVAL_IN_MS_PROPERTY_NAME));
+        assertTrue(ExperimentProperties.isSchedulingOnly(ExperimentProperties.PROFILER_PROPERTY_NAME));
+        assertTrue(ExperimentProperties.isSchedulingOnly(ExperimentProperties.ASYNC_PROFILER_EVENT_PROPERTY_NAME));
+        assertFalse(ExperimentProperties.isSchedulingOnly(ExperimentProperties.EXPERIMENT_TIME_OUT_IN_MS_PROPERTY_NAME));
+        assertFalse(ExperimentProperties.isSchedulingOnly(ExperimentProperties.JVM_OPTIONS_PROPERTY_NAME));
+    }
+
+    /**
+     * Computes the fingerprints of the two experiments with a new fingerprinter, as a new run of the controller would.
+     */
+    private String[] getFingerprints() throws Exception {
+        ExperimentFingerprinter fingerprinter = new ExperimentFingerprinter(outputDirectory);
+        Method method = ExperimentFingerprinterTest.class.getMethod("createOntologies");
+        String[] fingerprints = new String[2];
+        fingerprints[0] = fingerprinter.getFingerprint(ExperimentFingerprinterTest.class, method, MatrixConfiguration.EMPTY, firstDirectory);
+        fingerprints[1] = fingerprinter.getFingerprint(ExperimentFingerprinterTest.class, method, MatrixConfiguration.EMPTY, secondDirectory);
+        fingerprinter.saveCache();
+        return fingerprints;
+    }
+
+    private static void writeFile(File file, String content) throws IOException {
+        file.getParentFile().mkdirs();
+        Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        try {
+            writer.write(content);
+        }
+        finally {
+            writer.close();
+        }
+    }
+}
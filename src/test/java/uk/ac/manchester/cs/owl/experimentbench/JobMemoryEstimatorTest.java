@@ -0,0 +1,160 @@
+package uk.ac.manchester.cs.owl.experimentbench;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class JobMemoryEstimatorTest {
+
+    private static final int BYTES_PER_MEGA_BYTE = 1024 * 1024;
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    /**
+     * The objects that a simulated run keeps reachable
+     */
+    private static List<byte[]> liveSet;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File ontologyDocumentDirectory;
+
+    private OntologyDocumentExperimentJob job;
+
+    @Before
+    public void setUp() throws Exception {
+        ontologyDocumentDirectory = temporaryFolder.newFolder("ontology");
+        File outputDirectory = temporaryFolder.newFolder("out");
+        job = new OntologyDocumentExperimentJob(TestExperiment.class, TestExperiment.class.getMethod("run"), ontologyDocumentDirectory, outputDirectory);
+    }
+
+    @Test
+    public void estimateIsStableAcrossRepeatedRuns() throws IOException {
+        JobMemoryEstimator estimator = new JobMemoryEstimator(16, 100000, 20, 1.5);
+        List<Integer> estimates = new ArrayList<Integer>();
+        for (int run = 0; run < 5; run++) {
+            int megaBytes = estimator.estimate(job);
+            estimates.add(megaBytes);
+            // A run fills whatever heap it is given with garbage, so its peak heap usage is the heap size
+            long liveHeapUsed = simulateRun(32, 4 * megaBytes);
+            JobStatistics statistics = new JobStatistics();
+            statistics.setValue(JobStatistics.PEAK_HEAP_USED, (long) megaBytes * BYTES_PER_MEGA_BYTE);
+            statistics.setValue(JobStatistics.LIVE_HEAP_USED, liveHeapUsed);
+            File experimentOutputDirectory = job.getExperimentOutputDirectory(0);
+            experimentOutputDirectory.mkdirs();
+            statistics.write(experimentOutputDirectory);
+        }
+        int firstEstimate = estimates.get(1);
+        assertTrue("Estimate clamped: " + estimates, firstEstimate < 1000);
+        for (int run = 2; run < estimates.size(); run++) {
+            assertTrue("Estimates drift: " + estimates, Math.abs(estimates.get(run) - firstEstimate) <= firstEstimate / 10);
+        }
+    }
+
+    @Test
+    public void peakHeapUsageIsNotUsed() throws IOException {
+        JobMemoryEstimator estimator = new JobMemoryEstimator(16, 100000, 20, 1.5);
+        JobStatistics statistics = new JobStatistics();
+        statistics.setValue(JobStatistics.PEAK_HEAP_USED, 4000L * BYTES_PER_MEGA_BYTE);
+        statistics.setValue(JobStatistics.LIVE_HEAP_USED, 100L * BYTES_PER_MEGA_BYTE);
+        File experimentOutputDirectory = job.getExperimentOutputDirectory(0);
+        experimentOutputDirectory.mkdirs();
+        statistics.write(experimentOutputDirectory);
+        assertEquals(150, estimator.estimate(job));
+    }
+
+    @Test
+    public void liveHeapUsageExcludesGarbage() {
+        long baseline = HeapUsage.getLiveHeapUsage();
+        long liveHeapUsed = simulateRun(32, 256);
+        long liveSetSize = 32L * BYTES_PER_MEGA_BYTE;
+        assertTrue("Live heap " + liveHeapUsed + " baseline " + baseline, liveHeapUsed - baseline >= liveSetSize * 9 / 10);
+        assertTrue("Live heap " + liveHeapUsed + " baseline " + baseline, liveHeapUsed - baseline < liveSetSize + 16L * BYTES_PER_MEGA_BYTE);
+    }
+
+    @Test
+    public void batchIsSizedForItsLargestDocument() throws IOException {
+        writeFile("a.owl.xml", 1);
+        writeFile("b.owl.xml", 3);
+        writeFile("c.owl.xml", 2);
+        writeProperties(ExperimentProperties.WORKLOAD_PROPERTY_NAME + "=" + ExperimentProperties.BATCH_WORKLOAD);
+        JobMemoryEstimator estimator = new JobMemoryEstimator(16, 100000, 20, 1.0);
+        assertEquals(60, estimator.estimate(job));
+    }
+
+    @Test
+    public void documentWorkloadIsSizedForTheDocumentItLoads() throws IOException {
+        writeFile("a.owl.xml", 1);
+        writeFile("b.owl.xml", 3);
+        JobMemoryEstimator estimator = new JobMemoryEstimator(16, 100000, 20, 1.0);
+        assertEquals(20, estimator.estimate(job));
+    }
+
+    @Test
+    public void heapClassesAreDoublingsOfTheMinimumUpToTheMaximum() throws IOException {
+        writeFile("a.owl.xml", 3);
+        JobMemoryEstimator estimator = new JobMemoryEstimator(16, 100, 20, 1.0, true);
+        assertEquals(64, estimator.estimate(job));
+        assertEquals(16, estimator.getHeapClass(1));
+        assertEquals(32, estimator.getHeapClass(17));
+        assertEquals(100, estimator.getHeapClass(65));
+        assertEquals(100, estimator.getRetryMegaBytes(64));
+    }
+
+    private void writeFile(String name, int megaBytes) throws IOException {
+        OutputStream os = new FileOutputStream(new File(ontologyDocumentDirectory, name));
+        try {
+            os.write(new byte[megaBytes * BYTES_PER_MEGA_BYTE]);
+        }
+        finally {
+            os.close();
+        }
+    }
+
+    private void writeProperties(String line) throws IOException {
+        OutputStream os = new FileOutputStream(new File(ontologyDocumentDirectory, OntologyDocumentExperimentRunner.PROPERTIES_FILE_NAME));
+        try {
+            os.write((line + "\n").getBytes("UTF-8"));
+        }
+        finally {
+            os.close();
+        }
+    }
+
+    /**
+     * Keeps some objects reachable, allocates some garbage and measures the live heap.
+     */
+    private static long simulateRun(int liveMegaBytes, int garbageMegaBytes) {
+        liveSet = new ArrayList<byte[]>();
+        for (int i = 0; i < liveMegaBytes * (BYTES_PER_MEGA_BYTE / CHUNK_SIZE); i++) {
+            liveSet.add(new byte[CHUNK_SIZE]);
+        }
+        for (int i = 0; i < garbageMegaBytes * (BYTES_PER_MEGA_BYTE / CHUNK_SIZE); i++) {
+            byte[] garbage = new byte[CHUNK_SIZE];
+            garbage[0] = 1;
+        }
+        long liveHeapUsed = HeapUsage.getLiveHeapUsage();
+        liveSet = null;
+        return liveHeapUsed;
+    }
+
+    @OntologyDocumentExperiment
+    public static class TestExperiment {
+
+        @Experiment
+        public void run() {
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package uk.ac.manchester.cs.owl.experimentbench;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class MatrixConfigurationTest {
+
+    @Test
+    public void propertiesWithoutAMatrixExpandToTheEmptyConfiguration() {
+        List<MatrixConfiguration> configurations = MatrixConfiguration.expand(createProperties(
+                ExperimentProperties.REASONER_FACTORY_CLASS_PROPERTY, "a.ReasonerFactory",
+                "matrix.workload", "queries"));
+        assertEquals(1, configurations.size());
+        assertSame(MatrixConfiguration.EMPTY, configurations.get(0));
+        assertEquals("", configurations.get(0).getDirectoryPath());
+    }
+
+    @Test
+    public void matrixExpandsToEveryCombinationWithTheReasonerFirst() {
+        List<MatrixConfiguration> configurations = MatrixConfiguration.expand(createProperties(
+                ExperimentProperties.REASONER_FACTORY_CLASS_PROPERTY, "a.FirstFactory, b.SecondFactory",
+                "matrix.experimenttimeoutms", "1000,2000"));
+        List<String> directoryPaths = new ArrayList<String>();
+        for (MatrixConfiguration configuration : configurations) {
+            directoryPaths.add(configuration.getDirectoryPath());
+        }
+        assertEquals(Arrays.asList(
+                "FirstFactory/experimenttimeoutms-1000",
+                "FirstFactory/experimenttimeoutms-2000",
+                "SecondFactory/experimenttimeoutms-1000",
+                "SecondFactory/experimenttimeoutms-2000"), directoryPaths);
+
+        ExperimentProperties applied = configurations.get(1).apply(createProperties("experimenttimeoutms", "5000"));
+        assertEquals("a.FirstFactory", applied.getProperty(ExperimentProperties.REASONER_FACTORY_CLASS_PROPERTY, null));
+        assertEquals(2000, applied.getOntologyDocumentExperimentTimeOut());
+    }
+
+    @Test
+    public void reasonersWithTheSameSimpleNameAreNamedByClassName() {
+        List<MatrixConfiguration> configurations = MatrixConfiguration.expand(createProperties(
+                ExperimentProperties.REASONER_FACTORY_CLASS_PROPERTY, "a.ReasonerFactory,b.ReasonerFactory"));
+        assertEquals("a.ReasonerFactory", configurations.get(0).getDirectoryPath());
+        assertEquals("b.ReasonerFactory", configurations.get(1).getDirectoryPath());
+    }
+
+    @Test
+    public void valuesThatAreTheSameOnceSanitisedGetDistinctDirectories() {
+        List<MatrixConfiguration> configurations = MatrixConfiguration.expand(createProperties(
+                "matrix.workload", "a b,a_b,a/b,c d"));
+        Set<String> directoryPaths = new HashSet<String>();
+        for (MatrixConfiguration configuration : configurations) {
+            String directoryPath = configuration.getDirectoryPath();
+            assertFalse(directoryPath.contains(" "));
+            assertFalse(directoryPath.contains("/"));
+            directoryPaths.add(directoryPath);
+        }
+        assertEquals(4, directoryPaths.size());
+        assertTrue(configurations.get(0).getDirectoryPath().startsWith("workload-a_b-"));
+        // Values that do not collide keep their plain names
+        assertEquals("workload-c_d", configurations.get(3).getDirectoryPath());
+
+        // The names of values do not depend on the other values of the axis
+        List<MatrixConfiguration> reordered = MatrixConfiguration.expand(createProperties(
+                "matrix.workload", "a_b,c d,a b"));
+        assertEquals(configurations.get(0).getDirectoryPath(), reordered.get(2).getDirectoryPath());
+        assertEquals(configurations.get(1).getDirectoryPath(), reordered.get(0).getDirectoryPath());
+    }
+
+    @Test
+    public void valuesThatOnlyDifferInCaseGetDistinctDirectories() {
+        List<MatrixConfiguration> configurations = MatrixConfiguration.expand(createProperties(
+                "matrix.workload", "Queries,queries"));
+        String first = configurations.get(0).getDirectoryPath();
+        String second = configurations.get(1).getDirectoryPath();
+        assertNotEquals(first.toLowerCase(Locale.ENGLISH), second.toLowerCase(Locale.ENGLISH));
+    }
+
+    @Test
+    public void encodingRoundTrips() {
+        List<MatrixConfiguration> configurations = MatrixConfiguration.expand(createProperties(
+                ExperimentProperties.REASONER_FACTORY_CLASS_PROPERTY, "a.Outer$ReasonerFactory,b.ReasonerFactory",
+                "matrix.workload", "x=1&y/2,x 1\ty\\2,\u00e9t\u00e9"));
+        assertEquals(6, configurations.size());
+        for (MatrixConfiguration configuration : configurations) {
+            String encoded = configuration.encode();
+            assertFalse(encoded.contains(","));
+            assertFalse(encoded.contains("\t"));
+            assertFalse(encoded.contains("/"));
+            assertFalse(encoded.contains("\\"));
+            MatrixConfiguration decoded = MatrixConfiguration.decode(encoded);
+            assertEquals(configuration, decoded);
+            assertEquals(configuration.getValues(), decoded.getValues());
+            assertEquals(configuration.getDirectoryPath(), decoded.getDirectoryPath());
+        }
+        assertSame(MatrixConfiguration.EMPTY, MatrixConfiguration.decode(MatrixConfiguration.EMPTY.encode()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void malformedEncodingIsRejected() {
+        MatrixConfiguration.decode("workload=queries");
+    }
+
+    private static ExperimentProperties createProperties(String... namesAndValues) {
+        Properties properties = new Properties();
+        for (int i = 0; i < namesAndValues.length; i += 2) {
+            properties.setProperty(namesAndValues[i], namesAndValues[i + 1]);
+        }
+        return new ExperimentProperties.Builder().addLayer("test", properties).build();
+    }
+}
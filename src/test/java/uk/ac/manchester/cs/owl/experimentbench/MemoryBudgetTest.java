@@ -0,0 +1,40 @@
+package uk.ac.manchester.cs.owl.experimentbench;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MemoryBudgetTest {
+
+    @Test
+    public void tryAcquireOnlyReservesWhatFits() {
+        MemoryBudget budget = new MemoryBudget(100);
+        assertTrue(budget.tryAcquire(60));
+        assertFalse(budget.tryAcquire(60));
+        assertEquals(60, budget.getReservedMegaBytes());
+    }
+
+    @Test(timeout = 10000)
+    public void acquireReclaimsSpeculativeReservations() throws InterruptedException {
+        MemoryBudget budget = new MemoryBudget(100);
+        assertTrue(budget.tryAcquire(40));
+        assertTrue(budget.tryAcquire(40));
+        final int[] reclaimable = {40, 40};
+        budget.setReclaimer(new MemoryBudget.Reclaimer() {
+            public int reclaim(int megaBytes) {
+                int result = 0;
+                for (int i = 0; i < reclaimable.length && result < megaBytes; i++) {
+                    result += reclaimable[i];
+                    reclaimable[i] = 0;
+                }
+                return result;
+            }
+        });
+        budget.acquire(50);
+        assertEquals(90, budget.getReservedMegaBytes());
+        assertEquals(0, reclaimable[0]);
+        assertEquals(40, reclaimable[1]);
+    }
+}
@@ -0,0 +1,88 @@
+package uk.ac.manchester.cs.owl.experimentbench;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class RunJournalTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void tornLastLineIsDroppedBeforeItIsApplied() throws IOException {
+        File directory = temporaryFolder.newFolder();
+        // The controller stopped part way through a line that, as far as it got, still parses.
+        writeJournal(directory, "1\tRUNNING\texp-a\n2\tSUCCEEDED\texp-a");
+        RunJournal journal = new RunJournal(directory);
+        assertEquals(JobStatus.RUNNING, journal.getStatus("exp-a"));
+        assertEquals(1, journal.getAttempts("exp-a"));
+        journal.record("exp-a", JobStatus.FAILED);
+        journal.close();
+
+        assertFalse(readJournal(directory).contains(JobStatus.SUCCEEDED.name()));
+        RunJournal reopenedJournal = new RunJournal(directory);
+        assertEquals(JobStatus.FAILED, reopenedJournal.getStatus("exp-a"));
+        assertEquals(1, reopenedJournal.getAttempts("exp-a"));
+        reopenedJournal.close();
+    }
+
+    @Test
+    public void changedFingerprintResetsAttempts() throws IOException {
+        File directory = temporaryFolder.newFolder();
+        RunJournal journal = new RunJournal(directory);
+        journal.setCurrentFingerprint("exp-a", "f1");
+        journal.record("exp-a", JobStatus.RUNNING);
+        journal.record("exp-a", JobStatus.FAILED);
+        journal.record("exp-a", JobStatus.RUNNING);
+        journal.record("exp-b", JobStatus.RUNNING);
+        assertEquals(2, journal.getAttempts("exp-a"));
+        journal.close();
+
+        RunJournal secondJournal = new RunJournal(directory);
+        assertEquals(2, secondJournal.getAttempts("exp-a"));
+        assertEquals("f1", secondJournal.getFingerprint("exp-a"));
+        secondJournal.setCurrentFingerprint("exp-a", "f2");
+        secondJournal.record("exp-a", JobStatus.RUNNING);
+        assertEquals(1, secondJournal.getAttempts("exp-a"));
+        assertEquals(1, secondJournal.getAttempts("exp-b"));
+        secondJournal.close();
+
+        RunJournal thirdJournal = new RunJournal(directory);
+        assertEquals(1, thirdJournal.getAttempts("exp-a"));
+        assertEquals("f2", thirdJournal.getFingerprint("exp-a"));
+        assertEquals(1, thirdJournal.getAttempts("exp-b"));
+        thirdJournal.close();
+    }
+
+    private static void writeJournal(File directory, String content) throws IOException {
+        Writer writer = new OutputStreamWriter(new FileOutputStream(new File(directory, RunJournal.FILE_NAME)), "UTF-8");
+        try {
+            writer.write(content);
+        }
+        finally {
+            writer.close();
+        }
+    }
+
+    private static String readJournal(File directory) throws IOException {
+        Reader reader = new InputStreamReader(new FileInputStream(new File(directory, RunJournal.FILE_NAME)), "UTF-8");
+        try {
+            StringBuilder sb = new StringBuilder();
+            char[] buffer = new char[1024];
+            int read;
+            while ((read = reader.read(buffer)) != -1) {
+                sb.append(buffer, 0, read);
+            }
+            return sb.toString();
+        }
+        finally {
+            reader.close();
+        }
+    }
+}
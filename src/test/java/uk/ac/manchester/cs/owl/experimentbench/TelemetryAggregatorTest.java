@@ -0,0 +1,172 @@
+package uk.ac.manchester.cs.owl.experimentbench;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.semanticweb.owl.explanation.telemetry.DefaultTelemetryInfo;
+import org.semanticweb.owl.explanation.telemetry.TelemetryInfo;
+import org.semanticweb.owl.explanation.telemetry.XMLTelemetryReceiver;
+
+import java.io.*;
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+
+public class TelemetryAggregatorTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File rootOutputDirectory;
+
+    private File summaryFile;
+
+    @Before
+    public void recordTelemetry() throws IOException {
+        rootOutputDirectory = temporaryFolder.newFolder("telemetry-out");
+        summaryFile = new File(rootOutputDirectory, TelemetryAggregator.SUMMARY_FILE_NAME);
+        writeTelemetry(getExperimentDirectory("pizza", "count"), 3, "ok");
+        writeTelemetry(getExperimentDirectory("pizza", "classify"), 2, "ok");
+        writeTelemetry(getExperimentDirectory("wine, red", "count"), 1, "ok");
+    }
+
+    @Test
+    public void summaryHasOneEscapedRowPerPathAndName() throws IOException {
+        aggregate(true);
+        List<String> summary = readSummary();
+        assertEquals(TelemetrySummary.CSV_HEADER, summary.get(0));
+        assertEquals(Arrays.asList(
+                "pizza,count,experiment,before,1,1,1,1,1,1",
+                "pizza,count,experiment/method,time,3,6,1,3,2,3",
+                "pizza,count,experiment/method,text,1,,,,,\"ok, \"\"quoted\"\"\"",
+                "pizza,count,experiment/method/exception,java.lang.IllegalStateException,1,,,,,\"ok\nsecond line\"",
+                "pizza,count,experiment,after,1,2,2,2,2,2"), getRows(summary, "pizza,count,"));
+        assertEquals(5, getRows(summary, "\"wine, red\",count,").size());
+    }
+
+    @Test
+    public void changingOneExperimentOnlyChangesItsRows() throws IOException {
+        aggregate(true);
+        List<String> before = readSummary();
+        writeTelemetry(getExperimentDirectory("pizza", "classify"), 4, "changed");
+        aggregate(true);
+        List<String> after = readSummary();
+        assertEquals(getRows(before, "pizza,count,"), getRows(after, "pizza,count,"));
+        assertEquals(getRows(before, "\"wine, red\",count,"), getRows(after, "\"wine, red\",count,"));
+        List<String> changedRows = getRows(after, "pizza,classify,");
+        assertEquals("pizza,classify,experiment/method,time,4,10,1,4,2.5,4", changedRows.get(1));
+        assertEquals("pizza,classify,experiment/method,text,1,,,,,\"changed, \"\"quoted\"\"\"", changedRows.get(2));
+        assertEquals(before.size(), after.size());
+    }
+
+    @Test
+    public void unchangedTelemetryIsNotParsedAgain() throws IOException {
+        aggregate(true);
+        List<String> before = readSummary();
+        // Corrupt the telemetry of one experiment without changing its length or modification time, so that only the
+        // manifest shows whether it is parsed again.
+        File telemetryFile = new File(getExperimentDirectory("pizza", "count"), OntologyDocumentExperimentRunner.TELEMETRY_FILE_NAME);
+        long lastModified = telemetryFile.lastModified();
+        char[] garbage = new char[(int) telemetryFile.length()];
+        Arrays.fill(garbage, 'x');
+        writeFile(telemetryFile, new String(garbage));
+        telemetryFile.setLastModified(lastModified);
+
+        aggregate(true);
+        assertEquals(before, readSummary());
+
+        aggregate(false);
+        assertEquals(0, getRows(readSummary(), "pizza,count,").size());
+        assertEquals(getRows(before, "pizza,classify,"), getRows(readSummary(), "pizza,classify,"));
+    }
+
+    private File getExperimentDirectory(String ontologyName, String experimentName) {
+        return new File(new File(rootOutputDirectory, ontologyName), experimentName);
+    }
+
+    private void aggregate(boolean incremental) throws IOException {
+        TelemetryAggregator aggregator = new TelemetryAggregator(rootOutputDirectory, summaryFile, 2);
+        aggregator.setIncremental(incremental);
+        aggregator.aggregate();
+    }
+
+    /**
+     * Writes the XML telemetry that a runner would record, with a time measurement for each of a number of checks, a
+     * text measurement that needs escaping and an exception with a multi-line message.
+     */
+    private static void writeTelemetry(File experimentDirectory, int checks, String text) throws IOException {
+        StringWriter writer = new StringWriter();
+        XMLTelemetryReceiver receiver = new XMLTelemetryReceiver(writer);
+        TelemetryInfo experimentInfo = new DefaultTelemetryInfo("experiment");
+        receiver.beginTransmission(experimentInfo);
+        receiver.recordMeasurement(experimentInfo, "before", "1");
+        TelemetryInfo methodInfo = new DefaultTelemetryInfo("method");
+        receiver.beginTransmission(methodInfo);
+        for (int i = 1; i <= checks; i++) {
+            receiver.recordMeasurement(methodInfo, "time", Integer.toString(i));
+        }
+        receiver.recordMeasurement(methodInfo, "text", text + ", \"quoted\"");
+        receiver.recordException(methodInfo, new IllegalStateException(text + "\nsecond line"));
+        receiver.endTransmission(methodInfo);
+        receiver.recordMeasurement(experimentInfo, "after", "2");
+        receiver.endTransmission(experimentInfo);
+        // The XML receiver only ends the document in its shutdown hook
+        experimentDirectory.mkdirs();
+        writeFile(new File(experimentDirectory, OntologyDocumentExperimentRunner.TELEMETRY_FILE_NAME), writer.toString() + "</experiments>\n");
+    }
+
+    private static void writeFile(File file, String content) throws IOException {
+        Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        try {
+            writer.write(content);
+        }
+        finally {
+            writer.close();
+        }
+    }
+
+    private List<String> readSummary() throws IOException {
+        List<String> lines = new ArrayList<String>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(summaryFile), "UTF-8"));
+        try {
+            StringBuilder row = new StringBuilder();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                // Quoted values can span lines
+                row.append(line);
+                if (countQuotes(row) % 2 == 0) {
+                    lines.add(row.toString());
+                    row.setLength(0);
+                }
+                else {
+                    row.append('\n');
+                }
+            }
+        }
+        finally {
+            reader.close();
+        }
+        return lines;
+    }
+
+    private static int countQuotes(CharSequence s) {
+        int count = 0;
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) == '"') {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static List<String> getRows(List<String> summary, String prefix) {
+        List<String> rows = new ArrayList<String>();
+        for (String row : summary) {
+            if (row.startsWith(prefix)) {
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+}